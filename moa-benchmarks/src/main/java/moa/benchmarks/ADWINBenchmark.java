@@ -0,0 +1,94 @@
+/*
+ *    ADWINBenchmark.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import moa.classifiers.core.driftdetection.ADWIN;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of ADWIN.setInput and ADWIN.setInputs on a stream of errors of a
+ * classifier.
+ *
+ * The inputs are bits whose mean changes abruptly every driftPeriod values,
+ * or never when driftPeriod is 0. Each invocation feeds the same inputs to a
+ * new ADWIN and reports the average time per input.
+ *
+ * @version $Revision: 1 $
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ADWINBenchmark {
+
+    public static final int NUM_INPUTS = 100000;
+
+    @Param({"0.002", "0.1"})
+    public double delta;
+
+    @Param({"0", "10000"})
+    public int driftPeriod;
+
+    protected double[] inputs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(1);
+        this.inputs = new double[NUM_INPUTS];
+        double errorRate = 0.2;
+        for (int i = 0; i < NUM_INPUTS; i++) {
+            if (this.driftPeriod > 0 && i > 0 && i % this.driftPeriod == 0) {
+                errorRate = errorRate == 0.2 ? 0.6 : 0.2;
+            }
+            this.inputs[i] = random.nextDouble() < errorRate ? 1.0 : 0.0;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_INPUTS)
+    public void setInput(Blackhole blackhole) {
+        ADWIN adwin = new ADWIN(this.delta);
+        for (double input : this.inputs) {
+            blackhole.consume(adwin.setInput(input));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_INPUTS)
+    public void setInputs(Blackhole blackhole) {
+        ADWIN adwin = new ADWIN(this.delta);
+        blackhole.consume(adwin.setInputs(this.inputs, this.inputs.length));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *    ArffLoaderBenchmark.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.benchmarks;
+
+import com.yahoo.labs.samoa.instances.ArffLoader;
+import com.yahoo.labs.samoa.instances.Instance;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import moa.streams.InstanceStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of the ARFF loader.
+ *
+ * The ARFF text is written in memory from a generated stream, so the
+ * benchmark measures parsing and not the disk. Each invocation reads the
+ * whole text and reports the average time per instance.
+ *
+ * @version $Revision: 1 $
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArffLoaderBenchmark {
+
+    public static final int NUM_INSTANCES = 10000;
+
+    @Param({"10", "100"})
+    public int numAttributes;
+
+    @Param({"2", "10"})
+    public int numClasses;
+
+    protected String arff;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InstanceStream stream = BenchmarkData.createStream(this.numAttributes, this.numClasses, 1);
+        this.arff = BenchmarkData.toArff(stream.getHeader(),
+                BenchmarkData.readInstances(stream, NUM_INSTANCES));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_INSTANCES)
+    public void readInstance(Blackhole blackhole) {
+        ArffLoader loader = new ArffLoader(new StringReader(this.arff), 0, -1);
+        Instance inst;
+        while ((inst = loader.readInstance()) != null) {
+            blackhole.consume(inst);
+        }
+    }
+}
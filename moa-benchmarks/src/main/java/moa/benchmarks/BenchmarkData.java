@@ -0,0 +1,114 @@
+/*
+ *    BenchmarkData.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.benchmarks;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import moa.options.ClassOption;
+import moa.options.OptionHandler;
+import moa.streams.InstanceStream;
+
+/**
+ * Creates the streams and instances used by the benchmarks.
+ *
+ * The instances come from a RandomRBFGenerator with a fixed seed, so every
+ * run of a benchmark sees the same data whatever the version of MOA.
+ *
+ * @version $Revision: 1 $
+ */
+public final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Creates a stream from its command line, relative to moa.streams.
+     *
+     * @param cliString the class name and options of the stream
+     * @return the prepared stream
+     */
+    public static InstanceStream createStream(String cliString) {
+        try {
+            InstanceStream stream = (InstanceStream) ClassOption.cliStringToObject(
+                    cliString, InstanceStream.class, null);
+            if (stream instanceof OptionHandler) {
+                ((OptionHandler) stream).prepareForUse();
+            }
+            return stream;
+        } catch (Exception ex) {
+            throw new RuntimeException("Could not create stream " + cliString, ex);
+        }
+    }
+
+    /**
+     * Creates a RandomRBFGenerator stream with numeric attributes and a
+     * nominal class.
+     *
+     * @param numAttributes the number of numeric attributes
+     * @param numClasses the number of classes
+     * @param seed the seed of the instances
+     * @return the prepared stream
+     */
+    public static InstanceStream createStream(int numAttributes, int numClasses,
+            int seed) {
+        return createStream("generators.RandomRBFGenerator -a " + numAttributes
+                + " -c " + numClasses + " -i " + seed);
+    }
+
+    /**
+     * Reads the first instances of a stream.
+     *
+     * @param stream the stream
+     * @param numInstances the number of instances
+     * @return the instances
+     */
+    public static Instance[] readInstances(InstanceStream stream, int numInstances) {
+        Instance[] instances = new Instance[numInstances];
+        for (int i = 0; i < numInstances; i++) {
+            instances[i] = stream.nextInstance().getData();
+        }
+        return instances;
+    }
+
+    /**
+     * Writes instances as the text of an ARFF file.
+     *
+     * @param header the header of the instances
+     * @param instances the instances
+     * @return the ARFF text
+     */
+    public static String toArff(InstancesHeader header, Instance[] instances) {
+        StringBuilder sb = new StringBuilder(header.toString());
+        for (Instance inst : instances) {
+            for (int i = 0; i < inst.numAttributes(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                if (inst.isMissing(i)) {
+                    sb.append('?');
+                } else if (inst.attribute(i).isNominal()) {
+                    sb.append(inst.attribute(i).value((int) inst.value(i)));
+                } else {
+                    sb.append(inst.value(i));
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *    ClassifierBenchmark.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.benchmarks;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import java.util.concurrent.TimeUnit;
+import moa.classifiers.Classifier;
+import moa.options.ClassOption;
+import moa.streams.InstanceStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of the training and prediction speed of classifiers.
+ *
+ * Training builds a new model from the same instances at each invocation, so
+ * the size of the model, and therefore the cost of an instance, does not
+ * depend on how long the benchmark runs. Prediction uses a model trained once
+ * on those instances and scores other instances of the same stream. Both
+ * report the average time per instance.
+ *
+ * @version $Revision: 1 $
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClassifierBenchmark {
+
+    public static final int NUM_INSTANCES = 10000;
+
+    /**
+     * The classifier, relative to moa.classifiers.
+     */
+    @Param({"trees.HoeffdingTree", "meta.AdaptiveRandomForest -s 10",
+        "bayes.NaiveBayes", "lazy.kNN"})
+    public String learner;
+
+    @Param({"10", "100"})
+    public int numAttributes;
+
+    @Param({"2", "10"})
+    public int numClasses;
+
+    protected InstanceStream stream;
+
+    protected Instance[] trainInstances;
+
+    protected Instance[] testInstances;
+
+    protected Classifier trainedClassifier;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.stream = BenchmarkData.createStream(this.numAttributes, this.numClasses, 1);
+        this.trainInstances = BenchmarkData.readInstances(this.stream, NUM_INSTANCES);
+        this.testInstances = BenchmarkData.readInstances(this.stream, NUM_INSTANCES);
+        this.trainedClassifier = train();
+    }
+
+    protected Classifier createClassifier() {
+        try {
+            Classifier classifier = (Classifier) ClassOption.cliStringToObject(
+                    this.learner, Classifier.class, null);
+            classifier.prepareForUse();
+            classifier.setModelContext(this.stream.getHeader());
+            classifier.resetLearning();
+            return classifier;
+        } catch (Exception ex) {
+            throw new RuntimeException("Could not create classifier " + this.learner, ex);
+        }
+    }
+
+    protected Classifier train() {
+        Classifier classifier = createClassifier();
+        for (Instance inst : this.trainInstances) {
+            classifier.trainOnInstance(inst);
+        }
+        return classifier;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_INSTANCES)
+    public Classifier trainOnInstance() {
+        return train();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_INSTANCES)
+    public void getVotesForInstance(Blackhole blackhole) {
+        for (Instance inst : this.testInstances) {
+            blackhole.consume(this.trainedClassifier.getVotesForInstance(inst));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *    GeneratorBenchmark.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import moa.streams.InstanceStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the generators whose number of attributes and classes can be
+ * set. The generators with a fixed schema are in FixedSchemaGeneratorBenchmark.
+ *
+ * @version $Revision: 1 $
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeneratorBenchmark {
+
+    /**
+     * The generator, relative to moa.streams.generators, and the options
+     * setting the number of attributes and of classes.
+     */
+    @Param({"RandomRBFGenerator -a %d -c %d",
+        "RandomRBFGeneratorDrift -a %d -c %d -s 0.001",
+        "RandomTreeGenerator -o 0 -u %d -c %d",
+        "HyperplaneGenerator -a %d -c %d"})
+    public String generator;
+
+    @Param({"10", "100"})
+    public int numAttributes;
+
+    @Param({"2", "10"})
+    public int numClasses;
+
+    protected InstanceStream stream;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.stream = BenchmarkData.createStream("generators."
+                + String.format(this.generator, this.numAttributes, this.numClasses));
+    }
+
+    @Benchmark
+    public Object nextInstance() {
+        return this.stream.nextInstance();
+    }
+}
@@ -0,0 +1,533 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * The Class ArffDataReader. Splits the data section of an Arff file into
+ * tokens, with the same syntax as the StreamTokenizer of ArffLoader.
+ *
+ * Characters are read in blocks into a buffer and words are kept as ranges of
+ * the buffer, so reading a value does not allocate: numbers are parsed from
+ * the buffer and nominal values are looked up in a table per attribute that
+ * caches the indices given by Attribute.indexOfValue.
+ */
+public class ArffDataReader {
+
+    /**
+     * The end of the file.
+     */
+    public static final int TT_EOF = -1;
+
+    /**
+     * The end of a line.
+     */
+    public static final int TT_EOL = -2;
+
+    /**
+     * A word, kept in the buffer between tokenStart and tokenEnd.
+     */
+    public static final int TT_WORD = -3;
+
+    /**
+     * A quoted string, kept in quotedValue.
+     */
+    public static final int TT_QUOTED = -4;
+
+    /**
+     * The powers of ten that are exact doubles.
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * The largest mantissa that is an exact double.
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * The reader.
+     */
+    protected Reader reader;
+
+    /**
+     * The characters read.
+     */
+    protected char[] buffer;
+
+    /**
+     * The position of the next character in the buffer.
+     */
+    protected int position;
+
+    /**
+     * The number of characters in the buffer.
+     */
+    protected int limit;
+
+    /**
+     * The type of the last token, a character for '{' and '}'.
+     */
+    public int ttype;
+
+    /**
+     * The start of the last word in the buffer.
+     */
+    public int tokenStart;
+
+    /**
+     * The end of the last word in the buffer.
+     */
+    public int tokenEnd;
+
+    /**
+     * The value of the last quoted string.
+     */
+    public String quotedValue;
+
+    /**
+     * The lookup tables of the nominal values, by attribute index.
+     */
+    protected NominalValues[] nominalValues = new NominalValues[0];
+
+    /**
+     * Instantiates a new reader.
+     *
+     * @param reader the reader, positioned at the start of a line of the data
+     * section
+     */
+    public ArffDataReader(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[1 << 16];
+    }
+
+    /**
+     * Reads the next token. Commas and whitespace separate the tokens, '%'
+     * starts a comment up to the end of the line.
+     *
+     * @return the type of the token
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public int nextToken() throws IOException {
+        this.quotedValue = null;
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                return this.ttype = TT_EOF;
+            }
+            if (c == '\n') {
+                return this.ttype = TT_EOL;
+            }
+            if (c == '\r') {
+                if (peek() == '\n') {
+                    this.position++;
+                }
+                return this.ttype = TT_EOL;
+            }
+            if (c <= ' ' || c == ',') {
+                continue;
+            }
+            if (c == '%') {
+                while ((c = peek()) >= 0 && c != '\n' && c != '\r') {
+                    this.position++;
+                }
+                continue;
+            }
+            if (c == '{' || c == '}') {
+                return this.ttype = c;
+            }
+            if (c == '"' || c == '\'') {
+                this.quotedValue = readQuoted(c);
+                return this.ttype = TT_QUOTED;
+            }
+            readWord();
+            return this.ttype = TT_WORD;
+        }
+    }
+
+    /**
+     * Returns the last word or quoted string.
+     *
+     * @return the string value of the token
+     */
+    public String stringValue() {
+        if (this.ttype == TT_QUOTED) {
+            return this.quotedValue;
+        }
+        return new String(this.buffer, this.tokenStart, this.tokenEnd - this.tokenStart);
+    }
+
+    /**
+     * Returns whether the last token is the word "?".
+     *
+     * @return true if the token is a missing value
+     */
+    public boolean isMissingValue() {
+        if (this.ttype == TT_QUOTED) {
+            return "?".equals(this.quotedValue);
+        }
+        return this.tokenEnd - this.tokenStart == 1 && this.buffer[this.tokenStart] == '?';
+    }
+
+    /**
+     * Parses the last token as a double. Decimal numbers that fit a long with
+     * a small exponent are computed directly, the result being exactly the one
+     * of Double.valueOf, the other ones are passed to Double.valueOf.
+     *
+     * @return the value of the token
+     */
+    public double doubleValue() {
+        if (this.ttype == TT_WORD) {
+            double value = parseDecimal(this.buffer, this.tokenStart, this.tokenEnd);
+            if (!Double.isNaN(value)) {
+                return value;
+            }
+        }
+        return Double.valueOf(stringValue()).doubleValue();
+    }
+
+    /**
+     * Parses the last token as an int.
+     *
+     * @return the value of the token
+     */
+    public int intValue() {
+        if (this.ttype == TT_WORD) {
+            int i = this.tokenStart;
+            int end = this.tokenEnd;
+            int value = 0;
+            while (i < end && i - this.tokenStart < 9
+                    && this.buffer[i] >= '0' && this.buffer[i] <= '9') {
+                value = 10 * value + (this.buffer[i] - '0');
+                i++;
+            }
+            if (i == end && end > this.tokenStart) {
+                return value;
+            }
+        }
+        return Integer.parseInt(stringValue());
+    }
+
+    /**
+     * Returns the index of the last token among the values of a nominal
+     * attribute. A value is looked up with Attribute.indexOfValue the first
+     * time it is read, which adds it to the attribute if it is new.
+     *
+     * @param attribute the attribute
+     * @param attributeIndex the index of the attribute
+     * @return the index of the value
+     */
+    public int indexOfValue(Attribute attribute, int attributeIndex) {
+        if (this.ttype == TT_QUOTED) {
+            return attribute.indexOfValue(this.quotedValue);
+        }
+        if (attributeIndex >= this.nominalValues.length) {
+            this.nominalValues = Arrays.copyOf(this.nominalValues, attributeIndex + 1);
+        }
+        NominalValues values = this.nominalValues[attributeIndex];
+        if (values == null) {
+            values = new NominalValues();
+            this.nominalValues[attributeIndex] = values;
+        }
+        int index = values.get(this.buffer, this.tokenStart, this.tokenEnd);
+        if (index < 0) {
+            String value = stringValue();
+            index = attribute.indexOfValue(value);
+            values.put(value, index);
+        }
+        return index;
+    }
+
+    /**
+     * Parses a decimal number of the form [+-]digits[.digits][(e|E)[+-]digits].
+     *
+     * @param chars the characters
+     * @param start the start of the number
+     * @param end the end of the number
+     * @return the value, or NaN if it cannot be computed exactly
+     */
+    protected static double parseDecimal(char[] chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int numDigits = 0;
+        while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+            mantissa = 10 * mantissa + (chars[i] - '0');
+            if (mantissa > MAX_EXACT_MANTISSA) {
+                return Double.NaN;
+            }
+            numDigits++;
+            i++;
+        }
+        if (i < end && chars[i] == '.') {
+            i++;
+            while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+                mantissa = 10 * mantissa + (chars[i] - '0');
+                if (mantissa > MAX_EXACT_MANTISSA) {
+                    return Double.NaN;
+                }
+                exponent--;
+                numDigits++;
+                i++;
+            }
+        }
+        if (numDigits == 0) {
+            return Double.NaN;
+        }
+        if (i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+                negativeExponent = chars[i] == '-';
+                i++;
+            }
+            int exponentStart = i;
+            int explicitExponent = 0;
+            while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+                explicitExponent = 10 * explicitExponent + (chars[i] - '0');
+                if (explicitExponent > 1000) {
+                    return Double.NaN;
+                }
+                i++;
+            }
+            if (i == exponentStart) {
+                return Double.NaN;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (exponent == 0) {
+            value = (double) mantissa;
+        } else if (exponent > 0 && exponent < POWERS_OF_TEN.length) {
+            value = (double) mantissa * POWERS_OF_TEN[exponent];
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            value = (double) mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            return Double.NaN;
+        }
+        return negative ? -value : value;
+    }
+
+    private void readWord() throws IOException {
+        int start = this.position - 1;
+        while (true) {
+            if (this.position == this.limit) {
+                start = refill(start);
+                if (this.position == this.limit) {
+                    break;
+                }
+            }
+            char c = this.buffer[this.position];
+            if (c <= ' ' || c == ',' || c == '%' || c == '{' || c == '}'
+                    || c == '"' || c == '\'') {
+                break;
+            }
+            this.position++;
+        }
+        this.tokenStart = start;
+        this.tokenEnd = this.position;
+    }
+
+    private String readQuoted(int quote) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c = read();
+        while (c >= 0 && c != quote && c != '\n' && c != '\r') {
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'a':
+                        c = 0x7;
+                        break;
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = 0xC;
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'v':
+                        c = 0xB;
+                        break;
+                    default:
+                        if (c >= '0' && c <= '7') {
+                            int first = c;
+                            c = c - '0';
+                            int next = peek();
+                            if (next >= '0' && next <= '7') {
+                                this.position++;
+                                c = (c << 3) + (next - '0');
+                                next = peek();
+                                if (next >= '0' && next <= '7' && first <= '3') {
+                                    this.position++;
+                                    c = (c << 3) + (next - '0');
+                                }
+                            }
+                        }
+                        break;
+                }
+                if (c < 0) {
+                    break;
+                }
+            }
+            sb.append((char) c);
+            c = read();
+        }
+        if (c == '\n' || c == '\r') {
+            // the line ends the string, it is read again as the end of line
+            this.position--;
+        }
+        return sb.toString();
+    }
+
+    private int read() throws IOException {
+        if (this.position == this.limit) {
+            refill(this.position);
+            if (this.position == this.limit) {
+                return -1;
+            }
+        }
+        return this.buffer[this.position++];
+    }
+
+    private int peek() throws IOException {
+        if (this.position == this.limit) {
+            refill(this.position);
+            if (this.position == this.limit) {
+                return -1;
+            }
+        }
+        return this.buffer[this.position];
+    }
+
+    /**
+     * Reads more characters, keeping the ones from the given position.
+     *
+     * @param keep the first position to keep
+     * @return the new position of the first character kept
+     */
+    private int refill(int keep) throws IOException {
+        int kept = this.limit - keep;
+        if (keep > 0) {
+            System.arraycopy(this.buffer, keep, this.buffer, 0, kept);
+        } else if (kept == this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, 2 * this.buffer.length);
+        }
+        this.position -= keep;
+        this.limit = kept;
+        int read = this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+        if (read > 0) {
+            this.limit += read;
+        }
+        return 0;
+    }
+
+    /**
+     * The indices of the values of a nominal attribute, by their characters.
+     */
+    protected static class NominalValues {
+
+        protected String[] keys = new String[16];
+
+        protected int[] indices = new int[16];
+
+        protected int size;
+
+        /**
+         * Returns the index of a value.
+         *
+         * @param chars the characters
+         * @param start the start of the value
+         * @param end the end of the value
+         * @return the index, or -1 if the value has not been added
+         */
+        public int get(char[] chars, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + chars[i];
+            }
+            int mask = this.keys.length - 1;
+            for (int slot = hash & mask; this.keys[slot] != null; slot = (slot + 1) & mask) {
+                String key = this.keys[slot];
+                if (key.length() == end - start && matches(key, chars, start)) {
+                    return this.indices[slot];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Adds a value.
+         *
+         * @param value the value
+         * @param index the index of the value
+         */
+        public void put(String value, int index) {
+            if (2 * (this.size + 1) > this.keys.length) {
+                String[] oldKeys = this.keys;
+                int[] oldIndices = this.indices;
+                this.keys = new String[2 * oldKeys.length];
+                this.indices = new int[2 * oldKeys.length];
+                this.size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != null) {
+                        put(oldKeys[i], oldIndices[i]);
+                    }
+                }
+            }
+            int mask = this.keys.length - 1;
+            int slot = value.hashCode() & mask;
+            while (this.keys[slot] != null && !this.keys[slot].equals(value)) {
+                slot = (slot + 1) & mask;
+            }
+            if (this.keys[slot] == null) {
+                this.size++;
+            }
+            this.keys[slot] = value;
+            this.indices[slot] = index;
+        }
+
+        private static boolean matches(String key, char[] chars, int start) {
+            for (int i = 0; i < key.length(); i++) {
+                if (key.charAt(i) != chars[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -20,12 +20,16 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.StreamTokenizer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * The Class ArffLoader. Loads an Arff file with sparse or dense format.
+ *
+ * The header is read with a StreamTokenizer, the data section with an
+ * ArffDataReader when the header ends at the end of a line.
  */
 public class ArffLoader {
 
@@ -41,6 +45,22 @@ public class ArffLoader {
      */
     protected StreamTokenizer streamTokenizer;
 
+    /**
+     * The reader of the data section, null if it is read by the stream
+     * tokenizer.
+     */
+    protected ArffDataReader dataReader;
+
+    /**
+     * The indices of the values of the sparse instance being read.
+     */
+    protected int[] sparseIndices = new int[16];
+
+    /**
+     * The values of the sparse instance being read.
+     */
+    protected double[] sparseValues = new double[16];
+
     /**
      * Instantiates a new arff loader.
      *
@@ -95,6 +115,13 @@ public class ArffLoader {
 
         this.instanceInformation = this.getHeader();
 
+        // The tokenizer stops right after the end of line of @DATA, the reader
+        // continues from there
+        if (streamTokenizer.ttype == StreamTokenizer.TT_EOL
+                || streamTokenizer.ttype == StreamTokenizer.TT_EOF) {
+            this.dataReader = new ArffDataReader(br);
+        }
+
         if (range != null) { //is MultiLabel
             this.instanceInformation.setRangeOutputIndices(range);
         }
@@ -116,6 +143,9 @@ public class ArffLoader {
      * @return the instance
      */
     public Instance readInstance() {
+        if (this.dataReader != null) {
+            return readDataInstance(true);
+        }
         while (streamTokenizer.ttype == StreamTokenizer.TT_EOL) {
             try {
                 streamTokenizer.nextToken();
@@ -132,12 +162,114 @@ public class ArffLoader {
 
     }
 
+    /**
+     * Reads an instance with the data reader, from the next line with values.
+     *
+     * @param detectSparse true to read a line starting with a '{' char as a
+     * sparse instance, false to read every line as a dense instance
+     * @return the instance, or null at the end of the file
+     */
+    protected Instance readDataInstance(boolean detectSparse) {
+        try {
+            int ttype = this.dataReader.nextToken();
+            while (ttype != ArffDataReader.TT_EOF) {
+                if (detectSparse && ttype == '{') {
+                    return readDataInstanceSparse();
+                }
+                if (ttype != ArffDataReader.TT_EOL) {
+                    Instance instance = readDataInstanceDense();
+                    if (instance != null) {
+                        return instance;
+                    }
+                }
+                ttype = this.dataReader.nextToken();
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(ArffLoader.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return null;
+    }
+
+    /**
+     * Reads a dense instance with the data reader, from its current token to
+     * the end of the line.
+     *
+     * @return the instance, or null if the line has no values
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private Instance readDataInstanceDense() throws IOException {
+        ArffDataReader data = this.dataReader;
+        Instance instance = newDenseInstance(this.instanceInformation.numAttributes());
+        int numAttribute = 0;
+        while (data.ttype != ArffDataReader.TT_EOL && data.ttype != ArffDataReader.TT_EOF) {
+            if (data.ttype == ArffDataReader.TT_WORD || data.ttype == ArffDataReader.TT_QUOTED) {
+                Attribute attribute = this.instanceInformation.attribute(numAttribute);
+                boolean isNumeric = attribute.isNumeric();
+                double value;
+                if (data.isMissingValue()) {
+                    value = Double.NaN;
+                } else if (isNumeric == true) {
+                    value = data.doubleValue();
+                } else {
+                    value = data.indexOfValue(attribute, numAttribute);
+                }
+                this.setValue(instance, numAttribute, value, isNumeric);
+                numAttribute++;
+            }
+            data.nextToken();
+        }
+        return (numAttribute > 0) ? instance : null;
+    }
+
+    /**
+     * Reads a sparse instance with the data reader, its current token being
+     * the '{' char. The rest of the line after the '}' char is skipped.
+     *
+     * @return the instance
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private Instance readDataInstanceSparse() throws IOException {
+        ArffDataReader data = this.dataReader;
+        Instance instance = newSparseInstance(1.0);
+        int numValues = 0;
+        data.nextToken(); // Remove the '{' char
+        while (data.ttype == ArffDataReader.TT_WORD || data.ttype == ArffDataReader.TT_QUOTED) {
+            int numAttribute = data.intValue();
+            data.nextToken();
+            if (data.ttype == ArffDataReader.TT_WORD || data.ttype == ArffDataReader.TT_QUOTED) {
+                double value;
+                if (this.auxAttributes.get(numAttribute).isNumeric()) {
+                    value = data.doubleValue();
+                } else {
+                    value = data.indexOfValue(this.instanceInformation.attribute(numAttribute), numAttribute);
+                }
+                if (numValues == this.sparseIndices.length) {
+                    this.sparseIndices = Arrays.copyOf(this.sparseIndices, 2 * numValues);
+                    this.sparseValues = Arrays.copyOf(this.sparseValues, 2 * numValues);
+                }
+                this.sparseIndices[numValues] = numAttribute;
+                this.sparseValues[numValues] = value;
+                numValues++;
+                data.nextToken();
+            }
+        }
+        while (data.ttype != ArffDataReader.TT_EOL && data.ttype != ArffDataReader.TT_EOF) {
+            data.nextToken();
+        }
+        instance.addSparseValues(Arrays.copyOf(this.sparseIndices, numValues),
+                Arrays.copyOf(this.sparseValues, numValues), this.instanceInformation.numAttributes());
+        return instance;
+    }
+
     /**
      * Reads a dense instance from the file.
      *
      * @return the instance
      */
     public Instance readInstanceDense() {
+        if (this.dataReader != null) {
+            return readDataInstance(false);
+        }
         Instance instance = newDenseInstance(this.instanceInformation.numAttributes());
         //System.out.println(this.instanceInformation.numAttributes());
         int numAttribute = 0;
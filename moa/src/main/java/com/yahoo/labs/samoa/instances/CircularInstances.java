@@ -0,0 +1,499 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+/**
+ * The Class CircularInstances.
+ *
+ * Instances kept in a circular buffer, for sliding windows: removing the oldest
+ * instance (delete(0)) and appending (add) take constant time, removing at an
+ * arbitrary position moves only the references on the shorter side.
+ *
+ * The attribute values of all dense rows are stored in one contiguous double[]
+ * block. Each row is exposed through a preallocated instance that reads the
+ * block directly, so adding an instance copies its values into the block
+ * instead of allocating a copy. Instances that store fewer values than they
+ * have attributes are kept sparse, in a copy of their stored values.
+ *
+ * Rows are reused: an instance returned by instance(int) or get(int) stays the
+ * same object, with the same values, while it is in the window, but once it
+ * has been deleted the object is overwritten by a later add. Callers that keep
+ * an instance beyond its deletion must keep a copy(). Deleting or inserting an
+ * attribute replaces all rows.
+ *
+ * The buffer grows when an instance is added to a full window, it never
+ * evicts instances on its own.
+ */
+public class CircularInstances extends Instances {
+
+    private static final long serialVersionUID = 4180734712651206431L;
+
+    /**
+     * The values of all rows, numAttributes values per row.
+     */
+    protected double[] values;
+
+    /**
+     * The rows, in window order starting at position head.
+     */
+    protected Row[] rows;
+
+    /**
+     * The position of the oldest row in rows.
+     */
+    protected int head;
+
+    /**
+     * The number of rows in the window.
+     */
+    protected int count;
+
+    /**
+     * The header shared by all rows.
+     */
+    protected InstancesHeader rowHeader;
+
+    /**
+     * Instantiates a new empty window.
+     *
+     * @param header the header of the instances
+     * @param capacity the initial number of rows
+     */
+    public CircularInstances(Instances header, int capacity) {
+        super(header, 0);
+        this.instances = null;
+        reset(Math.max(capacity, 1));
+    }
+
+    /**
+     * Returns the number of rows the window can hold without growing.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return this.rows.length;
+    }
+
+    /**
+     * Returns the row at the given position. The row is overwritten by a later
+     * add once it has been deleted.
+     *
+     * @param num the num
+     * @return the instance
+     */
+    @Override
+    public Instance instance(int num) {
+        if (num < 0 || num >= this.count) {
+            throw new IndexOutOfBoundsException("Index: " + num + ", Size: " + this.count);
+        }
+        return this.rows[slot(num)];
+    }
+
+    @Override
+    public int numInstances() {
+        return this.count;
+    }
+
+    /**
+     * Appends the values and the weight of the instance as newest row.
+     *
+     * @param inst the inst
+     */
+    @Override
+    public void add(Instance inst) {
+        if (this.count == this.rows.length) {
+            ensureCapacity(2 * this.rows.length);
+        }
+        this.rows[slot(this.count)].store(inst);
+        this.count++;
+    }
+
+    /**
+     * Removes all rows.
+     */
+    @Override
+    public void delete() {
+        this.head = 0;
+        this.count = 0;
+    }
+
+    /**
+     * Removes the row at the given position, the newer rows move up by one.
+     *
+     * @param index the index
+     */
+    @Override
+    public void delete(int index) {
+        if (index < 0 || index >= this.count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.count);
+        }
+        Row removed = this.rows[slot(index)];
+        if (index < this.count / 2) {
+            for (int i = index; i > 0; i--) {
+                this.rows[slot(i)] = this.rows[slot(i - 1)];
+            }
+            this.rows[this.head] = removed;
+            this.head = slot(1);
+        } else {
+            for (int i = index; i < this.count - 1; i++) {
+                this.rows[slot(i)] = this.rows[slot(i + 1)];
+            }
+            this.rows[slot(this.count - 1)] = removed;
+        }
+        this.count--;
+    }
+
+    @Override
+    public void swap(int i, int j) {
+        int si = slot(i);
+        int sj = slot(j);
+        Row row = this.rows[si];
+        this.rows[si] = this.rows[sj];
+        this.rows[sj] = row;
+    }
+
+    /**
+     * Overwrites the row at the given position with the values and the weight
+     * of the instance.
+     *
+     * @param i the index
+     * @param inst the inst
+     */
+    @Override
+    public void set(int i, Instance inst) {
+        Row row = (Row) instance(i);
+        if (row != inst) {
+            row.store(inst);
+        }
+    }
+
+    /**
+     * Reorders the rows like Instances does, moving only the references.
+     *
+     * @param numFolds the num folds
+     */
+    @Override
+    protected void stratStep(int numFolds) {
+        Row[] order = new Row[this.count];
+        int n = 0;
+        for (int start = 0; n < this.count; start++) {
+            for (int j = start; j < this.count; j += numFolds) {
+                order[n++] = this.rows[slot(j)];
+            }
+        }
+        for (int i = 0; i < this.count; i++) {
+            this.rows[slot(i)] = order[i];
+        }
+    }
+
+    /**
+     * Deletes the attribute from the header and from all rows, which are
+     * replaced.
+     *
+     * @param integer the position of the attribute
+     */
+    @Override
+    public void deleteAttributeAt(Integer integer) {
+        Instance[] window = copyRows();
+        this.instanceInformation.deleteAttributeAt(integer);
+        for (Instance inst : window) {
+            inst.deleteAttributeAt(integer);
+        }
+        rebuild(window);
+    }
+
+    /**
+     * Inserts the attribute in the header and a missing value in all rows,
+     * which are replaced.
+     *
+     * @param attribute the attribute
+     * @param position the position
+     */
+    @Override
+    public void insertAttributeAt(Attribute attribute, int position) {
+        Instance[] window = copyRows();
+        this.instanceInformation.insertAttributeAt(attribute, position);
+        for (Instance inst : window) {
+            inst.insertAttributeAt(position);
+        }
+        rebuild(window);
+    }
+
+    /**
+     * Returns detached copies of the rows, in window order.
+     *
+     * @return the copies
+     */
+    protected Instance[] copyRows() {
+        Instance[] window = new Instance[this.count];
+        for (int i = 0; i < this.count; i++) {
+            window[i] = this.rows[slot(i)].copy();
+        }
+        return window;
+    }
+
+    /**
+     * Replaces the rows by new rows with the values of the instances, after
+     * the number of attributes has changed.
+     *
+     * @param window the instances
+     */
+    protected void rebuild(Instance[] window) {
+        reset(this.rows.length);
+        for (Instance inst : window) {
+            add(inst);
+        }
+    }
+
+    /**
+     * Allocates new empty rows for the current header.
+     *
+     * @param capacity the number of rows
+     */
+    protected void reset(int capacity) {
+        // the rows share the header information, so a new class index reaches them
+        this.rowHeader = new InstancesHeader(this);
+        this.rowHeader.instanceInformation = this.instanceInformation;
+        this.rows = new Row[0];
+        this.values = new double[0];
+        this.head = 0;
+        this.count = 0;
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * Returns the position in rows of the row at the given window position.
+     *
+     * @param index the window position
+     * @return the position in rows
+     */
+    protected int slot(int index) {
+        int s = this.head + index;
+        return (s >= this.rows.length) ? s - this.rows.length : s;
+    }
+
+    /**
+     * Grows the buffer to the given number of rows, unrolling the circle.
+     *
+     * @param capacity the new number of rows
+     */
+    protected void ensureCapacity(int capacity) {
+        if (capacity <= this.rows.length) {
+            return;
+        }
+        int numAttributes = numAttributes();
+        Row[] newRows = new Row[capacity];
+        for (int i = 0; i < this.rows.length; i++) {
+            newRows[i] = this.rows[slot(i)];
+        }
+        double[] newValues = new double[capacity * numAttributes];
+        System.arraycopy(this.values, 0, newValues, 0, this.values.length);
+        for (int i = 0; i < this.rows.length; i++) {
+            newRows[i].block.values = newValues;
+        }
+        for (int i = this.rows.length; i < capacity; i++) {
+            Row row = new Row(new RowData(newValues, i * numAttributes, numAttributes));
+            row.setDataset(this.rowHeader);
+            newRows[i] = row;
+        }
+        this.rows = newRows;
+        this.values = newValues;
+        this.head = 0;
+    }
+
+    /**
+     * A row of the window, whose values are either in the block of the window
+     * or, for sparse instances, in a sparse copy.
+     */
+    protected static class Row extends InstanceImpl {
+
+        private static final long serialVersionUID = 5262190839419563871L;
+
+        /**
+         * The values of the row in the block of the window.
+         */
+        protected final RowData block;
+
+        /**
+         * Instantiates a row.
+         *
+         * @param block the values of the row in the block
+         */
+        public Row(RowData block) {
+            super(1, block);
+            this.block = block;
+        }
+
+        /**
+         * Overwrites the values and the weight of the row with those of the
+         * instance.
+         *
+         * @param inst the inst
+         */
+        public void store(Instance inst) {
+            int numValues = inst.numValues();
+            if (numValues < inst.numAttributes()) {
+                double[] attributeValues = new double[numValues];
+                int[] indexValues = new int[numValues];
+                for (int i = 0; i < numValues; i++) {
+                    attributeValues[i] = inst.valueSparse(i);
+                    indexValues[i] = inst.index(i);
+                }
+                this.instanceData = new SparseInstanceData(attributeValues, indexValues, this.block.numAttributes);
+            } else {
+                this.block.copyFrom(inst);
+                this.instanceData = this.block;
+            }
+            setWeight(inst.weight());
+        }
+
+        /**
+         * Moves the row out of the block before changing its attributes.
+         *
+         * @param i the i
+         */
+        @Override
+        public void deleteAttributeAt(int i) {
+            this.instanceData = this.instanceData.copy();
+            super.deleteAttributeAt(i);
+        }
+
+        /**
+         * Moves the row out of the block before changing its attributes.
+         *
+         * @param i the i
+         */
+        @Override
+        public void insertAttributeAt(int i) {
+            this.instanceData = this.instanceData.copy();
+            super.insertAttributeAt(i);
+        }
+    }
+
+    /**
+     * The values of one row, stored in the block of the window.
+     */
+    protected static class RowData implements InstanceData {
+
+        private static final long serialVersionUID = -1306713839651424416L;
+
+        /**
+         * The block of the window.
+         */
+        protected double[] values;
+
+        /**
+         * The position of the first value of the row in the block.
+         */
+        protected final int offset;
+
+        /**
+         * The number of attributes.
+         */
+        protected final int numAttributes;
+
+        /**
+         * Instantiates the data of a row.
+         *
+         * @param values the block
+         * @param offset the position of the row in the block
+         * @param numAttributes the number of attributes
+         */
+        public RowData(double[] values, int offset, int numAttributes) {
+            this.values = values;
+            this.offset = offset;
+            this.numAttributes = numAttributes;
+        }
+
+        /**
+         * Copies the values of the instance into the row.
+         *
+         * @param inst the inst
+         */
+        public void copyFrom(Instance inst) {
+            for (int i = 0; i < this.numAttributes; i++) {
+                this.values[this.offset + i] = inst.value(i);
+            }
+        }
+
+        @Override
+        public int numAttributes() {
+            return this.numAttributes;
+        }
+
+        @Override
+        public double value(int instAttIndex) {
+            return this.values[this.offset + instAttIndex];
+        }
+
+        @Override
+        public boolean isMissing(int instAttIndex) {
+            return Double.isNaN(value(instAttIndex));
+        }
+
+        @Override
+        public int numValues() {
+            return this.numAttributes;
+        }
+
+        @Override
+        public int index(int i) {
+            return i;
+        }
+
+        @Override
+        public double valueSparse(int i) {
+            return value(i);
+        }
+
+        @Override
+        public boolean isMissingSparse(int p1) {
+            return isMissing(p1);
+        }
+
+        @Override
+        public double[] toDoubleArray() {
+            double[] array = new double[this.numAttributes];
+            System.arraycopy(this.values, this.offset, array, 0, this.numAttributes);
+            return array;
+        }
+
+        @Override
+        public void setValue(int attributeIndex, double d) {
+            this.values[this.offset + attributeIndex] = d;
+        }
+
+        @Override
+        public void deleteAttributeAt(int index) {
+            throw new UnsupportedOperationException("Not supported by a window");
+        }
+
+        @Override
+        public void insertAttributeAt(int index) {
+            throw new UnsupportedOperationException("Not supported by a window");
+        }
+
+        /**
+         * Returns a detached copy of the values.
+         *
+         * @return the instance data
+         */
+        @Override
+        public InstanceData copy() {
+            return new DenseInstanceData(toDoubleArray());
+        }
+    }
+}
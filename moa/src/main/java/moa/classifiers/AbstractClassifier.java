@@ -74,6 +74,9 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     /** Random Generator used in randomizable learners  */
     public Random classifierRandom;
 
+    /** Whether getModelMeasurements reports the estimated model size */
+    protected boolean byteSizeEstimation = false;
+
     /**
      * Creates an classifier and setups the random seed option
      * if the classifier is randomizable.
@@ -105,6 +108,11 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     @Override
     public abstract double[] getVotesForInstance(Instance inst);
 
+    @Override
+    public void setByteSizeEstimation(boolean estimate) {
+        this.byteSizeEstimation = estimate;
+    }
+
     @Override
     public Prediction getPredictionForInstance(Example<Instance> example){
 		return getPredictionForInstance(example.getData());
@@ -185,7 +193,7 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
         measurementList.add(new Measurement("model training instances",
                 trainingWeightSeenByModel()));
         measurementList.add(new Measurement("model serialized size (bytes)",
-                measureByteSize()));
+                this.byteSizeEstimation ? estimateByteSize() : measureByteSize()));
         Measurement[] modelMeasurements = getModelMeasurementsImpl();
         if (modelMeasurements != null) {
             measurementList.addAll(Arrays.asList(modelMeasurements));
@@ -195,7 +203,12 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
         if ((subModels != null) && (subModels.length > 0)) {
             List<Measurement[]> subMeasurements = new LinkedList<Measurement[]>();
             for (Learner subModel : subModels) {
-                if (subModel != null) {
+                if (subModel instanceof Classifier && this.byteSizeEstimation) {
+                    Classifier subClassifier = (Classifier) subModel;
+                    subClassifier.setByteSizeEstimation(true);
+                    subMeasurements.add(subClassifier.getModelMeasurements());
+                    subClassifier.setByteSizeEstimation(false);
+                } else if (subModel != null) {
                     subMeasurements.add(subModel.getModelMeasurements());
                 }
             }
@@ -20,12 +20,18 @@
 
 package moa.classifiers;
 
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.*;
 import moa.capabilities.CapabilitiesHandler;
+import moa.classifiers.core.MemberVotes;
+import moa.core.Measurement;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public abstract class AbstractClassifierMiniBatch extends AbstractClassifier
         implements Classifier, CapabilitiesHandler { //Learner<Example<Instance>> {
@@ -43,13 +49,26 @@ public abstract class AbstractClassifierMiniBatch extends AbstractClassifier
             "The amount of instances the classifier should buffer before training.",
             1, 1, Integer.MAX_VALUE);
 
+    public FlagOption parallelPredictionOption = new FlagOption("parallelPrediction", 'v',
+            "Should score the ensemble members in parallel when predicting?");
+
+    public FlagOption asynchronousTrainingOption = new FlagOption("asynchronousTraining", 'y',
+            "Should train on each mini-batch in the background until the next prediction?");
+
     // The amount of CPU cores to be run in parallel
     public int numOfCores;
 
     // The threadpool to be used, based on the number of cores
     protected ExecutorService threadpool;
+    // The number of threads of the threadpool
+    protected int threadpoolSize;
     protected ArrayList<Instance> myBatch;
 
+    // Trains on the mini-batches one at a time when training asynchronously
+    protected transient ExecutorService batchExecutor;
+    // The training on the last mini-batch, when training asynchronously
+    protected transient Future<?> pendingTraining;
+
     public AbstractClassifierMiniBatch() {
         if (isRandomizable()) {
             this.randomSeedOption = new IntOption("randomSeed", 'r',
@@ -70,16 +89,129 @@ public abstract class AbstractClassifierMiniBatch extends AbstractClassifier
         if (myBatch != null) {
             this.myBatch.add(inst);
             if (this.myBatch.size() == this.batchSizeOption.getValue()){
-                this.trainOnInstances(this.myBatch);
-                this.myBatch.clear();
+                if (this.batchExecutor != null) {
+                    trainInBackground();
+                } else {
+                    this.trainOnInstances(this.myBatch);
+                    this.myBatch.clear();
+                }
             }
         }
     }
 
     public abstract void trainOnInstances(ArrayList<Instance> instances);
 
+    /**
+     * Starts training on the full mini-batch in the background. The training
+     * on the previous mini-batch is awaited first, so at most one mini-batch
+     * is in flight. Predictions wait for the training in flight, see
+     * getVotesForInstances, so the results are the same as when training
+     * synchronously.
+     */
+    protected void trainInBackground() {
+        waitForTraining();
+        final ArrayList<Instance> batch = this.myBatch;
+        this.myBatch = new ArrayList<>();
+        this.pendingTraining = this.batchExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                trainOnInstances(batch);
+            }
+        });
+    }
+
+    /**
+     * Waits until the background training on the last mini-batch is done.
+     */
+    protected void waitForTraining() {
+        if (this.pendingTraining != null) {
+            Future<?> training = this.pendingTraining;
+            this.pendingTraining = null;
+            try {
+                training.get();
+            } catch (InterruptedException ex) {
+                throw new RuntimeException("Interrupted while waiting for the training on a mini-batch.");
+            } catch (ExecutionException ex) {
+                throw new RuntimeException("Could not train on a mini-batch.", ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * Runs the tasks on the threadpool and waits for them.
+     *
+     * @param tasks the tasks
+     */
+    protected <T> void invokeOnThreadpool(Collection<? extends Callable<T>> tasks) {
+        try {
+            for (Future<T> future : this.threadpool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            throw new RuntimeException("Could not call invokeAll() on the threadpool.");
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("A task failed on the threadpool.", ex.getCause());
+        }
+    }
+
+    @Override
+    public Measurement[] getModelMeasurements() {
+        waitForTraining();
+        return super.getModelMeasurements();
+    }
+
+    @Override
+    public long measureByteSize() {
+        waitForTraining();
+        return super.measureByteSize();
+    }
+
+    @Override
+    public Classifier copy() {
+        waitForTraining();
+        return super.copy();
+    }
+
+    @Override
+    public double[] getVotesForInstance(Instance inst) {
+        return getVotesForInstances(Collections.singletonList(inst))[0];
+    }
+
+    /**
+     * Predicts the class memberships for a batch of instances. Mini-batch
+     * classifiers score their members on the threadpool here, and
+     * getVotesForInstance delegates to it. Implementations call
+     * waitForTraining() first, as the members may still be training on the
+     * last mini-batch in the background.
+     *
+     * @param insts the instances to be classified
+     * @return an array containing the votes of each instance, in order
+     */
+    @Override
+    public abstract double[][] getVotesForInstances(List<Instance> insts);
+
+    /**
+     * Gets the votes of the members of the ensemble, on the threadpool if
+     * parallel prediction is enabled.
+     *
+     * @param numMembers the number of members
+     * @param instances the instances to be classified
+     * @param voter the votes of a single member
+     * @return the votes, indexed by instance and then by member
+     */
+    protected double[][][] getMemberVotes(int numMembers, List<Instance> instances, MemberVotes.Voter voter) {
+        if (this.threadpool != null && !this.threadpool.isShutdown()
+                && this.parallelPredictionOption.isSet()) {
+            return MemberVotes.compute(this.threadpool, this.threadpoolSize, numMembers, instances, voter);
+        }
+        return MemberVotes.compute(null, 1, numMembers, instances, voter);
+    }
+
 
     public void trainingHasEnded() {
+        waitForTraining();
+        if (this.batchExecutor != null)
+            this.batchExecutor.shutdown();
         if (this.threadpool != null)
             this.threadpool.shutdown();
         this.myBatch = null;
@@ -87,15 +219,24 @@ public abstract class AbstractClassifierMiniBatch extends AbstractClassifier
 
     @Override
     public void resetLearning() {
+        waitForTraining();
+        if (this.batchExecutor != null) {
+            this.batchExecutor.shutdown();
+            this.batchExecutor = null;
+        }
+        if (this.asynchronousTrainingOption.isSet()) {
+            this.batchExecutor = Executors.newSingleThreadExecutor();
+        }
         this.numOfCores = this.numberOfCoresOption.getValue();
         int maxCores = Runtime.getRuntime().availableProcessors();
         if (this.numOfCores == 1 || this.numOfCores == 0) {
-            this.threadpool = Executors.newFixedThreadPool(1);
+            this.threadpoolSize = 1;
         } else if (this.numOfCores < 0 || this.numOfCores > maxCores) {
-            this.threadpool = Executors.newFixedThreadPool(maxCores);
+            this.threadpoolSize = maxCores;
         } else {
-            this.threadpool = Executors.newFixedThreadPool(this.numOfCores);
+            this.threadpoolSize = this.numOfCores;
         }
+        this.threadpool = Executors.newFixedThreadPool(this.threadpoolSize);
         this.trainingWeightSeenByModel = 0.0;
         if (isRandomizable()) {
             this.classifierRandom = new Random(this.randomSeed);
@@ -25,6 +25,7 @@ import moa.learners.Learner;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.InstanceData;
 import com.yahoo.labs.samoa.instances.Prediction;
+import java.util.List;
 
 /**
  * Classifier interface for incremental classification models.
@@ -76,6 +77,45 @@ public interface Classifier extends Learner<Example<Instance>> {
      * test instance in each class
      */
     public double[] getVotesForInstance(Instance inst);
+
+    /**
+     * Predicts the class memberships for a batch of instances. The result is
+     * the same as calling getVotesForInstance on each instance in turn, but
+     * ensembles can use it to amortise the cost of scoring their members in
+     * parallel.
+     *
+     * @param insts the instances to be classified
+     * @return an array containing the votes of each instance, in order
+     */
+    public default double[][] getVotesForInstances(List<Instance> insts) {
+        double[][] votes = new double[insts.size()][];
+        for (int i = 0; i < votes.length; i++) {
+            votes[i] = getVotesForInstance(insts.get(i));
+        }
+        return votes;
+    }
+
+    /**
+     * Gets an estimate of the memory size of the model that is cheaper to
+     * compute than measureByteSize. Learners that keep an analytic size model
+     * return it, the others fall back to a full measurement.
+     *
+     * @return the estimated size of the model in bytes
+     */
+    public default long estimateByteSize() {
+        return measureByteSize();
+    }
+
+    /**
+     * Sets whether getModelMeasurements reports estimateByteSize instead of a
+     * full measurement of the model size, also for the sub-models. Evaluation
+     * tasks use it between the samples where the model is fully measured.
+     * Learners without a size estimate ignore it.
+     *
+     * @param estimate true to report the estimated size
+     */
+    public default void setByteSizeEstimation(boolean estimate) {
+    }
     
     /**
      * Sets the reference to the header of the data stream. The header of the
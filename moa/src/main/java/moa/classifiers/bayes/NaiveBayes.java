@@ -27,6 +27,7 @@ import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.NominalAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.SparseAttributeObservations;
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
@@ -61,15 +62,30 @@ public class NaiveBayes extends AbstractClassifier  implements MultiClassClassif
 
     protected AutoExpandVector<AttributeClassObserver> attributeObservers;
 
+    /**
+     * Bookkeeping of the observers when learning from sparse instances, null
+     * when the first instance was dense.
+     */
+    protected SparseAttributeObservations sparseObservations;
+
     @Override
     public void resetLearningImpl() {
         this.observedClassDistribution = new DoubleVector();
         this.attributeObservers = new AutoExpandVector<AttributeClassObserver>();
+        this.sparseObservations = null;
     }
 
     @Override
     public void trainOnInstanceImpl(Instance inst) {
+        if (this.attributeObservers.isEmpty() && this.sparseObservations == null
+                && SparseAttributeObservations.isSparse(inst)) {
+            this.sparseObservations = new SparseAttributeObservations();
+        }
         this.observedClassDistribution.addToValue((int) inst.classValue(), inst.weight());
+        if (this.sparseObservations != null) {
+            trainOnSparseInstance(inst);
+            return;
+        }
         for (int i = 0; i < inst.numAttributes() - 1; i++) {
             int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
             AttributeClassObserver obs = this.attributeObservers.get(i);
@@ -82,10 +98,38 @@ public class NaiveBayes extends AbstractClassifier  implements MultiClassClassif
         }
     }
 
+    /**
+     * Observes only the values stored in an instance, then gives the
+     * observers the zeros of the absent values, so that predicting does not
+     * change them.
+     *
+     * @param inst the instance
+     */
+    protected void trainOnSparseInstance(Instance inst) {
+        int classVal = (int) inst.classValue();
+        this.sparseObservations.observeClass(classVal, inst.weight());
+        for (int p = 0; p < inst.numValues(); p++) {
+            int instAttIndex = inst.index(p);
+            if (instAttIndex == inst.classIndex()) {
+                continue;
+            }
+            int i = SparseAttributeObservations.instanceAttIndexToModelAttIndex(instAttIndex, inst);
+            AttributeClassObserver obs = this.attributeObservers.get(i);
+            if (obs == null) {
+                obs = inst.attribute(instAttIndex).isNominal() ? newNominalClassObserver()
+                        : newNumericClassObserver();
+                this.attributeObservers.set(i, obs);
+            }
+            this.sparseObservations.observeAttributeClass(obs, i,
+                    inst.valueSparse(p), classVal, inst.weight());
+        }
+        this.sparseObservations.addImplicitZeros(this.attributeObservers);
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
         return doNaiveBayesPrediction(inst, this.observedClassDistribution,
-                this.attributeObservers);
+                this.attributeObservers, this.sparseObservations);
     }
 
     @Override
@@ -153,6 +197,54 @@ public class NaiveBayes extends AbstractClassifier  implements MultiClassClassif
         return votes;
     }
 
+    /**
+     * Naive Bayes prediction for observers trained on sparse instances, only
+     * visiting the attributes with an observer. The attributes without
+     * observer were never stored in a training instance, so they are skipped
+     * like missing observers. The observers are only read: they must have
+     * been given their implicit zeros since the last training instance.
+     *
+     * @param inst the instance
+     * @param observedClassDistribution the observed class distribution
+     * @param attributeObservers the observers, indexed by attribute
+     * @param sparseObservations the bookkeeping of the observers, or null if
+     * they were trained on dense instances
+     * @return the votes
+     */
+    public static double[] doNaiveBayesPrediction(Instance inst,
+            DoubleVector observedClassDistribution,
+            AutoExpandVector<AttributeClassObserver> attributeObservers,
+            SparseAttributeObservations sparseObservations) {
+        if (sparseObservations == null) {
+            return doNaiveBayesPrediction(inst, observedClassDistribution, attributeObservers);
+        }
+        double[] votes = new double[observedClassDistribution.numValues()];
+        double observedClassSum = observedClassDistribution.sumOfValues();
+        for (int classIndex = 0; classIndex < votes.length; classIndex++) {
+            votes[classIndex] = observedClassDistribution.getValue(classIndex)
+                    / observedClassSum;
+        }
+        // the attributes and the stored values are both in increasing order
+        int numValues = inst.numValues();
+        int p = 0;
+        for (int i = 0; i < sparseObservations.numAttributes(); i++) {
+            int attIndex = sparseObservations.attIndex(i);
+            int instAttIndex = modelAttIndexToInstanceAttIndex(attIndex, inst);
+            while (p < numValues && inst.index(p) < instAttIndex) {
+                p++;
+            }
+            double value = p < numValues && inst.index(p) == instAttIndex
+                    ? inst.valueSparse(p) : 0.0;
+            AttributeClassObserver obs = attributeObservers.get(attIndex);
+            if ((obs != null) && !Double.isNaN(value)) {
+                for (int classIndex = 0; classIndex < votes.length; classIndex++) {
+                    votes[classIndex] *= obs.probabilityOfAttributeValueGivenClass(value, classIndex);
+                }
+            }
+        }
+        return votes;
+    }
+
     // Naive Bayes Prediction using log10 for VFDR rules 
     public static double[] doNaiveBayesPredictionLog(Instance inst,
             DoubleVector observedClassDistribution,
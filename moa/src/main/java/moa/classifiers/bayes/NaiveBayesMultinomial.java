@@ -142,7 +142,7 @@ public class NaiveBayesMultinomial extends AbstractClassifier  implements MultiC
 
         for (int i = 0; i < inst.numValues(); i++) {
             int index = inst.index(i);
-            if (index != classIndex && !inst.isMissing(i)) {
+            if (index != classIndex && !inst.isMissingSparse(i)) {
                 //m_wordTotalForClass[index][classValue] += w * inst.valueSparse(i);
                 double laplaceCorrection = 0.0;
                 if (m_wordTotalForClass[classValue].getValue(index)== 0) {
@@ -175,7 +175,7 @@ public class NaiveBayesMultinomial extends AbstractClassifier  implements MultiC
         for (int i = 0; i < instance.numValues(); i++) {
 
             int index = instance.index(i);
-            if (index == instance.classIndex() || instance.isMissing(i)) {
+            if (index == instance.classIndex() || instance.isMissingSparse(i)) {
                 continue;
             }
 
@@ -194,7 +194,7 @@ public class NaiveBayesMultinomial extends AbstractClassifier  implements MultiC
         double total = 0.0;
         for (int i = 0; i < instance.numValues(); i++) {
             int index = instance.index(i);
-            if (index == classIndex || instance.isMissing(i)) {
+            if (index == classIndex || instance.isMissingSparse(i)) {
                 continue;
             }
             double count = instance.valueSparse(i);
@@ -59,6 +59,43 @@ public class AttributeSplitSuggestion extends AbstractMOAObject implements
         return Double.compare(this.merit, comp.merit);
     }
 
+    /**
+     * Moves the best suggestion to the last position of an array and the
+     * second best to the position before, as sorting the array would. Among
+     * suggestions of equal merit the later one is the better, as the sort is
+     * stable. The order of the other suggestions is not kept.
+     *
+     * @param suggestions the suggestions
+     */
+    public static void moveBestTwoToEnd(AttributeSplitSuggestion[] suggestions) {
+        int n = suggestions.length;
+        if (n < 2) {
+            return;
+        }
+        int best = 0;
+        int secondBest = -1;
+        for (int i = 1; i < n; i++) {
+            if (suggestions[i].compareTo(suggestions[best]) >= 0) {
+                secondBest = best;
+                best = i;
+            } else if (secondBest < 0
+                    || suggestions[i].compareTo(suggestions[secondBest]) >= 0) {
+                secondBest = i;
+            }
+        }
+        swap(suggestions, best, n - 1);
+        if (secondBest == n - 1) {
+            secondBest = best;
+        }
+        swap(suggestions, secondBest, n - 2);
+    }
+
+    private static void swap(AttributeSplitSuggestion[] suggestions, int i, int j) {
+        AttributeSplitSuggestion suggestion = suggestions[i];
+        suggestions[i] = suggestions[j];
+        suggestions[j] = suggestion;
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
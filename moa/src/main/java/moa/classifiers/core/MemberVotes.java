@@ -0,0 +1,110 @@
+/*
+ *    MemberVotes.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the votes of the members of an ensemble for a batch of instances,
+ * optionally in parallel.
+ *
+ * The members are split into contiguous ranges, one task per range, and each
+ * task scores all the instances of the batch with its members. A member is
+ * therefore only used by one thread at a time, and the votes end up in the
+ * same slots whatever the number of tasks, so combining them in member order
+ * gives the same result as a serial loop.
+ *
+ * @version $Revision: 1 $
+ */
+public final class MemberVotes {
+
+    /**
+     * Gets the votes of a single member of an ensemble.
+     */
+    public interface Voter {
+
+        /**
+         * Predicts the class memberships of an instance with one member.
+         *
+         * @param member the index of the member
+         * @param inst the instance to be classified
+         * @return the votes of the member
+         */
+        double[] getVotes(int member, Instance inst);
+    }
+
+    private MemberVotes() {
+    }
+
+    /**
+     * Computes the votes of all the members for all the instances.
+     *
+     * @param executor the executor running the tasks, or null to score serially
+     * @param numTasks the number of tasks the members are split into
+     * @param numMembers the number of members
+     * @param instances the instances to be classified
+     * @param voter the votes of a single member
+     * @return the votes, indexed by instance and then by member
+     */
+    public static double[][][] compute(ExecutorService executor, int numTasks,
+            int numMembers, List<? extends Instance> instances, Voter voter) {
+        double[][][] votes = new double[instances.size()][numMembers][];
+        numTasks = Math.min(numTasks, numMembers);
+        if (executor == null || numTasks <= 1) {
+            score(0, numMembers, instances, voter, votes);
+            return votes;
+        }
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>(numTasks);
+        for (int t = 0; t < numTasks; t++) {
+            final int from = (int) ((long) numMembers * t / numTasks);
+            final int to = (int) ((long) numMembers * (t + 1) / numTasks);
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    score(from, to, instances, voter, votes);
+                    return to - from;
+                }
+            });
+        }
+        try {
+            for (Future<Integer> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            throw new RuntimeException("Could not call invokeAll() on prediction threads.");
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("A prediction thread failed.", ex.getCause());
+        }
+        return votes;
+    }
+
+    private static void score(int from, int to, List<? extends Instance> instances,
+            Voter voter, double[][][] votes) {
+        for (int member = from; member < to; member++) {
+            for (int i = 0; i < votes.length; i++) {
+                votes[i][member] = voter.getVotes(member, instances.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *    SplitEvaluationTask.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+
+/**
+ * Fork-join task computing the best split suggestion of each attribute
+ * observer of a leaf. The observers are split in halves until a range is
+ * small enough to be evaluated by one thread.
+ *
+ * @version $Revision: 1 $
+ */
+public class SplitEvaluationTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The pools shared by all the trees, by number of jobs. Their threads are
+     * daemon threads, so the pools are never shut down.
+     */
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<Integer, ForkJoinPool>();
+
+    protected final List<AttributeClassObserver> observers;
+
+    protected final SplitCriterion criterion;
+
+    protected final double[] preSplitDist;
+
+    protected final boolean binaryOnly;
+
+    protected final AttributeSplitSuggestion[] suggestions;
+
+    protected final int from;
+
+    protected final int to;
+
+    protected final int grainSize;
+
+    protected SplitEvaluationTask(List<AttributeClassObserver> observers,
+            SplitCriterion criterion, double[] preSplitDist, boolean binaryOnly,
+            AttributeSplitSuggestion[] suggestions, int from, int to, int grainSize) {
+        this.observers = observers;
+        this.criterion = criterion;
+        this.preSplitDist = preSplitDist;
+        this.binaryOnly = binaryOnly;
+        this.suggestions = suggestions;
+        this.from = from;
+        this.to = to;
+        this.grainSize = grainSize;
+    }
+
+    @Override
+    protected void compute() {
+        if (this.to - this.from <= this.grainSize) {
+            evaluate(this.observers, this.criterion, this.preSplitDist,
+                    this.binaryOnly, this.suggestions, this.from, this.to);
+        } else {
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new SplitEvaluationTask(this.observers, this.criterion,
+                    this.preSplitDist, this.binaryOnly, this.suggestions,
+                    this.from, middle, this.grainSize),
+                    new SplitEvaluationTask(this.observers, this.criterion,
+                    this.preSplitDist, this.binaryOnly, this.suggestions,
+                    middle, this.to, this.grainSize));
+        }
+    }
+
+    protected static void evaluate(List<AttributeClassObserver> observers,
+            SplitCriterion criterion, double[] preSplitDist, boolean binaryOnly,
+            AttributeSplitSuggestion[] suggestions, int from, int to) {
+        for (int i = from; i < to; i++) {
+            AttributeClassObserver obs = observers.get(i);
+            if (obs != null) {
+                suggestions[i] = obs.getBestEvaluatedSplitSuggestion(criterion,
+                        preSplitDist, i, binaryOnly);
+            }
+        }
+    }
+
+    /**
+     * Returns the pool shared by the trees evaluating the attributes of their
+     * leaves with the given number of jobs.
+     *
+     * @param jobs the number of jobs, -1 for as many as processors
+     * @return the pool, or null if the attributes are evaluated in the calling
+     * thread
+     */
+    public static ForkJoinPool getPool(int jobs) {
+        if (jobs == -1) {
+            jobs = Runtime.getRuntime().availableProcessors();
+        }
+        if (jobs <= 1) {
+            return null;
+        }
+        return POOLS.computeIfAbsent(jobs, ForkJoinPool::new);
+    }
+
+    /**
+     * Returns the best split suggestion of each observer, null for a missing
+     * observer or an observer without suggestion. The observers and the
+     * criterion must not be changed while they are evaluated.
+     *
+     * @param observers the attribute observers of a leaf, indexed by attribute
+     * @param criterion the split criterion
+     * @param preSplitDist the class distribution of the leaf
+     * @param binaryOnly whether to suggest only binary splits
+     * @param pool the pool evaluating the observers, or null to evaluate them
+     * in the calling thread
+     * @return the suggestions indexed by attribute
+     */
+    public static AttributeSplitSuggestion[] evaluate(
+            List<AttributeClassObserver> observers, SplitCriterion criterion,
+            double[] preSplitDist, boolean binaryOnly, ForkJoinPool pool) {
+        int numObservers = observers.size();
+        AttributeSplitSuggestion[] suggestions = new AttributeSplitSuggestion[numObservers];
+        if (pool == null || pool.getParallelism() == 1 || numObservers < 2) {
+            evaluate(observers, criterion, preSplitDist, binaryOnly, suggestions,
+                    0, numObservers);
+        } else {
+            // a few ranges per thread, so that threads finishing early help the others
+            int grainSize = Math.max(1, numObservers / (4 * pool.getParallelism()));
+            pool.invoke(new SplitEvaluationTask(observers, criterion, preSplitDist,
+                    binaryOnly, suggestions, 0, numObservers, grainSize));
+        }
+        return suggestions;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *    CompactAttributeClassObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+/**
+ * Interface for attribute class observers that keep their statistics in
+ * flat primitive arrays. A learner that knows the header can allocate the
+ * arrays once, before the first observation, instead of letting them grow.
+ *
+ * @version $Revision: 1 $
+ */
+public interface CompactAttributeClassObserver extends AttributeClassObserver {
+
+    /**
+     * Allocates room for the statistics of an attribute.
+     *
+     * @param numAttValues the number of values of a nominal attribute, 0 for a numeric attribute
+     * @param numClasses the number of classes
+     */
+    public void allocate(int numAttValues, int numClasses);
+}
@@ -0,0 +1,278 @@
+/*
+ *    CompactGaussianNumericAttributeClassObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import java.util.Arrays;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.GaussianEstimator;
+import moa.core.ObjectRepository;
+import moa.core.Statistics;
+import moa.core.Utils;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+
+import com.github.javacliparser.IntOption;
+
+/**
+ * Class for observing the class data distribution for a numeric attribute using gaussian estimators,
+ * keeping the estimators of all the classes in one flat array.
+ * It suggests the same splits and gives the same probabilities as
+ * GaussianNumericAttributeClassObserver, without a GaussianEstimator per class.
+ *
+ * @version $Revision: 1 $
+ */
+public class CompactGaussianNumericAttributeClassObserver extends AbstractOptionHandler
+        implements NumericAttributeClassObserver, CompactAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption numBinsOption = new IntOption("numBins", 'n',
+            "The number of bins.", 10, 1, Integer.MAX_VALUE);
+
+    protected static final int MIN_VALUE = 0;
+
+    protected static final int MAX_VALUE = 1;
+
+    protected static final int WEIGHT_SUM = 2;
+
+    protected static final int MEAN = 3;
+
+    protected static final int VARIANCE_SUM = 4;
+
+    protected static final int NUM_STATS = 5;
+
+    /**
+     * Statistics of the values observed per class, at index
+     * classValue * NUM_STATS + statistic. The smallest value is NaN for a
+     * class not observed yet.
+     */
+    protected double[] statsPerClass = new double[0];
+
+    @Override
+    public void allocate(int numAttValues, int numClasses) {
+        ensureCapacity(numClasses);
+    }
+
+    protected int numClassesAllocated() {
+        return this.statsPerClass.length / NUM_STATS;
+    }
+
+    protected void ensureCapacity(int numClasses) {
+        int numClassesAllocated = numClassesAllocated();
+        if (numClasses <= numClassesAllocated) {
+            return;
+        }
+        this.statsPerClass = Arrays.copyOf(this.statsPerClass, numClasses * NUM_STATS);
+        for (int i = numClassesAllocated; i < numClasses; i++) {
+            this.statsPerClass[i * NUM_STATS + MIN_VALUE] = Double.NaN;
+        }
+    }
+
+    protected boolean isObserved(int classVal) {
+        return classVal < numClassesAllocated()
+                && !Double.isNaN(this.statsPerClass[classVal * NUM_STATS + MIN_VALUE]);
+    }
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+        if (Utils.isMissingValue(attVal)) {
+            return;
+        }
+        ensureCapacity(classVal + 1);
+        double[] stats = this.statsPerClass;
+        int offset = classVal * NUM_STATS;
+        if (Double.isNaN(stats[offset + MIN_VALUE])) {
+            stats[offset + MIN_VALUE] = attVal;
+            stats[offset + MAX_VALUE] = attVal;
+        } else {
+            if (attVal < stats[offset + MIN_VALUE]) {
+                stats[offset + MIN_VALUE] = attVal;
+            }
+            if (attVal > stats[offset + MAX_VALUE]) {
+                stats[offset + MAX_VALUE] = attVal;
+            }
+        }
+        addObservation(stats, offset + WEIGHT_SUM, attVal, weight);
+    }
+
+    /**
+     * Adds a value to a gaussian estimator kept in an array as its weight sum,
+     * mean and variance sum, with the same update as
+     * GaussianEstimator.addObservation.
+     *
+     * @param estimator the array holding the estimator
+     * @param offset the index of the weight sum, followed by the mean and the variance sum
+     * @param value the value
+     * @param weight the weight of the value
+     */
+    protected static void addObservation(double[] estimator, int offset,
+            double value, double weight) {
+        if (Double.isInfinite(value)) {
+            return;
+        }
+        if (estimator[offset] > 0.0) {
+            estimator[offset] += weight;
+            double lastMean = estimator[offset + 1];
+            estimator[offset + 1] += weight * (value - lastMean) / estimator[offset];
+            estimator[offset + 2] += weight * (value - lastMean) * (value - estimator[offset + 1]);
+        } else {
+            estimator[offset + 1] = value;
+            estimator[offset] = weight;
+        }
+    }
+
+    @Override
+    public double probabilityOfAttributeValueGivenClass(double attVal,
+            int classVal) {
+        return isObserved(classVal) ? probabilityDensity(classVal, attVal) : 0.0;
+    }
+
+    protected double getStdDev(int classVal) {
+        return getStdDev(this.statsPerClass, classVal * NUM_STATS + WEIGHT_SUM);
+    }
+
+    protected double probabilityDensity(int classVal, double value) {
+        return probabilityDensity(this.statsPerClass, classVal * NUM_STATS + WEIGHT_SUM, value);
+    }
+
+    protected static double getStdDev(double[] estimator, int offset) {
+        double weightSum = estimator[offset];
+        return Math.sqrt(weightSum > 1.0 ? estimator[offset + 2] / (weightSum - 1.0) : 0.0);
+    }
+
+    protected static double probabilityDensity(double[] estimator, int offset,
+            double value) {
+        double mean = estimator[offset + 1];
+        if (estimator[offset] > 0.0) {
+            double stdDev = getStdDev(estimator, offset);
+            if (stdDev > 0.0) {
+                double diff = value - mean;
+                return (1.0 / (GaussianEstimator.NORMAL_CONSTANT * stdDev))
+                        * Math.exp(-(diff * diff / (2.0 * stdDev * stdDev)));
+            }
+            return value == mean ? 1.0 : 0.0;
+        }
+        return 0.0;
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        AttributeSplitSuggestion bestSuggestion = null;
+        double[] suggestedSplitValues = getSplitPointSuggestions();
+        for (double splitValue : suggestedSplitValues) {
+            double[][] postSplitDists = getClassDistsResultingFromBinarySplit(splitValue);
+            double merit = criterion.getMeritOfSplit(preSplitDist,
+                    postSplitDists);
+            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+                bestSuggestion = new AttributeSplitSuggestion(
+                        new NumericAttributeBinaryTest(attIndex, splitValue,
+                        true), postSplitDists, merit);
+            }
+        }
+        return bestSuggestion;
+    }
+
+    public double[] getSplitPointSuggestions() {
+        double minValue = Double.POSITIVE_INFINITY;
+        double maxValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < numClassesAllocated(); i++) {
+            if (isObserved(i)) {
+                if (this.statsPerClass[i * NUM_STATS + MIN_VALUE] < minValue) {
+                    minValue = this.statsPerClass[i * NUM_STATS + MIN_VALUE];
+                }
+                if (this.statsPerClass[i * NUM_STATS + MAX_VALUE] > maxValue) {
+                    maxValue = this.statsPerClass[i * NUM_STATS + MAX_VALUE];
+                }
+            }
+        }
+        if (!(minValue < Double.POSITIVE_INFINITY)) {
+            return new double[0];
+        }
+        // the values increase with i, so equal values are next to each other
+        int numBins = this.numBinsOption.getValue();
+        double range = maxValue - minValue;
+        double[] suggestions = new double[numBins];
+        int numSuggestions = 0;
+        for (int i = 0; i < numBins; i++) {
+            double splitValue = range / (numBins + 1.0) * (i + 1) + minValue;
+            if ((splitValue > minValue) && (splitValue < maxValue)
+                    && (numSuggestions == 0 || splitValue != suggestions[numSuggestions - 1])) {
+                suggestions[numSuggestions++] = splitValue;
+            }
+        }
+        return Arrays.copyOf(suggestions, numSuggestions);
+    }
+
+    // assume all values equal to splitValue go to lhs
+    public double[][] getClassDistsResultingFromBinarySplit(double splitValue) {
+        int numClasses = numClassesAllocated();
+        double[] lhsDist = new double[numClasses];
+        double[] rhsDist = new double[numClasses];
+        int lhsLength = 0;
+        int rhsLength = 0;
+        for (int i = 0; i < numClasses; i++) {
+            if (isObserved(i)) {
+                double weightSum = this.statsPerClass[i * NUM_STATS + WEIGHT_SUM];
+                if (splitValue < this.statsPerClass[i * NUM_STATS + MIN_VALUE]) {
+                    rhsDist[i] += weightSum;
+                    rhsLength = i + 1;
+                } else if (splitValue >= this.statsPerClass[i * NUM_STATS + MAX_VALUE]) {
+                    lhsDist[i] += weightSum;
+                    lhsLength = i + 1;
+                } else {
+                    // same estimate as GaussianEstimator.estimatedWeight_LessThan_EqualTo_GreaterThan_Value
+                    double equalToWeight = probabilityDensity(i, splitValue) * weightSum;
+                    double stdDev = getStdDev(i);
+                    double mean = this.statsPerClass[i * NUM_STATS + MEAN];
+                    double lessThanWeight = stdDev > 0.0 ? Statistics.normalProbability((splitValue - mean) / stdDev)
+                            * weightSum - equalToWeight
+                            : (splitValue < mean ? weightSum - equalToWeight : 0.0);
+                    double greaterThanWeight = weightSum - equalToWeight
+                            - lessThanWeight;
+                    if (greaterThanWeight < 0.0) {
+                        greaterThanWeight = 0.0;
+                    }
+                    lhsDist[i] += lessThanWeight + equalToWeight;
+                    rhsDist[i] += greaterThanWeight;
+                    lhsLength = i + 1;
+                    rhsLength = i + 1;
+                }
+            }
+        }
+        return new double[][]{Arrays.copyOf(lhsDist, lhsLength),
+                    Arrays.copyOf(rhsDist, rhsLength)};
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+    }
+
+    @Override
+    public void observeAttributeTarget(double attVal, double target) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+}
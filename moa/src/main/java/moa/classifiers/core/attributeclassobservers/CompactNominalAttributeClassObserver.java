@@ -0,0 +1,216 @@
+/*
+ *    CompactNominalAttributeClassObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import java.util.Arrays;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.ObjectRepository;
+import moa.core.Utils;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+
+/**
+ * Class for observing the class data distribution for a nominal attribute,
+ * keeping the weights of all the attribute values and classes in one flat array.
+ * It suggests the same splits and gives the same probabilities as
+ * NominalAttributeClassObserver, without a DoubleVector per class.
+ *
+ * @version $Revision: 1 $
+ */
+public class CompactNominalAttributeClassObserver extends AbstractOptionHandler
+        implements DiscreteAttributeClassObserver, CompactAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    protected double totalWeightObserved = 0.0;
+
+    protected double missingWeightObserved = 0.0;
+
+    /**
+     * Weight observed per attribute value and class, at index
+     * attValue * numClasses + classValue.
+     */
+    protected double[] attValDistPerClass = new double[0];
+
+    /**
+     * One more than the largest attribute value observed per class, 0 for a
+     * class not observed yet. Its length is the number of classes allocated.
+     */
+    protected int[] numAttValsPerClass = new int[0];
+
+    protected int numAttValues = 0;
+
+    @Override
+    public void allocate(int numAttValues, int numClasses) {
+        ensureCapacity(numAttValues, numClasses);
+    }
+
+    protected void ensureCapacity(int numAttValues, int numClasses) {
+        int numClassesAllocated = this.numAttValsPerClass.length;
+        if (numAttValues <= this.numAttValues && numClasses <= numClassesAllocated) {
+            return;
+        }
+        int newNumAttValues = Math.max(numAttValues, this.numAttValues);
+        int newNumClasses = Math.max(numClasses, numClassesAllocated);
+        double[] newDist = new double[newNumAttValues * newNumClasses];
+        for (int i = 0; i < this.numAttValues; i++) {
+            System.arraycopy(this.attValDistPerClass, i * numClassesAllocated,
+                    newDist, i * newNumClasses, numClassesAllocated);
+        }
+        this.attValDistPerClass = newDist;
+        this.numAttValsPerClass = Arrays.copyOf(this.numAttValsPerClass, newNumClasses);
+        this.numAttValues = newNumAttValues;
+    }
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+        if (Utils.isMissingValue(attVal)) {
+            this.missingWeightObserved += weight;
+        } else {
+            int attValInt = (int) attVal;
+            ensureCapacity(attValInt + 1, classVal + 1);
+            this.attValDistPerClass[attValInt * this.numAttValsPerClass.length + classVal] += weight;
+            if (attValInt >= this.numAttValsPerClass[classVal]) {
+                this.numAttValsPerClass[classVal] = attValInt + 1;
+            }
+        }
+        this.totalWeightObserved += weight;
+    }
+
+    @Override
+    public double probabilityOfAttributeValueGivenClass(double attVal,
+            int classVal) {
+        if (classVal >= this.numAttValsPerClass.length
+                || this.numAttValsPerClass[classVal] == 0) {
+            return 0.0;
+        }
+        int numClasses = this.numAttValsPerClass.length;
+        int numValues = this.numAttValsPerClass[classVal];
+        int attValInt = (int) attVal;
+        double sum = 0.0;
+        for (int i = 0; i < numValues; i++) {
+            sum += this.attValDistPerClass[i * numClasses + classVal];
+        }
+        double count = (attValInt >= 0) && (attValInt < numValues)
+                ? this.attValDistPerClass[attValInt * numClasses + classVal] : 0.0;
+        return (count + 1.0) / (sum + numValues);
+    }
+
+    public double totalWeightOfClassObservations() {
+        return this.totalWeightObserved;
+    }
+
+    public double weightOfObservedMissingValues() {
+        return this.missingWeightObserved;
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        AttributeSplitSuggestion bestSuggestion = null;
+        int maxAttValsObserved = getMaxAttValsObserved();
+        if (!binaryOnly) {
+            double[][] postSplitDists = getClassDistsResultingFromMultiwaySplit(maxAttValsObserved);
+            double merit = criterion.getMeritOfSplit(preSplitDist,
+                    postSplitDists);
+            bestSuggestion = new AttributeSplitSuggestion(
+                    new NominalAttributeMultiwayTest(attIndex), postSplitDists,
+                    merit);
+        }
+        for (int valIndex = 0; valIndex < maxAttValsObserved; valIndex++) {
+            double[][] postSplitDists = getClassDistsResultingFromBinarySplit(valIndex);
+            double merit = criterion.getMeritOfSplit(preSplitDist,
+                    postSplitDists);
+            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+                bestSuggestion = new AttributeSplitSuggestion(
+                        new NominalAttributeBinaryTest(attIndex, valIndex),
+                        postSplitDists, merit);
+            }
+        }
+        return bestSuggestion;
+    }
+
+    public int getMaxAttValsObserved() {
+        int maxAttValsObserved = 0;
+        for (int numValues : this.numAttValsPerClass) {
+            if (numValues > maxAttValsObserved) {
+                maxAttValsObserved = numValues;
+            }
+        }
+        return maxAttValsObserved;
+    }
+
+    public double[][] getClassDistsResultingFromMultiwaySplit(
+            int maxAttValsObserved) {
+        int numClasses = this.numAttValsPerClass.length;
+        double[][] distributions = new double[maxAttValsObserved][];
+        for (int i = 0; i < distributions.length; i++) {
+            // the distribution ends at the last class with the value observed
+            int length = 0;
+            for (int j = 0; j < numClasses; j++) {
+                if (this.numAttValsPerClass[j] > i) {
+                    length = j + 1;
+                }
+            }
+            distributions[i] = new double[length];
+            System.arraycopy(this.attValDistPerClass, i * numClasses,
+                    distributions[i], 0, length);
+        }
+        return distributions;
+    }
+
+    public double[][] getClassDistsResultingFromBinarySplit(int valIndex) {
+        int numClasses = this.numAttValsPerClass.length;
+        double[] equalsDist = new double[numClasses];
+        double[] notEqualDist = new double[numClasses];
+        int equalsLength = 0;
+        int notEqualLength = 0;
+        for (int i = 0; i < numClasses; i++) {
+            int numValues = this.numAttValsPerClass[i];
+            for (int j = 0; j < numValues; j++) {
+                if (j == valIndex) {
+                    equalsDist[i] += this.attValDistPerClass[j * numClasses + i];
+                    equalsLength = i + 1;
+                } else {
+                    notEqualDist[i] += this.attValDistPerClass[j * numClasses + i];
+                    notEqualLength = i + 1;
+                }
+            }
+        }
+        return new double[][]{Arrays.copyOf(equalsDist, equalsLength),
+                    Arrays.copyOf(notEqualDist, notEqualLength)};
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+    }
+
+    @Override
+    public void observeAttributeTarget(double attVal, double target) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *    HistogramFIMTDDNumericAttributeClassObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+
+import com.github.javacliparser.IntOption;
+
+/**
+ * Numeric attribute observer for FIMTDD keeping the count, sum and sum of
+ * squares of the target per bin of a histogram with a bounded number of bins,
+ * instead of per node of an extended binary search tree (E-BST). It suggests
+ * the same splits as the E-BST as long as there are no more distinct values
+ * than bins, while the memory stays in O(bins).
+ *
+ * @version $Revision: 1 $
+ */
+public class HistogramFIMTDDNumericAttributeClassObserver extends FIMTDDNumericAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption numBinsOption = new IntOption("numBins", 'n',
+            "The maximum number of bins.", 64, 1, Integer.MAX_VALUE);
+
+    protected static final int COUNT = 0;
+
+    protected static final int SUM = 1;
+
+    protected static final int SUM_OF_SQUARES = 2;
+
+    protected static final int NUM_STATS = 3;
+
+    /**
+     * Statistics of the target per bin, created on the first value observed.
+     */
+    protected IntervalHistogram histogram;
+
+    public HistogramFIMTDDNumericAttributeClassObserver() {
+    }
+
+    public HistogramFIMTDDNumericAttributeClassObserver(int numBins) {
+        this.numBinsOption.setValue(numBins);
+    }
+
+    @Override
+    public void observeAttributeClass(double attVal, double classVal, double weight) {
+        // the weight is not used, as in the E-BST
+        if (Double.isNaN(attVal)) {
+            return;
+        }
+        if (this.histogram == null) {
+            this.histogram = new IntervalHistogram(this.numBinsOption.getValue(), NUM_STATS);
+        }
+        int offset = this.histogram.binOf(attVal) * NUM_STATS;
+        double[] stats = this.histogram.getStats();
+        stats[offset + COUNT] += 1;
+        stats[offset + SUM] += classVal;
+        stats[offset + SUM_OF_SQUARES] += classVal * classVal;
+        this.histogram.mergeIfFull();
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(SplitCriterion criterion, double[] preSplitDist, int attIndex, boolean binaryOnly) {
+        if (this.histogram == null) {
+            return null;
+        }
+        // same scan as the in-order traversal of the E-BST
+        double countLeftTotal = 0;
+        double sumTotalLeft = 0;
+        double sumSqTotalLeft = 0;
+        double countRightTotal = preSplitDist[0];
+        double sumTotalRight = preSplitDist[1];
+        double sumSqTotalRight = preSplitDist[2];
+        double[] stats = this.histogram.getStats();
+        AttributeSplitSuggestion bestSuggestion = null;
+        for (int i = 0; i < this.histogram.getNumBins() && countRightTotal != 0.0; i++) {
+            int offset = i * NUM_STATS;
+            countLeftTotal += stats[offset + COUNT];
+            countRightTotal -= stats[offset + COUNT];
+            sumTotalLeft += stats[offset + SUM];
+            sumTotalRight -= stats[offset + SUM];
+            sumSqTotalLeft += stats[offset + SUM_OF_SQUARES];
+            sumSqTotalRight -= stats[offset + SUM_OF_SQUARES];
+
+            double[][] postSplitDists = new double[][]{{countLeftTotal, sumTotalLeft, sumSqTotalLeft}, {countRightTotal, sumTotalRight, sumSqTotalRight}};
+            double[] totalDist = new double[]{(countLeftTotal + countRightTotal), (sumTotalLeft + sumTotalRight), (sumSqTotalLeft + sumSqTotalRight)};
+            double merit = criterion.getMeritOfSplit(totalDist, postSplitDists);
+            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+                bestSuggestion = new AttributeSplitSuggestion(
+                        new NumericAttributeBinaryTest(attIndex,
+                        this.histogram.getUpperBound(i), true), postSplitDists, merit);
+            }
+        }
+        return bestSuggestion;
+    }
+
+    /**
+     * Does nothing, as the number of bins is bounded already.
+     */
+    @Override
+    public void removeBadSplits(SplitCriterion criterion, double lastCheckRatio, double lastCheckSDR, double lastCheckE) {
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *    HistogramNumericAttributeClassObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import java.util.Arrays;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.ObjectRepository;
+import moa.core.Utils;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+
+import com.github.javacliparser.IntOption;
+
+/**
+ * Class for observing the class data distribution for a numeric attribute
+ * using a histogram with a bounded number of bins, each bin holding the weight
+ * of every class. Splits are evaluated between every two adjacent bins, so they
+ * are the same as with BinaryTreeNumericAttributeClassObserver as long as there
+ * are no more distinct values than bins, while the memory stays in
+ * O(bins * classes). Probabilities for Naive Bayes come from a gaussian
+ * estimator per class.
+ *
+ * @version $Revision: 1 $
+ */
+public class HistogramNumericAttributeClassObserver extends AbstractOptionHandler
+        implements NumericAttributeClassObserver, CompactAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption numBinsOption = new IntOption("numBins", 'n',
+            "The maximum number of bins.", 64, 1, Integer.MAX_VALUE);
+
+    protected static final int NUM_ESTIMATOR_STATS = 3;
+
+    /**
+     * Weight of each class per bin, created on the first value observed.
+     */
+    protected IntervalHistogram histogram;
+
+    /**
+     * Gaussian estimator of each class, as weight sum, mean and variance sum.
+     */
+    protected double[] estimatorPerClass = new double[0];
+
+    @Override
+    public void allocate(int numAttValues, int numClasses) {
+        ensureCapacity(numClasses);
+    }
+
+    protected int numClassesAllocated() {
+        return this.estimatorPerClass.length / NUM_ESTIMATOR_STATS;
+    }
+
+    protected void ensureCapacity(int numClasses) {
+        if (numClasses > numClassesAllocated()) {
+            this.estimatorPerClass = Arrays.copyOf(this.estimatorPerClass,
+                    numClasses * NUM_ESTIMATOR_STATS);
+        }
+        if (this.histogram != null) {
+            this.histogram.ensureStride(numClasses);
+        }
+    }
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+        // infinite values are left out, as by the gaussian estimators
+        if (Utils.isMissingValue(attVal) || Double.isInfinite(attVal)) {
+            return;
+        }
+        if (this.histogram == null) {
+            this.histogram = new IntervalHistogram(this.numBinsOption.getValue(),
+                    numClassesAllocated());
+        }
+        ensureCapacity(classVal + 1);
+        int bin = this.histogram.binOf(attVal);
+        this.histogram.getStats()[bin * this.histogram.getStride() + classVal] += weight;
+        this.histogram.mergeIfFull();
+        CompactGaussianNumericAttributeClassObserver.addObservation(
+                this.estimatorPerClass, classVal * NUM_ESTIMATOR_STATS, attVal, weight);
+    }
+
+    @Override
+    public double probabilityOfAttributeValueGivenClass(double attVal,
+            int classVal) {
+        return classVal < numClassesAllocated()
+                ? CompactGaussianNumericAttributeClassObserver.probabilityDensity(
+                this.estimatorPerClass, classVal * NUM_ESTIMATOR_STATS, attVal) : 0.0;
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        if (this.histogram == null) {
+            return null;
+        }
+        int numBins = this.histogram.getNumBins();
+        int numClasses = this.histogram.getStride();
+        double[] stats = this.histogram.getStats();
+        // weights of the bins from each bin to the last, summed from the last
+        // so that the right side does not depend on the rounding of the left one
+        double[] rhsDists = new double[numBins * numClasses];
+        System.arraycopy(stats, (numBins - 1) * numClasses, rhsDists,
+                (numBins - 1) * numClasses, numClasses);
+        for (int i = numBins - 2; i >= 0; i--) {
+            for (int j = 0; j < numClasses; j++) {
+                rhsDists[i * numClasses + j] = rhsDists[(i + 1) * numClasses + j]
+                        + stats[i * numClasses + j];
+            }
+        }
+        AttributeSplitSuggestion bestSuggestion = null;
+        double[] lhsDist = new double[numClasses];
+        double[] rhsDist = new double[numClasses];
+        double[][] postSplitDists = new double[][]{lhsDist, rhsDist};
+        for (int i = 0; i < numBins - 1; i++) {
+            for (int j = 0; j < numClasses; j++) {
+                lhsDist[j] += stats[i * numClasses + j];
+            }
+            System.arraycopy(rhsDists, (i + 1) * numClasses, rhsDist, 0, numClasses);
+            double merit = criterion.getMeritOfSplit(preSplitDist, postSplitDists);
+            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+                bestSuggestion = new AttributeSplitSuggestion(
+                        new NumericAttributeBinaryTest(attIndex,
+                        this.histogram.getUpperBound(i), true),
+                        new double[][]{lhsDist.clone(), rhsDist.clone()}, merit);
+            }
+        }
+        return bestSuggestion;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+    }
+
+    @Override
+    public void observeAttributeTarget(double attVal, double target) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+}
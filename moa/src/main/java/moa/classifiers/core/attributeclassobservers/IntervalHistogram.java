@@ -0,0 +1,176 @@
+/*
+ *    IntervalHistogram.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Histogram of the values of a numeric attribute with a bounded number of
+ * bins. Each bin covers the interval between the smallest and the largest
+ * value it has received, the intervals do not overlap and are kept sorted.
+ * A bin keeps a fixed number of statistics in one flat array, at index
+ * bin * stride + statistic. When there are more bins than allowed, the two
+ * adjacent bins covering the narrowest interval together are merged.
+ *
+ * As a value never leaves its interval, splitting between two bins separates
+ * the observed values exactly. When there are no more distinct values than
+ * bins, every bin holds one distinct value.
+ *
+ * @version $Revision: 1 $
+ */
+public class IntervalHistogram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int INITIAL_CAPACITY = 4;
+
+    protected final int maxBins;
+
+    protected int stride;
+
+    protected int numBins = 0;
+
+    protected double[] lowerBounds = new double[0];
+
+    protected double[] upperBounds = new double[0];
+
+    protected double[] stats = new double[0];
+
+    public IntervalHistogram(int maxBins, int stride) {
+        this.maxBins = maxBins;
+        this.stride = stride;
+    }
+
+    public int getNumBins() {
+        return this.numBins;
+    }
+
+    public int getStride() {
+        return this.stride;
+    }
+
+    public double getLowerBound(int bin) {
+        return this.lowerBounds[bin];
+    }
+
+    public double getUpperBound(int bin) {
+        return this.upperBounds[bin];
+    }
+
+    /**
+     * Returns the statistics of the bins, at index bin * stride + statistic.
+     * The array is replaced when bins are added or the stride grows.
+     *
+     * @return the statistics of the bins
+     */
+    public double[] getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Increases the number of statistics per bin, the new ones are zero.
+     *
+     * @param stride the number of statistics per bin
+     */
+    public void ensureStride(int stride) {
+        if (stride <= this.stride) {
+            return;
+        }
+        double[] newStats = new double[this.lowerBounds.length * stride];
+        for (int i = 0; i < this.numBins; i++) {
+            System.arraycopy(this.stats, i * this.stride, newStats, i * stride,
+                    this.stride);
+        }
+        this.stats = newStats;
+        this.stride = stride;
+    }
+
+    /**
+     * Returns the bin covering a value, adding a bin with zero statistics if
+     * no bin covers it. The statistics of the bin are meant to be updated
+     * before calling {@link #mergeIfFull()}.
+     *
+     * @param value the value, not NaN
+     * @return the index of the bin
+     */
+    public int binOf(double value) {
+        // the last bin starting at or before the value
+        int low = 0;
+        int high = this.numBins - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (this.lowerBounds[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (high >= 0 && value <= this.upperBounds[high]) {
+            return high;
+        }
+        int bin = high + 1;
+        if (this.numBins == this.lowerBounds.length) {
+            int capacity = Math.min(Math.max(INITIAL_CAPACITY, 2 * this.numBins),
+                    this.maxBins + 1);
+            this.lowerBounds = Arrays.copyOf(this.lowerBounds, capacity);
+            this.upperBounds = Arrays.copyOf(this.upperBounds, capacity);
+            this.stats = Arrays.copyOf(this.stats, capacity * this.stride);
+        }
+        int numMoved = this.numBins - bin;
+        System.arraycopy(this.lowerBounds, bin, this.lowerBounds, bin + 1, numMoved);
+        System.arraycopy(this.upperBounds, bin, this.upperBounds, bin + 1, numMoved);
+        System.arraycopy(this.stats, bin * this.stride, this.stats,
+                (bin + 1) * this.stride, numMoved * this.stride);
+        Arrays.fill(this.stats, bin * this.stride, (bin + 1) * this.stride, 0.0);
+        this.lowerBounds[bin] = value;
+        this.upperBounds[bin] = value;
+        this.numBins++;
+        return bin;
+    }
+
+    /**
+     * Merges the two adjacent bins covering the narrowest interval together,
+     * adding their statistics, if there are more bins than allowed.
+     */
+    public void mergeIfFull() {
+        if (this.numBins <= this.maxBins) {
+            return;
+        }
+        int bin = 0;
+        double narrowestWidth = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < this.numBins - 1; i++) {
+            double width = this.upperBounds[i + 1] - this.lowerBounds[i];
+            if (width < narrowestWidth) {
+                narrowestWidth = width;
+                bin = i;
+            }
+        }
+        this.upperBounds[bin] = this.upperBounds[bin + 1];
+        int offset = bin * this.stride;
+        for (int i = 0; i < this.stride; i++) {
+            this.stats[offset + i] += this.stats[offset + this.stride + i];
+        }
+        int numMoved = this.numBins - bin - 2;
+        System.arraycopy(this.lowerBounds, bin + 2, this.lowerBounds, bin + 1, numMoved);
+        System.arraycopy(this.upperBounds, bin + 2, this.upperBounds, bin + 1, numMoved);
+        System.arraycopy(this.stats, (bin + 2) * this.stride, this.stats,
+                (bin + 1) * this.stride, numMoved * this.stride);
+        this.numBins--;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ *    SparseAttributeObservations.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import moa.core.AutoExpandVector;
+import moa.core.DoubleVector;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Bookkeeping for observing sparse instances with the attribute class
+ * observers of a learner, giving the observers only the values stored in the
+ * instances. The values absent from an instance are zeros: the weight of the
+ * instances an attribute was absent from is given to its observer as one
+ * observation of zero per class by {@link #addImplicitZeros}, which has to be
+ * called before the statistics of the observers are used. Learners call it
+ * while training, never while predicting, so that predictions only read the
+ * observers.
+ *
+ * An attribute gets an observer when it is first stored in an instance, so
+ * the observers of the attributes never stored are missing.
+ *
+ * @version $Revision: 1 $
+ */
+public class SparseAttributeObservations implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Weight of the instances observed per class.
+     */
+    protected DoubleVector classWeights = new DoubleVector();
+
+    /**
+     * Learner indices of the attributes with an observer, in increasing order.
+     */
+    protected int[] attIndices = new int[0];
+
+    /**
+     * Weight per class given to the observer of each attribute, in the order
+     * of attIndices.
+     */
+    protected DoubleVector[] observedClassWeights = new DoubleVector[0];
+
+    protected int numAttributes = 0;
+
+    /**
+     * Returns whether an instance stores fewer values than it has attributes.
+     *
+     * @param inst the instance
+     * @return whether the instance is sparse
+     */
+    public static boolean isSparse(Instance inst) {
+        return inst.numValues() < inst.numAttributes();
+    }
+
+    /**
+     * Gets the index of an attribute in the learner, given its index in the
+     * instance.
+     *
+     * @param instAttIndex the index of the attribute in the instance, not the class index
+     * @param inst the instance
+     * @return the index in the learner
+     */
+    public static int instanceAttIndexToModelAttIndex(int instAttIndex,
+            Instance inst) {
+        return inst.classIndex() > instAttIndex ? instAttIndex : instAttIndex - 1;
+    }
+
+    public int numAttributes() {
+        return this.numAttributes;
+    }
+
+    /**
+     * Gets the learner index of the i-th attribute with an observer, in
+     * increasing order.
+     *
+     * @param i the position of the attribute
+     * @return the index of the attribute in the learner
+     */
+    public int attIndex(int i) {
+        return this.attIndices[i];
+    }
+
+    /**
+     * Adds the weight of an instance, before its stored values are observed.
+     *
+     * @param classVal the class of the instance
+     * @param weight the weight of the instance
+     */
+    public void observeClass(int classVal, double weight) {
+        this.classWeights.addToValue(classVal, weight);
+    }
+
+    /**
+     * Gives a value stored in an instance to the observer of its attribute.
+     *
+     * @param obs the observer of the attribute
+     * @param attIndex the index of the attribute in the learner
+     * @param attVal the value
+     * @param classVal the class of the instance
+     * @param weight the weight of the instance
+     */
+    public void observeAttributeClass(AttributeClassObserver obs, int attIndex,
+            double attVal, int classVal, double weight) {
+        int pos = Arrays.binarySearch(this.attIndices, 0, this.numAttributes, attIndex);
+        if (pos < 0) {
+            pos = -pos - 1;
+            if (this.numAttributes == this.attIndices.length) {
+                int capacity = Math.max(8, 2 * this.numAttributes);
+                this.attIndices = Arrays.copyOf(this.attIndices, capacity);
+                this.observedClassWeights = Arrays.copyOf(this.observedClassWeights, capacity);
+            }
+            System.arraycopy(this.attIndices, pos, this.attIndices, pos + 1,
+                    this.numAttributes - pos);
+            System.arraycopy(this.observedClassWeights, pos, this.observedClassWeights,
+                    pos + 1, this.numAttributes - pos);
+            this.attIndices[pos] = attIndex;
+            this.observedClassWeights[pos] = new DoubleVector();
+            this.numAttributes++;
+        }
+        obs.observeAttributeClass(attVal, classVal, weight);
+        this.observedClassWeights[pos].addToValue(classVal, weight);
+    }
+
+    /**
+     * Gives each observer the zeros of the instances its attribute was absent
+     * from since the last call, as one weighted observation per class.
+     *
+     * @param observers the observers of the learner, indexed by attribute
+     */
+    public void addImplicitZeros(AutoExpandVector<AttributeClassObserver> observers) {
+        int numClasses = this.classWeights.numValues();
+        for (int i = 0; i < this.numAttributes; i++) {
+            AttributeClassObserver obs = observers.get(this.attIndices[i]);
+            DoubleVector observedWeights = this.observedClassWeights[i];
+            for (int classVal = 0; classVal < numClasses; classVal++) {
+                double zeroWeight = this.classWeights.getValue(classVal)
+                        - observedWeights.getValue(classVal);
+                if (zeroWeight > 0.0) {
+                    if (obs != null) {
+                        obs.observeAttributeClass(0.0, classVal, zeroWeight);
+                    }
+                    observedWeights.setValue(classVal, this.classWeights.getValue(classVal));
+                }
+            }
+        }
+    }
+}
@@ -19,6 +19,8 @@
  */
 package moa.classifiers.core.driftdetection;
 
+import java.util.Arrays;
+
 import moa.AbstractMOAObject;
 
 /**
@@ -34,253 +36,6 @@ import moa.AbstractMOAObject;
  */
 public class ADWIN extends AbstractMOAObject {
 
-    private class List extends AbstractMOAObject {
-
-        protected int count;
-
-        protected ListItem head;
-
-        protected ListItem tail;
-
-        public List() {
-//			post: initializes the list to be empty.
-            clear();
-            addToHead();
-        }
-
-        /* Interface Store Methods */
-        public int size() {
-            //	post: returns the number of elements in the list.
-            return this.count;
-        }
-
-        public ListItem head() {
-            //	post: returns the number of elements in the list.
-            return this.head;
-        }
-
-        public ListItem tail() {
-            //	post: returns the number of elements in the list.
-            return this.tail;
-        }
-
-        public boolean isEmpty() {
-            //	 post: returns the true iff store is empty.
-            return (this.size() == 0);
-        }
-
-        public void clear() {
-            //	 post: clears the list so that it contains no elements.
-            this.head = null;
-            this.tail = null;
-            this.count = 0;
-        }
-
-        /* Interface List Methods */
-        public void addToHead() {
-            //	 pre: anObject is non-null
-            //	 post: the object is added to the beginning of the list
-            this.head = new ListItem(this.head, null);
-            if (this.tail == null) {
-                this.tail = this.head;
-            }
-            this.count++;
-        }
-
-        public void removeFromHead() {
-            //		 pre: list is not empty
-            //		 post: removes and returns first object from the list
-//			ListItem temp;
-//			temp = this.head;
-            this.head = this.head.next();
-            if (this.head != null) {
-                this.head.setPrevious(null);
-            } else {
-                this.tail = null;
-            }
-            this.count--;
-            //temp=null;
-            return;
-        }
-
-        public void addToTail() {
-//			pre: anObject is non-null
-//			post: the object is added at the end of the list
-            this.tail = new ListItem(null, this.tail);
-            if (this.head == null) {
-                this.head = this.tail;
-            }
-            this.count++;
-        }
-
-        public void removeFromTail() {
-//			pre: list is not empty
-//			post: the last object in the list is removed and returned
-//			ListItem temp;
-//			temp = this.tail;
-            this.tail = this.tail.previous();
-            if (this.tail == null) {
-                this.head = null;
-            } else {
-                this.tail.setNext(null);
-            }
-            this.count--;
-            //temp=null;
-            return;
-        }
-
-        @Override
-        public void getDescription(StringBuilder sb, int indent) {
-        }
-    }
-
-    private class ListItem extends AbstractMOAObject {
-//		protected Object data;
-
-        protected ListItem next;
-
-        protected ListItem previous;
-
-        protected int bucketSizeRow = 0;
-
-        protected int MAXBUCKETS = ADWIN.MAXBUCKETS;
-
-        protected double bucketTotal[] = new double[MAXBUCKETS + 1];
-
-        protected double bucketVariance[] = new double[MAXBUCKETS + 1];
-
-        public ListItem() {
-//			post: initializes the node to be a tail node
-//			containing the given value.
-            this(null, null);
-        }
-
-        public void clear() {
-            bucketSizeRow = 0;
-            for (int k = 0; k <= MAXBUCKETS; k++) {
-                clearBucket(k);
-            }
-        }
-
-        private void clearBucket(int k) {
-            setTotal(0, k);
-            setVariance(0, k);
-        }
-
-        public ListItem(ListItem nextNode, ListItem previousNode) {
-//			post: initializes the node to contain the given
-//			object and link to the given next node.
-            //this.data = element;
-            this.next = nextNode;
-            this.previous = previousNode;
-            if (nextNode != null) {
-                nextNode.previous = this;
-            }
-            if (previousNode != null) {
-                previousNode.next = this;
-            }
-            clear();
-        }
-
-        public void insertBucket(double Value, double Variance) {
-//			insert a Bucket at the end
-            int k = bucketSizeRow;
-            bucketSizeRow++;
-            //Insert new bucket
-            setTotal(Value, k);
-            setVariance(Variance, k);
-        }
-
-        public void RemoveBucket() {
-//			Removes the first Buvket
-            compressBucketsRow(1);
-        }
-
-        public void compressBucketsRow(int NumberItemsDeleted) {
-            //Delete first elements
-            for (int k = NumberItemsDeleted; k <= MAXBUCKETS; k++) {
-                bucketTotal[k - NumberItemsDeleted] = bucketTotal[k];
-                bucketVariance[k - NumberItemsDeleted] = bucketVariance[k];
-            }
-            for (int k = 1; k <= NumberItemsDeleted; k++) {
-                clearBucket(MAXBUCKETS - k + 1);
-            }
-            bucketSizeRow -= NumberItemsDeleted;
-            //BucketNumber-=NumberItemsDeleted;
-        }
-
-        public ListItem previous() {
-//			post: returns the previous node.
-            return this.previous;
-        }
-
-        public void setPrevious(ListItem previous) {
-//			post: sets the previous node to be the given node
-            this.previous = previous;
-        }
-
-        public ListItem next() {
-//			post: returns the next node.
-            return this.next;
-        }
-
-        public void setNext(ListItem next) {
-//			post: sets the next node to be the given node
-            this.next = next;
-        }
-
-        public double Total(int k) {
-//			post: returns the element in this node
-            return bucketTotal[k];
-        }
-
-        public double Variance(int k) {
-//			post: returns the element in this node
-            return bucketVariance[k];
-        }
-
-        public void setTotal(double value, int k) {
-//			post: sets the element in this node to the given
-//			object.
-            bucketTotal[k] = value;
-        }
-
-        public void setVariance(double value, int k) {
-//			post: sets the element in this node to the given
-//			object.
-            bucketVariance[k] = value;
-        }
-        /*
-        public ListItem(Object element,
-        ListItem nextNode){
-        //		post: initializes the node to contain the given
-        //		 object and link to the given next node.
-        this.data = element;
-        this.next = nextNode;
-        }
-        public ListItem(Object element) {
-        //		post: initializes the node to be a tail node
-        //		 containing the given value.
-        this(element, null);
-        }
-
-
-        public Object value() {
-        //			 post: returns the element in this node
-        return this.data;
-        }
-        public void setValue(Object anObject) {
-        //			 post: sets the element in this node to the given
-        //			 object.
-        this.data = anObject;
-        }
-         */
-
-        @Override
-        public void getDescription(StringBuilder sb, int indent) {
-        }
-    }
-
     public static final double DELTA = .002; //.1;
 
     private static final int mintMinimLongitudWindow = 10; //10
@@ -318,7 +73,18 @@ public class ADWIN extends AbstractMOAObject {
 
     private int mintMinWinLength = 5;
 
-    private List listRowBuckets;
+    static final int ROWLENGTH = MAXBUCKETS + 1;
+
+    private static final int INITIALROWS = 8;
+
+    // Buckets stored row after row, ROWLENGTH slots per row. Row i holds the
+    // buckets of 2^i elements, from the oldest to the newest, and row 0 holds
+    // the newest elements. The slots past the size of a row are not read.
+    private double[] bucketTotal;
+
+    private double[] bucketVariance;
+
+    private int[] bucketSizeRow;
 
     public boolean getChange() {
         return blnBucketDeleted;
@@ -374,7 +140,9 @@ public class ADWIN extends AbstractMOAObject {
 
     private void initBuckets() {
         //Init buckets
-        listRowBuckets = new List();
+        bucketTotal = new double[INITIALROWS * ROWLENGTH];
+        bucketVariance = new double[INITIALROWS * ROWLENGTH];
+        bucketSizeRow = new int[INITIALROWS];
         lastBucketRow = 0;
         TOTAL = 0;
         VARIANCE = 0;
@@ -384,7 +152,7 @@ public class ADWIN extends AbstractMOAObject {
 
     private void insertElement(double Value) {
         WIDTH++;
-        insertElementBucket(0, Value, listRowBuckets.head());
+        insertElementBucket(0, Value, 0);
         double incVariance = 0;
         if (WIDTH > 1) {
             incVariance = (WIDTH - 1) * (Value - TOTAL / (WIDTH - 1)) * (Value - TOTAL / (WIDTH - 1)) / WIDTH;
@@ -394,161 +162,242 @@ public class ADWIN extends AbstractMOAObject {
         compressBuckets();
     }
 
-    private void insertElementBucket(double Variance, double Value, ListItem Node) {
+    private void insertElementBucket(double Variance, double Value, int Row) {
         //Insert new bucket
-        Node.insertBucket(Value, Variance);
+        insertBucket(bucketTotal, bucketVariance, bucketSizeRow, Row, Value, Variance);
         BucketNumber++;
         if (BucketNumber > BucketNumberMAX) {
             BucketNumberMAX = BucketNumber;
         }
     }
 
+    /**
+     * Inserts a bucket at the end of a row. The bucket arrays are laid out as
+     * those of ADWIN, ROWLENGTH slots per row, and are shared with ADWINBank.
+     *
+     * @param bucketTotal the totals of the buckets
+     * @param bucketVariance the variances of the buckets
+     * @param bucketSizeRow the number of buckets of each row
+     * @param row the row
+     * @param value the total of the bucket
+     * @param variance the variance of the bucket
+     */
+    static void insertBucket(double[] bucketTotal, double[] bucketVariance, int[] bucketSizeRow,
+            int row, double value, double variance) {
+        int k = row * ROWLENGTH + bucketSizeRow[row];
+        bucketSizeRow[row]++;
+        bucketTotal[k] = value;
+        bucketVariance[k] = variance;
+    }
+
+    /**
+     * Deletes the first buckets of a row.
+     *
+     * @param bucketTotal the totals of the buckets
+     * @param bucketVariance the variances of the buckets
+     * @param bucketSizeRow the number of buckets of each row
+     * @param row the row
+     * @param numberItemsDeleted the number of buckets to delete
+     */
+    static void compressBucketsRow(double[] bucketTotal, double[] bucketVariance, int[] bucketSizeRow,
+            int row, int numberItemsDeleted) {
+        int first = row * ROWLENGTH;
+        int remaining = bucketSizeRow[row] - numberItemsDeleted;
+        System.arraycopy(bucketTotal, first + numberItemsDeleted, bucketTotal, first, remaining);
+        System.arraycopy(bucketVariance, first + numberItemsDeleted, bucketVariance, first, remaining);
+        bucketSizeRow[row] = remaining;
+    }
+
+    /**
+     * Merges the two oldest buckets of a full row into a bucket at the end of
+     * the next row, which must exist.
+     *
+     * @param bucketTotal the totals of the buckets
+     * @param bucketVariance the variances of the buckets
+     * @param bucketSizeRow the number of buckets of each row
+     * @param row the row
+     * @param n the number of elements of the buckets of the row
+     * @return true if the next row is full in turn
+     */
+    static boolean mergeBuckets(double[] bucketTotal, double[] bucketVariance, int[] bucketSizeRow,
+            int row, int n) {
+        int first = row * ROWLENGTH;
+        double u1 = bucketTotal[first] / n;
+        double u2 = bucketTotal[first + 1] / n;
+        double incVariance = n * n * (u1 - u2) * (u1 - u2) / (n + n);
+        insertBucket(bucketTotal, bucketVariance, bucketSizeRow, row + 1,
+                bucketTotal[first] + bucketTotal[first + 1],
+                bucketVariance[first] + bucketVariance[first + 1] + incVariance);
+        compressBucketsRow(bucketTotal, bucketVariance, bucketSizeRow, row, 2);
+        return bucketSizeRow[row + 1] > MAXBUCKETS;
+    }
+
+    /**
+     * Returns whether a window can be cut in two sub-windows whose averages
+     * differ significantly, trying the cuts from the oldest bucket on.
+     *
+     * @param bucketTotal the totals of the buckets
+     * @param bucketSizeRow the number of buckets of each row
+     * @param firstRow the row of the newest buckets of the window, whose
+     * buckets hold one element
+     * @param lastBucketRow the number of rows of the window minus one
+     * @param width the number of elements of the window
+     * @param total the total of the window
+     * @param variance the variance of the window
+     * @param delta the confidence of the change detection
+     * @param minWinLength the minimum length of the sub-windows
+     * @return true if the window should be cut
+     */
+    static boolean hasCut(double[] bucketTotal, int[] bucketSizeRow, int firstRow, int lastBucketRow,
+            int width, double total, double variance, double delta, int minWinLength) {
+        int n0 = 0;
+        int n1 = width;
+        double u0 = 0;
+        double u1 = total;
+        double dd = Math.log(2 * Math.log(width) / delta);
+        double v = variance / width;
+        for (int i = lastBucketRow; i >= 0; i--) {
+            int first = (firstRow + i) * ROWLENGTH;
+            int size = bucketSizeRow[firstRow + i];
+            int n2 = 1 << i;
+            for (int k = 0; k < size; k++) {
+                n0 += n2;
+                n1 -= n2;
+                u0 += bucketTotal[first + k];
+                u1 -= bucketTotal[first + k];
+                if (i == 0 && k == size - 1) {
+                    return false;
+                }
+                double absvalue = u0 / n0 - u1 / n1;
+                if (n1 > minWinLength + 1 && n0 > minWinLength + 1
+                        && cutExpression(n0, n1, absvalue, dd, v, minWinLength)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean cutExpression(int n0, int n1, double absvalue, double dd, double v, int minWinLength) {
+        // Formula Gener 2008
+        double m = ((double) 1 / ((n0 - minWinLength + 1))) + ((double) 1 / ((n1 - minWinLength + 1)));
+        double epsilon = Math.sqrt(2 * m * v * dd) + (double) 2 / 3 * dd * m;
+
+        return (Math.abs(absvalue) > epsilon);
+    }
+
+    private void addRow() {
+        //Add an empty row after the last one
+        lastBucketRow++;
+        if (lastBucketRow == bucketSizeRow.length) {
+            int rows = 2 * bucketSizeRow.length;
+            bucketTotal = Arrays.copyOf(bucketTotal, rows * ROWLENGTH);
+            bucketVariance = Arrays.copyOf(bucketVariance, rows * ROWLENGTH);
+            bucketSizeRow = Arrays.copyOf(bucketSizeRow, rows);
+        }
+        bucketSizeRow[lastBucketRow] = 0;
+    }
+
     private int bucketSize(int Row) {
-        return (int) Math.pow(2, Row);
+        return 1 << Row;
     }
 
     public int deleteElement() {
-        //LIST
         //Update statistics
-        ListItem Node;
-        Node = listRowBuckets.tail();
+        int first = lastBucketRow * ROWLENGTH;
         int n1 = bucketSize(lastBucketRow);
         WIDTH -= n1;
-        TOTAL -= Node.Total(0);
-        double u1 = Node.Total(0) / n1;
-        double incVariance = Node.Variance(0) + n1 * WIDTH * (u1 - TOTAL / WIDTH) * (u1 - TOTAL / WIDTH) / (n1 + WIDTH);
+        TOTAL -= bucketTotal[first];
+        double u1 = bucketTotal[first] / n1;
+        double incVariance = bucketVariance[first] + n1 * WIDTH * (u1 - TOTAL / WIDTH) * (u1 - TOTAL / WIDTH) / (n1 + WIDTH);
         VARIANCE -= incVariance;
 
         //Delete Bucket
-        Node.RemoveBucket();
+        compressBucketsRow(bucketTotal, bucketVariance, bucketSizeRow, lastBucketRow, 1);
         BucketNumber--;
-        if (Node.bucketSizeRow == 0) {
-            listRowBuckets.removeFromTail();
+        if (bucketSizeRow[lastBucketRow] == 0) {
             lastBucketRow--;
         }
         return n1;
     }
 
     public void compressBuckets() {
-        //Traverse the list of buckets in increasing order
-        int n1, n2;
-        double u2, u1, incVariance;
-        ListItem cursor;
-        ListItem nextNode;
-        cursor = listRowBuckets.head();
+        //Traverse the rows of buckets in increasing order
         int i = 0;
-        do {
-            //Find the number of buckets in a row
-            int k = cursor.bucketSizeRow;
-            //If the row is full, merge buckets
-            if (k == MAXBUCKETS + 1) {
-                nextNode = cursor.next();
-                if (nextNode == null) {
-                    listRowBuckets.addToTail();
-                    nextNode = cursor.next();
-                    lastBucketRow++;
-                }
-                n1 = bucketSize(i);
-                n2 = bucketSize(i);
-                u1 = cursor.Total(0) / n1;
-                u2 = cursor.Total(1) / n2;
-                incVariance = n1 * n2 * (u1 - u2) * (u1 - u2) / (n1 + n2);
-
-                nextNode.insertBucket(cursor.Total(0) + cursor.Total(1), cursor.Variance(0) + cursor.Variance(1) + incVariance);
-                BucketNumber++;
-                cursor.compressBucketsRow(2);
-                if (nextNode.bucketSizeRow <= MAXBUCKETS) {
-                    break;
-                }
-            } else {
+        //If the row is full, merge buckets
+        while (bucketSizeRow[i] == MAXBUCKETS + 1) {
+            if (i == lastBucketRow) {
+                addRow();
+            }
+            BucketNumber++;
+            if (!mergeBuckets(bucketTotal, bucketVariance, bucketSizeRow, i, bucketSize(i))) {
                 break;
             }
-            cursor = cursor.next();
             i++;
-        } while (cursor != null);
+        }
     }
 
     public boolean setInput(double intEntrada) {
         return setInput(intEntrada, mdbldelta);
     }
 
+    /**
+     * Adds values to the window one after the other, with the same result as
+     * calling setInput for each of them.
+     *
+     * @param values the values, in the order of the stream
+     * @param len the number of values to add from the start of the array
+     * @return true if a change was detected when adding any of the values
+     */
+    public boolean setInputs(double[] values, int len) {
+        return setInputs(values, len, mdbldelta);
+    }
+
+    /**
+     * Adds values to the window one after the other, with the same result as
+     * calling setInput for each of them.
+     *
+     * @param values the values, in the order of the stream
+     * @param len the number of values to add from the start of the array
+     * @param delta the confidence of the change detection
+     * @return true if a change was detected when adding any of the values
+     */
+    public boolean setInputs(double[] values, int len, double delta) {
+        boolean blnChange = false;
+        for (int i = 0; i < len; i++) {
+            if (setInput(values[i], delta)) {
+                blnChange = true;
+            }
+        }
+        return blnChange;
+    }
+
     public boolean setInput(double intEntrada, double delta) {
         boolean blnChange = false;
-        boolean blnExit = false;
-        ListItem cursor;
         mintTime++;
 
         //1,2)Increment window in one element
         insertElement(intEntrada);
         blnBucketDeleted = false;
-        //3)Reduce  window
+        //3)Reduce  window, deleting the oldest bucket as long as there is a cut
         if (mintTime % mintClock == 0 && getWidth() > mintMinimLongitudWindow) {
-            boolean blnReduceWidth = true; // Diference
-
-            while (blnReduceWidth) // Diference
-            {
-                blnReduceWidth = false; // Diference
-                blnExit = false;
-                int n0 = 0;
-                int n1 = WIDTH;
-                double u0 = 0;
-                double u1 = getTotal();
-                double v0 = 0;
-                double v1 = VARIANCE;
-                double n2 = 0;
-                double u2 = 0;
-
-                cursor = listRowBuckets.tail();
-                int i = lastBucketRow;
-                do {
-                    for (int k = 0; k <= (cursor.bucketSizeRow - 1); k++) {
-                        n2 = bucketSize(i);
-                        u2 = cursor.Total(k);
-                        if (n0 > 0) {
-                            v0 += cursor.Variance(k) + (double) n0 * n2 * (u0 / n0 - u2 / n2) * (u0 / n0 - u2 / n2) / (n0 + n2);
-                        }
-                        if (n1 > 0) {
-                            v1 -= cursor.Variance(k) + (double) n1 * n2 * (u1 / n1 - u2 / n2) * (u1 / n1 - u2 / n2) / (n1 + n2);
-                        }
-
-                        n0 += bucketSize(i);
-                        n1 -= bucketSize(i);
-                        u0 += cursor.Total(k);
-                        u1 -= cursor.Total(k);
-
-                        if (i == 0 && k == cursor.bucketSizeRow - 1) {
-                            blnExit = true;
-                            break;
-                        }
-                        double absvalue = (double) (u0 / n0) - (u1 / n1);       //n1<WIDTH-mintMinWinLength-1
-                        if ((n1 > mintMinWinLength + 1 && n0 > mintMinWinLength + 1) && // Diference NEGATIVE
-                                //if(
-                                blnCutexpression(n0, n1, u0, u1, v0, v1, absvalue, delta)) {
-                            blnBucketDeleted = true;
-                            Detect = mintTime;
-
-                            if (Detect == 0) {
-                                Detect = mintTime;
-                                //blnFirst=true;
-                                //blnWarning=true;
-                            } else if (DetectTwice == 0) {
-                                DetectTwice = mintTime;
-                                //blnDetect=true;
-                            }
-                            blnReduceWidth = true; // Diference
-                            blnChange = true;
-                            if (getWidth() > 0) { //Reduce width of the window
-                                //while (n0>0)  // Diference NEGATIVE
-                                n0 -= deleteElement();
-                                blnExit = true;
-                                break;
-                            }
-                        } //End if
-                    }//Next k
-                    cursor = cursor.previous();
-                    i--;
-                } while (((!blnExit && cursor != null)));
-            }//End While // Diference
+            while (hasCut(bucketTotal, bucketSizeRow, 0, lastBucketRow, WIDTH, TOTAL, VARIANCE,
+                    delta, mintMinWinLength)) {
+                blnBucketDeleted = true;
+                Detect = mintTime;
+
+                if (Detect == 0) {
+                    Detect = mintTime;
+                    //blnFirst=true;
+                    //blnWarning=true;
+                } else if (DetectTwice == 0) {
+                    DetectTwice = mintTime;
+                    //blnDetect=true;
+                }
+                blnChange = true;
+                //Reduce width of the window, the sub-windows are not empty
+                deleteElement();
+            }
         }//End if
 
         mdblWidth += getWidth();
@@ -558,17 +407,6 @@ public class ADWIN extends AbstractMOAObject {
         return blnChange;
     }
 
-    private boolean blnCutexpression(int n0, int n1, double u0, double u1, double v0, double v1, double absvalue, double delta) {
-        int n = getWidth();
-        double dd = Math.log(2 * Math.log(n) / delta);     // -- ull perque el ln n va al numerador.
-        // Formula Gener 2008
-        double v = getVariance();
-        double m = ((double) 1 / ((n0 - mintMinWinLength + 1))) + ((double) 1 / ((n1 - mintMinWinLength + 1)));
-        double epsilon = Math.sqrt(2 * m * v * dd) + (double) 2 / 3 * dd * m;
-
-        return (Math.abs(absvalue) > epsilon);
-    }
-
     public ADWIN() {
         mdbldelta = DELTA;
         initBuckets();
@@ -0,0 +1,308 @@
+/*
+ *    ADWINBank.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.driftdetection;
+
+import java.util.Arrays;
+
+import moa.AbstractMOAObject;
+
+/**
+ * Bank of ADWIN windows, one per lane, stored together in primitive arrays.
+ *
+ * Each lane behaves as an ADWIN with the delta of the bank: the change points
+ * and estimations are the same as those of separate ADWIN objects receiving
+ * the same inputs. Ensembles use one lane per member instead of one ADWIN
+ * object per member, and update all the lanes with a single call.
+ *
+ * @version $Revision: 1 $
+ */
+public class ADWINBank extends AbstractMOAObject {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MINIMLONGITUDWINDOW = 10;
+
+    private static final int MINWINLENGTH = 5;
+
+    private static final int ROWLENGTH = ADWIN.ROWLENGTH;
+
+    private static final int INITIALROWS = 8;
+
+    protected final int numLanes;
+
+    protected final double delta;
+
+    protected int clock = 32;
+
+    protected int[] time;
+
+    protected int[] width;
+
+    protected double[] total;
+
+    protected double[] variance;
+
+    protected int[] lastBucketRow;
+
+    protected int[] numberDetections;
+
+    protected boolean[] change;
+
+    protected boolean[] drift;
+
+    /**
+     * The number of rows of buckets each lane has room for.
+     */
+    protected int rowCapacity;
+
+    // Buckets stored lane after lane, rowCapacity rows per lane and ROWLENGTH
+    // slots per row, in the same order as in ADWIN
+    protected double[] bucketTotal;
+
+    protected double[] bucketVariance;
+
+    protected int[] bucketSizeRow;
+
+    /**
+     * Creates a bank of empty windows.
+     *
+     * @param numLanes the number of windows
+     * @param delta the confidence of the change detection
+     */
+    public ADWINBank(int numLanes, double delta) {
+        this.numLanes = numLanes;
+        this.delta = delta;
+        this.time = new int[numLanes];
+        this.width = new int[numLanes];
+        this.total = new double[numLanes];
+        this.variance = new double[numLanes];
+        this.lastBucketRow = new int[numLanes];
+        this.numberDetections = new int[numLanes];
+        this.change = new boolean[numLanes];
+        this.drift = new boolean[numLanes];
+        this.rowCapacity = INITIALROWS;
+        this.bucketTotal = new double[numLanes * INITIALROWS * ROWLENGTH];
+        this.bucketVariance = new double[numLanes * INITIALROWS * ROWLENGTH];
+        this.bucketSizeRow = new int[numLanes * INITIALROWS];
+    }
+
+    public int getNumLanes() {
+        return this.numLanes;
+    }
+
+    public void setClock(int clock) {
+        this.clock = clock;
+    }
+
+    public int getClock() {
+        return this.clock;
+    }
+
+    /**
+     * Empties the window of a lane, as replacing its ADWIN by a new one.
+     *
+     * @param lane the lane
+     */
+    public void resetLane(int lane) {
+        this.time[lane] = 0;
+        this.width[lane] = 0;
+        this.total[lane] = 0;
+        this.variance[lane] = 0;
+        this.lastBucketRow[lane] = 0;
+        this.numberDetections[lane] = 0;
+        this.change[lane] = false;
+        this.drift[lane] = false;
+        Arrays.fill(this.bucketSizeRow, lane * this.rowCapacity, (lane + 1) * this.rowCapacity, 0);
+    }
+
+    /**
+     * Adds a value to the window of each lane.
+     *
+     * @param values the values, one per lane
+     * @return true if a change was detected in any lane
+     */
+    public boolean setInputs(double[] values) {
+        boolean blnChange = false;
+        for (int lane = 0; lane < this.numLanes; lane++) {
+            if (setInput(lane, values[lane])) {
+                blnChange = true;
+            }
+        }
+        return blnChange;
+    }
+
+    /**
+     * Adds a value to the window of a lane.
+     *
+     * @param lane the lane
+     * @param value the value
+     * @return true if a change was detected, as ADWIN.setInput
+     */
+    public boolean setInput(int lane, double value) {
+        double estimation = getEstimation(lane);
+        boolean blnChange = update(lane, value);
+        this.drift[lane] = blnChange && getEstimation(lane) > estimation;
+        return blnChange;
+    }
+
+    /**
+     * Returns whether the last value of a lane caused a change, as
+     * ADWIN.getChange.
+     *
+     * @param lane the lane
+     * @return true if buckets were deleted from the window
+     */
+    public boolean getChange(int lane) {
+        return this.change[lane];
+    }
+
+    /**
+     * Returns whether the last value of a lane caused a change that increased
+     * the estimation, which is the change ADWINChangeDetector reports and
+     * the ensembles react to.
+     *
+     * @param lane the lane
+     * @return true if the estimation increased with a change
+     */
+    public boolean getDrift(int lane) {
+        return this.drift[lane];
+    }
+
+    public double getEstimation(int lane) {
+        return this.total[lane] / this.width[lane];
+    }
+
+    public double getVariance(int lane) {
+        return this.variance[lane] / this.width[lane];
+    }
+
+    public double getTotal(int lane) {
+        return this.total[lane];
+    }
+
+    public int getWidth(int lane) {
+        return this.width[lane];
+    }
+
+    public int getNumberDetections(int lane) {
+        return this.numberDetections[lane];
+    }
+
+    private boolean update(int lane, double value) {
+        boolean blnChange = false;
+        this.time[lane]++;
+        insertElement(lane, value);
+        this.change[lane] = false;
+        if (this.time[lane] % this.clock == 0 && this.width[lane] > MINIMLONGITUDWINDOW) {
+            while (ADWIN.hasCut(this.bucketTotal, this.bucketSizeRow, lane * this.rowCapacity,
+                    this.lastBucketRow[lane], this.width[lane], this.total[lane], this.variance[lane],
+                    this.delta, MINWINLENGTH)) {
+                this.change[lane] = true;
+                blnChange = true;
+                deleteElement(lane);
+            }
+        }
+        if (blnChange) {
+            this.numberDetections[lane]++;
+        }
+        return blnChange;
+    }
+
+    private static int bucketSize(int row) {
+        return 1 << row;
+    }
+
+    private void insertElement(int lane, double value) {
+        this.width[lane]++;
+        int n = this.width[lane];
+        ADWIN.insertBucket(this.bucketTotal, this.bucketVariance, this.bucketSizeRow,
+                lane * this.rowCapacity, value, 0);
+        double incVariance = 0;
+        if (n > 1) {
+            double t = this.total[lane];
+            incVariance = (n - 1) * (value - t / (n - 1)) * (value - t / (n - 1)) / n;
+        }
+        this.variance[lane] += incVariance;
+        this.total[lane] += value;
+        compressBuckets(lane);
+    }
+
+    private void compressBuckets(int lane) {
+        int i = 0;
+        while (this.bucketSizeRow[lane * this.rowCapacity + i] == ADWIN.MAXBUCKETS + 1) {
+            if (i == this.lastBucketRow[lane]) {
+                addRow(lane);
+            }
+            if (!ADWIN.mergeBuckets(this.bucketTotal, this.bucketVariance, this.bucketSizeRow,
+                    lane * this.rowCapacity + i, bucketSize(i))) {
+                break;
+            }
+            i++;
+        }
+    }
+
+    private int deleteElement(int lane) {
+        int row = lane * this.rowCapacity + this.lastBucketRow[lane];
+        int first = row * ROWLENGTH;
+        int n1 = bucketSize(this.lastBucketRow[lane]);
+        this.width[lane] -= n1;
+        this.total[lane] -= this.bucketTotal[first];
+        int w = this.width[lane];
+        double t = this.total[lane];
+        double u1 = this.bucketTotal[first] / n1;
+        double incVariance = this.bucketVariance[first] + n1 * w * (u1 - t / w) * (u1 - t / w) / (n1 + w);
+        this.variance[lane] -= incVariance;
+
+        ADWIN.compressBucketsRow(this.bucketTotal, this.bucketVariance, this.bucketSizeRow, row, 1);
+        if (this.bucketSizeRow[row] == 0) {
+            this.lastBucketRow[lane]--;
+        }
+        return n1;
+    }
+
+    /**
+     * Adds an empty row after the last row of a lane, making room for more
+     * rows in all the lanes if needed.
+     */
+    private void addRow(int lane) {
+        this.lastBucketRow[lane]++;
+        if (this.lastBucketRow[lane] == this.rowCapacity) {
+            int capacity = 2 * this.rowCapacity;
+            double[] newTotal = new double[this.numLanes * capacity * ROWLENGTH];
+            double[] newVariance = new double[this.numLanes * capacity * ROWLENGTH];
+            int[] newSizeRow = new int[this.numLanes * capacity];
+            for (int l = 0; l < this.numLanes; l++) {
+                System.arraycopy(this.bucketTotal, l * this.rowCapacity * ROWLENGTH,
+                        newTotal, l * capacity * ROWLENGTH, this.rowCapacity * ROWLENGTH);
+                System.arraycopy(this.bucketVariance, l * this.rowCapacity * ROWLENGTH,
+                        newVariance, l * capacity * ROWLENGTH, this.rowCapacity * ROWLENGTH);
+                System.arraycopy(this.bucketSizeRow, l * this.rowCapacity,
+                        newSizeRow, l * capacity, this.rowCapacity);
+            }
+            this.bucketTotal = newTotal;
+            this.bucketVariance = newVariance;
+            this.bucketSizeRow = newSizeRow;
+            this.rowCapacity = capacity;
+        }
+        this.bucketSizeRow[lane * this.rowCapacity + this.lastBucketRow[lane]] = 0;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+}
@@ -293,7 +293,7 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
                             + this.nn[i].samplesSeen + ","
                             + this.nn[i].trainedCount + ","
                             + this.nn[i].modelName + ","
-                            + performanceEvaluator.getPerformanceMeasurements()[1].getValue() + ","
+                            + performanceEvaluator.getFractionCorrectlyClassified() * 100.0 + ","
                             + this.nn[i].lossEstimator.getEstimation() + ","
                             + totalDriftsDetected + ","
                             + sampleFrequency + ","
@@ -349,7 +349,7 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
         votes = this.nn[chosenIndex].getVotesForFeatureValues(instance, featureValues);
         performanceEvaluator.addResult(new InstanceExample(instance), votes);
         double lastAcc = accEstimator.getEstimation();
-        accEstimator.setInput(performanceEvaluator.getPerformanceMeasurements()[1].getValue());
+        accEstimator.setInput(performanceEvaluator.getFractionCorrectlyClassified() * 100.0);
         if (accEstimator.getChange() && (accEstimator.getEstimation() < lastAcc)){
             totalDriftsDetected++;
             driftsDetectedPerSampleFrequency++;
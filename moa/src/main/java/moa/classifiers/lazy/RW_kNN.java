@@ -18,6 +18,7 @@
 package moa.classifiers.lazy;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
+import com.yahoo.labs.samoa.instances.CircularInstances;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
@@ -72,8 +73,8 @@ public class RW_kNN extends AbstractClassifier implements MultiClassClassifier {
     @Override
     public void setModelContext(InstancesHeader context) {
         try {
-            this.window = new Instances(context,0);
-            this.reservoir = new Instances(context,0);
+            this.window = new CircularInstances(context, this.limitOptionWindow.getValue());
+            this.reservoir = new CircularInstances(context, this.limitOptionReservoir.getValue());
             this.window.setClassIndex(context.classIndex());
             this.reservoir.setClassIndex(context.classIndex());
         } catch(Exception e) {
@@ -95,8 +96,8 @@ public class RW_kNN extends AbstractClassifier implements MultiClassClassifier {
             this.C = (int)inst.classValue();
 
         if (this.window == null) {
-            this.window = new Instances(inst.dataset());
-            this.reservoir = new Instances(inst.dataset());
+            this.window = new CircularInstances(inst.dataset(), this.limitOptionWindow.getValue());
+            this.reservoir = new CircularInstances(inst.dataset(), this.limitOptionReservoir.getValue());
         }
         if (this.limitOptionReservoir.getValue() <= this.reservoir.numInstances()) {
             int replaceIndex = r.nextInt(this.limitOptionReservoir.getValue() - 1);
@@ -17,12 +17,15 @@
 package moa.classifiers.lazy;
 import java.util.*;
 
+import com.yahoo.labs.samoa.instances.CircularInstances;
 import com.yahoo.labs.samoa.instances.InstanceImpl;
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
+import moa.classifiers.lazy.neighboursearch.EuclideanDistance;
+import moa.classifiers.lazy.neighboursearch.IncrementalKDTree;
 import moa.core.Measurement;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
@@ -36,7 +39,7 @@ import moa.clusterers.kmeanspm.CoresetKMeans;
  *
  * Valid options are:<p>
  *
- * -k number of neighbours <br> -w max instances <br> -m minimum number of instances in the STM <br> -p LTM size relative to max instances <br> -r Recalculation of the STM error <br>
+ * -k number of neighbours <br> -w max instances <br> -m minimum number of instances in the STM <br> -p LTM size relative to max instances <br> -r Recalculation of the STM error <br> -i Index the LTM with a KDTree <br>
  *
  * @author Viktor Losing (vlosing@techfak.uni-bielefeld.de)
  * Paper:
@@ -73,6 +76,9 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 
     public FlagOption recalculateSTMErrorOption = new FlagOption("recalculateError", 'r',
             "Recalculates the error rate of the STM for size adaption (Costly operation). Otherwise, an approximation is used.");
+
+    public FlagOption ltmIndexOption = new FlagOption("ltmIndex", 'i',
+            "Maintains a KDTree over the LTM for the LTM and CM neighbour queries instead of computing all distances. Only used if all input attributes are numeric.");
 	private int maxClassValue = 0;
 
     @Override
@@ -82,6 +88,7 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 
     private Instances stm;
 	private Instances ltm;
+	private IncrementalKDTree ltmIndex;
 	private int maxLTMSize;
 	private int maxSTMSize;
 	private List<Integer> stmHistory;
@@ -108,11 +115,20 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 	@Override
 	public void setModelContext(InstancesHeader context) {
 		try {
-			this.stm = new Instances(context,0);
+			this.stm = new CircularInstances(context, limitOption.getValue() + 1);
 			this.stm.setClassIndex(context.classIndex());
-			this.ltm = new Instances(context,0); 
+			this.ltm = new CircularInstances(context, limitOption.getValue() + 1);
 			this.ltm.setClassIndex(context.classIndex());
 			this.init();
+			this.ltmIndex = null;
+			if (this.ltmIndexOption.isSet() && allInputsNumeric(context)) {
+				// plain Euclidean distance over the inputs, as in getDistance
+				EuclideanDistance distance = new EuclideanDistance();
+				distance.setDontNormalize(true);
+				this.ltmIndex = new IncrementalKDTree();
+				this.ltmIndex.setDistanceFunction(distance);
+				this.ltmIndex.setInstances(this.ltm);
+			}
 		} catch(Exception e) {
 			System.err.println("Error: no Model Context available.");
 			e.printStackTrace();
@@ -124,6 +140,7 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
     public void resetLearningImpl() {
 		this.stm = null;
 		this.ltm = null;
+		this.ltmIndex = null;
 		this.stmHistory = null;
 		this.ltmHistory = null;
 		this.cmHistory = null;
@@ -167,7 +184,7 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 
 			this.clean(this.stm, discardedSTMInstances, false);
 			for (int i = 0; i < discardedSTMInstances.numInstances(); i++){
-				this.ltm.add(discardedSTMInstances.get(i).copy());
+				this.addToLTM(discardedSTMInstances.get(i).copy());
 			}
 			memorySizeCheck();
 		}
@@ -193,12 +210,19 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 				int nnIndicesSTM[] = nArgMin(Math.min(distancesSTM.length, this.kOption.getValue()), distancesSTM);
 				vSTM = getDistanceWeightedVotes(distancesSTM, nnIndicesSTM, this.stm);
                 predClassSTM = this.getClassFromVotes(vSTM);
-                distancesLTM = get1ToNDistances(inst, this.ltm);
-                vCM = getCMVotes(distancesSTM, this.stm, distancesLTM, this.ltm);
+                Instances ltmNeighbours = this.ltm;
+                if (this.ltmIndex != null) {
+                    // the k nearest LTM instances suffice, they come sorted by distance and LTM position
+                    ltmNeighbours = this.ltmIndex.kNearestNeighbours(inst, Math.min(this.ltm.numInstances(), this.kOption.getValue()));
+                    distancesLTM = this.ltmIndex.getDistances();
+                } else {
+                    distancesLTM = get1ToNDistances(inst, this.ltm);
+                }
+                vCM = getCMVotes(distancesSTM, this.stm, distancesLTM, ltmNeighbours);
                 predClassCM = this.getClassFromVotes(vCM);
 				if (this.ltm.numInstances() >= 0) {
                     int nnIndicesLTM[] = nArgMin(Math.min(distancesLTM.length, this.kOption.getValue()), distancesLTM);
-                    vLTM = getDistanceWeightedVotes(distancesLTM, nnIndicesLTM, this.ltm);
+                    vLTM = getDistanceWeightedVotes(distancesLTM, nnIndicesLTM, ltmNeighbours);
                     predClassLTM = this.getClassFromVotes(vLTM);
                 }else{
                     vLTM = new double[inst.numClasses()];
@@ -296,6 +320,39 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 			}
 
 		}
+		if (this.ltmIndex != null) {
+			try {
+				this.ltmIndex.setInstances(this.ltm);
+			} catch (Exception e) {
+				throw new RuntimeException("Rebuilding the LTM index failed", e);
+			}
+		}
+	}
+
+	/**
+	 * Appends an instance to the LTM, keeping the LTM index up to date.
+	 */
+	private void addToLTM(Instance inst){
+		this.ltm.add(inst);
+		if (this.ltmIndex != null) {
+			try {
+				this.ltmIndex.update(this.ltm.get(this.ltm.numInstances() - 1));
+			} catch (Exception e) {
+				throw new RuntimeException("Updating the LTM index failed", e);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether all input attributes are numeric, which the LTM index requires to reproduce getDistance.
+	 */
+	private static boolean allInputsNumeric(InstancesHeader context){
+		for (int i = 0; i < context.numAttributes(); i++) {
+			if (i != context.classIndex() && !context.attribute(i).isNumeric()) {
+				return false;
+			}
+		}
+		return true;
 	}
 
     /**
@@ -308,7 +365,7 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 			}else{ //shift values from STM directly to LTM since STM is full
 				int numShifts = this.maxLTMSize - this.ltm.numInstances() + 1;
 				for (int i = 0; i < numShifts; i++){
-					this.ltm.add(this.stm.get(0).copy());
+					this.addToLTM(this.stm.get(0).copy());
 					this.stm.delete(0);
 					this.stmHistory.remove(0);
 					this.ltmHistory.remove(0);
@@ -326,16 +383,16 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 	}
 
 	private void cleanSingle(Instances cleanAgainst, int cleanAgainstindex, Instances toClean){
-		Instances cleanAgainstTmp = new Instances(cleanAgainst);
-		cleanAgainstTmp.delete(cleanAgainstindex);
-		double distancesSTM[] = get1ToNDistances(cleanAgainst.get(cleanAgainstindex), cleanAgainstTmp);
-		int nnIndicesSTM[] = nArgMin(Math.min(this.kOption.getValue(), distancesSTM.length), distancesSTM);
+		// the instance itself is excluded by an infinite distance instead of copying cleanAgainst without it
+		double distancesSTM[] = get1ToNDistances(cleanAgainst.get(cleanAgainstindex), cleanAgainst);
+		distancesSTM[cleanAgainstindex] = Double.POSITIVE_INFINITY;
+		int nnIndicesSTM[] = nArgMin(Math.min(this.kOption.getValue(), distancesSTM.length - 1), distancesSTM);
 
 		double distancesLTM[] = get1ToNDistances(cleanAgainst.get(cleanAgainstindex), toClean);
 		int nnIndicesLTM[] = nArgMin(Math.min(this.kOption.getValue(), distancesLTM.length), distancesLTM);
 		double distThreshold = 0;
 		for (int nnIdx: nnIndicesSTM){
-			if (cleanAgainstTmp.get(nnIdx).classValue() == cleanAgainst.get(cleanAgainstindex).classValue()){
+			if (cleanAgainst.get(nnIdx).classValue() == cleanAgainst.get(cleanAgainstindex).classValue()){
 				if (distancesSTM[nnIdx] > distThreshold){
 					distThreshold = distancesSTM[nnIdx];
 				}
@@ -350,8 +407,16 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 			}
 		}
 		Collections.sort(delIndices, Collections.reverseOrder());
-		for (Integer idx : delIndices)
+		for (Integer idx : delIndices) {
+			if (toClean == this.ltm && this.ltmIndex != null) {
+				try {
+					this.ltmIndex.remove(toClean.get(idx));
+				} catch (Exception e) {
+					throw new RuntimeException("Updating the LTM index failed", e);
+				}
+			}
 			toClean.delete(idx);
+		}
 	}
     /**
      * Removes distance-based all instances from the input samples that contradict those in the STM.
@@ -1,11 +1,16 @@
 package moa.classifiers.lazy;
 
 import com.github.javacliparser.IntOption;
+import com.github.javacliparser.MultiChoiceOption;
+import com.yahoo.labs.samoa.instances.CircularInstances;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
+import moa.classifiers.lazy.neighboursearch.EuclideanDistance;
+import moa.classifiers.lazy.neighboursearch.IncrementalKDTree;
+import moa.classifiers.lazy.neighboursearch.NearestNeighbourSearch;
 import moa.core.Measurement;
 
 /**
@@ -13,7 +18,7 @@ import moa.core.Measurement;
  *
  * Valid options are:<p>
  *
- * -k number of neighbours <br> -m max instances <br> 
+ * -k number of neighbours <br> -m max instances <br> -n nearest neighbour search <br> 
  *
  * @author Maroua Bahri (maroua.bahri@inria.fr)
  * Paper:
@@ -38,6 +43,13 @@ public class WeightedkNN extends AbstractClassifier implements MultiClassClassif
 
 	public IntOption limitOption = new IntOption( "limit", 'w', "The maximum number of instances to store", 1000, 1, Integer.MAX_VALUE);
 
+	public MultiChoiceOption nearestNeighbourSearchOption = new MultiChoiceOption(
+			"nearestNeighbourSearch", 'n', "Nearest Neighbour Search to use", new String[]{
+				"LinearNN", "IncrementalKDTree"},
+			new String[]{"Brute force search algorithm for nearest neighbour search. ",
+				"KDTree maintained along with the window (missing values are handled as in EuclideanDistance)"
+			}, 0);
+
 	int C = 0;
     @Override
     public String getPurposeString() {
@@ -46,11 +58,14 @@ public class WeightedkNN extends AbstractClassifier implements MultiClassClassif
 
     protected Instances window;
 
+	/** The neighbour index maintained along with the window, null unless IncrementalKDTree is chosen. */
+	protected NearestNeighbourSearch index;
+
 
 	@Override
 	public void setModelContext(InstancesHeader context) {
 		try {
-			this.window = new Instances(context,0);  
+			this.window = new CircularInstances(context, this.limitOption.getValue());
 			this.window.setClassIndex(context.classIndex());
 		} catch(Exception e) {
 			System.err.println("Error: no Model Context available.");
@@ -62,6 +77,7 @@ public class WeightedkNN extends AbstractClassifier implements MultiClassClassif
     @Override
     public void resetLearningImpl() {
 		this.window = null;
+		this.index = null;
 	}
 
     @Override
@@ -71,12 +87,30 @@ public class WeightedkNN extends AbstractClassifier implements MultiClassClassif
 		if (inst.classValue() > C)
 			C = (int)inst.classValue();
 		if (this.window == null) {
-			this.window = new Instances(inst.dataset());
+			this.window = new CircularInstances(inst.dataset(), this.limitOption.getValue());
 		}
-		if (this.limitOption.getValue() <= this.window.numInstances()) {
-			this.window.delete(0);
+		try {
+			if (this.limitOption.getValue() <= this.window.numInstances()) {
+				if (this.index != null) {
+					this.index.remove(this.window.get(0));
+				}
+				this.window.delete(0);
+			}
+			this.window.add(inst);
+			if (this.nearestNeighbourSearchOption.getChosenIndex() == 1) {
+				if (this.index == null) {
+					EuclideanDistance distance = new EuclideanDistance();
+					distance.setDontNormalize(true);
+					this.index = new IncrementalKDTree();
+					this.index.setDistanceFunction(distance);
+					this.index.setInstances(this.window);
+				} else {
+					this.index.update(this.window.get(this.window.numInstances() - 1));
+				}
+			}
+		} catch (Exception e) {
+			throw new RuntimeException("Updating the neighbour index failed", e);
 		}
-		this.window.add(inst);
 		// Update the weight of instances inside the window
 		if (this.window.size()>1 ){
 			updateWeights();
@@ -102,7 +136,13 @@ public class WeightedkNN extends AbstractClassifier implements MultiClassClassif
 	public double[] getVotesForInstance(Instance inst) {
 		double v[] = new double[C+1];
 		try {
-			if(this.window.numInstances()>0) {
+			if(this.index != null && this.window.numInstances()>0) {
+				// neighbours come sorted by distance and position in the window, as from nArgMin
+				Instances neighbours = this.index.kNearestNeighbours(inst, Math.min(kOption.getValue(), this.window.numInstances()));
+				for (int i = 0; i < Math.min(kOption.getValue(), neighbours.numInstances()); i++) {
+					v[(int) neighbours.instance(i).classValue()] += neighbours.instance(i).weight();
+				}
+			} else if(this.window.numInstances()>0) {
 				int [] knnW = kNN(inst, this.window, Math.min(kOption.getValue(), this.window.numInstances()));
 
 				for (int nnIdx : knnW) {
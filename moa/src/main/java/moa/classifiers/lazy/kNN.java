@@ -24,10 +24,12 @@ import com.github.javacliparser.FlagOption;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.Regressor;
+import moa.classifiers.lazy.neighboursearch.IncrementalKDTree;
 import moa.classifiers.lazy.neighboursearch.KDTree;
 import moa.classifiers.lazy.neighboursearch.LinearNNSearch;
 import moa.classifiers.lazy.neighboursearch.NearestNeighbourSearch;
 import moa.core.Measurement;
+import com.yahoo.labs.samoa.instances.CircularInstances;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
@@ -57,9 +59,10 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 
         public MultiChoiceOption nearestNeighbourSearchOption = new MultiChoiceOption(
             "nearestNeighbourSearch", 'n', "Nearest Neighbour Search to use", new String[]{
-                "LinearNN", "KDTree"},
+                "LinearNN", "KDTree", "IncrementalKDTree"},
             new String[]{"Brute force search algorithm for nearest neighbour search. ",
-                "KDTree search algorithm for nearest neighbour search"
+                "KDTree search algorithm for nearest neighbour search",
+                "KDTree maintained along with the window instead of being rebuilt for every prediction"
             }, 0);
 
 
@@ -72,10 +75,13 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 
     protected Instances window; 
 
+    /** The neighbour index maintained along with the window, null unless IncrementalKDTree is chosen. */
+    protected NearestNeighbourSearch index;
+
 	@Override
 	public void setModelContext(InstancesHeader context) {
 		try {
-			this.window = new Instances(context,0); //new StringReader(context.toString())
+			this.window = new CircularInstances(context, this.limitOption.getValue());
 			this.window.setClassIndex(context.classIndex());
 		} catch(Exception e) {
 			System.err.println("Error: no Model Context available.");
@@ -87,6 +93,7 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
     @Override
     public void resetLearningImpl() {
 		this.window = null;
+		this.index = null;
     }
 
     @Override
@@ -94,14 +101,47 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 		if (inst.classValue() > C)
 			C = (int)inst.classValue();
 		if (this.window == null) {
-			this.window = new Instances(inst.dataset());
+			this.window = new CircularInstances(inst.dataset(), this.limitOption.getValue());
 		}
 		if (this.limitOption.getValue() <= this.window.numInstances()) {
-			this.window.delete(0);
+			deleteFromWindow(0);
 		}
-		this.window.add(inst);
+		addToWindow(inst);
     }
 
+	/**
+	 * Adds a copy of the instance to the window and to the neighbour index, if one is used.
+	 */
+	protected void addToWindow(Instance inst) {
+		this.window.add(inst);
+		if (this.nearestNeighbourSearchOption.getChosenIndex() != 2) {
+			return;
+		}
+		try {
+			if (this.index == null) {
+				this.index = new IncrementalKDTree(this.window);
+			} else {
+				this.index.update(this.window.get(this.window.numInstances() - 1));
+			}
+		} catch (Exception e) {
+			throw new RuntimeException("Updating the neighbour index failed", e);
+		}
+	}
+
+	/**
+	 * Removes the instance at the given position from the window and from the neighbour index, if one is used.
+	 */
+	protected void deleteFromWindow(int position) {
+		if (this.index != null) {
+			try {
+				this.index.remove(this.window.get(position));
+			} catch (Exception e) {
+				throw new RuntimeException("Updating the neighbour index failed", e);
+			}
+		}
+		this.window.delete(position);
+	}
+
 	@Override
     public double[] getVotesForInstance(Instance inst) {
 		double v[] = new double[C+1];
@@ -109,6 +149,8 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 			NearestNeighbourSearch search;
 			if (this.nearestNeighbourSearchOption.getChosenIndex()== 0) {
 				search = new LinearNNSearch(this.window);  
+			} else if (this.index != null) {
+				search = this.index;
 			} else {
 				search = new KDTree();
 				search.setInstances(this.window);
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.core.driftdetection.ADWIN;
+import com.yahoo.labs.samoa.instances.CircularInstances;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 
@@ -55,6 +56,7 @@ public class kNNwithPAWandADWIN extends kNN implements MultiClassClassifier {
     @Override
     public void resetLearningImpl() {
         this.window = null;
+        this.index = null;
         this.adwin = new ADWIN();
         this.prob = Math.pow(2.0, -1.0 / this.limitOption.getValue());
         this.time = 0;
@@ -69,7 +71,7 @@ public class kNNwithPAWandADWIN extends kNN implements MultiClassClassifier {
         }
         // ADWIN
         if (this.window == null) {
-            this.window = new Instances(inst.dataset());
+            this.window = new CircularInstances(inst.dataset(), this.limitOption.getValue());
         }
 
         if (this.timeStamp == null) {
@@ -77,11 +79,11 @@ public class kNNwithPAWandADWIN extends kNN implements MultiClassClassifier {
         }
         for (int i = 0; i < this.window.size(); i++) {
             if (this.classifierRandom.nextDouble() > this.prob) {
-                this.window.delete(i);
+                deleteFromWindow(i);
                 this.timeStamp.remove(i);
             }
         }
-        this.window.add(inst);
+        addToWindow(inst);
         this.timeStamp.add(this.time);
         this.time++;
         boolean correctlyClassifies = this.correctlyClassifies(inst);
@@ -90,7 +92,7 @@ public class kNNwithPAWandADWIN extends kNN implements MultiClassClassifier {
             int size = (int) this.adwin.getWidth();
             for (int i = 0; i < this.window.size(); i++) {
                 if (this.timeStamp.get(i) < this.time - size) {
-                    this.window.delete(i);
+                    deleteFromWindow(i);
                     this.timeStamp.remove(i);
                 }
             }
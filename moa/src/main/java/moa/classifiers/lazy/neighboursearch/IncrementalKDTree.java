@@ -0,0 +1,975 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    IncrementalKDTree.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package moa.classifiers.lazy.neighboursearch;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ <!-- globalinfo-start -->
+ * Class implementing a KDTree that is maintained incrementally, i.e. instances
+ * can be inserted and removed one at a time without rebuilding the tree. This
+ * makes it suitable for sliding windows, where the neighbourhood changes with
+ * every training instance and rebuilding a KDTree per query is more expensive
+ * than a linear scan.<br/>
+ * <br/>
+ * Unlike the other searches, the tree keeps its own references to the
+ * instances; the Instances object supplied via setInstances(Instances) is only
+ * used as the header of the returned neighbours. Instances are added with
+ * update(Instance) and removed with remove(Instance).<br/>
+ * <br/>
+ * Balance is maintained as in a scapegoat tree: a subtree is rebuilt around its
+ * median once one of its children holds more than a fixed fraction of its
+ * instances, and the whole tree is rebuilt once as many instances have been
+ * removed as it currently holds. The ranges of a NormalizableDistance are kept
+ * up to date with the current content, so distances are the same as the ones
+ * of a LinearNNSearch over the same instances.<br/>
+ * <br/>
+ * Neighbours are returned ordered by distance, ties being broken by insertion
+ * order, and all instances tied with the k-th neighbour are returned as well.
+ * <p/>
+ <!-- globalinfo-end -->
+ *
+ * @version $Revision: 1 $
+ */
+public class IncrementalKDTree
+  extends NearestNeighbourSearch {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -2837410372640394816L;
+
+  /** the fraction of a subtree's instances one child may hold before the
+   * subtree is rebuilt. */
+  protected static final double BALANCE_FACTOR = 0.75;
+
+  /**
+   * A node of the tree. Leaves store the instances, inner nodes split on a
+   * numeric attribute. Instances with a missing value for the split attribute
+   * go to the separate "missing" child, which is never pruned.
+   */
+  protected static class Node implements Serializable {
+
+    /** for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** the attribute split on, -1 for leaves. */
+    public int m_SplitAttribute = -1;
+
+    /** instances with a value smaller or equal go left. */
+    public double m_SplitValue;
+
+    /** the children of an inner node. */
+    public Node m_Left, m_Right, m_Missing;
+
+    /** the instances of a leaf. */
+    public Instance[] m_Instances;
+
+    /** the insertion sequence numbers of the instances of a leaf. */
+    public long[] m_Sequence;
+
+    /** the number of instances in this subtree. */
+    public int m_Count;
+
+    /** the size at which the next split (leaves) or rebalancing (inner
+     * nodes) is attempted. */
+    public int m_NextSplitSize;
+
+    /**
+     * Returns whether the node is a leaf.
+     *
+     * @return		true if a leaf
+     */
+    public boolean isLeaf() {
+      return m_SplitAttribute < 0;
+    }
+  }
+
+  /** the maximum number of instances in a leaf. */
+  protected int m_MaxInstInLeaf = 40;
+
+  /** the root of the tree. */
+  protected Node m_Root;
+
+  /** the sequence number of the next inserted instance. */
+  protected long m_NextSequence;
+
+  /** the number of removals since the tree was last rebuilt completely. */
+  protected int m_RemovalsSinceRebuild;
+
+  /** the ranges of the instances currently in the tree. */
+  protected double[][] m_Ranges;
+
+  /** the attributes whose range has to be recomputed before the next query. */
+  protected boolean[] m_StaleRanges;
+
+  /** whether any range has to be recomputed. */
+  protected boolean m_RangesStale;
+
+  /** the distances of the neighbours found by the last query. */
+  protected double[] m_Distances;
+
+  /** the k nearest candidates of the current query, sorted. */
+  protected transient Instance[] m_CandInstances;
+
+  /** the distances of the candidates of the current query. */
+  protected transient double[] m_CandDistances;
+
+  /** the sequence numbers of the candidates of the current query. */
+  protected transient long[] m_CandSequence;
+
+  /** the number of candidates of the current query. */
+  protected transient int m_NumCand;
+
+  /** the instances tied with the k-th candidate. */
+  protected transient Instance[] m_TieInstances;
+
+  /** the sequence numbers of the tied instances. */
+  protected transient long[] m_TieSequence;
+
+  /** the number of tied instances. */
+  protected transient int m_NumTies;
+
+  /**
+   * Constructor. Needs setInstances(Instances) to be called before the class
+   * is usable.
+   */
+  public IncrementalKDTree() {
+    super();
+  }
+
+  /**
+   * Constructor that uses the supplied set of instances.
+   *
+   * @param insts	the instances to use
+   * @throws Exception	if the tree cannot be built
+   */
+  public IncrementalKDTree(Instances insts) throws Exception {
+    this();
+    setInstances(insts);
+  }
+
+  /**
+   * Returns a string describing this nearest neighbour search algorithm.
+   *
+   * @return 		a description of the algorithm for displaying in the
+   * 			explorer/experimenter gui
+   */
+  public String globalInfo() {
+    return
+        "Class implementing a KDTree that supports insertion and removal of "
+      + "single instances, for nearest neighbour search over sliding windows.";
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String maxInstInLeafTipText() {
+    return "The max number of instances in a leaf.";
+  }
+
+  /**
+   * Sets the maximum number of instances in a leaf. Takes effect for leaves
+   * that are split or rebuilt afterwards.
+   *
+   * @param i		the maximum number of instances in a leaf
+   */
+  public void setMaxInstInLeaf(int i) {
+    m_MaxInstInLeaf = Math.max(2, i);
+  }
+
+  /**
+   * Get the maximum number of instances in a leaf.
+   *
+   * @return		the maximum number of instances in a leaf
+   */
+  public int getMaxInstInLeaf() {
+    return m_MaxInstInLeaf;
+  }
+
+  /**
+   * Returns the number of instances currently stored in the tree.
+   *
+   * @return		the number of instances
+   */
+  public int numInstances() {
+    return (m_Root == null) ? 0 : m_Root.m_Count;
+  }
+
+  /**
+   * Sets the instances comprising the current neighbourhood. The tree is
+   * cleared and built from the given instances; later changes to insts are
+   * not reflected unless passed to update(Instance) and remove(Instance).
+   *
+   * @param insts 	the instances to build the tree from
+   * @throws Exception	if the tree cannot be built
+   */
+  public void setInstances(Instances insts) throws Exception {
+    super.setInstances(insts);
+    m_DistanceFunction.setInstances(new Instances(insts, 0));
+    int numAtt = insts.numAttributes();
+    m_Ranges = new double[numAtt][3];
+    m_StaleRanges = new boolean[numAtt];
+    m_RangesStale = false;
+    for (int j = 0; j < numAtt; j++) {
+      m_Ranges[j][NormalizableDistance.R_MIN] = Double.POSITIVE_INFINITY;
+      m_Ranges[j][NormalizableDistance.R_MAX] = Double.NEGATIVE_INFINITY;
+      m_Ranges[j][NormalizableDistance.R_WIDTH] = Double.POSITIVE_INFINITY;
+    }
+    if (m_DistanceFunction instanceof NormalizableDistance)
+      ((NormalizableDistance) m_DistanceFunction).setRanges(m_Ranges);
+
+    int n = insts.numInstances();
+    Instance[] all = new Instance[n];
+    long[] seq = new long[n];
+    m_NextSequence = 0;
+    for (int i = 0; i < n; i++) {
+      all[i] = insts.instance(i);
+      seq[i] = m_NextSequence++;
+      expandRanges(all[i]);
+    }
+    m_RemovalsSinceRebuild = 0;
+    m_Root = build(all, seq, 0, n);
+  }
+
+  /**
+   * Sets the distance function to use. Only distance functions derived from
+   * NormalizableDistance allow pruning, others make the search exhaustive.
+   *
+   * @param df		the distance function to use
+   * @throws Exception	if instances cannot be processed
+   */
+  public void setDistanceFunction(DistanceFunction df) throws Exception {
+    super.setDistanceFunction(df);
+    if (m_Instances != null)
+      setInstances(m_Instances);
+  }
+
+  /**
+   * Inserts the given instance into the tree.
+   *
+   * @param ins 	the instance to add
+   * @throws Exception	if no instances were set yet
+   */
+  public void update(Instance ins) throws Exception {
+    if (m_Instances == null)
+      throw new Exception("No instances supplied yet. Have to call "
+                          + "setInstances(instances) with a set of Instances "
+                          + "first.");
+    expandRanges(ins);
+    insert(ins, m_NextSequence++);
+  }
+
+  /**
+   * Removes the given instance from the tree. The instance is identified by
+   * reference, i.e. it has to be the same object that was added.
+   *
+   * @param ins 	the instance to remove
+   * @throws Exception	if the instance is not in the tree
+   */
+  public void remove(Instance ins) throws Exception {
+    if (m_Root == null || !remove(m_Root, ins, true))
+      throw new Exception("Instance to remove is not in the tree.");
+    shrinkRanges(ins);
+    m_RemovalsSinceRebuild++;
+    if (m_RemovalsSinceRebuild > m_MaxInstInLeaf
+        && m_RemovalsSinceRebuild >= m_Root.m_Count)
+      rebuild();
+  }
+
+  /**
+   * Returns the nearest instance in the current neighbourhood to the supplied
+   * instance.
+   *
+   * @param target 	the instance to find the nearest neighbour for
+   * @return		the nearest instance
+   * @throws Exception 	if the nearest neighbour could not be found
+   */
+  public Instance nearestNeighbour(Instance target) throws Exception {
+    return (kNearestNeighbours(target, 1)).instance(0);
+  }
+
+  /**
+   * Returns the k nearest instances in the current neighbourhood to the
+   * supplied instance, plus the ones tied with the k-th nearest.
+   *
+   * @param target 	the instance to find the k nearest neighbours for
+   * @param k		the number of nearest neighbours to find
+   * @return		the k nearest neighbours
+   * @throws Exception 	if the neighbours could not be found
+   */
+  public Instances kNearestNeighbours(Instance target, int k) throws Exception {
+    if (m_Instances == null)
+      throw new Exception("No instances supplied yet. Have to call "
+                          + "setInstances(instances) with a set of Instances "
+                          + "first.");
+    if (m_RangesStale)
+      recomputeRanges();
+
+    if (m_CandInstances == null || m_CandInstances.length < k) {
+      m_CandInstances = new Instance[k];
+      m_CandDistances = new double[k];
+      m_CandSequence = new long[k];
+    }
+    if (m_TieInstances == null) {
+      m_TieInstances = new Instance[10];
+      m_TieSequence = new long[10];
+    }
+    m_NumCand = 0;
+    m_NumTies = 0;
+    if (m_Root != null && k > 0)
+      search(m_Root, target, k);
+
+    // ties are only collected after the candidates, sort them by insertion
+    if (m_NumTies > 1)
+      sortTies();
+
+    int total = m_NumCand + m_NumTies;
+    Instances neighbours = new Instances(m_Instances, total);
+    m_Distances = new double[total];
+    for (int i = 0; i < m_NumCand; i++) {
+      neighbours.add(m_CandInstances[i]);
+      m_Distances[i] = m_CandDistances[i];
+    }
+    for (int i = 0; i < m_NumTies; i++) {
+      neighbours.add(m_TieInstances[i]);
+      m_Distances[m_NumCand + i] = m_CandDistances[m_NumCand - 1];
+    }
+    m_DistanceFunction.postProcessDistances(m_Distances);
+
+    Arrays.fill(m_CandInstances, 0, m_NumCand, null);
+    Arrays.fill(m_TieInstances, 0, m_NumTies, null);
+    return neighbours;
+  }
+
+  /**
+   * Returns the distances of the neighbours found by the last call of
+   * kNearestNeighbours or nearestNeighbour.
+   *
+   * @return 		the distances, in the order of the returned neighbours
+   * @throws Exception 	if called before calling kNearestNeighbours
+   *            	or nearestNeighbours.
+   */
+  public double[] getDistances() throws Exception {
+    if (m_Distances == null)
+      throw new Exception("No distances available. Please call either "+
+                          "kNearestNeighbours or nearestNeighbours first.");
+    return m_Distances;
+  }
+
+  /**
+   * Rebuilds the whole tree around the medians of its current content.
+   */
+  public void rebuild() {
+    m_RemovalsSinceRebuild = 0;
+    if (m_Root == null)
+      return;
+    m_Root = rebuild(m_Root);
+  }
+
+  /**
+   * Inserts an instance, rebuilding the highest subtree on its path that got
+   * out of balance.
+   *
+   * @param ins		the instance
+   * @param seq		its sequence number
+   */
+  protected void insert(Instance ins, long seq) {
+    if (m_Root == null) {
+      m_Root = newLeaf();
+    }
+    Node node = m_Root;
+    Node parent = null;
+    Node scapegoat = null;
+    Node scapegoatParent = null;
+    while (true) {
+      node.m_Count++;
+      if (node.isLeaf())
+        break;
+      Node next = child(node, ins);
+      if (next == null) {
+        next = newLeaf();
+        node.m_Missing = next;
+      }
+      if (scapegoat == null && node.m_Count > 2 * m_MaxInstInLeaf
+          && node.m_Count >= node.m_NextSplitSize
+          && next.m_Count + 1 > BALANCE_FACTOR * node.m_Count) {
+        scapegoat = node;
+        scapegoatParent = parent;
+      }
+      parent = node;
+      node = next;
+    }
+    addToLeaf(node, ins, seq);
+    if (node.m_Count > m_MaxInstInLeaf && node.m_Count >= node.m_NextSplitSize)
+      replace(parent, node, rebuild(node));
+    if (scapegoat != null)
+      replace(scapegoatParent, scapegoat, rebuild(scapegoat));
+  }
+
+  /**
+   * Removes the instance from the subtree.
+   *
+   * @param node	the root of the subtree
+   * @param ins		the instance
+   * @param guided	whether to follow the split values or search everywhere
+   * @return		true if the instance was found and removed
+   */
+  protected boolean remove(Node node, Instance ins, boolean guided) {
+    if (node.isLeaf()) {
+      for (int i = 0; i < node.m_Count; i++) {
+	if (node.m_Instances[i] == ins) {
+	  int last = node.m_Count - 1;
+	  node.m_Instances[i] = node.m_Instances[last];
+	  node.m_Sequence[i] = node.m_Sequence[last];
+	  node.m_Instances[last] = null;
+	  node.m_Count--;
+	  return true;
+	}
+      }
+      return false;
+    }
+    boolean removed = false;
+    if (guided) {
+      Node next = child(node, ins);
+      removed = next != null && remove(next, ins, true);
+    }
+    // the values of the instance may have been modified after insertion
+    if (!removed) {
+      removed = (node.m_Left != null && remove(node.m_Left, ins, false))
+	  || (node.m_Right != null && remove(node.m_Right, ins, false))
+	  || (node.m_Missing != null && remove(node.m_Missing, ins, false));
+    }
+    if (removed)
+      node.m_Count--;
+    return removed;
+  }
+
+  /**
+   * Returns the child of an inner node the given instance belongs to.
+   *
+   * @param node	the inner node
+   * @param ins		the instance
+   * @return		the child, may be null for the missing child
+   */
+  protected Node child(Node node, Instance ins) {
+    double value = ins.value(node.m_SplitAttribute);
+    if (Double.isNaN(value))
+      return node.m_Missing;
+    return (value <= node.m_SplitValue) ? node.m_Left : node.m_Right;
+  }
+
+  /**
+   * Replaces a child node.
+   *
+   * @param parent	the parent, null if node is the root
+   * @param node	the node to replace
+   * @param replacement	the new node
+   */
+  protected void replace(Node parent, Node node, Node replacement) {
+    if (parent == null)
+      m_Root = replacement;
+    else if (parent.m_Left == node)
+      parent.m_Left = replacement;
+    else if (parent.m_Right == node)
+      parent.m_Right = replacement;
+    else
+      parent.m_Missing = replacement;
+  }
+
+  /**
+   * Creates an empty leaf.
+   *
+   * @return		the leaf
+   */
+  protected Node newLeaf() {
+    Node leaf = new Node();
+    leaf.m_Instances = new Instance[m_MaxInstInLeaf + 1];
+    leaf.m_Sequence = new long[m_MaxInstInLeaf + 1];
+    return leaf;
+  }
+
+  /**
+   * Appends an instance to a leaf whose count was already incremented.
+   *
+   * @param leaf	the leaf
+   * @param ins		the instance
+   * @param seq		its sequence number
+   */
+  protected void addToLeaf(Node leaf, Instance ins, long seq) {
+    int pos = leaf.m_Count - 1;
+    if (pos >= leaf.m_Instances.length) {
+      leaf.m_Instances = Arrays.copyOf(leaf.m_Instances, 2 * leaf.m_Instances.length);
+      leaf.m_Sequence = Arrays.copyOf(leaf.m_Sequence, 2 * leaf.m_Sequence.length);
+    }
+    leaf.m_Instances[pos] = ins;
+    leaf.m_Sequence[pos] = seq;
+  }
+
+  /**
+   * Rebuilds a subtree from its instances.
+   *
+   * @param node	the root of the subtree
+   * @return		the new root of the subtree
+   */
+  protected Node rebuild(Node node) {
+    Instance[] insts = new Instance[node.m_Count];
+    long[] seq = new long[node.m_Count];
+    collect(node, insts, seq, 0);
+    return build(insts, seq, 0, insts.length);
+  }
+
+  /**
+   * Collects the instances of a subtree.
+   *
+   * @param node	the root of the subtree
+   * @param insts	the array to fill
+   * @param seq		the array for the sequence numbers
+   * @param pos		the position to start filling at
+   * @return		the position after the last collected instance
+   */
+  protected int collect(Node node, Instance[] insts, long[] seq, int pos) {
+    if (node == null)
+      return pos;
+    if (node.isLeaf()) {
+      System.arraycopy(node.m_Instances, 0, insts, pos, node.m_Count);
+      System.arraycopy(node.m_Sequence, 0, seq, pos, node.m_Count);
+      return pos + node.m_Count;
+    }
+    pos = collect(node.m_Left, insts, seq, pos);
+    pos = collect(node.m_Right, insts, seq, pos);
+    return collect(node.m_Missing, insts, seq, pos);
+  }
+
+  /**
+   * Builds a balanced subtree from a range of instances, splitting on the
+   * median of the numeric attribute with the widest normalized spread. The
+   * arrays are reordered in the process.
+   *
+   * @param insts	the instances
+   * @param seq		their sequence numbers
+   * @param start	the first position of the range
+   * @param end		the position after the range
+   * @return		the root of the subtree
+   */
+  protected Node build(Instance[] insts, long[] seq, int start, int end) {
+    int n = end - start;
+    int att = (n > m_MaxInstInLeaf) ? widestAttribute(insts, start, end) : -1;
+    if (att < 0) {
+      Node leaf = new Node();
+      leaf.m_Instances = new Instance[Math.max(n, m_MaxInstInLeaf) + 1];
+      leaf.m_Sequence = new long[leaf.m_Instances.length];
+      System.arraycopy(insts, start, leaf.m_Instances, 0, n);
+      System.arraycopy(seq, start, leaf.m_Sequence, 0, n);
+      leaf.m_Count = n;
+      // could not be split, only retry once the leaf has doubled
+      leaf.m_NextSplitSize = (n > m_MaxInstInLeaf) ? 2 * n : 0;
+      return leaf;
+    }
+
+    // move missing values to the end, sort the rest by value
+    int missing = end;
+    for (int i = start; i < missing; ) {
+      if (Double.isNaN(insts[i].value(att))) {
+	missing--;
+	swap(insts, seq, i, missing);
+      } else {
+	i++;
+      }
+    }
+    sort(insts, seq, att, start, missing);
+    int mid = start + (missing - start - 1) / 2;
+    double split = insts[mid].value(att);
+    int cut = mid + 1;
+    while (cut < missing && insts[cut].value(att) <= split)
+      cut++;
+    if (cut == missing) {
+      // median equals the maximum, split below it instead
+      cut = mid;
+      while (cut > start && insts[cut - 1].value(att) >= split)
+	cut--;
+      split = insts[cut - 1].value(att);
+    }
+
+    Node node = new Node();
+    node.m_SplitAttribute = att;
+    node.m_SplitValue = split;
+    node.m_Count = n;
+    node.m_Left = build(insts, seq, start, cut);
+    node.m_Right = build(insts, seq, cut, missing);
+    if (missing < end)
+      node.m_Missing = build(insts, seq, missing, end);
+    // duplicates or missing values can make the split uneven, in which case
+    // rebuilding again only pays off once the subtree has doubled
+    int largest = Math.max(cut - start, Math.max(missing - cut, end - missing));
+    if (largest > BALANCE_FACTOR * n)
+      node.m_NextSplitSize = 2 * n;
+    return node;
+  }
+
+  /**
+   * Returns the numeric attribute with the widest spread (relative to its
+   * overall range) among the given instances, or -1 if none has two distinct
+   * values.
+   *
+   * @param insts	the instances
+   * @param start	the first position
+   * @param end		the position after the last
+   * @return		the attribute index, -1 if none
+   */
+  protected int widestAttribute(Instance[] insts, int start, int end) {
+    int classIndex = m_Instances.classIndex();
+    int best = -1;
+    double bestWidth = 0;
+    for (int j = 0; j < m_Instances.numAttributes(); j++) {
+      if (j == classIndex || !m_Instances.attribute(j).isNumeric())
+	continue;
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      for (int i = start; i < end; i++) {
+	double value = insts[i].value(j);
+	if (value < min)
+	  min = value;
+	if (value > max)
+	  max = value;
+      }
+      if (!(max > min))
+	continue;
+      double width = max - min;
+      double range = m_Ranges[j][NormalizableDistance.R_WIDTH];
+      if (range > 0 && !Double.isInfinite(range))
+	width /= range;
+      if (width > bestWidth) {
+	bestWidth = width;
+	best = j;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Sorts a range of instances by the value of an attribute.
+   *
+   * @param insts	the instances
+   * @param seq		their sequence numbers
+   * @param att		the attribute
+   * @param start	the first position
+   * @param end		the position after the last
+   */
+  protected void sort(Instance[] insts, long[] seq, int att, int start, int end) {
+    int n = end - start;
+    double[] values = new double[n];
+    int[] order = new int[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = insts[start + i].value(att);
+      order[i] = i;
+    }
+    quickSort(values, order, 0, n - 1);
+    Instance[] sortedInsts = new Instance[n];
+    long[] sortedSeq = new long[n];
+    for (int i = 0; i < n; i++) {
+      sortedInsts[i] = insts[start + order[i]];
+      sortedSeq[i] = seq[start + order[i]];
+    }
+    System.arraycopy(sortedInsts, 0, insts, start, n);
+    System.arraycopy(sortedSeq, 0, seq, start, n);
+  }
+
+  /**
+   * Sorts the values and applies the same permutation to the indices.
+   *
+   * @param values	the values to sort
+   * @param order	the indices to permute alongside
+   * @param left	the first position
+   * @param right	the last position
+   */
+  protected static void quickSort(double[] values, int[] order, int left, int right) {
+    while (left < right) {
+      double pivot = values[(left + right) >>> 1];
+      int i = left, j = right;
+      while (i <= j) {
+	while (values[i] < pivot)
+	  i++;
+	while (values[j] > pivot)
+	  j--;
+	if (i <= j) {
+	  double v = values[i]; values[i] = values[j]; values[j] = v;
+	  int o = order[i]; order[i] = order[j]; order[j] = o;
+	  i++;
+	  j--;
+	}
+      }
+      if (j - left < right - i) {
+	quickSort(values, order, left, j);
+	left = i;
+      } else {
+	quickSort(values, order, i, right);
+	right = j;
+      }
+    }
+  }
+
+  /**
+   * Swaps two instances.
+   *
+   * @param insts	the instances
+   * @param seq		their sequence numbers
+   * @param i		the first position
+   * @param j		the second position
+   */
+  protected static void swap(Instance[] insts, long[] seq, int i, int j) {
+    Instance ins = insts[i]; insts[i] = insts[j]; insts[j] = ins;
+    long s = seq[i]; seq[i] = seq[j]; seq[j] = s;
+  }
+
+  /**
+   * Searches the subtree for neighbours of the target, near child first.
+   *
+   * @param node	the root of the subtree
+   * @param target	the query instance
+   * @param k		the number of neighbours
+   * @throws Exception	if a distance cannot be computed
+   */
+  protected void search(Node node, Instance target, int k) throws Exception {
+    if (node.isLeaf()) {
+      for (int i = 0; i < node.m_Count; i++) {
+	Instance ins = node.m_Instances[i];
+	if (ins == target) //for hold-one-out cross-validation
+	  continue;
+	double cutOff = (m_NumCand < k) ? Double.POSITIVE_INFINITY
+	    : m_CandDistances[k - 1];
+	double distance = m_DistanceFunction.distance(target, ins, cutOff);
+	if (distance <= cutOff)
+	  offer(ins, distance, node.m_Sequence[i], k);
+      }
+      return;
+    }
+    double value = target.value(node.m_SplitAttribute);
+    if (Double.isNaN(value)) {
+      if (node.m_Left != null)
+	search(node.m_Left, target, k);
+      if (node.m_Right != null)
+	search(node.m_Right, target, k);
+    } else {
+      boolean leftFirst = value <= node.m_SplitValue;
+      Node near = leftFirst ? node.m_Left : node.m_Right;
+      Node far = leftFirst ? node.m_Right : node.m_Left;
+      if (near != null)
+	search(near, target, k);
+      if (far != null && (m_NumCand < k
+	  || planeDistance(node, value) <= m_CandDistances[k - 1]))
+	search(far, target, k);
+    }
+    if (node.m_Missing != null)
+      search(node.m_Missing, target, k);
+  }
+
+  /**
+   * Returns a lower bound for the (unprocessed) distance of the target to
+   * any instance on the other side of the split of the given node.
+   *
+   * @param node	the inner node
+   * @param value	the target's value of the split attribute
+   * @return		the lower bound
+   */
+  protected double planeDistance(Node node, double value) {
+    if (!(m_DistanceFunction instanceof NormalizableDistance))
+      return 0;
+    NormalizableDistance df = (NormalizableDistance) m_DistanceFunction;
+    double diff = df.difference(node.m_SplitAttribute, value, node.m_SplitValue);
+    return df.updateDistance(0, diff);
+  }
+
+  /**
+   * Offers an instance with a distance not above the current cut off as
+   * neighbour.
+   *
+   * @param ins		the instance
+   * @param distance	its distance
+   * @param seq		its sequence number
+   * @param k		the number of neighbours
+   */
+  protected void offer(Instance ins, double distance, long seq, int k) {
+    if (m_NumCand == k && (distance > m_CandDistances[k - 1]
+	|| (distance == m_CandDistances[k - 1] && seq > m_CandSequence[k - 1]))) {
+      addTie(ins, seq);
+      return;
+    }
+    Instance displaced = null;
+    long displacedSeq = 0;
+    if (m_NumCand == k) {
+      displaced = m_CandInstances[k - 1];
+      displacedSeq = m_CandSequence[k - 1];
+    } else {
+      m_NumCand++;
+    }
+    double displacedDistance = m_CandDistances[m_NumCand - 1];
+    int pos = m_NumCand - 1;
+    while (pos > 0 && (m_CandDistances[pos - 1] > distance
+	|| (m_CandDistances[pos - 1] == distance && m_CandSequence[pos - 1] > seq))) {
+      m_CandInstances[pos] = m_CandInstances[pos - 1];
+      m_CandDistances[pos] = m_CandDistances[pos - 1];
+      m_CandSequence[pos] = m_CandSequence[pos - 1];
+      pos--;
+    }
+    m_CandInstances[pos] = ins;
+    m_CandDistances[pos] = distance;
+    m_CandSequence[pos] = seq;
+
+    if (displaced != null) {
+      if (displacedDistance == m_CandDistances[k - 1]) {
+	addTie(displaced, displacedSeq);
+      } else {
+	Arrays.fill(m_TieInstances, 0, m_NumTies, null);
+	m_NumTies = 0;
+      }
+    }
+  }
+
+  /**
+   * Adds an instance tied with the current k-th candidate.
+   *
+   * @param ins		the instance
+   * @param seq		its sequence number
+   */
+  protected void addTie(Instance ins, long seq) {
+    if (m_NumTies == m_TieInstances.length) {
+      m_TieInstances = Arrays.copyOf(m_TieInstances, 2 * m_NumTies);
+      m_TieSequence = Arrays.copyOf(m_TieSequence, 2 * m_NumTies);
+    }
+    m_TieInstances[m_NumTies] = ins;
+    m_TieSequence[m_NumTies] = seq;
+    m_NumTies++;
+  }
+
+  /**
+   * Sorts the tied instances by insertion order.
+   */
+  protected void sortTies() {
+    for (int i = 1; i < m_NumTies; i++) {
+      Instance ins = m_TieInstances[i];
+      long seq = m_TieSequence[i];
+      int j = i;
+      while (j > 0 && m_TieSequence[j - 1] > seq) {
+	m_TieInstances[j] = m_TieInstances[j - 1];
+	m_TieSequence[j] = m_TieSequence[j - 1];
+	j--;
+      }
+      m_TieInstances[j] = ins;
+      m_TieSequence[j] = seq;
+    }
+  }
+
+  /**
+   * Expands the ranges to include the given instance.
+   *
+   * @param ins		the instance
+   */
+  protected void expandRanges(Instance ins) {
+    for (int j = 0; j < m_Ranges.length; j++) {
+      double value = ins.value(j);
+      if (Double.isNaN(value))
+	continue;
+      double[] range = m_Ranges[j];
+      if (value < range[NormalizableDistance.R_MIN])
+	range[NormalizableDistance.R_MIN] = value;
+      if (value > range[NormalizableDistance.R_MAX])
+	range[NormalizableDistance.R_MAX] = value;
+      range[NormalizableDistance.R_WIDTH] = range[NormalizableDistance.R_MAX]
+	  - range[NormalizableDistance.R_MIN];
+    }
+    if (!(m_DistanceFunction instanceof NormalizableDistance))
+      m_DistanceFunction.update(ins);
+  }
+
+  /**
+   * Marks the ranges the removed instance was a bound of as stale.
+   *
+   * @param ins		the removed instance
+   */
+  protected void shrinkRanges(Instance ins) {
+    for (int j = 0; j < m_Ranges.length; j++) {
+      double value = ins.value(j);
+      if (value == m_Ranges[j][NormalizableDistance.R_MIN]
+	  || value == m_Ranges[j][NormalizableDistance.R_MAX]) {
+	m_StaleRanges[j] = true;
+	m_RangesStale = true;
+      }
+    }
+  }
+
+  /**
+   * Recomputes the stale ranges from the instances in the tree.
+   */
+  protected void recomputeRanges() {
+    for (int j = 0; j < m_Ranges.length; j++) {
+      if (m_StaleRanges[j]) {
+	m_Ranges[j][NormalizableDistance.R_MIN] = Double.POSITIVE_INFINITY;
+	m_Ranges[j][NormalizableDistance.R_MAX] = Double.NEGATIVE_INFINITY;
+	m_Ranges[j][NormalizableDistance.R_WIDTH] = Double.POSITIVE_INFINITY;
+      }
+    }
+    if (m_Root != null)
+      recomputeRanges(m_Root);
+    Arrays.fill(m_StaleRanges, false);
+    m_RangesStale = false;
+  }
+
+  /**
+   * Updates the stale ranges with the instances of a subtree.
+   *
+   * @param node	the root of the subtree
+   */
+  protected void recomputeRanges(Node node) {
+    if (!node.isLeaf()) {
+      if (node.m_Left != null)
+	recomputeRanges(node.m_Left);
+      if (node.m_Right != null)
+	recomputeRanges(node.m_Right);
+      if (node.m_Missing != null)
+	recomputeRanges(node.m_Missing);
+      return;
+    }
+    for (int i = 0; i < node.m_Count; i++) {
+      Instance ins = node.m_Instances[i];
+      for (int j = 0; j < m_Ranges.length; j++) {
+	if (!m_StaleRanges[j])
+	  continue;
+	double value = ins.value(j);
+	if (Double.isNaN(value))
+	  continue;
+	double[] range = m_Ranges[j];
+	if (value < range[NormalizableDistance.R_MIN])
+	  range[NormalizableDistance.R_MIN] = value;
+	if (value > range[NormalizableDistance.R_MAX])
+	  range[NormalizableDistance.R_MAX] = value;
+	range[NormalizableDistance.R_WIDTH] = range[NormalizableDistance.R_MAX]
+	    - range[NormalizableDistance.R_MIN];
+      }
+    }
+  }
+}
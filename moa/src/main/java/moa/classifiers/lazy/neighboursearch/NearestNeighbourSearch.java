@@ -614,6 +614,19 @@ public abstract class NearestNeighbourSearch
    */
   public abstract void update(Instance ins) throws Exception;
 
+  /**
+   * Removes the given instance from the NearNeighbourSearch algorithm. Only
+   * searches that maintain their own index support this, the others read
+   * m_Instances directly.
+   * 
+   * @param ins		the instance to remove
+   * @throws Exception	if removal is not supported or fails
+   */
+  public void remove(Instance ins) throws Exception {
+    throw new Exception("Removal of instances is not supported by "
+                        + getClass().getName() + ".");
+  }
+
   /** 
    * Adds information from the given instance without modifying the 
    * datastructure a lot.
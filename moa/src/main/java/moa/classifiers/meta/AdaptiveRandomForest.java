@@ -26,10 +26,11 @@ import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import moa.classifiers.MultiClassClassifier;
-import moa.core.DoubleVector;
+import moa.classifiers.core.MemberVotes;
 import moa.core.InstanceExample;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
+import moa.core.SizeOf;
 import moa.options.ClassOption;
 
 import com.github.javacliparser.FloatOption;
@@ -37,6 +38,9 @@ import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Collection;
 import java.util.concurrent.Callable;
 
@@ -46,6 +50,8 @@ import moa.evaluation.BasicClassificationPerformanceEvaluator;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import moa.AbstractMOAObject;
+import moa.classifiers.core.driftdetection.ADWINBank;
+import moa.classifiers.core.driftdetection.ADWINChangeDetector;
 import moa.classifiers.core.driftdetection.ChangeDetector;
 
 
@@ -74,11 +80,14 @@ import moa.classifiers.core.driftdetection.ChangeDetector;
  * values corresponds to M - m</li>
  * <li>-a : The lambda value for bagging (lambda=6 corresponds to levBag)</li>
  * <li>-j : Number of threads to be used for training</li>
+ * <li>-v : Should score the trees in parallel when predicting?</li>
  * <li>-x : Change detector for drifts and its parameters</li>
  * <li>-p : Change detector for warnings (start training bkg learner)</li>
  * <li>-w : Should use weighted voting?</li>
  * <li>-u : Should use drift detection? If disabled then bkg learner is also disabled</li>
  * <li>-q : Should use bkg learner? If disabled then reset tree immediately</li>
+ * <li>-b : Should track the detectors of all the trees in ADWIN banks? Only
+ * used when both detectors are ADWINChangeDetector</li>
  * </ul>
  *
  * @author Heitor Murilo Gomes (heitor_murilo_gomes at yahoo dot com dot br)
@@ -116,6 +125,9 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
     public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
         "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
     
+    public FlagOption parallelPredictionOption = new FlagOption("parallelPrediction", 'v',
+        "Should score the trees in parallel when predicting? Uses the numberOfJobs threads.");
+
     public ClassOption driftDetectionMethodOption = new ClassOption("driftDetectionMethod", 'x',
         "Change detector for drifts and its parameters", ChangeDetector.class, "ADWINChangeDetector -a 1.0E-3");
 
@@ -130,6 +142,9 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
 
     public FlagOption disableBackgroundLearnerOption = new FlagOption("disableBackgroundLearner", 'q', 
         "Should use bkg learner? If disabled then reset tree immediately.");
+
+    public FlagOption detectorBankOption = new FlagOption("detectorBank", 'b',
+        "Should track the detectors of all the trees in ADWIN banks? Only used when both detectors are ADWINChangeDetector.");
     
     protected static final int FEATURES_M = 0;
     protected static final int FEATURES_SQRT = 1;
@@ -142,6 +157,14 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
     protected long instancesSeen;
     protected int subspaceSize;
     protected BasicClassificationPerformanceEvaluator evaluator;
+    // Scratch buffers for combining the votes of the trees
+    protected double[] combinedVote;
+    protected double[][] memberVotes;
+    protected int numberOfJobs;
+    // Lanes of the drift and warning detectors of the trees, indexed by the
+    // position of the tree, when the detectors are in banks
+    protected ADWINBank driftBank;
+    protected ADWINBank warningBank;
 
     private ExecutorService executor;
     
@@ -149,20 +172,23 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
     public void resetLearningImpl() {
         // Reset attributes
         this.ensemble = null;
+        this.combinedVote = null;
+        this.memberVotes = null;
         this.subspaceSize = 0;
         this.instancesSeen = 0;
+        this.driftBank = null;
+        this.warningBank = null;
         this.evaluator = new BasicClassificationPerformanceEvaluator();
         
         // Multi-threading
-        int numberOfJobs;
         if(this.numberOfJobsOption.getValue() == -1) 
-            numberOfJobs = Runtime.getRuntime().availableProcessors();
+            this.numberOfJobs = Runtime.getRuntime().availableProcessors();
         else 
-            numberOfJobs = this.numberOfJobsOption.getValue();
+            this.numberOfJobs = this.numberOfJobsOption.getValue();
         // SINGLE_THREAD and requesting for only 1 thread are equivalent. 
         // this.executor will be null and not used...
-        if(numberOfJobs != AdaptiveRandomForest.SINGLE_THREAD && numberOfJobs != 1)
-            this.executor = Executors.newFixedThreadPool(numberOfJobs);
+        if(this.numberOfJobs != AdaptiveRandomForest.SINGLE_THREAD && this.numberOfJobs != 1)
+            this.executor = Executors.newFixedThreadPool(this.numberOfJobs);
     }
 
     @Override
@@ -172,10 +198,11 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             initEnsemble(instance);
         
         Collection<TrainingRunnable> trainers = new ArrayList<TrainingRunnable>();
+        InstanceExample example = new InstanceExample(instance);
         for (int i = 0 ; i < this.ensemble.length ; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(instance));
-            InstanceExample example = new InstanceExample(instance);
-            this.ensemble[i].evaluator.addResult(example, vote.getArrayRef());
+            double[] vote = this.ensemble[i].getVotesForInstance(instance);
+            this.ensemble[i].evaluator.addResult(example, vote);
+            this.ensemble[i].updateAccuracy();
             int k = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
             if (k > 0) {
                 if(this.executor != null) {
@@ -195,29 +222,97 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
                 throw new RuntimeException("Could not call invokeAll() on training threads.");
             }
         }
+        // The banks are shared by the trees, so they are updated once all the 
+        // trees are trained
+        if(this.driftBank != null) {
+            for (int i = 0 ; i < this.ensemble.length ; i++) {
+                if(this.ensemble[i].errorPending) {
+                    this.ensemble[i].errorPending = false;
+                    this.ensemble[i].detectChanges(this.ensemble[i].pendingError, this.instancesSeen);
+                }
+            }
+        }
     }
 
     @Override
     public double[] getVotesForInstance(Instance instance) {
-        Instance testInstance = instance.copy();
+        // The trees only read the instance while predicting, so it is not copied.
+        if(this.ensemble == null) 
+            initEnsemble(instance);
+        if(this.executor != null && this.parallelPredictionOption.isSet())
+            return getVotesForInstances(Collections.singletonList(instance))[0];
+        if(this.memberVotes == null || this.memberVotes.length != this.ensemble.length)
+            this.memberVotes = new double[this.ensemble.length][];
+        for(int i = 0 ; i < this.ensemble.length ; ++i)
+            this.memberVotes[i] = this.ensemble[i].classifier.getVotesForInstance(instance);
+        return combineVotes(this.memberVotes, instance.numClasses());
+    }
+
+    @Override
+    public double[][] getVotesForInstances(List<Instance> instances) {
+        if(instances.isEmpty())
+            return new double[0][];
         if(this.ensemble == null) 
-            initEnsemble(testInstance);
-        DoubleVector combinedVote = new DoubleVector();
-
-        for(int i = 0 ; i < this.ensemble.length ; ++i) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(testInstance));
-            if (vote.sumOfValues() > 0.0) {
-                vote.normalize();
-                double acc = this.ensemble[i].evaluator.getPerformanceMeasurements()[1].getValue();
-                if(! this.disableWeightedVote.isSet() && acc > 0.0) {                        
-                    for(int v = 0 ; v < vote.numValues() ; ++v) {
-                        vote.setValue(v, vote.getValue(v) * acc);
-                    }
+            initEnsemble(instances.get(0));
+        if(this.executor == null || ! this.parallelPredictionOption.isSet())
+            return super.getVotesForInstances(instances);
+        // Each thread scores a range of trees for all the instances.
+        double[][][] votes = MemberVotes.compute(this.executor, this.numberOfJobs, this.ensemble.length, 
+            instances, (i, inst) -> this.ensemble[i].classifier.getVotesForInstance(inst));
+        double[][] combinedVotes = new double[votes.length][];
+        for(int j = 0 ; j < votes.length ; ++j)
+            combinedVotes[j] = combineVotes(votes[j], instances.get(j).numClasses());
+        return combinedVotes;
+    }
+
+    protected double[] combineVotes(double[][] votes, int numClasses) {
+        if(this.combinedVote == null)
+            this.combinedVote = new double[numClasses];
+        Arrays.fill(this.combinedVote, 0.0);
+        int numValues = 0;
+        boolean weighted = ! this.disableWeightedVote.isSet();
+
+        for(int i = 0 ; i < votes.length ; ++i) {
+            double[] vote = votes[i];
+            double sum = 0.0;
+            double sumOfAbsoluteValues = 0.0;
+            for(int v = 0 ; v < vote.length ; ++v) {
+                sum += vote[v];
+                sumOfAbsoluteValues += (vote[v] > 0.0) ? vote[v] : -vote[v];
+            }
+            if (sum > 0.0) {
+                // Same operations as DoubleVector.normalize() followed by the weighting
+                double scale = 1.0 / sumOfAbsoluteValues;
+                double acc = this.ensemble[i].accuracy;
+                if(vote.length > this.combinedVote.length)
+                    this.combinedVote = Arrays.copyOf(this.combinedVote, vote.length);
+                for(int v = 0 ; v < vote.length ; ++v) {
+                    double value = vote[v] * scale;
+                    if(weighted && acc > 0.0)
+                        value = value * acc;
+                    this.combinedVote[v] += value;
                 }
-                combinedVote.addValues(vote);
+                numValues = Math.max(numValues, vote.length);
             }
         }
-        return combinedVote.getArrayRef();
+        return Arrays.copyOf(this.combinedVote, numValues);
+    }
+
+    @Override
+    public long estimateByteSize() {
+        long byteSize = SizeOf.sizeOf(this);
+        if (this.ensemble != null) {
+            for (ARFBaseLearner learner : this.ensemble) {
+                byteSize += learner.estimateByteSize();
+            }
+        }
+        if (this.driftBank != null) {
+            byteSize += SizeOf.fullSizeOf(this.driftBank);
+        }
+        if (this.warningBank != null) {
+            byteSize += SizeOf.fullSizeOf(this.warningBank);
+        }
+        return byteSize;
     }
 
     @Override
@@ -282,6 +377,21 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         
         ARFHoeffdingTree treeLearner = (ARFHoeffdingTree) getPreparedClassOption(this.treeLearnerOption);
         treeLearner.resetLearning();
+
+        this.driftBank = null;
+        this.warningBank = null;
+        if(this.detectorBankOption.isSet() && ! this.disableDriftDetectionOption.isSet()) {
+            ChangeDetector driftDetector = (ChangeDetector) getPreparedClassOption(this.driftDetectionMethodOption);
+            ChangeDetector warningDetector = (ChangeDetector) getPreparedClassOption(this.warningDetectionMethodOption);
+            if(driftDetector.getClass() == ADWINChangeDetector.class 
+                    && warningDetector.getClass() == ADWINChangeDetector.class) {
+                this.driftBank = new ADWINBank(ensembleSize, 
+                    ((ADWINChangeDetector) driftDetector).deltaAdwinOption.getValue());
+                if(! this.disableBackgroundLearnerOption.isSet())
+                    this.warningBank = new ADWINBank(ensembleSize, 
+                        ((ADWINChangeDetector) warningDetector).deltaAdwinOption.getValue());
+            }
+        }
         
         for(int i = 0 ; i < ensembleSize ; ++i) {
             treeLearner.subspaceSizeOption.setValue(this.subspaceSize);
@@ -343,8 +453,13 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         protected ARFBaseLearner bkgLearner;
         // Statistics
         public BasicClassificationPerformanceEvaluator evaluator;
+        // Accuracy (percent) of the evaluator, cached for weighting the votes
+        protected double accuracy;
         protected int numberOfDriftsDetected;
         protected int numberOfWarningsDetected;
+        // Error of the last training, waiting for the forest to update the banks
+        protected boolean errorPending;
+        protected double pendingError;
 
         private void init(int indexOriginal, ARFHoeffdingTree instantiatedClassifier, BasicClassificationPerformanceEvaluator evaluatorInstantiated, 
             long instancesSeen, boolean useBkgLearner, boolean useDriftDetector, ClassOption driftOption, ClassOption warningOption, boolean isBackgroundLearner) {
@@ -355,6 +470,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             
             this.classifier = instantiatedClassifier;
             this.evaluator = evaluatorInstantiated;
+            this.accuracy = 0.0;
             this.useBkgLearner = useBkgLearner;
             this.useDriftDetector = useDriftDetector;
             
@@ -364,13 +480,15 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
 
             if(this.useDriftDetector) {
                 this.driftOption = driftOption;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+                if(driftBank == null)
+                    this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
             }
 
             // Init Drift Detector for Warning detection. 
             if(this.useBkgLearner) {
                 this.warningOption = warningOption;
-                this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+                if(warningBank == null)
+                    this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
             }
         }
 
@@ -385,6 +503,11 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
                 
                 this.driftDetectionMethod = this.bkgLearner.driftDetectionMethod;
                 this.warningDetectionMethod = this.bkgLearner.warningDetectionMethod;
+                // The detectors of the bkg learner were never updated
+                if(driftBank != null)
+                    driftBank.resetLane(this.indexOriginal);
+                if(warningBank != null)
+                    warningBank.resetLane(this.indexOriginal);
                 
                 this.evaluator = this.bkgLearner.evaluator;
                 this.createdOn = this.bkgLearner.createdOn;
@@ -393,9 +516,22 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             else {
                 this.classifier.resetLearning();
                 this.createdOn = instancesSeen;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+                if(driftBank != null)
+                    driftBank.resetLane(this.indexOriginal);
+                else
+                    this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
             }
             this.evaluator.reset();
+            this.accuracy = 0.0;
+        }
+
+        /**
+         * Refreshes the cached accuracy, to be called after the evaluator 
+         * received a result. 
+         */
+        public void updateAccuracy() {
+            this.accuracy = this.evaluator.getTotalWeightObserved() > 0.0 ? 
+                this.evaluator.getFractionCorrectlyClassified() * 100.0 : 0.0;
         }
 
         public void trainOnInstance(Instance instance, double weight, long instancesSeen) {
@@ -409,47 +545,103 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             // Should it use a drift detector? Also, is it a backgroundLearner? If so, then do not "incept" another one. 
             if(this.useDriftDetector && !this.isBackgroundLearner) {
                 boolean correctlyClassifies = this.classifier.correctlyClassifies(instance);
-                // Check for warning only if useBkgLearner is active
-                if(this.useBkgLearner) {
-                    // Update the warning detection method
-                    this.warningDetectionMethod.input(correctlyClassifies ? 0 : 1);
-                    // Check if there was a change
-                    if(this.warningDetectionMethod.getChange()) {
-                        this.lastWarningOn = instancesSeen;
-                        this.numberOfWarningsDetected++;
-                        // Create a new bkgTree classifier
-                        ARFHoeffdingTree bkgClassifier = (ARFHoeffdingTree) this.classifier.copy();
-                        bkgClassifier.resetLearning();
-                        
-                        // Resets the evaluator
-                        BasicClassificationPerformanceEvaluator bkgEvaluator = (BasicClassificationPerformanceEvaluator) this.evaluator.copy();
-                        bkgEvaluator.reset();
-                        
-                        // Create a new bkgLearner object
-                        this.bkgLearner = new ARFBaseLearner(indexOriginal, bkgClassifier, bkgEvaluator, instancesSeen, 
-                            this.useBkgLearner, this.useDriftDetector, this.driftOption, this.warningOption, true);
-                        
-                        // Update the warning detection object for the current object 
-                        // (this effectively resets changes made to the object while it was still a bkg learner). 
-                        this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
-                    }
+                if(driftBank != null) {
+                    this.pendingError = correctlyClassifies ? 0 : 1;
+                    this.errorPending = true;
+                }
+                else {
+                    detectChanges(correctlyClassifies ? 0 : 1, instancesSeen);
+                }
+            }
+        }
+
+        /**
+         * Updates the warning and drift detectors with the error of the tree,
+         * starting a bkg learner on a warning and resetting the tree on a drift.
+         *
+         * @param error 0 if the tree classified the instance correctly, else 1
+         * @param instancesSeen the number of instances seen by the forest
+         */
+        protected void detectChanges(double error, long instancesSeen) {
+            // Check for warning only if useBkgLearner is active
+            if(this.useBkgLearner) {
+                boolean warning;
+                // Update the warning detection method
+                if(warningBank != null) {
+                    warningBank.setInput(this.indexOriginal, error);
+                    warning = warningBank.getDrift(this.indexOriginal);
+                }
+                else {
+                    this.warningDetectionMethod.input(error);
+                    warning = this.warningDetectionMethod.getChange();
                 }
-                
-                /*********** drift detection ***********/
-                // Update the DRIFT detection method
-                this.driftDetectionMethod.input(correctlyClassifies ? 0 : 1);
                 // Check if there was a change
-                if(this.driftDetectionMethod.getChange()) {
-                    this.lastDriftOn = instancesSeen;
-                    this.numberOfDriftsDetected++;
-                    this.reset();
+                if(warning) {
+                    this.lastWarningOn = instancesSeen;
+                    this.numberOfWarningsDetected++;
+                    // Create a new bkgTree classifier
+                    ARFHoeffdingTree bkgClassifier = (ARFHoeffdingTree) this.classifier.copy();
+                    bkgClassifier.resetLearning();
+                    
+                    // Resets the evaluator
+                    BasicClassificationPerformanceEvaluator bkgEvaluator = (BasicClassificationPerformanceEvaluator) this.evaluator.copy();
+                    bkgEvaluator.reset();
+                    
+                    // Create a new bkgLearner object
+                    this.bkgLearner = new ARFBaseLearner(indexOriginal, bkgClassifier, bkgEvaluator, instancesSeen, 
+                        this.useBkgLearner, this.useDriftDetector, this.driftOption, this.warningOption, true);
+                    
+                    // Update the warning detection object for the current object 
+                    // (this effectively resets changes made to the object while it was still a bkg learner). 
+                    if(warningBank != null)
+                        warningBank.resetLane(this.indexOriginal);
+                    else
+                        this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
                 }
             }
+            
+            /*********** drift detection ***********/
+            boolean drift;
+            // Update the DRIFT detection method
+            if(driftBank != null) {
+                driftBank.setInput(this.indexOriginal, error);
+                drift = driftBank.getDrift(this.indexOriginal);
+            }
+            else {
+                this.driftDetectionMethod.input(error);
+                drift = this.driftDetectionMethod.getChange();
+            }
+            // Check if there was a change
+            if(drift) {
+                this.lastDriftOn = instancesSeen;
+                this.numberOfDriftsDetected++;
+                this.reset();
+            }
         }
 
         public double[] getVotesForInstance(Instance instance) {
-            DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(instance));
-            return vote.getArrayRef();
+            return this.classifier.getVotesForInstance(instance);
+        }
+
+        /**
+         * Estimates the size of the tree, of its background learner and of the
+         * detectors, using the cached size of the trees.
+         *
+         * @return the estimated size in bytes
+         */
+        public long estimateByteSize() {
+            long byteSize = SizeOf.sizeOf(this) + this.classifier.estimateByteSize()
+                    + SizeOf.fullSizeOf(this.evaluator);
+            if (this.driftDetectionMethod != null) {
+                byteSize += SizeOf.fullSizeOf(this.driftDetectionMethod);
+            }
+            if (this.warningDetectionMethod != null) {
+                byteSize += SizeOf.fullSizeOf(this.warningDetectionMethod);
+            }
+            if (this.bkgLearner != null) {
+                byteSize += this.bkgLearner.estimateByteSize();
+            }
+            return byteSize;
         }
 
         @Override
@@ -29,6 +29,7 @@ import moa.classifiers.MultiClassClassifier;
 import moa.options.ClassOption;
 import com.github.javacliparser.MultiChoiceOption;
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.ADWINBank;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -36,6 +37,7 @@ import com.yahoo.labs.samoa.instances.Instance;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
+import moa.core.SizeOf;
 
 /**
  * Leveraging Bagging for evolving data streams using ADWIN. Leveraging Bagging
@@ -84,10 +86,18 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
                 "Leveraging Subagging using resampling without replacement."
             }, 0);
 
+    public FlagOption detectorBankOption = new FlagOption("detectorBank", 'b',
+            "Track the errors of all the models in a single ADWINBank.");
+
     protected Classifier[] ensemble;
 
     protected ADWIN[] ADError;
 
+    // Used instead of ADError with the detector bank
+    protected ADWINBank ADErrorBank;
+
+    protected double[] errors;
+
     protected int numberOfChangesDetected;
 
     protected int[][] matrixCodes;
@@ -102,9 +112,17 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
         for (int i = 0; i < this.ensemble.length; i++) {
             this.ensemble[i] = baseLearner.copy();
         }
-        this.ADError = new ADWIN[this.ensemble.length];
-        for (int i = 0; i < this.ensemble.length; i++) {
-            this.ADError[i] = new ADWIN((double) this.deltaAdwinOption.getValue());
+        if (this.detectorBankOption.isSet()) {
+            this.ADError = null;
+            this.ADErrorBank = new ADWINBank(this.ensemble.length, this.deltaAdwinOption.getValue());
+            this.errors = new double[this.ensemble.length];
+        } else {
+            this.ADError = new ADWIN[this.ensemble.length];
+            for (int i = 0; i < this.ensemble.length; i++) {
+                this.ADError[i] = new ADWIN((double) this.deltaAdwinOption.getValue());
+            }
+            this.ADErrorBank = null;
+            this.errors = null;
         }
         this.numberOfChangesDetected = 0;
         if (this.outputCodesOption.isSet()) {
@@ -158,7 +176,7 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
                     k = MiscUtils.poisson(w, this.classifierRandom);
                     break;
                 case 1: //LeveragingBagME
-                    double error = this.ADError[i].getEstimation();
+                    double error = getErrorEstimation(i);
                     k = !this.ensemble[i].correctlyClassifies(weightedInst) ? 1.0 : (this.classifierRandom.nextDouble() < (error / (1.0 - error)) ? 1.0 : 0.0);
                     break;
                 case 2: //LeveragingBagHalf
@@ -183,9 +201,21 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
                 this.ensemble[i].trainOnInstance(weightedInst);
             }
             boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(weightedInst);
-            double ErrEstim = this.ADError[i].getEstimation();
-            if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
-                if (this.ADError[i].getEstimation() > ErrEstim) {
+            if (this.ADErrorBank != null) {
+                // The bank is updated for all the models at once
+                this.errors[i] = correctlyClassifies ? 0 : 1;
+            } else {
+                double ErrEstim = this.ADError[i].getEstimation();
+                if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
+                    if (this.ADError[i].getEstimation() > ErrEstim) {
+                        Change = true;
+                    }
+                }
+            }
+        }
+        if (this.ADErrorBank != null && this.ADErrorBank.setInputs(this.errors)) {
+            for (int i = 0; i < this.ensemble.length; i++) {
+                if (this.ADErrorBank.getDrift(i)) {
                     Change = true;
                 }
             }
@@ -195,19 +225,31 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
             double max = 0.0;
             int imax = -1;
             for (int i = 0; i < this.ensemble.length; i++) {
-                if (max < this.ADError[i].getEstimation()) {
-                    max = this.ADError[i].getEstimation();
+                if (max < getErrorEstimation(i)) {
+                    max = getErrorEstimation(i);
                     imax = i;
                 }
             }
             if (imax != -1) {
                 this.ensemble[imax].resetLearning();
                 //this.ensemble[imax].trainOnInstance(inst);
-                this.ADError[imax] = new ADWIN((double) this.deltaAdwinOption.getValue());
+                if (this.ADErrorBank != null) {
+                    this.ADErrorBank.resetLane(imax);
+                } else {
+                    this.ADError[imax] = new ADWIN((double) this.deltaAdwinOption.getValue());
+                }
             }
         }
     }
 
+    /**
+     * Returns the estimated error of a model of the ensemble.
+     */
+    protected double getErrorEstimation(int i) {
+        return this.ADErrorBank != null ? this.ADErrorBank.getEstimation(i)
+                : this.ADError[i].getEstimation();
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
         if (this.outputCodesOption.isSet()) {
@@ -268,6 +310,23 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
                 };
     }
 
+    @Override
+    public long estimateByteSize() {
+        long byteSize = SizeOf.sizeOf(this);
+        if (this.ensemble != null) {
+            for (Classifier member : this.ensemble) {
+                byteSize += member.estimateByteSize();
+            }
+        }
+        if (this.ADError != null) {
+            byteSize += SizeOf.fullSizeOf(this.ADError);
+        }
+        if (this.ADErrorBank != null) {
+            byteSize += SizeOf.fullSizeOf(this.ADErrorBank);
+        }
+        return byteSize;
+    }
+
     @Override
     public Classifier[] getSubClassifiers() {
         return this.ensemble.clone();
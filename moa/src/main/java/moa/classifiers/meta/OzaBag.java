@@ -30,6 +30,7 @@ import moa.classifiers.MultiClassClassifier;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
+import moa.core.SizeOf;
 import moa.options.ClassOption;
 import com.github.javacliparser.IntOption;
 
@@ -122,6 +123,17 @@ public class OzaBag extends AbstractClassifier implements MultiClassClassifier,
                     this.ensemble != null ? this.ensemble.length : 0)};
     }
 
+    @Override
+    public long estimateByteSize() {
+        long byteSize = SizeOf.sizeOf(this);
+        if (this.ensemble != null) {
+            for (Classifier member : this.ensemble) {
+                byteSize += member.estimateByteSize();
+            }
+        }
+        return byteSize;
+    }
+
     @Override
     public Classifier[] getSubClassifiers() {
         return this.ensemble.clone();
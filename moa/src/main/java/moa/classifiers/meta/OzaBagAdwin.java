@@ -24,6 +24,7 @@ import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.ADWINBank;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -31,7 +32,9 @@ import com.yahoo.labs.samoa.instances.Instance;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
+import moa.core.SizeOf;
 import moa.options.ClassOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 
 /**
@@ -99,10 +102,18 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
     public IntOption ensembleSizeOption = new IntOption("ensembleSize", 's',
             "The number of models in the bag.", 10, 1, Integer.MAX_VALUE);
 
+    public FlagOption detectorBankOption = new FlagOption("detectorBank", 'b',
+            "Track the errors of all the models in a single ADWINBank.");
+
     protected Classifier[] ensemble;
 
     protected ADWIN[] ADError;
 
+    // Used instead of ADError with the detector bank
+    protected ADWINBank ADErrorBank;
+
+    protected double[] errors;
+
     @Override
     public void resetLearningImpl() {
         this.ensemble = new Classifier[this.ensembleSizeOption.getValue()];
@@ -111,9 +122,17 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
         for (int i = 0; i < this.ensemble.length; i++) {
             this.ensemble[i] = baseLearner.copy();
         }
-        this.ADError = new ADWIN[this.ensemble.length];
-        for (int i = 0; i < this.ensemble.length; i++) {
-            this.ADError[i] = new ADWIN();
+        if (this.detectorBankOption.isSet()) {
+            this.ADError = null;
+            this.ADErrorBank = new ADWINBank(this.ensemble.length, ADWIN.DELTA);
+            this.errors = new double[this.ensemble.length];
+        } else {
+            this.ADError = new ADWIN[this.ensemble.length];
+            for (int i = 0; i < this.ensemble.length; i++) {
+                this.ADError[i] = new ADWIN();
+            }
+            this.ADErrorBank = null;
+            this.errors = null;
         }
     }
 
@@ -128,9 +147,16 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
                 this.ensemble[i].trainOnInstance(weightedInst);
             }
             boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(inst);
-            double ErrEstim = this.ADError[i].getEstimation();
-            if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
-                if (this.ADError[i].getEstimation() > ErrEstim) {
+            if (this.ADErrorBank != null) {
+                // The bank is updated for all the models at once
+                this.errors[i] = correctlyClassifies ? 0 : 1;
+            } else if (addError(i, correctlyClassifies ? 0 : 1)) {
+                Change = true;
+            }
+        }
+        if (this.ADErrorBank != null && this.ADErrorBank.setInputs(this.errors)) {
+            for (int i = 0; i < this.ensemble.length; i++) {
+                if (this.ADErrorBank.getDrift(i)) {
                     Change = true;
                 }
             }
@@ -139,19 +165,51 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
             double max = 0.0;
             int imax = -1;
             for (int i = 0; i < this.ensemble.length; i++) {
-                if (max < this.ADError[i].getEstimation()) {
-                    max = this.ADError[i].getEstimation();
+                if (max < getErrorEstimation(i)) {
+                    max = getErrorEstimation(i);
                     imax = i;
                 }
             }
             if (imax != -1) {
                 this.ensemble[imax].resetLearning();
                 //this.ensemble[imax].trainOnInstance(inst);
-                this.ADError[imax] = new ADWIN();
+                resetErrorEstimation(imax);
             }
         }
     }
 
+    /**
+     * Adds an error of a model of the bag, returning whether its estimated
+     * error increased with a change.
+     */
+    protected boolean addError(int i, double error) {
+        if (this.ADErrorBank != null) {
+            this.ADErrorBank.setInput(i, error);
+            return this.ADErrorBank.getDrift(i);
+        }
+        double ErrEstim = this.ADError[i].getEstimation();
+        return this.ADError[i].setInput(error) && this.ADError[i].getEstimation() > ErrEstim;
+    }
+
+    /**
+     * Returns the estimated error of a model of the bag.
+     */
+    protected double getErrorEstimation(int i) {
+        return this.ADErrorBank != null ? this.ADErrorBank.getEstimation(i)
+                : this.ADError[i].getEstimation();
+    }
+
+    /**
+     * Forgets the errors of a model of the bag.
+     */
+    protected void resetErrorEstimation(int i) {
+        if (this.ADErrorBank != null) {
+            this.ADErrorBank.resetLane(i);
+        } else {
+            this.ADError[i] = new ADWIN();
+        }
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
         DoubleVector combinedVote = new DoubleVector();
@@ -181,6 +239,23 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
                     this.ensemble != null ? this.ensemble.length : 0)};
     }
 
+    @Override
+    public long estimateByteSize() {
+        long byteSize = SizeOf.sizeOf(this);
+        if (this.ensemble != null) {
+            for (Classifier member : this.ensemble) {
+                byteSize += member.estimateByteSize();
+            }
+        }
+        if (this.ADError != null) {
+            byteSize += SizeOf.fullSizeOf(this.ADError);
+        }
+        if (this.ADErrorBank != null) {
+            byteSize += SizeOf.fullSizeOf(this.ADErrorBank);
+        }
+        return byteSize;
+    }
+
     @Override
     public Classifier[] getSubClassifiers() {
         return this.ensemble.clone();
@@ -32,13 +32,19 @@ import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import moa.classifiers.MultiClassClassifier;
+import moa.classifiers.core.MemberVotes;
 import moa.classifiers.core.driftdetection.ChangeDetector;
 import moa.core.*;
 import moa.evaluation.BasicClassificationPerformanceEvaluator;
 import moa.options.ClassOption;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Streaming Random Patches
@@ -65,6 +71,7 @@ import java.util.Random;
  * <li>-w : Should use weighted voting?</li>
  * <li>-u : Should use drift detection? If disabled, then the bkg learner is also disabled.</li>
  * <li>-q : Should use bkg learner? If disabled, then trees are reset immediately.</li>
+ * <li>-j : Number of threads to be used for prediction.</li>
  * </ul>
  *
  * @author Heitor Murilo Gomes (heitor dot gomes at waikato dot ac dot nz)
@@ -118,6 +125,10 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
     public FlagOption disableBackgroundLearnerOption = new FlagOption("disableBackgroundLearner", 'q',
             "Should use bkg learner? If disabled, then trees are reset immediately.");
 
+    // PREDICTION
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for scoring the learners when predicting (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
     public static final int TRAIN_RANDOM_SUBSPACES = 0;
     public static final int TRAIN_RESAMPLING = 1;
     public static final int TRAIN_RANDOM_PATCHES = 2;
@@ -130,10 +141,42 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
     protected StreamingRandomPatchesClassifier[] ensemble;
     protected long instancesSeen;
     protected ArrayList<ArrayList<Integer>> subspaces;
+    protected int numberOfJobs;
+
+    // Created on the first prediction with more than one job, see getExecutor()
+    private transient ExecutorService executor;
 
     @Override
     public void resetLearningImpl() {
         this.instancesSeen = 0;
+
+        // Multi-threading (prediction only, training uses a shared random generator)
+        if(this.numberOfJobsOption.getValue() == -1)
+            this.numberOfJobs = Runtime.getRuntime().availableProcessors();
+        else
+            this.numberOfJobs = this.numberOfJobsOption.getValue();
+        trainingHasEnded();
+    }
+
+    /**
+     * Shuts down the threads used for scoring the learners. A later
+     * prediction starts them again.
+     */
+    public void trainingHasEnded() {
+        if(this.executor != null)
+            this.executor.shutdown();
+        this.executor = null;
+    }
+
+    protected ExecutorService getExecutor() {
+        // Daemon threads, so that a task that never ends the training does not keep the JVM alive
+        if(this.executor == null)
+            this.executor = Executors.newFixedThreadPool(this.numberOfJobs, r -> {
+                Thread thread = new Thread(r, "StreamingRandomPatches");
+                thread.setDaemon(true);
+                return thread;
+            });
+        return this.executor;
     }
 
     @Override
@@ -165,27 +208,60 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
 
     @Override
     public double[] getVotesForInstance(Instance instance) {
+        if(this.numberOfJobs > 1)
+            return getVotesForInstances(Collections.singletonList(instance))[0];
+        Instance testInstance = getTestInstance(instance);
+        DoubleVector combinedVote = new DoubleVector();
+        for(int i = 0 ; i < this.ensemble.length ; ++i)
+            addVote(combinedVote, i, this.ensemble[i].getVotesForInstance(testInstance));
+        return combinedVote.getArrayRef();
+    }
+
+    @Override
+    public double[][] getVotesForInstances(List<Instance> instances) {
+        if(this.numberOfJobs <= 1)
+            return super.getVotesForInstances(instances);
+        List<Instance> testInstances = new ArrayList<>(instances.size());
+        for(Instance instance : instances)
+            testInstances.add(getTestInstance(instance));
+        // Each thread scores a range of learners for all the instances.
+        double[][][] votes = MemberVotes.compute(getExecutor(), this.numberOfJobs, 
+                this.ensemble == null ? 0 : this.ensemble.length, testInstances,
+                (i, inst) -> this.ensemble[i].getVotesForInstance(inst));
+        double[][] combinedVotes = new double[votes.length][];
+        for(int j = 0 ; j < votes.length ; ++j)
+            combinedVotes[j] = combineVotes(votes[j]);
+        return combinedVotes;
+    }
+
+    protected Instance getTestInstance(Instance instance) {
         Instance testInstance = instance.copy();
         testInstance.setMissing(instance.classAttribute());
         testInstance.setClassValue(0.0);
         if(this.ensemble == null)
             initEnsemble(testInstance);
+        return testInstance;
+    }
+
+    protected double[] combineVotes(double[][] votes) {
         DoubleVector combinedVote = new DoubleVector();
+        for(int i = 0 ; i < votes.length ; ++i)
+            addVote(combinedVote, i, votes[i]);
+        return combinedVote.getArrayRef();
+    }
 
-        for(int i = 0 ; i < this.ensemble.length ; ++i) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(testInstance));
-            if (vote.sumOfValues() > 0.0) {
-                vote.normalize();
-                double acc = this.ensemble[i].evaluator.getPerformanceMeasurements()[1].getValue();
-                if(!this.disableWeightedVote.isSet() && acc > 0.0) {
-                    for(int v = 0 ; v < vote.numValues() ; ++v) {
-                        vote.setValue(v, vote.getValue(v) * acc);
-                    }
+    protected void addVote(DoubleVector combinedVote, int i, double[] rawVote) {
+        DoubleVector vote = new DoubleVector(rawVote);
+        if (vote.sumOfValues() > 0.0) {
+            vote.normalize();
+            double acc = this.ensemble[i].evaluator.getFractionCorrectlyClassified() * 100.0;
+            if(!this.disableWeightedVote.isSet() && acc > 0.0) {
+                for(int v = 0 ; v < vote.numValues() ; ++v) {
+                    vote.setValue(v, vote.getValue(v) * acc);
                 }
-                combinedVote.addValues(vote);
             }
+            combinedVote.addValues(vote);
         }
-        return combinedVote.getArrayRef();
     }
 
     @Override
@@ -364,7 +440,10 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
     }
 
     // Inner class representing the base learner of SRP.
-    protected class StreamingRandomPatchesClassifier {
+    protected class StreamingRandomPatchesClassifier implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
         public int indexOriginal;
         public long createdOn;
         public Classifier classifier;
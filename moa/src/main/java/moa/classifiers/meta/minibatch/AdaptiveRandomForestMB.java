@@ -38,6 +38,7 @@ import moa.evaluation.BasicClassificationPerformanceEvaluator;
 import moa.options.ClassOption;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ThreadLocalRandom;
@@ -159,18 +160,31 @@ public class AdaptiveRandomForestMB extends AbstractClassifierMiniBatch implemen
     }
 
     @Override
-    public double[] getVotesForInstance(Instance instance) {
-        Instance testInstance = instance.copy();
+    public double[][] getVotesForInstances(List<Instance> instances) {
+        waitForTraining();
+        if (instances.isEmpty())
+            return new double[0][];
         if(this.trainers == null)
-            initEnsemble(testInstance);
+            initEnsemble(instances.get(0).copy());
+        // The trees only read the instances while predicting, so they are not copied.
+        double[][][] votes = getMemberVotes(this.trainers.size(), instances,
+                (i, inst) -> this.trainers.get(i).learner.classifier.getVotesForInstance(inst));
+        double[][] combinedVotes = new double[votes.length][];
+        for (int j = 0; j < votes.length; j++) {
+            combinedVotes[j] = combineVotes(votes[j]);
+        }
+        return combinedVotes;
+    }
+
+    protected double[] combineVotes(double[][] votes) {
         DoubleVector combinedVote = new DoubleVector();
 
-        for(int i = 0 ; i < this.trainers.size() ; ++i) {
-            DoubleVector vote = new DoubleVector(this.trainers.get(i).learner.classifier.getVotesForInstance(testInstance));
+        for(int i = 0 ; i < votes.length ; ++i) {
+            DoubleVector vote = new DoubleVector(votes[i]);
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
-                double acc = this.trainers.get(i).learner.evaluator.getPerformanceMeasurements()[1].getValue();
-                if(! this.disableWeightedVote.isSet() && acc > 0.0) {                        
+                double acc = this.trainers.get(i).learner.evaluator.getFractionCorrectlyClassified() * 100.0;
+                if(! this.disableWeightedVote.isSet() && acc > 0.0) {
                     for(int v = 0 ; v < vote.numValues() ; ++v) {
                         vote.setValue(v, vote.getValue(v) * acc);
                     }
@@ -272,6 +286,7 @@ public class AdaptiveRandomForestMB extends AbstractClassifierMiniBatch implemen
 
     @Override
     public Classifier[] getSublearners() {
+        waitForTraining();
         /* Extracts the reference to the ARFHoeffdingTree object from within the ensemble of ARFBaseLearner's */
         Classifier[] forest = new Classifier[this.trainers.size()];
         for(int i = 0 ; i < forest.length ; ++i)
@@ -457,5 +472,6 @@ public class AdaptiveRandomForestMB extends AbstractClassifierMiniBatch implemen
             run();
             return 0;
         }
+
     }
 }
@@ -37,6 +37,8 @@ import moa.core.MiscUtils;
 import moa.options.ClassOption;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ThreadLocalRandom;
@@ -185,13 +187,24 @@ public class LeveragingBagMB extends AbstractClassifierMiniBatch implements Mult
     }
 
     @Override
-    public double[] getVotesForInstance(Instance inst) {
+    public double[][] getVotesForInstances(List<Instance> instances) {
+        waitForTraining();
         if (this.outputCodesOption.isSet()) {
-            return getVotesForInstanceBinary(inst);
+            return getVotesForInstancesBinary(instances);
         }
+        double[][][] votes = getMemberVotes(this.trainers.size(), instances,
+                (i, inst) -> this.trainers.get(i).learner.getVotesForInstance(inst));
+        double[][] combinedVotes = new double[votes.length][];
+        for (int j = 0; j < votes.length; j++) {
+            combinedVotes[j] = combineVotes(votes[j]);
+        }
+        return combinedVotes;
+    }
+
+    protected double[] combineVotes(double[][] votes) {
         DoubleVector combinedVote = new DoubleVector();
-        for (TrainingRunnable trainer : this.trainers) {
-            DoubleVector vote = new DoubleVector(trainer.learner.getVotesForInstance(inst));
+        for (double[] memberVote : votes) {
+            DoubleVector vote = new DoubleVector(memberVote);
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
                 combinedVote.addValues(vote);
@@ -201,29 +214,42 @@ public class LeveragingBagMB extends AbstractClassifierMiniBatch implements Mult
     }
 
     public double[] getVotesForInstanceBinary(Instance inst) {
-        double[] combinedVote = new double[(int) inst.numClasses()];
-        Instance weightedInst = (Instance) inst.copy();
-        if (!this.initMatrixCodes) {
-            for (int i = 0; i < this.trainers.size(); i++) {
-                //Replace class by OC
-                weightedInst.setClassValue((double) this.matrixCodes[i][(int) inst.classValue()]);
+        return getVotesForInstancesBinary(Collections.singletonList(inst))[0];
+    }
 
-                double[] vote;
-                vote = this.trainers.get(i).learner.getVotesForInstance(weightedInst);
+    public double[][] getVotesForInstancesBinary(List<Instance> instances) {
+        waitForTraining();
+        double[][] combinedVotes = new double[instances.size()][];
+        for (int j = 0; j < combinedVotes.length; j++) {
+            combinedVotes[j] = new double[(int) instances.get(j).numClasses()];
+        }
+        if (this.initMatrixCodes) {
+            return combinedVotes;
+        }
+        double[][][] votes = getMemberVotes(this.trainers.size(), instances, (i, inst) -> {
+            //Replace class by OC
+            Instance weightedInst = (Instance) inst.copy();
+            weightedInst.setClassValue((double) this.matrixCodes[i][(int) inst.classValue()]);
+            return this.trainers.get(i).learner.getVotesForInstance(weightedInst);
+        });
+        for (int j = 0; j < combinedVotes.length; j++) {
+            Instance inst = instances.get(j);
+            for (int i = 0; i < this.trainers.size(); i++) {
+                double[] vote = votes[j][i];
                 //Binary Case
                 int voteClass = 0;
                 if (vote.length == 2) {
                     voteClass = (vote[1] > vote[0] ? 1 : 0);
                 }
                 //Update votes
-                for (int j = 0; j < inst.numClasses(); j++) {
-                    if (this.matrixCodes[i][j] == voteClass) {
-                        combinedVote[j] += 1;
+                for (int k = 0; k < inst.numClasses(); k++) {
+                    if (this.matrixCodes[i][k] == voteClass) {
+                        combinedVotes[j][k] += 1;
                     }
                 }
             }
         }
-        return combinedVote;
+        return combinedVotes;
     }
 
     @Override
@@ -246,6 +272,7 @@ public class LeveragingBagMB extends AbstractClassifierMiniBatch implements Mult
 
     @Override
     public Classifier[] getSubClassifiers() {
+        waitForTraining();
         Classifier[] ensemble = new Classifier[this.trainers.size()];
         for (int i = 0; i < this.trainers.size(); i++) {
             ensemble[i] = trainers.get(i).learner;
@@ -339,6 +366,7 @@ public class LeveragingBagMB extends AbstractClassifierMiniBatch implements Mult
             run();
             return 0;
         }
+
     }
 }
 
@@ -34,6 +34,7 @@ import moa.core.MiscUtils;
 import moa.options.ClassOption;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ThreadLocalRandom;
@@ -146,10 +147,21 @@ public class OzaBagAdwinMB extends AbstractClassifierMiniBatch implements MultiC
     }
 
     @Override
-    public double[] getVotesForInstance(Instance inst) {
+    public double[][] getVotesForInstances(List<Instance> instances) {
+        waitForTraining();
+        double[][][] votes = getMemberVotes(this.trainers.size(), instances,
+                (i, inst) -> this.trainers.get(i).learner.getVotesForInstance(inst));
+        double[][] combinedVotes = new double[votes.length][];
+        for (int j = 0; j < votes.length; j++) {
+            combinedVotes[j] = combineVotes(votes[j]);
+        }
+        return combinedVotes;
+    }
+
+    protected double[] combineVotes(double[][] votes) {
         DoubleVector combinedVote = new DoubleVector();
-        for (TrainingRunnable trainer : this.trainers) {
-            DoubleVector vote = new DoubleVector(trainer.learner.getVotesForInstance(inst));
+        for (double[] memberVote : votes) {
+            DoubleVector vote = new DoubleVector(memberVote);
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
                 combinedVote.addValues(vote);
@@ -176,6 +188,7 @@ public class OzaBagAdwinMB extends AbstractClassifierMiniBatch implements MultiC
 
     @Override
     public Classifier[] getSubClassifiers() {
+        waitForTraining();
         Classifier[] ensemble = new Classifier[this.ensembleSizeOption.getValue()];
         for (int i = 0; i < this.ensembleSizeOption.getValue(); i++) {
             ensemble[i] = this.trainers.get(i).learner;
@@ -237,5 +250,6 @@ public class OzaBagAdwinMB extends AbstractClassifierMiniBatch implements MultiC
             run();
             return 0;
         }
+
     }
 }
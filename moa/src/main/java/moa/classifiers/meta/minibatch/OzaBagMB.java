@@ -32,6 +32,7 @@ import moa.core.MiscUtils;
 import moa.options.ClassOption;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
 
@@ -98,10 +99,21 @@ public class OzaBagMB extends AbstractClassifierMiniBatch implements MultiClassC
     }
 
     @Override
-    public double[] getVotesForInstance(Instance inst) {
+    public double[][] getVotesForInstances(List<Instance> instances) {
+        waitForTraining();
+        double[][][] votes = getMemberVotes(this.trainers.size(), instances,
+                (i, inst) -> this.trainers.get(i).learner.getVotesForInstance(inst));
+        double[][] combinedVotes = new double[votes.length][];
+        for (int j = 0; j < votes.length; j++) {
+            combinedVotes[j] = combineVotes(votes[j]);
+        }
+        return combinedVotes;
+    }
+
+    protected double[] combineVotes(double[][] votes) {
         DoubleVector combinedVote = new DoubleVector();
-        for (TrainingRunnable trainer : this.trainers) {
-            DoubleVector vote = new DoubleVector(trainer.learner.getVotesForInstance(inst));
+        for (double[] memberVote : votes) {
+            DoubleVector vote = new DoubleVector(memberVote);
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
                 combinedVote.addValues(vote);
@@ -128,6 +140,7 @@ public class OzaBagMB extends AbstractClassifierMiniBatch implements MultiClassC
 
     @Override
     public Classifier[] getSubClassifiers() {
+        waitForTraining();
         Classifier[] ensemble = new Classifier[this.ensembleSizeOption.getValue()];
         for (int i = 0; i < this.trainers.size(); i++) {
             ensemble[i] = this.trainers.get(i).learner;
@@ -42,6 +42,7 @@ import moa.evaluation.BasicClassificationPerformanceEvaluator;
 import moa.options.ClassOption;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ThreadLocalRandom;
@@ -161,20 +162,37 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
     }
 
     @Override
-    public double[] getVotesForInstance(Instance instance) {
-        Instance testInstance = instance.copy();
-        if (this.trainers == null)
-            initEnsemble(testInstance);
+    public double[][] getVotesForInstances(List<Instance> instances) {
+        waitForTraining();
+        List<Instance> testInstances = new ArrayList<>(instances.size());
+        for (Instance instance : instances) {
+            Instance testInstance = instance.copy();
+            if (this.trainers == null)
+                initEnsemble(testInstance);
+
+            testInstance.setMissing(instance.classAttribute());
+            testInstance.setClassValue(0.0);
+            testInstances.add(testInstance);
+        }
+        if (testInstances.isEmpty())
+            return new double[0][];
+        double[][][] votes = getMemberVotes(this.trainers.size(), testInstances,
+                (i, inst) -> this.trainers.get(i).learner.getVotesForInstance(inst));
+        double[][] combinedVotes = new double[votes.length][];
+        for (int j = 0; j < votes.length; j++) {
+            combinedVotes[j] = combineVotes(votes[j]);
+        }
+        return combinedVotes;
+    }
 
-        testInstance.setMissing(instance.classAttribute());
-        testInstance.setClassValue(0.0);
+    protected double[] combineVotes(double[][] votes) {
         DoubleVector combinedVote = new DoubleVector();
 
-        for(int i = 0 ; i < this.trainers.size() ; ++i) {
-            DoubleVector vote = new DoubleVector(this.trainers.get(i).learner.getVotesForInstance(testInstance));
+        for(int i = 0 ; i < votes.length ; ++i) {
+            DoubleVector vote = new DoubleVector(votes[i]);
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
-                double acc = this.trainers.get(i).learner.evaluator.getPerformanceMeasurements()[1].getValue();
+                double acc = this.trainers.get(i).learner.evaluator.getFractionCorrectlyClassified() * 100.0;
                 if(!this.disableWeightedVote.isSet() && acc > 0.0) {
                     for(int v = 0 ; v < vote.numValues() ; ++v) {
                         vote.setValue(v, vote.getValue(v) * acc);
@@ -325,6 +343,7 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
 
     @Override
     public Classifier[] getSublearners() {
+        waitForTraining();
         /* Extracts the reference to the base learner object from within the ensemble of StreamingRandomPatchesClassifier */
         Classifier[] baseModels = new Classifier[this.trainers.size()];
         for(int i = 0 ; i < baseModels.length ; ++i)
@@ -32,6 +32,7 @@ import moa.AbstractMOAObject;
 import moa.classifiers.Regressor;
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.attributeclassobservers.FIMTDDNumericAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.HistogramFIMTDDNumericAttributeClassObserver;
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.classifiers.AbstractClassifier;
@@ -125,6 +126,10 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
     public FlagOption learningRatioConstOption = new FlagOption(
             "learningRatioConst", 'p', "Keep learning rate constant instead of decaying.");
 
+    public IntOption histogramBinsOption = new IntOption(
+            "histogramBins", 'b', "The maximum number of bins of the histogram observing each numeric attribute, 0 to observe them with extended binary search trees instead.",
+            0, 0, Integer.MAX_VALUE);
+
     //endregion ================ OPTIONS ================
 
     //region ================ CLASSES ================
@@ -868,6 +873,9 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
     // region --- Object instatiation methods
 
     protected FIMTDDNumericAttributeClassObserver newNumericClassObserver() {
+        if (this.histogramBinsOption.getValue() > 0) {
+            return new HistogramFIMTDDNumericAttributeClassObserver(this.histogramBinsOption.getValue());
+        }
         return new FIMTDDNumericAttributeClassObserver();
     }
 
@@ -47,11 +47,13 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
+import com.yahoo.labs.samoa.instances.Attribute;
 import com.yahoo.labs.samoa.instances.Instance;
 
 import moa.AbstractMOAObject;
@@ -59,7 +61,9 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.SplitEvaluationTask;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.CompactAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.DiscreteAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.NullAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.NumericAttributeClassObserver;
@@ -147,6 +151,10 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
   public FlagOption noPrePruneOption = new FlagOption("noPrePrune", 'p',
     "Disable pre-pruning.");
 
+  public IntOption splitEvaluationJobsOption = new IntOption("splitEvaluationJobs", 'j',
+    "Number of concurrent jobs evaluating the attributes of a node for a split (-1 = as much as possible, 0 or 1 = do not use multithreading).",
+    1, -1, Integer.MAX_VALUE);
+
   public MultiChoiceOption leafpredictionOption = new MultiChoiceOption(
     "leafprediction", 'l', "Leaf prediction to use.", new String[]{
     "MC", "NB", "NBAdaptive"}, new String[]{
@@ -180,6 +188,17 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
   protected int splitCount = 0;
 
+  /**
+   * Returns the pool evaluating the attributes of a node for a split,
+   * shared with the other trees.
+   *
+   * @return the pool, or null if the attributes are evaluated in the
+   * calling thread
+   */
+  protected ForkJoinPool getSplitEvaluationPool() {
+    return SplitEvaluationTask.getPool(this.splitEvaluationJobsOption.getValue());
+  }
+
   @Override
   public String getPurposeString() {
     return "Hoeffding Tree or VFDT.";
@@ -285,6 +304,21 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
     return (AttributeClassObserver) numericClassObserver.copy();
   }
 
+  /**
+   * Returns a new observer for an attribute of the instances. An observer
+   * with compact storage is allocated for the classes and values of the
+   * header.
+   */
+  protected AttributeClassObserver newClassObserver(Instance inst, int instAttIndex) {
+    Attribute attribute = inst.attribute(instAttIndex);
+    AttributeClassObserver obs = attribute.isNominal() ? newNominalClassObserver() : newNumericClassObserver();
+    if (obs instanceof CompactAttributeClassObserver) {
+      ((CompactAttributeClassObserver) obs).allocate(
+        attribute.isNominal() ? attribute.numValues() : 0, inst.numClasses());
+    }
+    return obs;
+  }
+
   public void enforceTrackerLimit() {
     if ((this.inactiveLeafNodeCount > 0)
       || ((this.activeLeafNodeCount * this.activeLeafByteSizeEstimate + this.inactiveLeafNodeCount
@@ -431,7 +465,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
       SplitCriterion splitCriterion = (SplitCriterion) getPreparedClassOption(this.splitCriterionOption);
       AttributeSplitSuggestion[] bestSplitSuggestions = node.getBestSplitSuggestions(splitCriterion, this);
-      Arrays.sort(bestSplitSuggestions);
+      AttributeSplitSuggestion.moveBestTwoToEnd(bestSplitSuggestions);
       boolean shouldSplit = false;
 
       for (AttributeSplitSuggestion bestSplitSuggestion : bestSplitSuggestions) {
@@ -936,14 +970,12 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	  new double[0][], criterion.getMeritOfSplit(
 	  preSplitDist, new double[][]{preSplitDist})));
       }
-      for (int i = 0; i < this.attributeObservers.size(); i++) {
-	AttributeClassObserver obs = this.attributeObservers.get(i);
-	if (obs != null) {
-	  AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-	    preSplitDist, i, ht.binarySplitsOption.isSet());
-	  if (bestSuggestion != null) {
-	    bestSuggestions.add(bestSuggestion);
-	  }
+      AttributeSplitSuggestion[] attributeSuggestions = SplitEvaluationTask.evaluate(
+	this.attributeObservers, criterion, preSplitDist,
+	ht.binarySplitsOption.isSet(), ht.getSplitEvaluationPool());
+      for (AttributeSplitSuggestion bestSuggestion : attributeSuggestions) {
+	if (bestSuggestion != null) {
+	  bestSuggestions.add(bestSuggestion);
 	}
       }
       return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
@@ -962,7 +994,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
 	AttributeClassObserver obs = this.attributeObservers.get(i);
 	if (obs == null) {
-	  obs = inst.attribute(instAttIndex).isNominal() ? ht.newNominalClassObserver() : ht.newNumericClassObserver();
+	  obs = ht.newClassObserver(inst, instAttIndex);
 	  this.attributeObservers.set(i, obs);
 	}
 	obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
@@ -1011,7 +1043,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
       // get best split suggestions
       AttributeSplitSuggestion[] bestSplitSuggestions = node.getBestSplitSuggestions(splitCriterion, EFDT.this);
-      Arrays.sort(bestSplitSuggestions);
+      AttributeSplitSuggestion.moveBestTwoToEnd(bestSplitSuggestions);
 
       // get the best suggestion
       AttributeSplitSuggestion bestSuggestion = bestSplitSuggestions[bestSplitSuggestions.length - 1];
@@ -1275,7 +1307,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
 	AttributeClassObserver obs = this.attributeObservers.get(i);
 	if (obs == null) {
-	  obs = inst.attribute(instAttIndex).isNominal() ? ht.newNominalClassObserver() : ht.newNumericClassObserver();
+	  obs = ht.newClassObserver(inst, instAttIndex);
 	  this.attributeObservers.set(i, obs);
 	}
 	obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
@@ -1304,14 +1336,12 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	  new double[0][], criterion.getMeritOfSplit(
 	  preSplitDist, new double[][]{preSplitDist})));
       }
-      for (int i = 0; i < this.attributeObservers.size(); i++) {
-	AttributeClassObserver obs = this.attributeObservers.get(i);
-	if (obs != null) {
-	  AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-	    preSplitDist, i, ht.binarySplitsOption.isSet());
-	  if (bestSuggestion != null) {
-	    bestSuggestions.add(bestSuggestion);
-	  }
+      AttributeSplitSuggestion[] attributeSuggestions = SplitEvaluationTask.evaluate(
+	this.attributeObservers, criterion, preSplitDist,
+	ht.binarySplitsOption.isSet(), ht.getSplitEvaluationPool());
+      for (AttributeSplitSuggestion bestSuggestion : attributeSuggestions) {
+	if (bestSuggestion != null) {
+	  bestSuggestions.add(bestSuggestion);
 	}
       }
       return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
@@ -1393,7 +1423,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	SplitCriterion splitCriterion = (SplitCriterion) getPreparedClassOption(this.splitCriterionOption);
 	AttributeSplitSuggestion[] bestSplitSuggestions = node.getBestSplitSuggestions(splitCriterion, this);
 
-	Arrays.sort(bestSplitSuggestions);
+	AttributeSplitSuggestion.moveBestTwoToEnd(bestSplitSuggestions);
 	boolean shouldSplit = false;
 
 	for (int i = 0; i < bestSplitSuggestions.length; i++){
@@ -410,13 +410,15 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
                 dist = this.observedClassDistribution.getArrayCopy();
             } else if (predictionOption == 1) { //NB
                 dist = NaiveBayes.doNaiveBayesPrediction(inst,
-                        this.observedClassDistribution, this.attributeObservers);
+                        this.observedClassDistribution, this.attributeObservers,
+                        this.sparseObservations);
             } else { //NBAdaptive
                 if (this.mcCorrectWeight > this.nbCorrectWeight) {
                     dist = this.observedClassDistribution.getArrayCopy();
                 } else {
                     dist = NaiveBayes.doNaiveBayesPrediction(inst,
-                            this.observedClassDistribution, this.attributeObservers);
+                            this.observedClassDistribution, this.attributeObservers,
+                            this.sparseObservations);
                 }
             }
             //New for option votes
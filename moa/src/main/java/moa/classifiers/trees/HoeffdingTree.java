@@ -25,6 +25,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
@@ -37,9 +38,12 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.SplitEvaluationTask;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.CompactAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.DiscreteAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.NullAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.SparseAttributeObservations;
 import moa.classifiers.core.attributeclassobservers.NumericAttributeClassObserver;
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
@@ -50,6 +54,7 @@ import moa.core.SizeOf;
 import moa.core.StringUtils;
 import moa.core.Utils;
 import moa.options.ClassOption;
+import com.yahoo.labs.samoa.instances.Attribute;
 import com.yahoo.labs.samoa.instances.Instance;
 
 /**
@@ -167,6 +172,10 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     public FlagOption noPrePruneOption = new FlagOption("noPrePrune", 'p',
             "Disable pre-pruning.");
 
+    public IntOption splitEvaluationJobsOption = new IntOption("splitEvaluationJobs", 'j',
+            "Number of concurrent jobs evaluating the attributes of a leaf for a split (-1 = as much as possible, 0 or 1 = do not use multithreading).",
+            1, -1, Integer.MAX_VALUE);
+
     public static class FoundNode {
 
         public Node node;
@@ -419,6 +428,12 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         protected double weightSeenAtLastSplitEvaluation;
 
         protected AutoExpandVector<AttributeClassObserver> attributeObservers = new AutoExpandVector<AttributeClassObserver>();
+
+        /**
+         * Bookkeeping of the observers when learning from sparse instances,
+         * null when the first instance of the leaf was dense.
+         */
+        protected SparseAttributeObservations sparseObservations;
         
         protected boolean isInitialized;
 
@@ -437,22 +452,54 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         @Override
         public void learnFromInstance(Instance inst, HoeffdingTree ht) {
             if (this.isInitialized == false) {
-                this.attributeObservers = new AutoExpandVector<AttributeClassObserver>(inst.numAttributes());
+                if (SparseAttributeObservations.isSparse(inst)) {
+                    this.attributeObservers = new AutoExpandVector<AttributeClassObserver>();
+                    this.sparseObservations = new SparseAttributeObservations();
+                } else {
+                    this.attributeObservers = new AutoExpandVector<AttributeClassObserver>(inst.numAttributes());
+                }
                 this.isInitialized = true;
             }
             this.observedClassDistribution.addToValue((int) inst.classValue(),
                     inst.weight());
+            if (this.sparseObservations != null) {
+                learnFromSparseInstance(inst, ht);
+                return;
+            }
             for (int i = 0; i < inst.numAttributes() - 1; i++) {
                 int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
                 AttributeClassObserver obs = this.attributeObservers.get(i);
                 if (obs == null) {
-                    obs = inst.attribute(instAttIndex).isNominal() ? ht.newNominalClassObserver() : ht.newNumericClassObserver();
+                    obs = ht.newClassObserver(inst, instAttIndex);
                     this.attributeObservers.set(i, obs);
                 }
                 obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
             }
         }
 
+        /**
+         * Observes only the values stored in an instance, the absent values
+         * are given to the observers as zeros when they are used.
+         */
+        protected void learnFromSparseInstance(Instance inst, HoeffdingTree ht) {
+            int classVal = (int) inst.classValue();
+            this.sparseObservations.observeClass(classVal, inst.weight());
+            for (int p = 0; p < inst.numValues(); p++) {
+                int instAttIndex = inst.index(p);
+                if (instAttIndex == inst.classIndex()) {
+                    continue;
+                }
+                int i = SparseAttributeObservations.instanceAttIndexToModelAttIndex(instAttIndex, inst);
+                AttributeClassObserver obs = this.attributeObservers.get(i);
+                if (obs == null) {
+                    obs = ht.newClassObserver(inst, instAttIndex);
+                    this.attributeObservers.set(i, obs);
+                }
+                this.sparseObservations.observeAttributeClass(obs, i,
+                        inst.valueSparse(p), classVal, inst.weight());
+            }
+        }
+
         public double getWeightSeen() {
             return this.observedClassDistribution.sumOfValues();
         }
@@ -469,6 +516,9 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                 SplitCriterion criterion, HoeffdingTree ht) {
             List<AttributeSplitSuggestion> bestSuggestions = new LinkedList<AttributeSplitSuggestion>();
             double[] preSplitDist = this.observedClassDistribution.getArrayCopy();
+            if (this.sparseObservations != null) {
+                this.sparseObservations.addImplicitZeros(this.attributeObservers);
+            }
             if (!ht.noPrePruneOption.isSet()) {
                 // add null split as an option
                 bestSuggestions.add(new AttributeSplitSuggestion(null,
@@ -476,14 +526,12 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                         preSplitDist,
                         new double[][]{preSplitDist})));
             }
-            for (int i = 0; i < this.attributeObservers.size(); i++) {
-                AttributeClassObserver obs = this.attributeObservers.get(i);
-                if (obs != null) {
-                    AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-                            preSplitDist, i, ht.binarySplitsOption.isSet());
-                    if (bestSuggestion != null) {
-                        bestSuggestions.add(bestSuggestion);
-                    }
+            AttributeSplitSuggestion[] attributeSuggestions = SplitEvaluationTask.evaluate(
+                    this.attributeObservers, criterion, preSplitDist,
+                    ht.binarySplitsOption.isSet(), ht.getSplitEvaluationPool());
+            for (AttributeSplitSuggestion bestSuggestion : attributeSuggestions) {
+                if (bestSuggestion != null) {
+                    bestSuggestions.add(bestSuggestion);
                 }
             }
             return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
@@ -511,6 +559,23 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
     protected boolean growthAllowed;
 
+    protected long cachedByteSize;
+
+    protected int cachedByteSizeDecisionNodeCount;
+
+    protected int cachedByteSizeActiveLeafNodeCount;
+
+    /**
+     * Returns the pool evaluating the attributes of a leaf for a split,
+     * shared with the other trees.
+     *
+     * @return the pool, or null if the attributes are evaluated in the
+     * calling thread
+     */
+    protected ForkJoinPool getSplitEvaluationPool() {
+        return SplitEvaluationTask.getPool(this.splitEvaluationJobsOption.getValue());
+    }
+
     public long calcByteSize() {
         long size = SizeOf.sizeOf(this);
         if (this.treeRoot != null) {
@@ -532,6 +597,29 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         return calcByteSize();
     }
 
+    /**
+     * Returns the size computed by calcByteSize after the last split or
+     * (de)activation of a leaf, or the last memory estimate if it is more
+     * recent. The growth of the leaves in between is not accounted for.
+     *
+     * @return the estimated size of the tree in bytes
+     */
+    @Override
+    public long estimateByteSize() {
+        if (this.cachedByteSize < 0
+                || this.cachedByteSizeDecisionNodeCount != this.decisionNodeCount
+                || this.cachedByteSizeActiveLeafNodeCount != this.activeLeafNodeCount) {
+            cacheByteSize(calcByteSize());
+        }
+        return this.cachedByteSize;
+    }
+
+    protected void cacheByteSize(long byteSize) {
+        this.cachedByteSize = byteSize;
+        this.cachedByteSizeDecisionNodeCount = this.decisionNodeCount;
+        this.cachedByteSizeActiveLeafNodeCount = this.activeLeafNodeCount;
+    }
+
     @Override
     public void resetLearningImpl() {
         this.treeRoot = null;
@@ -541,6 +629,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         this.inactiveLeafByteSizeEstimate = 0.0;
         this.activeLeafByteSizeEstimate = 0.0;
         this.byteSizeEstimateOverheadFraction = 1.0;
+        this.cachedByteSize = -1;
         this.growthAllowed = true;
         if (this.leafpredictionOption.getChosenIndex()>0) { 
             this.removePoorAttsOption = null;
@@ -660,12 +749,27 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         return (AttributeClassObserver) numericClassObserver.copy();
     }
 
+    /**
+     * Returns a new observer for an attribute of the instances. An observer
+     * with compact storage is allocated for the classes and values of the
+     * header.
+     */
+    protected AttributeClassObserver newClassObserver(Instance inst, int instAttIndex) {
+        Attribute attribute = inst.attribute(instAttIndex);
+        AttributeClassObserver obs = attribute.isNominal() ? newNominalClassObserver() : newNumericClassObserver();
+        if (obs instanceof CompactAttributeClassObserver) {
+            ((CompactAttributeClassObserver) obs).allocate(
+                    attribute.isNominal() ? attribute.numValues() : 0, inst.numClasses());
+        }
+        return obs;
+    }
+
     protected void attemptToSplit(ActiveLearningNode node, SplitNode parent,
             int parentIndex) {
         if (!node.observedClassDistributionIsPure()) {
             SplitCriterion splitCriterion = (SplitCriterion) getPreparedClassOption(this.splitCriterionOption);
             AttributeSplitSuggestion[] bestSplitSuggestions = node.getBestSplitSuggestions(splitCriterion, this);
-            Arrays.sort(bestSplitSuggestions);
+            AttributeSplitSuggestion.moveBestTwoToEnd(bestSplitSuggestions);
             boolean shouldSplit = false;
             if (bestSplitSuggestions.length < 2) {
                 shouldSplit = bestSplitSuggestions.length > 0;
@@ -805,6 +909,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                     / this.inactiveLeafNodeCount;
         }
         long actualModelSize = this.measureByteSize();
+        cacheByteSize(actualModelSize);
         double estimatedModelSize = (this.activeLeafNodeCount
                 * this.activeLeafByteSizeEstimate + this.inactiveLeafNodeCount
                 * this.inactiveLeafByteSizeEstimate);
@@ -893,12 +998,22 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             super(initialClassObservations);
         }
 
+        @Override
+        public void learnFromInstance(Instance inst, HoeffdingTree ht) {
+            super.learnFromInstance(inst, ht);
+            // the zeros are added when learning, so that predicting with
+            // Naive Bayes does not change the observers
+            if (this.sparseObservations != null) {
+                this.sparseObservations.addImplicitZeros(this.attributeObservers);
+            }
+        }
+
         @Override
         public double[] getClassVotes(Instance inst, HoeffdingTree ht) {
             if (getWeightSeen() >= ht.nbThresholdOption.getValue()) {
                 return NaiveBayes.doNaiveBayesPrediction(inst,
                         this.observedClassDistribution,
-                        this.attributeObservers);
+                        this.attributeObservers, this.sparseObservations);
             }
             return super.getClassVotes(inst, ht);
         }
@@ -928,7 +1043,8 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                 this.mcCorrectWeight += inst.weight();
             }
             if (Utils.maxIndex(NaiveBayes.doNaiveBayesPrediction(inst,
-                    this.observedClassDistribution, this.attributeObservers)) == trueClass) {
+                    this.observedClassDistribution, this.attributeObservers,
+                    this.sparseObservations)) == trueClass) {
                 this.nbCorrectWeight += inst.weight();
             }
             super.learnFromInstance(inst, ht);
@@ -940,7 +1056,8 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                 return this.observedClassDistribution.getArrayCopy();
             }
             return NaiveBayes.doNaiveBayesPrediction(inst,
-                    this.observedClassDistribution, this.attributeObservers);
+                    this.observedClassDistribution, this.attributeObservers,
+                    this.sparseObservations);
         }
     }
 
@@ -70,8 +70,6 @@ public class DensityGrid extends CFCluster
 		this.dimensions = c.length;
 		this.coordinates = new int[this.dimensions];
 		N = 1;
-		LS = new double[this.dimensions];
-		SS = new double[this.dimensions];
 		
 		for (int i = 0 ; i < this.dimensions ; i++)
 		{
@@ -96,8 +94,6 @@ public class DensityGrid extends CFCluster
 		this.dimensions = dg.getDimensions();
 		this.coordinates = new int[this.dimensions];
 		N = 1;
-		LS = new double[this.dimensions];
-		SS = new double[this.dimensions];
 		
 		for (int i = 0 ; i < this.dimensions ; i++)
 		{
@@ -130,6 +130,12 @@ public class Dstream extends AbstractClusterer {
 	 */
 	private HashMap<DensityGrid,Integer> deleted_grids;
 	
+	/**
+	 * The density grid moved onto the grid of each instance to look it up in
+	 * grid_list, so that a new density grid is only created for a new grid.
+	 */
+	private DensityGrid probeGrid;
+	
 	
 	/**
 	 * A list of all Grid Clusters, which are defined in 
@@ -215,6 +221,7 @@ public class Dstream extends AbstractClusterer {
 		this.N = -1;
 		this.minVals = null;
 		this.maxVals = null;
+		this.probeGrid = null;
 		//System.out.println("Dependent values initialized...\n");
 		//printDStreamState();
 	}
@@ -244,6 +251,7 @@ public class Dstream extends AbstractClusterer {
 			//System.out.println("d = "+this.d);
 			this.minVals = new int[this.d];
 			this.maxVals = new int[this.d];
+			this.probeGrid = new DensityGrid(new int[this.d]);
 			//System.out.println("...data initialized");
 			
 			for(int i = 0 ; i < this.d ; i++)
@@ -265,7 +273,7 @@ public class Dstream extends AbstractClusterer {
 
 		// 2. Determine the density grid g that contains x
 		//System.out.print(" & Step 2 ");
-		g = new int[this.d];
+		g = this.probeGrid.getCoordinates();
 
 		for (int i = 0 ; i < this.d ; i++)
 		{
@@ -319,20 +327,20 @@ public class Dstream extends AbstractClusterer {
 			//System.out.println(" A is "+optionA+", B is "+optionB+" and gap = "+gap);
 		}
 
-		dg = new DensityGrid(g);
-		//System.out.println(dg.toString());
+		cv = this.grid_list.get(this.probeGrid);
 		
 		// 3. If (g not in grid_list) insert dg to grid_list
 		//System.out.println(" & Step 3 or 4");
 		
-		if(!this.grid_list.containsKey(dg))
+		if(cv == null)
 		{
+			dg = new DensityGrid(g);
 			//System.out.print("3 - dg wasn't in grid_list!");
-			if(this.deleted_grids.containsKey(dg))
+			Integer removeTime = this.deleted_grids.remove(dg);
+			if(removeTime != null)
 			{
 				//System.out.print(" but it was in deleted_grids!");
-				cv = new CharacteristicVector(this.getCurrTime(), this.deleted_grids.get(dg).intValue(), 1.0, -1, false, this.getDL(), this.getDM());
-				this.deleted_grids.remove(dg);
+				cv = new CharacteristicVector(this.getCurrTime(), removeTime.intValue(), 1.0, -1, false, this.getDL(), this.getDM());
 			}
 			else
 				cv = new CharacteristicVector(this.getCurrTime(), -1, 1.0, -1, false, this.getDL(), this.getDM());
@@ -345,15 +353,9 @@ public class Dstream extends AbstractClusterer {
 		else
 		{
 			//System.out.print("4 - dg was in grid_list!");
-			cv = this.grid_list.get(dg);
-				
 			cv.densityWithNew(this.getCurrTime(), this.getDecayFactor());
 				
 			cv.setUpdateTime(this.getCurrTime());
-		
-			//System.out.println(" "+dg.toString()+" "+cv.toString());
-		
-			grid_list.put(dg, cv);
 		}
 
 		// 5. If tc == gap, then initial clustering
@@ -619,8 +621,7 @@ public class Dstream extends AbstractClusterer {
 		// If there are grids in glNew, update the corresponding grids in grid_list and clean up the cluster list
 		if (!glNew.isEmpty())
 		{
-			//System.out.println("There are "+glNew.size()+" entries to update from glNew to grid_list.");
-			this.grid_list.putAll(glNew);
+			// the grids in glNew are in grid_list already, with the same characteristic vectors
 			cleanClusters();
 			return true;
 		}
@@ -1089,7 +1090,6 @@ public class Dstream extends AbstractClusterer {
 				}
 				//System.out.println("Cluster "+index+": "+dg.toString()+" is here.");
 				cv.setLabel(index);
-				this.grid_list.put(dg, cv);
 			}
 		}
 	}
@@ -1158,7 +1158,6 @@ public class Dstream extends AbstractClusterer {
 		
 		// For each grid g in grid_list
 		Iterator<Map.Entry<DensityGrid, CharacteristicVector>> glIter = this.grid_list.entrySet().iterator();
-		HashMap<DensityGrid, CharacteristicVector> newGL = new HashMap<DensityGrid, CharacteristicVector>();
 		ArrayList<DensityGrid> remGL = new ArrayList<DensityGrid>();
 				
 		while(glIter.hasNext())
@@ -1186,7 +1185,6 @@ public class Dstream extends AbstractClusterer {
 				{
 					cv.setSporadic(checkIfSporadic(cv));
 					//System.out.println("within gap" + dg.toString() + " sporadicity assessed "+cv.isSporadic());
-					newGL.put(dg, cv);
 				}
 				
 			}
@@ -1195,12 +1193,9 @@ public class Dstream extends AbstractClusterer {
 			{
 				cv.setSporadic(checkIfSporadic(cv));
 				//System.out.println(dg.toString() + " sporadicity assessed "+cv.isSporadic());
-				newGL.put(dg, cv);
 			}
 		}
 		
-		this.grid_list.putAll(newGL);
-		
 		//System.out.println(" - Removed "+remGL.size()+" grids from grid_list.");
 		Iterator<DensityGrid> remIter = remGL.iterator();
 		
@@ -1212,6 +1207,15 @@ public class Dstream extends AbstractClusterer {
 			this.grid_list.remove(sporadicDG);
 		}
 		
+		// Forget the deleted grids whose removal time no longer matters to rule S2,
+		// as it is satisfied from then on whether or not the grid was removed
+		Iterator<Integer> delIter = this.deleted_grids.values().iterator();
+		
+		while(delIter.hasNext())
+		{
+			if (this.getCurrTime() >= ((1 + this.beta)*delIter.next().intValue()))
+				delIter.remove();
+		}
 	}
 
 	/**
@@ -1256,16 +1260,12 @@ public class Dstream extends AbstractClusterer {
 	{		
 		//System.out.println("Merge clusters "+smallClus+" and "+bigClus+".");
 		// Iterate through the density grids in grid_list to find those which are in highClass
-		for (Map.Entry<DensityGrid, CharacteristicVector> grid : grid_list.entrySet())
+		for (CharacteristicVector cv : grid_list.values())
 		{
-			DensityGrid dg = grid.getKey();
-			CharacteristicVector cv = grid.getValue();
-
 			// Assign density grids in smallClus to bigClus
 			if(cv.getLabel() == smallClus)
 			{
 				cv.setLabel(bigClus);
-				this.grid_list.put(dg, cv);
 			}
 		}
 		//System.out.println("Density grids assigned to cluster "+bigClus+".");
@@ -1292,8 +1292,6 @@ public class Dstream extends AbstractClusterer {
 
 			dg.setVisited(false);
 			cvOfG.updateGridDensity(this.getCurrTime(), this.getDecayFactor(), this.getDL(), this.getDM());
-
-			this.grid_list.put(dg, cvOfG);
 		}
 	}
 
@@ -18,7 +18,9 @@
 
 package moa.clusterers.dstream;
 
+import java.util.ArrayDeque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -42,7 +44,6 @@ public class GridCluster extends NonConvexCluster
 {
 	private static final long serialVersionUID = -6498733665209706370L;
 	private HashMap<DensityGrid, Boolean> grids;
-	private HashMap<DensityGrid, Boolean> visited;
 	private int clusterLabel;
 	
 	public GridCluster(CFCluster cluster, List<CFCluster> microclusters, int label)
@@ -144,18 +145,7 @@ public class GridCluster extends NonConvexCluster
 	 */
 	public Boolean isInside(DensityGrid dg)
 	{
-		Iterator<DensityGrid> dgNeighbourhood = dg.getNeighbours().iterator();
-		
-		while(dgNeighbourhood.hasNext())
-		{
-			DensityGrid dgprime = dgNeighbourhood.next();
-			if(!this.grids.containsKey(dgprime))
-			{
-				return false;
-			}
-		}
-		
-		return true;
+		return isInside(dg, null);
 	}
 	
 	/**
@@ -170,14 +160,20 @@ public class GridCluster extends NonConvexCluster
 	 */
 	public Boolean isInside(DensityGrid dg, DensityGrid dgH)
 	{
-		Iterator<DensityGrid> dgNeighbourhood = dg.getNeighbours().iterator();
+		// A single copy of dg is moved onto each of its neighbours in turn
+		DensityGrid dgprime = new DensityGrid(dg);
+		int[] coord = dgprime.getCoordinates();
 		
-		while(dgNeighbourhood.hasNext())
+		for (int i = 0 ; i < coord.length ; i++)
 		{
-			DensityGrid dgprime = dgNeighbourhood.next();
-			if(!this.grids.containsKey(dgprime) && !dgprime.equals(dgH))
+			for (int offset = -1 ; offset <= 1 ; offset += 2)
 			{
-				return false;
+				coord[i] += offset;
+				if(!this.grids.containsKey(dgprime) && !dgprime.equals(dgH))
+				{
+					return false;
+				}
+				coord[i] -= offset;
 			}
 		}
 		
@@ -220,63 +216,58 @@ public class GridCluster extends NonConvexCluster
 	 * Tests a grid cluster for connectedness according to Definition 3.4, Grid Group, from
 	 * Chen and Tu 2007.
 	 * 
-	 * Selects one density grid in the grid cluster as a starting point and iterates repeatedly
-	 * through its neighbours until no more density grids in the grid cluster can be visited.
+	 * Selects one density grid in the grid cluster as a starting point and visits the neighbours
+	 * of each visited density grid once, until no more density grids in the grid cluster can be
+	 * visited.
 	 *  
 	 * @return TRUE if the cluster represent one single grid group; FALSE otherwise.
 	 */
 	public boolean isConnected()
 	{
-		this.visited = new HashMap<DensityGrid, Boolean>();
+		HashSet<DensityGrid> visited = new HashSet<DensityGrid>();
 		Iterator<DensityGrid> initIter = this.grids.keySet().iterator();
-		DensityGrid dg;
 		
 		if (initIter.hasNext())
 		{
-			dg = initIter.next();
-			visited.put(dg, this.grids.get(dg));
-			boolean changesMade;
+			ArrayDeque<DensityGrid> toVisit = new ArrayDeque<DensityGrid>();
+			DensityGrid dg = initIter.next();
+			visited.add(dg);
+			toVisit.add(dg);
 			
-			do{
-				changesMade = false;
-				
-				Iterator<Map.Entry<DensityGrid, Boolean>> visIter = this.visited.entrySet().iterator();
-				HashMap<DensityGrid, Boolean> toAdd = new HashMap<DensityGrid, Boolean>();
+			// A single density grid is moved onto each neighbour of the grids being visited
+			DensityGrid dg2VN = new DensityGrid(dg);
+			int[] coord = dg2VN.getCoordinates();
+			
+			while(!toVisit.isEmpty())
+			{
+				DensityGrid dg2V = toVisit.poll();
+				System.arraycopy(dg2V.getCoordinates(), 0, coord, 0, coord.length);
 				
-				while(visIter.hasNext() && toAdd.isEmpty())
+				for (int i = 0 ; i < coord.length ; i++)
 				{
-					Map.Entry<DensityGrid, Boolean> toVisit = visIter.next();
-					DensityGrid dg2V = toVisit.getKey();
-					
-					Iterator<DensityGrid> dg2VNeighbourhood = dg2V.getNeighbours().iterator();
-					
-					while(dg2VNeighbourhood.hasNext())
+					for (int offset = -1 ; offset <= 1 ; offset += 2)
 					{
-						DensityGrid dg2VN = dg2VNeighbourhood.next();
-						
-						if(this.grids.containsKey(dg2VN) && !this.visited.containsKey(dg2VN))
-							toAdd.put(dg2VN, this.grids.get(dg2VN));
+						coord[i] += offset;
+						if(this.grids.containsKey(dg2VN) && !visited.contains(dg2VN))
+						{
+							DensityGrid reached = new DensityGrid(dg2VN);
+							visited.add(reached);
+							toVisit.add(reached);
+						}
+						coord[i] -= offset;
 					}
-					
 				}
-				
-				if(!toAdd.isEmpty())
-				{
-					this.visited.putAll(toAdd);
-					changesMade = true;
-				}
-			}while(changesMade);
-			
-		}		
+			}
+		}
 		
-		if (this.visited.size() == this.grids.size())
+		if (visited.size() == this.grids.size())
 		{
-			//System.out.println("The cluster is still connected. "+this.visited.size()+" of "+this.grids.size()+" reached.");
+			//System.out.println("The cluster is still connected. "+visited.size()+" of "+this.grids.size()+" reached.");
 			return true;
 		}
 		else
 		{
-			//System.out.println("The cluster is no longer connected. "+this.visited.size()+" of "+this.grids.size()+" reached.");
+			//System.out.println("The cluster is no longer connected. "+visited.size()+" of "+this.grids.size()+" reached.");
 			return false;
 		}
 	}
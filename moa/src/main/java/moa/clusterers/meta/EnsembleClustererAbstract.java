@@ -5,9 +5,12 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.github.javacliparser.FileOption;
 import com.google.gson.Gson;
@@ -202,6 +205,7 @@ public abstract class EnsembleClustererAbstract extends AbstractClusterer {
 			System.out.println(" ");
 			System.out.println("---- Evaluate performance of current ensemble:");
 		}
+		computePerformanceMeasures();
 		evaluatePerformance();
 
 		if (this.settings.useTestEnsemble) {
@@ -233,7 +237,7 @@ public abstract class EnsembleClustererAbstract extends AbstractClusterer {
 			// predict performance just for evaluation
 			predictPerformance(this.ensemble.get(i));
 
-			double performance = computePerformanceMeasure(this.ensemble.get(i));
+			double performance = this.ensemble.get(i).performanceMeasure;
 			this.performanceMeasures.add(performance);
 			if (performance > bestPerformance) {
 				this.bestModel = i;
@@ -259,10 +263,38 @@ public abstract class EnsembleClustererAbstract extends AbstractClusterer {
 		updateRemovalFlags(bestPerformanceValMap, bestPerformanceIdxMap, algorithmCount);
 	}
 
-	protected double computePerformanceMeasure(Algorithm algorithm) {
+	// evaluate all configurations of the ensemble and the test ensemble on the
+	// current window, concurrently if we have more than one core
+	protected void computePerformanceMeasures() {
+		ArrayList<Algorithm> algorithms = new ArrayList<Algorithm>(this.ensemble);
+		if (this.settings.useTestEnsemble) {
+			algorithms.addAll(this.candidateEnsemble);
+		}
+
+		if (this.numberOfCores == 1) {
+			for (Algorithm algorithm : algorithms) {
+				computePerformanceMeasure(algorithm);
+			}
+		} else {
+			// the measures are created here as materialising options is not thread safe
+			ArrayList<EnsembleEvaluator> evaluators = new ArrayList<EnsembleEvaluator>(algorithms.size());
+			for (Algorithm algorithm : algorithms) {
+				evaluators.add(new EnsembleEvaluator(algorithm, newPerformanceMeasure()));
+			}
+			invokeAll(evaluators, "evaluation");
+		}
+	}
 
+	protected MeasureCollection newPerformanceMeasure() {
 		ClassOption opt = new ClassOption("", ' ', "", MeasureCollection.class, this.settings.performanceMeasure);
-		MeasureCollection performanceMeasure = (MeasureCollection) opt.materializeObject(null, null);
+		return (MeasureCollection) opt.materializeObject(null, null);
+	}
+
+	protected double computePerformanceMeasure(Algorithm algorithm) {
+		return computePerformanceMeasure(algorithm, newPerformanceMeasure());
+	}
+
+	protected double computePerformanceMeasure(Algorithm algorithm, MeasureCollection performanceMeasure) {
 
 		// compare micro-clusters
 		Clustering result = null;
@@ -313,8 +345,8 @@ public abstract class EnsembleClustererAbstract extends AbstractClusterer {
 			// predict performance just for evaluation
 			predictPerformance(newAlgorithm);
 
-			// evaluate
-			double performance = computePerformanceMeasure(newAlgorithm);
+			// evaluated by computePerformanceMeasures
+			double performance = newAlgorithm.performanceMeasure;
 
 			if (this.verbose >= 1) {
 				System.out.println("Test " + i + ") " + newAlgorithm.clusterer.getCLICreationString(Clusterer.class)
@@ -513,6 +545,22 @@ public abstract class EnsembleClustererAbstract extends AbstractClusterer {
 		return newAlgorithm;
 	}
 
+	// run the tasks on the executor and pass on their exceptions
+	protected <T> void invokeAll(List<? extends Callable<T>> tasks, String name) {
+		try {
+			for (Future<T> future : this.executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException ex) {
+			throw new RuntimeException("Could not call invokeAll() on " + name + " threads.");
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new RuntimeException("Failure in " + name + " threads.", ex.getCause());
+		}
+	}
+
 	protected double predictPerformance(Algorithm newAlgorithm) {
 		// create a data point from new configuration
 		double[] params = newAlgorithm.getParamVector(0);
@@ -690,6 +738,22 @@ public abstract class EnsembleClustererAbstract extends AbstractClusterer {
 		}
 	}
 
+	// Helper class to evaluate a configuration in parallel
+	protected class EnsembleEvaluator implements Callable<Double> {
+		final private Algorithm algorithm;
+		final private MeasureCollection performanceMeasure;
+
+		public EnsembleEvaluator(Algorithm algorithm, MeasureCollection performanceMeasure) {
+			this.algorithm = algorithm;
+			this.performanceMeasure = performanceMeasure;
+		}
+
+		@Override
+		public Double call() throws Exception {
+			return computePerformanceMeasure(this.algorithm, this.performanceMeasure);
+		}
+	}
+
 	public static void main(String[] args) throws Exception {
 
 		// create a stream
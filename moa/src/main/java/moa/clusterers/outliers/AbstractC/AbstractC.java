@@ -20,6 +20,8 @@
 
 package moa.clusterers.outliers.AbstractC;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Vector;
 import moa.clusterers.outliers.AbstractC.ISBIndex.ISBNode;
 import moa.clusterers.outliers.AbstractC.ISBIndex.ISBSearchResult;
@@ -38,6 +40,8 @@ public class AbstractC extends AbstractCBase {
     public FloatOption radiusOption = new FloatOption("radius", 'r', "Search radius.", 0.1);
     //public FloatOption fractionOption = new FloatOption("fraction", 'f', "Parameter fraction.", 0.05);
     public IntOption kOption = new IntOption("k", 't', "Parameter k.", 50);
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+        "Number of threads of the range queries on a columnar window, instead of the M-tree index (-1 = as many as processors, 0 = use the M-tree).", 0, -1, Integer.MAX_VALUE);
     public FlagOption waitWinFullOption = new FlagOption("waitWinFull", 'a', "Output outliers when windows is full.");
     
     public AbstractC()
@@ -66,8 +70,11 @@ public class AbstractC extends AbstractCBase {
         objId = FIRST_OBJ_ID; // init object identifier
         // create fifo
         windowNodes = new Vector<ISBNode>();
-        // create ISB
-        ISB = new ISBIndex(m_radius, m_Fraction);
+        // create ISB, releasing the threads of the previous one
+        if (ISB != null) {
+            ISB.Shutdown();
+        }
+        ISB = new ISBIndex(m_radius, m_Fraction, GetNumberOfJobs(numberOfJobsOption.getValue()));
         
         // init statistics
         m_nBothInlierOutlier = 0;
@@ -147,7 +154,52 @@ public class AbstractC extends AbstractCBase {
         if (bTrace) Println("Perform range query seach");
         nRangeQueriesExecuted++;
         Vector<ISBIndex.ISBSearchResult> neighbors = ISB.RangeSearch(nodeNew, m_radius);
-
+        ProcessNeighbors(nodeNew, neighbors);
+    }
+    
+    @Override
+    protected void ProcessNewStreamObjs(List<Instance> insts)
+    {
+        // create the ISB nodes of the slide
+        ArrayList<ISBNode> nodesNew = new ArrayList<ISBNode>(insts.size());
+        for (int i = 0; i < insts.size(); i++) {
+            Instance inst = insts.get(i);
+            StreamObj obj = new StreamObj(getInstanceValues(inst));
+            nodesNew.add(new ISBNode(inst, obj, objId + i));
+        }
+        
+        // insert the slide to index and perform its range queries at once
+        ISB.InsertAll(nodesNew);
+        ArrayList<Vector<ISBSearchResult>> slideResults = ISB.RangeSearch(nodesNew, m_radius);
+        
+        for (int i = 0; i < nodesNew.size(); i++) {
+            if (bShowProgress) ShowProgress("Processed " + (objId - 1) + " stream objects.");
+            ISBNode nodeNew = nodesNew.get(i);
+            if (bTrace) { Println("\n- - - - - - - - - - - -\n"); Print("New node: "); PrintNode(nodeNew); }
+            
+            objId++; // update object identifier (slide window)
+            
+            // purge expired node
+            ISBNode nodeExpired = GetExpiredNode();
+            if (nodeExpired != null) {
+                if (bTrace) { Print("nodeExpired: "); PrintNode(nodeExpired); }
+                RemoveNode(nodeExpired);
+            }
+            
+            // initialize nodeNew.lt_cnt
+            for (int j = 0; j < m_WindowSize; j++) {
+                nodeNew.lt_cnt.add(1);
+            }
+            windowNodes.add(nodeNew); // nodeNew is in the index already
+            if (bTrace) PrintWindow();
+            
+            // neighbors among the nodes in index when nodeNew arrived
+            nRangeQueriesExecuted++;
+            ProcessNeighbors(nodeNew, ISB.GetIndexedResults(slideResults.get(i), nodeNew.id));
+        }
+    }
+    
+    void ProcessNeighbors(ISBNode nodeNew, Vector<ISBSearchResult> neighbors) {
         // process each returned node
         for (ISBSearchResult res : neighbors) {
             ISBNode node = res.node;
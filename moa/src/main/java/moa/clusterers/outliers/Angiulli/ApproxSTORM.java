@@ -23,6 +23,7 @@ package moa.clusterers.outliers.Angiulli;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.Vector;
@@ -49,6 +50,8 @@ public class ApproxSTORM extends STORMBase {
     
     public FloatOption radiusOption = new FloatOption("radius", 'r', "Search radius.", 0.1);
     public IntOption kOption = new IntOption("k", 't', "Parameter k.", 50);
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+        "Number of threads of the range queries on a columnar window, instead of the M-tree index (-1 = as many as processors, 0 = use the M-tree).", 0, -1, Integer.MAX_VALUE);
     public IntOption queryFreqOption = new IntOption("queryFreq", 'q', "Query frequency.", 1);
     public FloatOption pOption = new FloatOption("p", 'p', "Parameter p.", 0.1);
     
@@ -120,8 +123,11 @@ public class ApproxSTORM extends STORMBase {
         objId = FIRST_OBJ_ID; // init object identifier
         // create fifo
         windowNodes = new Vector<ISBNode>();
-        // create ISB
-        ISB = new ISBIndex(m_radius, m_k);
+        // create ISB, releasing the threads of the previous one
+        if (ISB != null) {
+            ISB.Shutdown();
+        }
+        ISB = new ISBIndex(m_radius, m_k, GetNumberOfJobs(numberOfJobsOption.getValue()));
         // create safe_inliers list
         safe_inliers = new HashSet<ISBNode>();
         
@@ -229,7 +235,60 @@ public class ApproxSTORM extends STORMBase {
         if (bTrace) Println("Perform range query seach:");
         nRangeQueriesExecuted++;
         Vector<ISBIndex.ISBSearchResult> nodes = ISB.RangeSearch(nodeNew, m_radius);
+        ProcessNeighbors(nodeNew, nodes);
 
+        if (bTrace) Println("Insert new node to ISB.");
+        
+        // insert node to ISB
+        ISB.Insert(nodeNew);
+        
+        ProcessInsertedNode(nodeNew);
+    }
+    
+    @Override
+    protected void ProcessNewStreamObjs(List<Instance> insts)
+    {
+        // create the ISB nodes of the slide
+        ArrayList<ISBNodeAppr> nodesNew = new ArrayList<ISBNodeAppr>(insts.size());
+        for (int i = 0; i < insts.size(); i++) {
+            Instance inst = insts.get(i);
+            StreamObj obj = new StreamObj(getInstanceValues(inst));
+            nodesNew.add(new ISBNodeAppr(inst, obj, objId + i, m_k));
+        }
+        
+        // insert the slide to ISB and perform its range queries at once
+        ISB.InsertAll(nodesNew);
+        ArrayList<Vector<ISBSearchResult>> slideResults = ISB.RangeSearch(nodesNew, m_radius);
+        
+        for (int i = 0; i < nodesNew.size(); i++) {
+            if (bShowProgress) ShowProgress("Processed " + objId + " stream objects.");
+            
+            // delete a node if it has expired
+            DeleteExpiredNode();
+            
+            ISBNodeAppr nodeNew = nodesNew.get(i);
+            if (bTrace) {
+                Println("\n- - - - - - - - - - - -\n");
+                Print("New obj: ");
+                PrintNode(nodeNew);
+            }
+            
+            // update object identifier
+            objId++;
+            
+            // init nodeNew
+            nodeNew.count_after = 1L;
+            nodeNew.count_before = 0L;
+            
+            // neighbors among the nodes in ISB when nodeNew arrived, which
+            // excludes the safe inliers removed by the previous nodes
+            nRangeQueriesExecuted++;
+            ProcessNeighbors(nodeNew, ISB.GetIndexedResults(slideResults.get(i), nodeNew.id - 1));
+            ProcessInsertedNode(nodeNew);
+        }
+    }
+    
+    void ProcessNeighbors(ISBNodeAppr nodeNew, Vector<ISBSearchResult> nodes) {
         // process each returned node
         int nSafeInliers;
         Long count_si_before = 0L;
@@ -280,12 +339,10 @@ public class ApproxSTORM extends STORMBase {
             Println("   count_after=" + nodeNew.count_after);
             Println("   count_before=" + nodeNew.count_before);
             Printf("   fract_before=%.3f\n", nodeNew.fract_before);
-            Println("Insert new node to ISB.");
         }
-        
-        // insert node to ISB
-        ISB.Insert(nodeNew);
-        
+    }
+    
+    void ProcessInsertedNode(ISBNodeAppr nodeNew) {
         // insert node at window
         windowNodes.add(nodeNew);
 
@@ -23,6 +23,7 @@ package moa.clusterers.outliers.Angiulli;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 import moa.clusterers.outliers.Angiulli.ISBIndex.ISBNode;
 import moa.clusterers.outliers.Angiulli.ISBIndex.ISBSearchResult;
@@ -90,6 +91,8 @@ public class ExactSTORM extends STORMBase {
     
     public FloatOption radiusOption = new FloatOption("radius", 'r', "Search radius.", 0.1);
     public IntOption kOption = new IntOption("k", 't', "Parameter k.", 50);
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+        "Number of threads of the range queries on a columnar window, instead of the M-tree index (-1 = as many as processors, 0 = use the M-tree).", 0, -1, Integer.MAX_VALUE);
     public IntOption queryFreqOption = new IntOption("queryFreq", 'q', "Query frequency.", 1);
     
     public ExactSTORM()
@@ -153,8 +156,11 @@ public class ExactSTORM extends STORMBase {
         objId = FIRST_OBJ_ID; // init object identifier
         // create fifo
         windowNodes = new Vector<ISBNode>();
-        // create ISB
-        ISB = new ISBIndex(m_radius, m_k);
+        // create ISB, releasing the threads of the previous one
+        if (ISB != null) {
+            ISB.Shutdown();
+        }
+        ISB = new ISBIndex(m_radius, m_k, GetNumberOfJobs(numberOfJobsOption.getValue()));
         
         // init statistics
         m_nBothInlierOutlier = 0;
@@ -220,7 +226,54 @@ public class ExactSTORM extends STORMBase {
         if (bTrace) Println("Perform range query seach:");
         nRangeQueriesExecuted++;
         Vector<ISBIndex.ISBSearchResult> nodes = ISB.RangeSearch(nodeNew, m_radius);
+        ProcessNeighbors(nodeNew, nodes);
 
+        if (bTrace) Println("Insert new node to ISB.");
+        ISB.Insert(nodeNew);
+        
+        ProcessInsertedNode(nodeNew);
+    }
+    
+    @Override
+    protected void ProcessNewStreamObjs(List<Instance> insts)
+    {
+        // create the ISB nodes of the slide
+        ArrayList<ISBNodeExact> nodesNew = new ArrayList<ISBNodeExact>(insts.size());
+        for (int i = 0; i < insts.size(); i++) {
+            Instance inst = insts.get(i);
+            StreamObj obj = new StreamObj(getInstanceValues(inst));
+            nodesNew.add(new ISBNodeExact(inst, obj, objId + i, m_k));
+        }
+        
+        // insert the slide to ISB and perform its range queries at once
+        ISB.InsertAll(nodesNew);
+        ArrayList<Vector<ISBSearchResult>> slideResults = ISB.RangeSearch(nodesNew, m_radius);
+        
+        for (int i = 0; i < nodesNew.size(); i++) {
+            if (bShowProgress) ShowProgress("Processed " + objId + " stream objects.");
+            ISBNodeExact nodeNew = nodesNew.get(i);
+            if (bTrace) {
+                Println("\n- - - - - - - - - - - -\n");
+                Print("New obj: ");
+                PrintNode(nodeNew);
+            }
+            // update object identifier
+            objId++;
+            
+            // delete a node if it has expired
+            DeleteExpiredNode();
+            
+            // init nodeNew
+            nodeNew.count_after = 1;
+            
+            // neighbors among the nodes in ISB when nodeNew arrived
+            nRangeQueriesExecuted++;
+            ProcessNeighbors(nodeNew, ISB.GetIndexedResults(slideResults.get(i), nodeNew.id - 1));
+            ProcessInsertedNode(nodeNew);
+        }
+    }
+    
+    void ProcessNeighbors(ISBNodeExact nodeNew, Vector<ISBSearchResult> nodes) {
         // process each returned node
         for (ISBSearchResult res : nodes) {
             ISBNodeExact n = (ISBNodeExact) res.node;
@@ -232,10 +285,9 @@ public class ExactSTORM extends STORMBase {
             n.count_after++;            
             nodeNew.AddPrecNeigh(res.node.id);
         }
-
-        if (bTrace) Println("Insert new node to ISB.");
-        ISB.Insert(nodeNew);
-        
+    }
+    
+    void ProcessInsertedNode(ISBNodeExact nodeNew) {
         // insert node at window
         windowNodes.add(nodeNew);
         if (bTrace) PrintWindow();
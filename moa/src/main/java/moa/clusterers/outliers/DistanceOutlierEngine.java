@@ -0,0 +1,443 @@
+/*
+ *    DistanceOutlierEngine.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.clusterers.outliers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
+
+/**
+ * Window of the objects of a distance-based outlier detector, which answers
+ * the range queries of the detector on several threads.
+ *
+ * The coordinates of the objects are kept in a columnar buffer, one array per
+ * dimension in order of id, and a range query scans the whole window:
+ * the window is split into blocks that fork-join tasks scan for all the
+ * queries of a slide at once. Unlike a metric tree the scan needs no
+ * rebalancing on insertion and removal, and its cost is spread over the
+ * threads, so it suits large windows on multi-core machines.
+ *
+ * The objects are identified by ids, which usually increase in order of
+ * insertion: an object with a smaller id than the newest one is inserted at
+ * its place in the window, at the cost of shifting the newer objects. The
+ * oldest objects are expected to be removed first, but any object can be
+ * removed. The pool of the range queries is shut down with shutdown(). The
+ * distances are those of
+ * {@link moa.clusterers.outliers.utils.mtree.DistanceFunctions#euclidean},
+ * and the neighbours of a query are sorted by distance and then by id, so
+ * the results do not depend on the number of threads.
+ *
+ * @param <N> the type of the nodes the detector keeps for its objects
+ *
+ * @version $Revision: 1 $
+ */
+public class DistanceOutlierEngine<N> {
+
+    /**
+     * A node within the range of a query and its distance to the query.
+     */
+    public static class Neighbor<N> {
+
+        public final N node;
+
+        public final double distance;
+
+        public Neighbor(N node, double distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Number of objects of the window scanned by a task.
+     */
+    protected static final int BLOCK_SIZE = 1024;
+
+    protected final int numThreads;
+
+    protected ForkJoinPool pool;
+
+    /**
+     * Coordinates of the objects per dimension, at positions start to end.
+     */
+    protected double[][] columns;
+
+    protected long[] ids = new long[BLOCK_SIZE];
+
+    /**
+     * Nodes of the objects, null once they are removed.
+     */
+    protected Object[] nodes = new Object[BLOCK_SIZE];
+
+    protected int start = 0;
+
+    protected int end = 0;
+
+    protected int numNodes = 0;
+
+    public DistanceOutlierEngine(int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive: " + numThreads);
+        }
+        this.numThreads = numThreads;
+    }
+
+    public int size() {
+        return this.numNodes;
+    }
+
+    /**
+     * Adds an object to the window.
+     *
+     * @param node the node of the object
+     * @param id the id of the object, not in the window
+     * @param coord the coordinates of the object
+     */
+    public void insert(N node, long id, EuclideanCoordinate coord) {
+        if (this.columns == null) {
+            this.columns = new double[coord.dimensions()][this.ids.length];
+        } else if (coord.dimensions() != this.columns.length) {
+            throw new IllegalArgumentException("Expected " + this.columns.length + " dimensions: " + coord.dimensions());
+        }
+        int pos;
+        if (this.end == this.start || id > this.ids[this.end - 1]) {
+            if (this.end == this.ids.length) {
+                makeRoom();
+            }
+            pos = this.end++;
+        } else {
+            pos = insertionPosition(id);
+        }
+        for (int d = 0; d < this.columns.length; d++) {
+            this.columns[d][pos] = coord.get(d);
+        }
+        this.ids[pos] = id;
+        this.nodes[pos] = node;
+        this.numNodes++;
+    }
+
+    /**
+     * Makes room for an object whose id is not after the ids of the window,
+     * reusing the position of a removed object with the same id.
+     *
+     * @return the position of the object
+     */
+    private int insertionPosition(long id) {
+        int pos = Arrays.binarySearch(this.ids, this.start, this.end, id);
+        if (pos >= 0) {
+            if (this.nodes[pos] != null) {
+                throw new IllegalArgumentException("Id already in the window: " + id);
+            }
+            return pos;
+        }
+        pos = -(pos + 1);
+        if (pos == this.start && this.start > 0) {
+            // before the window, where the removed objects were
+            return --this.start;
+        }
+        if (this.end == this.ids.length) {
+            int shift = this.start;
+            makeRoom();
+            pos -= shift;
+        }
+        for (double[] column : this.columns) {
+            System.arraycopy(column, pos, column, pos + 1, this.end - pos);
+        }
+        System.arraycopy(this.ids, pos, this.ids, pos + 1, this.end - pos);
+        System.arraycopy(this.nodes, pos, this.nodes, pos + 1, this.end - pos);
+        this.end++;
+        return pos;
+    }
+
+    /**
+     * Moves the window to the front of the buffer, growing the buffer when
+     * the window fills more than half of it.
+     */
+    private void makeRoom() {
+        int length = this.end - this.start;
+        int capacity = length > this.ids.length / 2 ? 2 * this.ids.length : this.ids.length;
+        if (capacity == this.ids.length) {
+            for (double[] column : this.columns) {
+                System.arraycopy(column, this.start, column, 0, length);
+            }
+            System.arraycopy(this.ids, this.start, this.ids, 0, length);
+            System.arraycopy(this.nodes, this.start, this.nodes, 0, length);
+            Arrays.fill(this.nodes, length, this.end, null);
+        } else {
+            for (int d = 0; d < this.columns.length; d++) {
+                double[] column = new double[capacity];
+                System.arraycopy(this.columns[d], this.start, column, 0, length);
+                this.columns[d] = column;
+            }
+            this.ids = Arrays.copyOfRange(this.ids, this.start, this.start + capacity);
+            this.nodes = Arrays.copyOfRange(this.nodes, this.start, this.start + capacity);
+        }
+        this.start = 0;
+        this.end = length;
+    }
+
+    private int position(long id) {
+        int pos = Arrays.binarySearch(this.ids, this.start, this.end, id);
+        return pos >= 0 && this.nodes[pos] != null ? pos : -1;
+    }
+
+    public boolean contains(long id) {
+        return position(id) >= 0;
+    }
+
+    /**
+     * Removes an object from the window.
+     *
+     * @param id the id of the object
+     * @return whether the object was in the window
+     */
+    public boolean remove(long id) {
+        int pos = position(id);
+        if (pos < 0) {
+            return false;
+        }
+        this.nodes[pos] = null;
+        this.numNodes--;
+        while (this.start < this.end && this.nodes[this.start] == null) {
+            this.start++;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the nodes of the window in order of id.
+     */
+    @SuppressWarnings("unchecked")
+    public List<N> getNodes() {
+        List<N> list = new ArrayList<N>(this.numNodes);
+        for (int pos = this.start; pos < this.end; pos++) {
+            if (this.nodes[pos] != null) {
+                list.add((N) this.nodes[pos]);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Finds the nodes of the window within range of each query.
+     *
+     * @param queries the coordinates of the queries
+     * @param radius the range
+     * @return for each query, its neighbours sorted by distance
+     */
+    @SuppressWarnings("unchecked")
+    public List<List<Neighbor<N>>> rangeSearch(List<? extends EuclideanCoordinate> queries, double radius) {
+        BlockHits[] blocks = scan(queries, radius, false);
+        List<List<Neighbor<N>>> results = new ArrayList<List<Neighbor<N>>>(queries.size());
+        for (int q = 0; q < queries.size(); q++) {
+            List<Neighbor<N>> neighbors = new ArrayList<Neighbor<N>>();
+            for (BlockHits block : blocks) {
+                for (int i = q == 0 ? 0 : block.queryEnds[q - 1]; i < block.queryEnds[q]; i++) {
+                    neighbors.add(new Neighbor<N>((N) this.nodes[block.positions[i]], block.distances[i]));
+                }
+            }
+            // the sort is stable, so the neighbours at equal distances stay in order of id
+            Collections.sort(neighbors, NEIGHBOR_DISTANCE_ORDER);
+            results.add(neighbors);
+        }
+        return results;
+    }
+
+    public List<Neighbor<N>> rangeSearch(EuclideanCoordinate query, double radius) {
+        return rangeSearch(Collections.singletonList(query), radius).get(0);
+    }
+
+    /**
+     * Counts the nodes of the window within range of each query.
+     *
+     * @param queries the coordinates of the queries
+     * @param radius the range
+     * @return the number of neighbours of each query
+     */
+    public int[] rangeCount(List<? extends EuclideanCoordinate> queries, double radius) {
+        int[] counts = new int[queries.size()];
+        for (BlockHits block : scan(queries, radius, true)) {
+            for (int q = 0; q < counts.length; q++) {
+                counts[q] += block.queryEnds[q] - (q == 0 ? 0 : block.queryEnds[q - 1]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Shuts down the pool of the range queries. The window can still be
+     * queried, on a new pool.
+     */
+    public void shutdown() {
+        if (this.pool != null) {
+            this.pool.shutdown();
+            this.pool = null;
+        }
+    }
+
+    private static final Comparator<Neighbor<?>> NEIGHBOR_DISTANCE_ORDER = new Comparator<Neighbor<?>>() {
+        @Override
+        public int compare(Neighbor<?> n1, Neighbor<?> n2) {
+            return Double.compare(n1.distance, n2.distance);
+        }
+    };
+
+    /**
+     * Scans the blocks of the window for the queries, on the pool when there
+     * are several blocks.
+     */
+    private BlockHits[] scan(List<? extends EuclideanCoordinate> queries, double radius, boolean countOnly) {
+        double[][] queryCoords = new double[queries.size()][];
+        for (int q = 0; q < queryCoords.length; q++) {
+            EuclideanCoordinate coord = queries.get(q);
+            queryCoords[q] = new double[coord.dimensions()];
+            for (int d = 0; d < queryCoords[q].length; d++) {
+                queryCoords[q][d] = coord.get(d);
+            }
+        }
+        int numBlocks = (this.end - this.start + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        BlockHits[] blocks = new BlockHits[numBlocks];
+        ScanTask task = new ScanTask(queryCoords, radius, countOnly, blocks, 0, numBlocks);
+        if (this.numThreads == 1 || numBlocks <= 1) {
+            task.compute();
+        } else {
+            if (this.pool == null) {
+                this.pool = new ForkJoinPool(this.numThreads);
+            }
+            this.pool.invoke(task);
+        }
+        return blocks;
+    }
+
+    /**
+     * The neighbours found in a block, query after query.
+     */
+    private static class BlockHits {
+
+        int[] positions = new int[16];
+
+        double[] distances = new double[16];
+
+        int numHits = 0;
+
+        /**
+         * Index after the hits of each query.
+         */
+        final int[] queryEnds;
+
+        BlockHits(int numQueries) {
+            this.queryEnds = new int[numQueries];
+        }
+
+        void add(int position, double distance) {
+            if (this.numHits == this.positions.length) {
+                this.positions = Arrays.copyOf(this.positions, 2 * this.numHits);
+                this.distances = Arrays.copyOf(this.distances, 2 * this.numHits);
+            }
+            this.positions[this.numHits] = position;
+            this.distances[this.numHits] = distance;
+            this.numHits++;
+        }
+    }
+
+    /**
+     * Scans a range of blocks, splitting it in halves until a task has a
+     * single block.
+     */
+    private class ScanTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[][] queryCoords;
+
+        private final double radius;
+
+        private final boolean countOnly;
+
+        private final BlockHits[] blocks;
+
+        private final int fromBlock;
+
+        private final int toBlock;
+
+        ScanTask(double[][] queryCoords, double radius, boolean countOnly,
+                BlockHits[] blocks, int fromBlock, int toBlock) {
+            this.queryCoords = queryCoords;
+            this.radius = radius;
+            this.countOnly = countOnly;
+            this.blocks = blocks;
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.toBlock - this.fromBlock <= 1 || numThreads == 1) {
+                for (int b = this.fromBlock; b < this.toBlock; b++) {
+                    this.blocks[b] = scanBlock(b);
+                }
+            } else {
+                int middle = (this.fromBlock + this.toBlock) >>> 1;
+                invokeAll(new ScanTask(this.queryCoords, this.radius, this.countOnly, this.blocks, this.fromBlock, middle),
+                        new ScanTask(this.queryCoords, this.radius, this.countOnly, this.blocks, middle, this.toBlock));
+            }
+        }
+
+        private BlockHits scanBlock(int b) {
+            int from = start + b * BLOCK_SIZE;
+            int to = Math.min(end, from + BLOCK_SIZE);
+            BlockHits hits = new BlockHits(this.queryCoords.length);
+            double[] sums = new double[to - from];
+            // prunes before taking the square root, with room for its rounding
+            double bound = this.radius * this.radius * (1 + 1e-9);
+            for (int q = 0; q < this.queryCoords.length; q++) {
+                double[] query = this.queryCoords[q];
+                Arrays.fill(sums, 0);
+                // dimension after dimension, which adds up the squares in the order of the M-tree distances
+                for (int d = 0; d < Math.min(query.length, columns.length); d++) {
+                    double[] column = columns[d];
+                    double value = query[d];
+                    for (int i = 0; i < sums.length; i++) {
+                        double diff = value - column[from + i];
+                        sums[i] += diff * diff;
+                    }
+                }
+                for (int i = 0; i < sums.length; i++) {
+                    if (sums[i] <= bound && nodes[from + i] != null) {
+                        double distance = Math.sqrt(sums[i]);
+                        if (distance <= this.radius) {
+                            if (this.countOnly) {
+                                hits.numHits++;
+                            } else {
+                                hits.add(from + i, distance);
+                            }
+                        }
+                    }
+                }
+                hits.queryEnds[q] = hits.numHits;
+            }
+            return hits;
+        }
+    }
+}
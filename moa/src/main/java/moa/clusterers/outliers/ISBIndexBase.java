@@ -0,0 +1,284 @@
+/*
+ *    ISBIndexBase.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.clusterers.outliers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
+import moa.clusterers.outliers.utils.mtree.MTree;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Index of the nodes in the window of a distance-based outlier detector,
+ * shared by the ISBIndex of the detectors.
+ *
+ * The objects of the nodes are kept in an mtree, with a map from the objects
+ * to the nodes referencing them, or, when the index is created with threads,
+ * in a {@link DistanceOutlierEngine} that answers the range searches on those
+ * threads. Both give the same nodes for a search. The threads of the engine
+ * are released by Shutdown, when the detector replaces the index.
+ *
+ * @param <O> the type of the objects of the stream
+ * @param <N> the type of the nodes
+ * @param <R> the type of the search results
+ *
+ * @version $Revision: 1 $
+ */
+public abstract class ISBIndexBase<O extends EuclideanCoordinate, N extends ISBIndexBase.ISBNodeBase<O>, R extends ISBIndexBase.ISBSearchResultBase<N>> {
+
+    /**
+     * Node of an object of the stream, which an index may hold more than
+     * once when objects are repeated.
+     */
+    public static class ISBNodeBase<O> {
+        public Instance inst;
+        public O obj;
+        public Long id;
+
+        // statistics
+        public int nOutlier;
+        public int nInlier;
+
+        public ISBNodeBase(Instance inst, O obj, Long id) {
+            this.inst = inst;
+            this.obj = obj;
+            this.id = id;
+
+            // init statistics
+            nOutlier = 0;
+            nInlier = 0;
+        }
+    }
+
+    public static class ISBSearchResultBase<N> {
+        public N node;
+        public double distance;
+
+        public ISBSearchResultBase(N n, double distance) {
+            this.node = n;
+            this.distance = distance;
+        }
+    }
+
+    protected MTree<O> mtree;
+    protected DistanceOutlierEngine<N> engine;
+    protected Map<Integer, Set<N>> mapNodes;
+
+    /**
+     * Creates an index that keeps the nodes in a columnar window and answers
+     * the range searches on numThreads threads if numThreads is positive, and
+     * in the mtree otherwise.
+     */
+    protected ISBIndexBase(MTree<O> mtree, int numThreads) {
+        this.mtree = mtree;
+        this.mapNodes = new HashMap<Integer, Set<N>>();
+        if (numThreads > 0) {
+            this.engine = new DistanceOutlierEngine<N>(numThreads);
+        }
+    }
+
+    protected abstract R NewSearchResult(N node, double distance);
+
+    /**
+     * Releases the threads of the range searches. The index is not used
+     * afterwards.
+     */
+    public void Shutdown() {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    public Vector<N> GetAllNodes() {
+        if (engine != null) {
+            return new Vector<N>(engine.getNodes());
+        }
+        Vector<N> v = new Vector<N>();
+        for (Set<N> setNodes : mapNodes.values()) {
+            v.addAll(setNodes);
+        }
+        return v;
+    }
+
+    public Vector<R> RangeSearch(N node, double radius) {
+        if (engine != null) {
+            return GetSearchResults(engine.rangeSearch(node.obj, radius));
+        }
+        Vector<R> results = new Vector<R>();
+        // execute range search at mtree
+        for (MTree<O>.ResultItem q : mtree.getNearestByRange(node.obj, radius)) {
+            // get all nodes referencing obj found within range
+            for (N n : MapGetNodes(q.data)) {
+                results.add(NewSearchResult(n, q.distance));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Performs the range searches of the nodes of a slide with one traversal
+     * of the mtree. The results of each node are those of RangeSearch on the
+     * index as it is now, so they are narrowed down to the index of a later
+     * time by GetIndexedResults.
+     */
+    public ArrayList<Vector<R>> RangeSearch(List<? extends N> nodes, double radius) {
+        ArrayList<O> objs = new ArrayList<O>(nodes.size());
+        for (N node : nodes) {
+            objs.add(node.obj);
+        }
+        if (engine != null) {
+            List<List<DistanceOutlierEngine.Neighbor<N>>> neighbors = engine.rangeSearch(objs, radius);
+            ArrayList<Vector<R>> results = new ArrayList<Vector<R>>(neighbors.size());
+            for (List<DistanceOutlierEngine.Neighbor<N>> n : neighbors) {
+                results.add(GetSearchResults(n));
+            }
+            return results;
+        }
+        List<List<MTree<O>.ResultItem>> queries = mtree.getNearestByRange(objs, radius);
+        ArrayList<Vector<R>> results = new ArrayList<Vector<R>>(queries.size());
+        for (List<MTree<O>.ResultItem> query : queries) {
+            Vector<R> result = new Vector<R>();
+            for (MTree<O>.ResultItem q : query) {
+                // get all nodes referencing obj
+                for (N n : MapGetNodes(q.data)) {
+                    result.add(NewSearchResult(n, q.distance));
+                }
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Gets the results of a slide search whose nodes are still in the index
+     * and arrived up to node maxId, which are the results RangeSearch would
+     * give at this time if the nodes after maxId were not inserted yet.
+     */
+    public Vector<R> GetIndexedResults(Vector<R> results, long maxId) {
+        Vector<R> indexedResults = new Vector<R>(results.size());
+        for (R res : results) {
+            if ((res.node.id <= maxId) && Contains(res.node))
+                indexedResults.add(res);
+        }
+        return indexedResults;
+    }
+
+    protected Vector<R> GetSearchResults(List<DistanceOutlierEngine.Neighbor<N>> neighbors) {
+        Vector<R> results = new Vector<R>(neighbors.size());
+        for (DistanceOutlierEngine.Neighbor<N> n : neighbors) {
+            results.add(NewSearchResult(n.node, n.distance));
+        }
+        return results;
+    }
+
+    public void InsertAll(List<? extends N> nodes) {
+        if (engine != null) {
+            for (N node : nodes) {
+                Insert(node);
+            }
+            return;
+        }
+        ArrayList<O> objs = new ArrayList<O>(nodes.size());
+        for (N node : nodes) {
+            objs.add(node.obj);
+        }
+        // insert objects of nodes at mtree
+        mtree.addAll(objs);
+        // insert nodes at map
+        for (N node : nodes) {
+            MapInsert(node);
+        }
+    }
+
+    public boolean Contains(N node) {
+        if (engine != null) {
+            return engine.contains(node.id);
+        }
+        Set<N> s = mapNodes.get(node.obj.hashCode());
+        return (s != null) && s.contains(node);
+    }
+
+    public void Insert(N node) {
+        if (engine != null) {
+            engine.insert(node, node.id, node.obj);
+            return;
+        }
+        // insert object of node at mtree
+        mtree.add(node.obj);
+        // insert node at map
+        MapInsert(node);
+    }
+
+    public void Remove(N node) {
+        if (engine != null) {
+            engine.remove(node.id);
+            return;
+        }
+        // remove from map
+        MapDelete(node);
+        // check if stream object at mtree is still being referenced
+        if (MapCountObjRefs(node.obj) <= 0) {
+            // delete stream object from mtree
+            mtree.remove(node.obj);
+        }
+    }
+
+    protected Vector<N> MapGetNodes(O obj) {
+        Vector<N> v = new Vector<N>();
+        Set<N> s = mapNodes.get(obj.hashCode());
+        if (s != null) {
+            for (N node : s) {
+                if (node.obj.equals(obj))
+                    v.add(node);
+            }
+        }
+        return v;
+    }
+
+    protected int MapCountObjRefs(O obj) {
+        return MapGetNodes(obj).size();
+    }
+
+    protected void MapInsert(N node) {
+        int h = node.obj.hashCode();
+        Set<N> s = mapNodes.get(h);
+        if (s == null) {
+            s = new HashSet<N>();
+            mapNodes.put(h, s);
+        }
+        s.add(node);
+    }
+
+    protected void MapDelete(N node) {
+        int h = node.obj.hashCode();
+        Set<N> s = mapNodes.get(h);
+        if (s != null) {
+            s.remove(node);
+            if (s.isEmpty()) {
+                mapNodes.remove(h);
+            }
+        }
+    }
+}
@@ -40,6 +40,8 @@ import com.yahoo.labs.samoa.instances.Instance;
 public class MCOD extends MCODBase {
     public FloatOption radiusOption = new FloatOption("radius", 'r', "Search radius.", 0.1);
     public IntOption kOption = new IntOption("k", 't', "Parameter k.", 50);
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+        "Number of threads of the range queries on a columnar window, instead of the M-tree index (-1 = as many as processors, 0 = use the M-tree).", 0, -1, Integer.MAX_VALUE);
     
     public MCOD()
     {
@@ -65,8 +67,11 @@ public class MCOD extends MCODBase {
         objId = FIRST_OBJ_ID; // init object identifier
         // create nodes list of window
         windowNodes = new Vector<ISBNode>();
-        // create ISB
-        ISB_PD = new ISBIndex(m_radius, m_k);
+        // create ISB, releasing the threads of the previous one
+        if (ISB_PD != null) {
+            ISB_PD.Shutdown();
+        }
+        ISB_PD = new ISBIndex(m_radius, m_k, GetNumberOfJobs(numberOfJobsOption.getValue()));
         // create helper sets for micro-cluster management
         setMC = new TreeSet<MicroCluster>();
         // micro-cluster index
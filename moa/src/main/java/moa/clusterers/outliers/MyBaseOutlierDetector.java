@@ -23,6 +23,8 @@ package moa.clusterers.outliers;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
@@ -74,6 +76,7 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
     }
     
     public IntOption windowSizeOption = new IntOption("windowSize", 'w', "Size of the window.", 1000);
+    public IntOption slideSizeOption = new IntOption("slideSize", 's', "Number of objects the window slides by at once.", 1, 1, Integer.MAX_VALUE);
     
     public OutlierNotifier outlierNotifier = null;   
     
@@ -86,7 +89,9 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
     private Clustering myClusters = null;
     private TreeSet<Outlier> outliersFound;
     private Long m_timePreObjSum;
+    private int m_timePreObjStart;
     private int nProcessed;
+    private ArrayList<Instance> slideInstances;
     private static final int m_timePreObjInterval = 100;
     
     protected void UpdateMaxMemUsage() {
@@ -134,8 +139,10 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
         outliersFound = new TreeSet<Outlier>();
         
         m_timePreObjSum = 0L;
+        m_timePreObjStart = 0;
         nProcessed = 0;
         nTimePerObj = 0L;
+        slideInstances = new ArrayList<Instance>();
         
         StdPrintMsg printer = new StdPrintMsg();
         printer.RedirectToDisplay();
@@ -148,7 +155,31 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
     
     @Override
     public void trainOnInstanceImpl(Instance inst) {
-        processNewInstanceImpl(inst);
+        if (slideSizeOption.getValue() <= 1) {
+            processNewInstanceImpl(inst);
+            return;
+        }
+        // the window slides when the objects of a whole slide have arrived
+        slideInstances.add(inst);
+        if (slideInstances.size() >= slideSizeOption.getValue()) {
+            ProcessPendingObjs();
+        }
+    }
+    
+    /**
+     * Processes the objects received since the last slide, so that the
+     * outliers read include every object received. Called before the
+     * outliers are read, as an incomplete slide is never processed otherwise.
+     */
+    protected void ProcessPendingObjs() {
+        if (slideInstances == null || slideInstances.isEmpty()) {
+            return;
+        }
+        // the pending objects are taken first, in case the outliers are read
+        // while they are processed
+        List<Instance> insts = new ArrayList<Instance>(slideInstances);
+        slideInstances.clear();
+        processNewInstancesImpl(insts);
     }
     
     public void processNewInstanceImpl(Instance inst) {        
@@ -159,14 +190,45 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
         UpdateMaxMemUsage();
         nTotalRunTime += (System.nanoTime() - nsNow) / (1024 * 1024);
         
+        UpdateTimePerObj(System.nanoTime() - nsNow, 1);
+    }
+    
+    /**
+     * Processes the objects of a window slide at once, which gives the same
+     * outliers as processing them one by one.
+     * 
+     * @param insts the objects of the slide, in order of arrival
+     */
+    public void processNewInstancesImpl(List<Instance> insts) {
+        Long nsNow = System.nanoTime(); 
+        
+        ProcessNewStreamObjs(insts);
+        
+        UpdateMaxMemUsage();
+        nTotalRunTime += (System.nanoTime() - nsNow) / (1024 * 1024);
+        
+        UpdateTimePerObj(System.nanoTime() - nsNow, insts.size());
+    }
+    
+    /**
+     * Gets the number of threads of a numberOfJobs option value, where -1
+     * stands for the number of processors.
+     */
+    protected static int GetNumberOfJobs(int numberOfJobs) {
+        return numberOfJobs == -1 ? Runtime.getRuntime().availableProcessors() : numberOfJobs;
+    }
+    
+    private void UpdateTimePerObj(long ns, int nObjs) {
         // update process time per object   
-        nProcessed++;
-        m_timePreObjSum += System.nanoTime() - nsNow;
-        if (nProcessed % m_timePreObjInterval == 0) {           
-            nTimePerObj = ((double) m_timePreObjSum) / ((double) m_timePreObjInterval);
+        int nBefore = nProcessed;
+        nProcessed += nObjs;
+        m_timePreObjSum += ns;
+        if (nProcessed / m_timePreObjInterval > nBefore / m_timePreObjInterval) {           
+            nTimePerObj = ((double) m_timePreObjSum) / ((double) (nProcessed - m_timePreObjStart));
             if (bShowProgress) ShowTimePerObj();
             // init
             m_timePreObjSum = 0L;
+            m_timePreObjStart = nProcessed;
         }
     }
     
@@ -179,6 +241,12 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
         throw new UnsupportedOperationException("Not yet implemented");
     }
     
+    protected void ProcessNewStreamObjs(List<Instance> insts) {
+        for (Instance inst : insts) {
+            ProcessNewStreamObj(inst);
+        }
+    }
+    
     public void PrintOutliers() {        
         Print("Outliers: ");        
         for (Outlier o : outliersFound) {
@@ -188,6 +256,7 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
     }
     
     public Set<Outlier> GetOutliersFound() {
+        ProcessPendingObjs();
         return outliersFound;
     }
     
@@ -197,6 +266,7 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
         
     @Override
     public Clustering getClusteringResult(){
+        ProcessPendingObjs();
         myClusters = new Clustering();
         for (Outlier o : outliersFound) {
             if (IsNodeIdInWin(o.id)) {
@@ -212,6 +282,7 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
     }
     
     public Vector<Outlier> getOutliersResult(){
+        ProcessPendingObjs();
         Vector<Outlier> outliers = new Vector<Outlier>();
         for (Outlier o : outliersFound) {
             if (IsNodeIdInWin(o.id)) {                
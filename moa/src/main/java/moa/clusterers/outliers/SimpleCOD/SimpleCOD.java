@@ -20,6 +20,8 @@
 
 package moa.clusterers.outliers.SimpleCOD;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Vector;
 import moa.clusterers.outliers.SimpleCOD.ISBIndex.ISBNode;
 import moa.clusterers.outliers.SimpleCOD.ISBIndex.ISBSearchResult;
@@ -36,6 +38,8 @@ import com.yahoo.labs.samoa.instances.Instance;
 public class SimpleCOD extends SimpleCODBase {
     public FloatOption radiusOption = new FloatOption("radius", 'r', "Search radius.", 0.1);
     public IntOption kOption = new IntOption("k", 't', "Parameter k.", 50);
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+        "Number of threads of the range queries on a columnar window, instead of the M-tree index (-1 = as many as processors, 0 = use the M-tree).", 0, -1, Integer.MAX_VALUE);
     
     public SimpleCOD()
     {
@@ -61,8 +65,11 @@ public class SimpleCOD extends SimpleCODBase {
         objId = FIRST_OBJ_ID; // init object identifier
         // create nodes list of window
         windowNodes = new Vector<ISBNode>();
-        // create ISB
-        ISB = new ISBIndex(m_radius, m_k);
+        // create ISB, releasing the threads of the previous one
+        if (ISB != null) {
+            ISB.Shutdown();
+        }
+        ISB = new ISBIndex(m_radius, m_k, GetNumberOfJobs(numberOfJobsOption.getValue()));
         // create event queue
         eventQueue = new EventQueue();
         
@@ -79,6 +86,10 @@ public class SimpleCOD extends SimpleCODBase {
         nRangeQueriesExecuted++;
         Vector<ISBSearchResult> resultNodes;
         resultNodes = ISB.RangeSearch(nodeNew, m_radius);
+        ProcessNeighbors(nodeNew, resultNodes);
+    }
+    
+    void ProcessNeighbors(ISBNode nodeNew, Vector<ISBSearchResult> resultNodes) {
         for (ISBSearchResult sr : resultNodes) {
             double distance = sr.distance;
             ISBNode q = sr.node;
@@ -203,4 +214,41 @@ public class SimpleCOD extends SimpleCODBase {
             PrintISB();
         }
     }
+    
+    @Override
+    protected void ProcessNewStreamObjs(List<Instance> insts)
+    {
+        // create the ISB nodes of the slide
+        ArrayList<ISBNode> nodesNew = new ArrayList<ISBNode>(insts.size());
+        for (int i = 0; i < insts.size(); i++) {
+            Instance inst = insts.get(i);
+            StreamObj obj = new StreamObj(getInstanceValues(inst));
+            nodesNew.add(new ISBNode(inst, obj, objId + i));
+        }
+        
+        // insert the slide to ISB index and perform its R range queries at once
+        ISB.InsertAll(nodesNew);
+        ArrayList<Vector<ISBSearchResult>> slideResults = ISB.RangeSearch(nodesNew, m_radius);
+        
+        for (int i = 0; i < nodesNew.size(); i++) {
+            if (bShowProgress) ShowProgress("Processed " + (objId-1) + " stream objects.");
+            ISBNode nodeNew = nodesNew.get(i);
+            if (bTrace) { Println("\n- - - - - - - - - - - -\n"); Print("New node: "); PrintNode(nodeNew); }
+            
+            objId++; // update object identifier (slide window)
+            
+            AddNode(nodeNew); // add nodeNew to window
+            if (bTrace) PrintWindow();
+            
+            // neighbors among the nodes in ISB index when nodeNew arrived
+            nRangeQueriesExecuted++;
+            ProcessNeighbors(nodeNew, ISB.GetIndexedResults(slideResults.get(i), nodeNew.id));
+            ProcessExpiredNode(GetExpiredNode());
+            
+            if (bTrace) {
+                PrintOutliers();
+                PrintISB();
+            }
+        }
+    }
 }
@@ -31,7 +31,10 @@ public class StreamObj implements EuclideanCoordinate, Comparable<StreamObj> {
 
         int h = 1;
         for (double value : values) {
-            h = 31 * (int) h + (int) value;
+            // the values of the streams are mostly within [0, 1), so they are
+            // hashed by their bits rather than by their integer parts
+            long bits = Double.doubleToLongBits(value == 0.0 ? 0.0 : value);
+            h = 31 * h + (int) (bits ^ (bits >>> 32));
         }
         this.hashCode = h;
     }
@@ -16,12 +16,17 @@
 
 package moa.clusterers.outliers.utils.mtree;
 
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
 import moa.clusterers.outliers.utils.mtree.SplitFunction.SplitResult;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.PriorityQueue;
@@ -141,7 +146,7 @@ public class MTree<DATA> {
 					return;
 				}
 				
-				double distance = MTree.this.distanceFunction.calculate(Query.this.data, MTree.this.root.data);
+				double distance = MTree.this.distance(MTree.this.root, Query.this.data, Query.this.coordinates);
 				double minDistance = Math.max(distance - MTree.this.root.radius, 0.0);
 				
 				pendingQueue.add(new ItemWithDistances<Node>(MTree.this.root, distance, minDistance));
@@ -204,7 +209,7 @@ public class MTree<DATA> {
 					
 					for(IndexItem child : node.children.values()) {
 						if(Math.abs(pending.distance - child.distanceToParent) - child.radius <= Query.this.range) {
-							double childDistance = MTree.this.distanceFunction.calculate(Query.this.data, child.data);
+							double childDistance = MTree.this.distance(child, Query.this.data, Query.this.coordinates);
 							double childMinDistance = Math.max(childDistance - child.radius, 0.0);
 							if(childMinDistance <= Query.this.range) {
 								if(child instanceof MTree.Entry) {
@@ -250,6 +255,7 @@ public class MTree<DATA> {
 		
 		private Query(DATA data, double range, int limit) {
 			this.data = data;
+			this.coordinates = coordinatesOf(data);
 			this.range = range;
 			this.limit = limit;
 		}
@@ -262,6 +268,7 @@ public class MTree<DATA> {
 
 		
 		private DATA data;
+		private double[] coordinates;
 		private double range;
 		private int limit;
 	}
@@ -375,6 +382,21 @@ public class MTree<DATA> {
 	}
 
 
+	/**
+	 * Adds and indexes the data objects, in the order of the collection.
+	 * 
+	 * <p>As for {@link #add(Object)}, objects that are already indexed should
+	 * not be added.
+	 * 
+	 * @param data The data objects to index.
+	 */
+	public void addAll(Iterable<? extends DATA> data) {
+		for(DATA item : data) {
+			add(item);
+		}
+	}
+
+
 	/**
 	 * Removes a data object from the M-Tree.
 	 * @param data The data object to be removed.
@@ -410,6 +432,46 @@ public class MTree<DATA> {
 	public Query getNearestByRange(DATA queryData, double range) {
 		return getNearest(queryData, range, Integer.MAX_VALUE);
 	}
+
+	/**
+	 * Performs one nearest-neighbors query constrained by distance for each of
+	 * the query data objects, visiting every node of the M-Tree at most once
+	 * for all of them.
+	 * 
+	 * <p>A node is visited with the queries that can have results in it, and
+	 * the distances from the queries to its routing object prune its children
+	 * as in {@link #getNearestByRange(Object, double)}.
+	 * 
+	 * @param queryData The query data objects.
+	 * @param range     The maximum distance from a query data object to its
+	 *                  fetched neighbors.
+	 * @return For each query data object, in the same order, its neighbors in
+	 *         non-decreasing order of distance.
+	 */
+	public List<List<ResultItem>> getNearestByRange(List<? extends DATA> queryData, double range) {
+		int numQueries = queryData.size();
+		List<List<ResultItem>> results = new ArrayList<List<ResultItem>>(numQueries);
+		for(int i = 0; i < numQueries; i++) {
+			results.add(new ArrayList<ResultItem>());
+		}
+		if(root == null  ||  numQueries == 0) {
+			return results;
+		}
+		
+		BatchQuery query = new BatchQuery(queryData, range, results);
+		int[] queries = new int[numQueries];
+		double[] distances = new double[numQueries];
+		for(int i = 0; i < numQueries; i++) {
+			queries[i] = i;
+			distances[i] = distance(root, query.data.get(i), query.coordinates[i]);
+		}
+		query.search(root, queries, distances, numQueries);
+		
+		for(List<ResultItem> result : results) {
+			Collections.sort(result, resultDistanceOrder);
+		}
+		return results;
+	}
 	
 	
 	/**
@@ -446,20 +508,134 @@ public class MTree<DATA> {
 	}
 	
 	
+	/**
+	 * Checks the invariants of the whole tree, which takes a distance
+	 * computation per indexed object, so it is only done when assertions are
+	 * enabled.
+	 */
 	protected void _check() {
-		if(root != null) {
+		if(root != null  &&  CHECKS_ENABLED) {
 			root._check();
 		}
 	}
+
+
+	private static final boolean CHECKS_ENABLED = MTree.class.desiredAssertionStatus();
+
+
+	private final Comparator<ResultItem> resultDistanceOrder = new Comparator<ResultItem>() {
+		@Override
+		public int compare(ResultItem item1, ResultItem item2) {
+			return Double.compare(item1.distance, item2.distance);
+		}
+	};
+
+
+	/**
+	 * Gets the coordinates of a data object when the distance function is the
+	 * {@linkplain DistanceFunctions#EUCLIDEAN euclidean distance}, or
+	 * {@code null} otherwise.
+	 */
+	private double[] coordinatesOf(DATA data) {
+		if(distanceFunction != DistanceFunctions.EUCLIDEAN  ||  !(data instanceof EuclideanCoordinate)) {
+			return null;
+		}
+		EuclideanCoordinate coord = (EuclideanCoordinate) data;
+		double[] coordinates = new double[coord.dimensions()];
+		for(int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = coord.get(i);
+		}
+		return coordinates;
+	}
+
+
+	/**
+	 * Calculates the distance from a data object to an indexed item, on the
+	 * coordinates kept in primitive arrays when there are any, with the same
+	 * arithmetic as {@link DistanceFunctions#euclidean}.
+	 */
+	private double distance(IndexItem item, DATA data, double[] coordinates) {
+		if(item.coordinates == null  ||  coordinates == null) {
+			return distanceFunction.calculate(data, item.data);
+		}
+		double[] itemCoordinates = item.coordinates;
+		int size = Math.min(coordinates.length, itemCoordinates.length);
+		double distance = 0;
+		for(int i = 0; i < size; i++) {
+			double diff = coordinates[i] - itemCoordinates[i];
+			distance += diff * diff;
+		}
+		return Math.sqrt(distance);
+	}
+
+
+	/**
+	 * The state of a batch of range queries during the traversal of the tree.
+	 */
+	private class BatchQuery {
+		private final List<? extends DATA> data;
+		private final double[][] coordinates;
+		private final double range;
+		private final List<List<ResultItem>> results;
+
+		private BatchQuery(List<? extends DATA> data, double range, List<List<ResultItem>> results) {
+			this.data = data;
+			this.coordinates = new double[data.size()][];
+			for(int i = 0; i < coordinates.length; i++) {
+				coordinates[i] = coordinatesOf(data.get(i));
+			}
+			this.range = range;
+			this.results = results;
+		}
+
+		/**
+		 * Searches a node for the first {@code numActive} queries, given their
+		 * distances to the routing object of the node.
+		 */
+		private void search(Node node, int[] queries, double[] distances, int numActive) {
+			int[] childQueries = null;
+			double[] childDistances = null;
+			for(IndexItem child : node.children.values()) {
+				boolean isEntry = child instanceof MTree.Entry;
+				int numChildActive = 0;
+				for(int j = 0; j < numActive; j++) {
+					if(Math.abs(distances[j] - child.distanceToParent) - child.radius <= range) {
+						int i = queries[j];
+						double childDistance = distance(child, data.get(i), coordinates[i]);
+						if(childDistance - child.radius <= range) {
+							if(isEntry) {
+								results.get(i).add(new ResultItem(child.data, childDistance));
+							} else {
+								if(childQueries == null) {
+									childQueries = new int[numActive];
+									childDistances = new double[numActive];
+								}
+								childQueries[numChildActive] = i;
+								childDistances[numChildActive] = childDistance;
+								numChildActive++;
+							}
+						}
+					}
+				}
+				if(numChildActive > 0) {
+					@SuppressWarnings("unchecked")
+					Node childNode = (Node)child;
+					search(childNode, childQueries, childDistances, numChildActive);
+				}
+			}
+		}
+	}
 	
 
 	private class IndexItem {
 		DATA data;
+		double[] coordinates;
 		protected double radius;
 		double distanceToParent;
 
 		private IndexItem(DATA data) {
 			this.data = data;
+			this.coordinates = coordinatesOf(data);
 			this.radius = 0;
 			this.distanceToParent = -1;
 		}
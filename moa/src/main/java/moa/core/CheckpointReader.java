@@ -0,0 +1,222 @@
+/*
+ *    CheckpointReader.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+import moa.core.CheckpointWriter.ChunkId;
+import moa.core.CheckpointWriter.ChunkReference;
+
+/**
+ * Reads the latest snapshot of a checkpoint file written by CheckpointWriter.
+ *
+ * A block cut short at the end of the file, left by a write that did not
+ * complete, is ignored and the previous snapshot is read.
+ *
+ * @version $Revision: 1 $
+ */
+public class CheckpointReader {
+
+    protected final File file;
+
+    protected final List<ObjectStreamClass> classes = new ArrayList<ObjectStreamClass>();
+
+    protected final Map<ChunkId, byte[]> chunks = new HashMap<ChunkId, byte[]>();
+
+    protected ChunkId root;
+
+    protected long instancesSeen;
+
+    /**
+     * Deserializes a chunk, replacing the references to other chunks by their
+     * objects and the class indices by the classes.
+     */
+    private class ChunkInputStream extends ObjectInputStream {
+
+        public ChunkInputStream(InputStream in) throws IOException {
+            super(in);
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            if (obj instanceof ChunkReference) {
+                return readChunk(new ChunkId(((ChunkReference) obj).id));
+            }
+            return obj;
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException {
+            int index = readInt();
+            if (index < 0 || index >= CheckpointReader.this.classes.size()) {
+                throw new IOException("Unknown class " + index + " in checkpoint " + CheckpointReader.this.file);
+            }
+            return CheckpointReader.this.classes.get(index);
+        }
+    }
+
+    /**
+     * Reads the index of a checkpoint file.
+     *
+     * @param file the checkpoint file
+     * @throws IOException if the file is not a checkpoint or has no snapshot
+     * @throws ClassNotFoundException if a class of the model is not found
+     */
+    public CheckpointReader(File file) throws IOException, ClassNotFoundException {
+        this.file = file;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != CheckpointWriter.MAGIC) {
+                throw new IOException("Not a checkpoint file: " + file);
+            }
+            int version = in.readInt();
+            if (version != CheckpointWriter.VERSION) {
+                throw new IOException("Unsupported checkpoint file version " + version);
+            }
+            byte[] block;
+            while ((block = nextBlock(in)) != null) {
+                readBlock(new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(block))));
+            }
+        } finally {
+            in.close();
+        }
+        if (this.root == null) {
+            throw new IOException("No snapshot in checkpoint file: " + file);
+        }
+    }
+
+    /**
+     * Returns whether a file starts like a checkpoint file.
+     *
+     * @param file the file
+     * @return true if the file is a checkpoint
+     */
+    public static boolean isCheckpoint(File file) {
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                return in.readInt() == CheckpointWriter.MAGIC;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the next block, or returns null at the end of the file or at a
+     * block cut short.
+     */
+    private static byte[] nextBlock(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            byte[] block = new byte[length];
+            in.readFully(block);
+            return block;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private void readBlock(DataInputStream in) throws IOException, ClassNotFoundException {
+        int numClasses = in.readInt();
+        List<ObjectStreamClass> newClasses = new ArrayList<ObjectStreamClass>(numClasses);
+        for (int i = 0; i < numClasses; i++) {
+            String name = in.readUTF();
+            long serialVersionUID = in.readLong();
+            ObjectStreamClass desc = ObjectStreamClass.lookupAny(
+                    Class.forName(name, false, CheckpointReader.class.getClassLoader()));
+            if (desc.getSerialVersionUID() != serialVersionUID) {
+                throw new InvalidClassException(name, "serialVersionUID "
+                        + serialVersionUID + " in checkpoint, "
+                        + desc.getSerialVersionUID() + " in class");
+            }
+            newClasses.add(desc);
+        }
+        int numChunks = in.readInt();
+        Map<ChunkId, byte[]> newChunks = new HashMap<ChunkId, byte[]>(numChunks);
+        for (int i = 0; i < numChunks; i++) {
+            byte[] id = new byte[CheckpointWriter.ID_LENGTH];
+            in.readFully(id);
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            newChunks.put(new ChunkId(id), data);
+        }
+        in.readLong(); // number of the snapshot
+        long newInstancesSeen = in.readLong();
+        byte[] newRoot = new byte[CheckpointWriter.ID_LENGTH];
+        in.readFully(newRoot);
+        // The block is complete
+        this.classes.addAll(newClasses);
+        this.chunks.putAll(newChunks);
+        this.instancesSeen = newInstancesSeen;
+        this.root = new ChunkId(newRoot);
+    }
+
+    /**
+     * Returns the number of instances the model of the latest snapshot was
+     * trained on.
+     *
+     * @return the number of instances
+     */
+    public long getInstancesSeen() {
+        return this.instancesSeen;
+    }
+
+    /**
+     * Reads the model of the latest snapshot.
+     *
+     * @return the model
+     * @throws IOException if the checkpoint is corrupt
+     */
+    public Object readObject() throws IOException {
+        return readChunk(this.root);
+    }
+
+    private Object readChunk(ChunkId id) throws IOException {
+        byte[] data = this.chunks.get(id);
+        if (data == null) {
+            throw new IOException("Missing chunk in checkpoint " + this.file);
+        }
+        ChunkInputStream in = new ChunkInputStream(new ByteArrayInputStream(data));
+        try {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Class not found in checkpoint " + this.file, e);
+        } finally {
+            in.close();
+        }
+    }
+}
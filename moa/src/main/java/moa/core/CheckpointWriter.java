@@ -0,0 +1,506 @@
+/*
+ *    CheckpointWriter.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.trees.HoeffdingTree;
+
+/**
+ * Writes snapshots of a model to a checkpoint file, read back by
+ * CheckpointReader.
+ *
+ * The model is split into chunks: every classifier inside the model, such as
+ * the members of an ensemble, and every node of a Hoeffding tree is
+ * serialized on its own and referenced from its parent by the SHA-256 hash of
+ * its bytes. A snapshot only appends to the file the chunks that are not
+ * already in it, so the members and subtrees that did not change since the
+ * previous snapshot are not written again. Classes are written once per file
+ * as an index into a table of class names and serial version UIDs, instead of
+ * a full class descriptor in every chunk.
+ *
+ * The file starts with MAGIC and VERSION, followed by one block per snapshot:
+ * the length of the block, then the deflated new classes, new chunks and the
+ * hash of the root chunk. When the file holds more than twice the bytes of the
+ * latest snapshot, it is rewritten with only that snapshot. The first
+ * snapshot of a writer also rewrites the file, so a file is always replaced
+ * atomically by a complete snapshot.
+ *
+ * If an object other than a string, a boxed primitive or an enum is
+ * referenced from two chunks, the smallest chunk holding both references is
+ * written whole, without chunks inside it, as splitting it would restore two
+ * copies of the object. The rest of the model is still split.
+ *
+ * @version $Revision: 1 $
+ */
+public class CheckpointWriter {
+
+    /**
+     * The first four bytes of a checkpoint file, "MOAK".
+     */
+    public static final int MAGIC = 0x4D4F414B;
+
+    public static final int VERSION = 1;
+
+    /**
+     * The length of the hash identifying a chunk.
+     */
+    public static final int ID_LENGTH = 32;
+
+    /**
+     * The hash of the bytes of a chunk.
+     */
+    static final class ChunkId {
+
+        final byte[] bytes;
+
+        ChunkId(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ChunkId && Arrays.equals(this.bytes, ((ChunkId) obj).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(this.bytes);
+        }
+    }
+
+    /**
+     * Stands for a chunk in the bytes of its parent.
+     */
+    static final class ChunkReference implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final byte[] id;
+
+        ChunkReference(byte[] id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * The chunks of the snapshot being written.
+     */
+    private class Snapshot {
+
+        /**
+         * The bytes of the chunks, children before parents.
+         */
+        final Map<ChunkId, byte[]> chunks = new LinkedHashMap<ChunkId, byte[]>();
+
+        /**
+         * The chunk of every object written, to detect shared objects.
+         */
+        final Map<Object, ChunkOutputStream> owners = new IdentityHashMap<Object, ChunkOutputStream>();
+
+        /**
+         * The roots of the chunks written whole.
+         */
+        final Set<Object> unsplit;
+
+        /**
+         * The roots of the smallest chunks holding both references to an
+         * object shared between chunks.
+         */
+        final Set<Object> sharingChunks = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+        Snapshot(Set<Object> unsplit) {
+            this.unsplit = unsplit;
+        }
+
+        ChunkId writeRoot(Object obj) throws IOException {
+            return writeChunk(obj, null);
+        }
+
+        ChunkId writeChunk(Object obj, ChunkOutputStream parent) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ChunkOutputStream out = new ChunkOutputStream(bytes, obj, parent, this);
+            if (parent == null) {
+                this.owners.put(obj, out);
+            }
+            out.writeObject(obj);
+            out.close();
+            byte[] data = bytes.toByteArray();
+            ChunkId id = new ChunkId(CheckpointWriter.this.digest.digest(data));
+            this.chunks.put(id, data);
+            return id;
+        }
+
+        long numBytes() {
+            long numBytes = 0;
+            for (byte[] data : this.chunks.values()) {
+                numBytes += data.length;
+            }
+            return numBytes;
+        }
+    }
+
+    /**
+     * Serializes a chunk, replacing the chunks it contains by references and
+     * its classes by their index in the class table.
+     */
+    private class ChunkOutputStream extends ObjectOutputStream {
+
+        protected final Object root;
+
+        /**
+         * The stream of the chunk holding this one, null for the root chunk.
+         */
+        protected final ChunkOutputStream parent;
+
+        protected final Snapshot snapshot;
+
+        protected final boolean split;
+
+        public ChunkOutputStream(OutputStream out, Object root, ChunkOutputStream parent,
+                Snapshot snapshot) throws IOException {
+            super(out);
+            this.root = root;
+            this.parent = parent;
+            this.snapshot = snapshot;
+            this.split = !snapshot.unsplit.contains(root);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            if (obj == this.root || isImmutable(obj)) {
+                return obj;
+            }
+            ChunkOutputStream owner = this.snapshot.owners.put(obj, this);
+            if (owner != null && owner != this) {
+                this.snapshot.sharingChunks.add(commonAncestor(owner).root);
+            }
+            if (this.split && isChunk(obj)) {
+                return new ChunkReference(this.snapshot.writeChunk(obj, this).bytes);
+            }
+            return obj;
+        }
+
+        /**
+         * Returns the innermost chunk holding both this chunk and another one.
+         */
+        private ChunkOutputStream commonAncestor(ChunkOutputStream other) {
+            Set<ChunkOutputStream> ancestors = Collections.newSetFromMap(
+                    new IdentityHashMap<ChunkOutputStream, Boolean>());
+            for (ChunkOutputStream chunk = this; chunk != null; chunk = chunk.parent) {
+                ancestors.add(chunk);
+            }
+            ChunkOutputStream chunk = other;
+            while (!ancestors.contains(chunk)) {
+                chunk = chunk.parent;
+            }
+            return chunk;
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+            writeInt(classIndex(desc));
+        }
+    }
+
+    protected final File file;
+
+    protected final MessageDigest digest;
+
+    /**
+     * The classes written in chunks, by name, with their index in the table.
+     */
+    protected final Map<String, Integer> classIndices = new HashMap<String, Integer>();
+
+    protected final List<ObjectStreamClass> classes = new ArrayList<ObjectStreamClass>();
+
+    /**
+     * The number of entries of the class table that are in the file.
+     */
+    protected int numClassesWritten;
+
+    /**
+     * The chunks in the file, none before the first snapshot.
+     */
+    protected final Set<ChunkId> writtenChunks = new HashSet<ChunkId>();
+
+    /**
+     * The number of bytes of the chunks in the file.
+     */
+    protected long writtenChunkBytes;
+
+    protected long numSnapshots;
+
+    protected ExecutorService executor;
+
+    protected Future<?> pendingWrite;
+
+    /**
+     * Creates a writer, the first snapshot replacing the file if it exists.
+     *
+     * @param file the checkpoint file
+     */
+    public CheckpointWriter(File file) {
+        this.file = file;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available.", e);
+        }
+    }
+
+    /**
+     * Returns whether an object is serialized in a chunk of its own.
+     *
+     * @param obj the object
+     * @return true for classifiers and the nodes of Hoeffding trees
+     */
+    protected boolean isChunk(Object obj) {
+        return obj instanceof Classifier || obj instanceof HoeffdingTree.Node;
+    }
+
+    private static boolean isImmutable(Object obj) {
+        return obj instanceof String || obj instanceof Enum
+                || obj instanceof Integer || obj instanceof Long
+                || obj instanceof Double || obj instanceof Float
+                || obj instanceof Short || obj instanceof Byte
+                || obj instanceof Boolean || obj instanceof Character;
+    }
+
+    private int classIndex(ObjectStreamClass desc) {
+        Integer index = this.classIndices.get(desc.getName());
+        if (index == null) {
+            index = this.classes.size();
+            this.classes.add(desc);
+            this.classIndices.put(desc.getName(), index);
+        }
+        return index;
+    }
+
+    /**
+     * Writes a snapshot of a model.
+     *
+     * @param model the model
+     * @param instancesSeen the number of instances the model was trained on
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void write(Object model, long instancesSeen) throws IOException {
+        // The chunks holding shared objects are written whole in the next try
+        Set<Object> unsplit = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        Snapshot snapshot = new Snapshot(unsplit);
+        ChunkId root = snapshot.writeRoot(model);
+        while (!snapshot.sharingChunks.isEmpty()) {
+            unsplit.addAll(snapshot.sharingChunks);
+            snapshot = new Snapshot(unsplit);
+            root = snapshot.writeRoot(model);
+        }
+        long liveBytes = snapshot.numBytes();
+        long newBytes = 0;
+        for (Map.Entry<ChunkId, byte[]> chunk : snapshot.chunks.entrySet()) {
+            if (!this.writtenChunks.contains(chunk.getKey())) {
+                newBytes += chunk.getValue().length;
+            }
+        }
+        if (this.numSnapshots == 0 || this.writtenChunkBytes + newBytes > 2 * liveBytes) {
+            rewrite(snapshot, root, instancesSeen);
+        } else {
+            append(snapshot, root, instancesSeen);
+        }
+        this.numSnapshots++;
+    }
+
+    private void rewrite(Snapshot snapshot, ChunkId root, long instancesSeen) throws IOException {
+        File tmpFile = new File(this.file.getPath() + ".tmp");
+        FileOutputStream fileOut = new FileOutputStream(tmpFile);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeBlock(out, 0, snapshot.chunks, root, instancesSeen);
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            fileOut.close();
+        }
+        try {
+            Files.move(tmpFile.toPath(), this.file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        this.numClassesWritten = this.classes.size();
+        this.writtenChunks.clear();
+        this.writtenChunks.addAll(snapshot.chunks.keySet());
+        this.writtenChunkBytes = snapshot.numBytes();
+    }
+
+    private void append(Snapshot snapshot, ChunkId root, long instancesSeen) throws IOException {
+        Map<ChunkId, byte[]> newChunks = new LinkedHashMap<ChunkId, byte[]>();
+        for (Map.Entry<ChunkId, byte[]> chunk : snapshot.chunks.entrySet()) {
+            if (!this.writtenChunks.contains(chunk.getKey())) {
+                newChunks.put(chunk.getKey(), chunk.getValue());
+            }
+        }
+        FileOutputStream fileOut = new FileOutputStream(this.file, true);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            writeBlock(out, this.numClassesWritten, newChunks, root, instancesSeen);
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            fileOut.close();
+        }
+        this.numClassesWritten = this.classes.size();
+        for (Map.Entry<ChunkId, byte[]> chunk : newChunks.entrySet()) {
+            this.writtenChunks.add(chunk.getKey());
+            this.writtenChunkBytes += chunk.getValue().length;
+        }
+    }
+
+    private void writeBlock(DataOutputStream out, int firstClass, Map<ChunkId, byte[]> chunks,
+            ChunkId root, long instancesSeen) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater();
+        DataOutputStream block = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 1 << 16));
+        block.writeInt(this.classes.size() - firstClass);
+        for (int i = firstClass; i < this.classes.size(); i++) {
+            block.writeUTF(this.classes.get(i).getName());
+            block.writeLong(this.classes.get(i).getSerialVersionUID());
+        }
+        block.writeInt(chunks.size());
+        for (Map.Entry<ChunkId, byte[]> chunk : chunks.entrySet()) {
+            block.write(chunk.getKey().bytes);
+            block.writeInt(chunk.getValue().length);
+            block.write(chunk.getValue());
+        }
+        block.writeLong(this.numSnapshots);
+        block.writeLong(instancesSeen);
+        block.write(root.bytes);
+        block.close();
+        deflater.end();
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Writes a snapshot of a model on a background thread, unless the
+     * previous one is still being written. The model is copied before
+     * returning, so the caller can keep training it. Must be called from a
+     * single thread.
+     *
+     * @param model the model
+     * @param instancesSeen the number of instances the model was trained on
+     * @return whether a snapshot was started
+     */
+    public boolean writeInBackground(Object model, final long instancesSeen) {
+        if (this.pendingWrite != null) {
+            if (!this.pendingWrite.isDone()) {
+                return false;
+            }
+            waitForPendingWrite();
+        }
+        if (this.executor == null) {
+            this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "CheckpointWriter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        final Object copy;
+        try {
+            copy = ObjectCopier.copy((Serializable) model);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed copying model for checkpoint.", e);
+        }
+        this.pendingWrite = this.executor.submit(new Callable<Object>() {
+            @Override
+            public Object call() throws IOException {
+                write(copy, instancesSeen);
+                return null;
+            }
+        });
+        return true;
+    }
+
+    private void waitForPendingWrite() {
+        Future<?> pending = this.pendingWrite;
+        this.pendingWrite = null;
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while writing checkpoint " + this.file, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed writing checkpoint " + this.file, e.getCause());
+        }
+    }
+
+    /**
+     * Waits for the snapshot being written in the background and stops the
+     * background thread.
+     */
+    public void close() {
+        try {
+            if (this.pendingWrite != null) {
+                waitForPendingWrite();
+            }
+        } finally {
+            if (this.executor != null) {
+                this.executor.shutdown();
+                this.executor = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,502 @@
+/*
+ *    ObjectCopier.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.io.Externalizable;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deep copy of object graphs without a serialization round trip.
+ *
+ * The copy is the object that serializing and deserializing the original
+ * would give: the serializable fields are copied, transient fields keep their
+ * default value, the constructor of the first non-serializable superclass is
+ * run, and objects referenced several times are copied once. The fields are
+ * copied directly through reflection, with the way to copy each class worked
+ * out once, which avoids encoding the whole graph into bytes and decoding it
+ * again.
+ *
+ * The classes of MOA are copied field by field, as long as they do not
+ * customize their serialization. Arrays, immutable values, Random and the
+ * common collections of java.util are copied through their public API. If
+ * the graph contains any other object, copy() falls back to serialization.
+ *
+ * @version $Revision: 1 $
+ */
+public final class ObjectCopier {
+
+    /**
+     * Copies the objects of one class.
+     */
+    private static abstract class ClassCopier {
+
+        /**
+         * Copies an object, registering the copy before copying the objects
+         * it references.
+         *
+         * @param obj the object to copy
+         * @param copier the copier holding the copies made so far
+         * @return the copy
+         * @throws Exception if the object cannot be copied
+         */
+        public abstract Object copy(Object obj, ObjectCopier copier) throws Exception;
+    }
+
+    /**
+     * Signals an object that can only be copied through serialization.
+     */
+    public static class UnsupportedClassException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        public UnsupportedClassException(String message) {
+            super(message);
+        }
+    }
+
+    private static final Map<Class<?>, ClassCopier> COPIERS = new ConcurrentHashMap<Class<?>, ClassCopier>();
+
+    private static final ClassCopier SHARED = new ClassCopier() {
+        @Override
+        public Object copy(Object obj, ObjectCopier copier) {
+            return obj;
+        }
+    };
+
+    private static final ClassCopier UNSUPPORTED = new ClassCopier() {
+        @Override
+        public Object copy(Object obj, ObjectCopier copier) throws Exception {
+            throw new UnsupportedClassException("Cannot copy " + obj.getClass().getName());
+        }
+    };
+
+    /**
+     * Copies an object on its own through serialization, for the classes of
+     * java.util that customize their serialization but do not reference
+     * other objects.
+     */
+    private static final ClassCopier SERIALIZED = new ClassCopier() {
+        @Override
+        public Object copy(Object obj, ObjectCopier copier) throws Exception {
+            Object copy = SerializeUtils.copyObject((Serializable) obj);
+            copier.copies.put(obj, copy);
+            return copy;
+        }
+    };
+
+    /**
+     * The factory creating the constructors used by deserialization, or null
+     * if it is not available in this JVM.
+     */
+    private static final Object REFLECTION_FACTORY;
+
+    private static final Method NEW_CONSTRUCTOR_FOR_SERIALIZATION;
+
+    static {
+        Object factory = null;
+        Method method = null;
+        try {
+            Class<?> factoryClass = Class.forName("sun.reflect.ReflectionFactory");
+            factory = factoryClass.getMethod("getReflectionFactory").invoke(null);
+            method = factoryClass.getMethod("newConstructorForSerialization",
+                    Class.class, Constructor.class);
+        } catch (Throwable t) {
+            factory = null;
+            method = null;
+        }
+        REFLECTION_FACTORY = factory;
+        NEW_CONSTRUCTOR_FOR_SERIALIZATION = method;
+    }
+
+    /**
+     * The copies made so far, by original object.
+     */
+    private final Map<Object, Object> copies = new IdentityHashMap<Object, Object>();
+
+    private ObjectCopier() {
+    }
+
+    /**
+     * Makes a deep copy of an object, through serialization if its graph
+     * contains an object that cannot be copied directly.
+     *
+     * @param obj the object to copy
+     * @return the copy
+     * @throws Exception if the object cannot be serialized
+     */
+    public static Object copy(Serializable obj) throws Exception {
+        try {
+            return copyStructurally(obj);
+        } catch (UnsupportedClassException e) {
+            return SerializeUtils.copyObject(obj);
+        }
+    }
+
+    /**
+     * Makes a deep copy of an object without serializing it.
+     *
+     * @param obj the object to copy
+     * @return the copy
+     * @throws UnsupportedClassException if the graph of the object contains an
+     * object that can only be copied through serialization
+     * @throws Exception if the object cannot be copied
+     */
+    public static Object copyStructurally(Object obj) throws Exception {
+        return new ObjectCopier().copyObject(obj);
+    }
+
+    /**
+     * Copies an object of the graph, or returns its copy if it was already
+     * copied.
+     *
+     * @param obj the object to copy
+     * @return the copy
+     * @throws Exception if the object cannot be copied
+     */
+    private Object copyObject(Object obj) throws Exception {
+        if (obj == null) {
+            return null;
+        }
+        Object copy = this.copies.get(obj);
+        if (copy != null) {
+            return copy;
+        }
+        return classCopier(obj.getClass()).copy(obj, this);
+    }
+
+    private static ClassCopier classCopier(Class<?> c) {
+        ClassCopier copier = COPIERS.get(c);
+        if (copier == null) {
+            copier = createClassCopier(c);
+            COPIERS.put(c, copier);
+        }
+        return copier;
+    }
+
+    private static ClassCopier createClassCopier(Class<?> c) {
+        if (c == String.class || c == Integer.class || c == Double.class
+                || c == Long.class || c == Boolean.class || c == Float.class
+                || c == Short.class || c == Byte.class || c == Character.class
+                || c == BigInteger.class || c == BigDecimal.class
+                || c == Class.class || Enum.class.isAssignableFrom(c)) {
+            return SHARED;
+        }
+        if (c.isArray()) {
+            return c.getComponentType().isPrimitive() ? new PrimitiveArrayCopier()
+                    : new ObjectArrayCopier(c.getComponentType());
+        }
+        if (c == Random.class) {
+            return SERIALIZED;
+        }
+        if (c == ArrayList.class || c == LinkedList.class || c == ArrayDeque.class
+                || c == HashSet.class || c == LinkedHashSet.class || c == TreeSet.class) {
+            return new CollectionCopier(c);
+        }
+        if (c == HashMap.class || c == TreeMap.class) {
+            return new MapCopier(c);
+        }
+        if (!Serializable.class.isAssignableFrom(c) || isSystemClass(c)
+                || Externalizable.class.isAssignableFrom(c)) {
+            return UNSUPPORTED;
+        }
+        try {
+            return createFieldCopier(c);
+        } catch (Exception e) {
+            return UNSUPPORTED;
+        }
+    }
+
+    private static boolean isSystemClass(Class<?> c) {
+        String name = c.getName();
+        return name.startsWith("java.") || name.startsWith("javax.")
+                || name.startsWith("jdk.") || name.startsWith("sun.")
+                || name.startsWith("com.sun.");
+    }
+
+    /**
+     * Returns whether a class changes how its objects are serialized.
+     */
+    private static boolean customizesSerialization(Class<?> c) {
+        for (String name : new String[]{"writeObject", "readObject",
+            "readObjectNoData", "writeReplace", "readResolve"}) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (method.getName().equals(name) && !Modifier.isStatic(method.getModifiers())) {
+                    return true;
+                }
+            }
+        }
+        try {
+            c.getDeclaredField("serialPersistentFields");
+            return true;
+        } catch (NoSuchFieldException e) {
+            return false;
+        }
+    }
+
+    private static ClassCopier createFieldCopier(Class<?> c) throws Exception {
+        if (c.isSynthetic()) {
+            return UNSUPPORTED;
+        }
+        List<Field> fields = new ArrayList<Field>();
+        Class<?> superclass = c;
+        while (Serializable.class.isAssignableFrom(superclass)) {
+            if (isSystemClass(superclass)) {
+                // Only the collections with a no-argument constructor can be
+                // filled through their public API
+                if ((superclass == ArrayList.class || superclass == LinkedList.class)
+                        && !hasTransientFields(c, superclass)) {
+                    Constructor<?> constructor = c.getDeclaredConstructor();
+                    constructor.setAccessible(true);
+                    return new CollectionSubclassCopier(constructor, accessibleFields(fields));
+                }
+                return UNSUPPORTED;
+            }
+            if (customizesSerialization(superclass)) {
+                return UNSUPPORTED;
+            }
+            for (Field field : superclass.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                    fields.add(field);
+                }
+            }
+            superclass = superclass.getSuperclass();
+        }
+        if (NEW_CONSTRUCTOR_FOR_SERIALIZATION == null) {
+            return UNSUPPORTED;
+        }
+        Constructor<?> constructor = (Constructor<?>) NEW_CONSTRUCTOR_FOR_SERIALIZATION.invoke(
+                REFLECTION_FACTORY, c, superclass.getDeclaredConstructor());
+        constructor.setAccessible(true);
+        return new FieldCopier(constructor, accessibleFields(fields));
+    }
+
+    private static boolean hasTransientFields(Class<?> c, Class<?> stop) {
+        for (Class<?> superclass = c; superclass != stop; superclass = superclass.getSuperclass()) {
+            for (Field field : superclass.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && Modifier.isTransient(modifiers)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Field[] accessibleFields(List<Field> fields) {
+        for (Field field : fields) {
+            field.setAccessible(true);
+        }
+        return fields.toArray(new Field[fields.size()]);
+    }
+
+    /**
+     * Copies the fields of an object into another.
+     */
+    private void copyFields(Field[] fields, Object obj, Object copy) throws Exception {
+        for (Field field : fields) {
+            Class<?> type = field.getType();
+            if (!type.isPrimitive()) {
+                field.set(copy, copyObject(field.get(obj)));
+            } else if (type == double.class) {
+                field.setDouble(copy, field.getDouble(obj));
+            } else if (type == int.class) {
+                field.setInt(copy, field.getInt(obj));
+            } else if (type == long.class) {
+                field.setLong(copy, field.getLong(obj));
+            } else if (type == boolean.class) {
+                field.setBoolean(copy, field.getBoolean(obj));
+            } else if (type == float.class) {
+                field.setFloat(copy, field.getFloat(obj));
+            } else if (type == short.class) {
+                field.setShort(copy, field.getShort(obj));
+            } else if (type == byte.class) {
+                field.setByte(copy, field.getByte(obj));
+            } else {
+                field.setChar(copy, field.getChar(obj));
+            }
+        }
+    }
+
+    private static class FieldCopier extends ClassCopier {
+
+        protected final Constructor<?> constructor;
+
+        protected final Field[] fields;
+
+        public FieldCopier(Constructor<?> constructor, Field[] fields) {
+            this.constructor = constructor;
+            this.fields = fields;
+        }
+
+        @Override
+        public Object copy(Object obj, ObjectCopier copier) throws Exception {
+            Object copy = this.constructor.newInstance();
+            copier.copies.put(obj, copy);
+            copier.copyFields(this.fields, obj, copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Copies the subclasses of ArrayList and LinkedList, created with their
+     * no-argument constructor and filled with addAll.
+     */
+    private static class CollectionSubclassCopier extends FieldCopier {
+
+        public CollectionSubclassCopier(Constructor<?> constructor, Field[] fields) {
+            super(constructor, fields);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object copy(Object obj, ObjectCopier copier) throws Exception {
+            Collection<Object> copy = (Collection<Object>) this.constructor.newInstance();
+            copier.copies.put(obj, copy);
+            copier.copyFields(this.fields, obj, copy);
+            Collection<?> collection = (Collection<?>) obj;
+            List<Object> elements = new ArrayList<Object>(collection.size());
+            for (Object element : collection) {
+                elements.add(copier.copyObject(element));
+            }
+            copy.addAll(elements);
+            return copy;
+        }
+    }
+
+    private static class PrimitiveArrayCopier extends ClassCopier {
+
+        @Override
+        public Object copy(Object obj, ObjectCopier copier) {
+            int length = Array.getLength(obj);
+            Object copy = Array.newInstance(obj.getClass().getComponentType(), length);
+            System.arraycopy(obj, 0, copy, 0, length);
+            copier.copies.put(obj, copy);
+            return copy;
+        }
+    }
+
+    private static class ObjectArrayCopier extends ClassCopier {
+
+        protected final Class<?> componentType;
+
+        public ObjectArrayCopier(Class<?> componentType) {
+            this.componentType = componentType;
+        }
+
+        @Override
+        public Object copy(Object obj, ObjectCopier copier) throws Exception {
+            Object[] array = (Object[]) obj;
+            Object[] copy = (Object[]) Array.newInstance(this.componentType, array.length);
+            copier.copies.put(obj, copy);
+            for (int i = 0; i < array.length; i++) {
+                copy[i] = copier.copyObject(array[i]);
+            }
+            return copy;
+        }
+    }
+
+    private static class CollectionCopier extends ClassCopier {
+
+        protected final Class<?> collectionClass;
+
+        public CollectionCopier(Class<?> collectionClass) {
+            this.collectionClass = collectionClass;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object copy(Object obj, ObjectCopier copier) throws Exception {
+            Collection<Object> collection = (Collection<Object>) obj;
+            int size = collection.size();
+            Collection<Object> copy;
+            if (this.collectionClass == ArrayList.class) {
+                copy = new ArrayList<Object>(size);
+            } else if (this.collectionClass == LinkedList.class) {
+                copy = new LinkedList<Object>();
+            } else if (this.collectionClass == ArrayDeque.class) {
+                copy = new ArrayDeque<Object>(size);
+            } else if (this.collectionClass == HashSet.class) {
+                copy = new HashSet<Object>(Math.max((int) (size / .75f) + 1, 16));
+            } else if (this.collectionClass == LinkedHashSet.class) {
+                copy = new LinkedHashSet<Object>(Math.max((int) (size / .75f) + 1, 16));
+            } else {
+                TreeSet<Object> set = (TreeSet<Object>) collection;
+                if (set.comparator() != null) {
+                    throw new UnsupportedClassException("Cannot copy TreeSet with comparator");
+                }
+                copy = new TreeSet<Object>();
+            }
+            copier.copies.put(obj, copy);
+            for (Object element : collection) {
+                copy.add(copier.copyObject(element));
+            }
+            return copy;
+        }
+    }
+
+    private static class MapCopier extends ClassCopier {
+
+        protected final Class<?> mapClass;
+
+        public MapCopier(Class<?> mapClass) {
+            this.mapClass = mapClass;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object copy(Object obj, ObjectCopier copier) throws Exception {
+            Map<Object, Object> map = (Map<Object, Object>) obj;
+            Map<Object, Object> copy;
+            if (this.mapClass == HashMap.class) {
+                copy = new HashMap<Object, Object>((int) (map.size() / .75f) + 1);
+            } else {
+                if (((TreeMap<Object, Object>) map).comparator() != null) {
+                    throw new UnsupportedClassException("Cannot copy TreeMap with comparator");
+                }
+                copy = new TreeMap<Object, Object>();
+            }
+            copier.copies.put(obj, copy);
+            for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                copy.put(copier.copyObject(entry.getKey()), copier.copyObject(entry.getValue()));
+            }
+            return copy;
+        }
+    }
+}
@@ -22,7 +22,6 @@ package moa.evaluation;
 import java.util.Arrays;
 
 import moa.core.Example;
-import moa.core.Measurement;
 import com.yahoo.labs.samoa.instances.Instance;
 
 /**
@@ -42,6 +41,14 @@ public class ALWindowClassificationPerformanceEvaluator extends WindowClassifica
 
     private int acquiredInstances;
 
+    /**
+     * Cached names of the measurements, with the names of the superclass
+     * they were built from.
+     */
+    private transient String[] measurementNames;
+
+    private transient String[] superMeasurementNames;
+
    /**
      * Receives the information if a label has been acquired and increases counters.
      *
@@ -76,13 +83,25 @@ public class ALWindowClassificationPerformanceEvaluator extends WindowClassifica
 	}
 
 	@Override
-    public Measurement[] getPerformanceMeasurements() {
-		Measurement[] measurements = super.getPerformanceMeasurements(); 
-		measurements  = Arrays.copyOf(measurements, measurements.length + 2);
-		measurements[measurements.length - 2] = new Measurement("Abs Number of Label Acquisitions", getAbsNumOfAcqInst());
-		measurements[measurements.length - 1] = new Measurement("Rel Number of Label Acquisitions", getRelNumOfAcqInst());
-		return measurements;
-    }
+	public String[] getPerformanceMeasurementNames() {
+		String[] names = super.getPerformanceMeasurementNames();
+		if (this.superMeasurementNames != names) {
+			this.measurementNames = Arrays.copyOf(names, names.length + 2);
+			this.measurementNames[names.length] = "Abs Number of Label Acquisitions";
+			this.measurementNames[names.length + 1] = "Rel Number of Label Acquisitions";
+			this.superMeasurementNames = names;
+		}
+		return this.measurementNames;
+	}
+
+	@Override
+	public double[] getPerformanceMeasurementValues(double[] values) {
+		values = super.getPerformanceMeasurementValues(values);
+		int numMeasurements = getPerformanceMeasurementNames().length;
+		values[numMeasurements - 2] = getAbsNumOfAcqInst();
+		values[numMeasurements - 1] = getRelNumOfAcqInst();
+		return values;
+	}
 	
 	@Override
 	public void reset(int numClasses) {
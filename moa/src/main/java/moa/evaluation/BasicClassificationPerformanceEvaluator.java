@@ -73,6 +73,14 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
 
     private double totalWeightObserved;
 
+    /**
+     * Cached names of the measurements, and the number of classes and options
+     * they were built for.
+     */
+    private transient String[] measurementNames;
+
+    private transient int measurementNamesKey;
+
     public FlagOption precisionRecallOutputOption = new FlagOption("precisionRecallOutput",
             'o',
             "Outputs average precision, recall and F1 scores.");
@@ -163,44 +171,103 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
 
     @Override
     public Measurement[] getPerformanceMeasurements() {
-        ArrayList<Measurement> measurements = new ArrayList<Measurement>();
-        measurements.add(new Measurement("classified instances", this.getTotalWeightObserved()));
-        measurements.add(new Measurement("classifications correct (percent)", this.getFractionCorrectlyClassified() * 100.0));
-        measurements.add(new Measurement("Kappa Statistic (percent)", this.getKappaStatistic() * 100.0));
-        measurements.add(new Measurement("Kappa Temporal Statistic (percent)", this.getKappaTemporalStatistic() * 100.0));
-        measurements.add(new Measurement("Kappa M Statistic (percent)", this.getKappaMStatistic() * 100.0));
-        if (precisionRecallOutputOption.isSet()) 
-            measurements.add(new Measurement("F1 Score (percent)", 
-                    this.getF1Statistic() * 100.0));
+        String[] names = getPerformanceMeasurementNames();
+        double[] values = getPerformanceMeasurementValues(null);
+        Measurement[] measurements = new Measurement[names.length];
+        for (int i = 0; i < names.length; i++) {
+            measurements[i] = new Measurement(names[i], values[i]);
+        }
+        return measurements;
+    }
+
+    /**
+     * Gets the names of the measurements, in the order of
+     * getPerformanceMeasurements. The names are cached for the number of
+     * classes and the options, so the array must not be modified.
+     *
+     * @return the names of the measurements
+     */
+    public String[] getPerformanceMeasurementNames() {
+        int key = (this.numClasses << 4)
+                | (this.precisionRecallOutputOption.isSet() ? 1 : 0)
+                | (this.f1PerClassOption.isSet() ? 2 : 0)
+                | (this.precisionPerClassOption.isSet() ? 4 : 0)
+                | (this.recallPerClassOption.isSet() ? 8 : 0);
+        if (this.measurementNames == null || this.measurementNamesKey != key) {
+            ArrayList<String> names = new ArrayList<String>();
+            names.add("classified instances");
+            names.add("classifications correct (percent)");
+            names.add("Kappa Statistic (percent)");
+            names.add("Kappa Temporal Statistic (percent)");
+            names.add("Kappa M Statistic (percent)");
+            if (precisionRecallOutputOption.isSet())
+                names.add("F1 Score (percent)");
+            if (f1PerClassOption.isSet()) {
+                for (int i = 0; i < this.numClasses; i++) {
+                    names.add("F1 Score for class " + i + " (percent)");
+                }
+            }
+            if (precisionRecallOutputOption.isSet())
+                names.add("Precision (percent)");
+            if (precisionPerClassOption.isSet()) {
+                for (int i = 0; i < this.numClasses; i++) {
+                    names.add("Precision for class " + i + " (percent)");
+                }
+            }
+            if (precisionRecallOutputOption.isSet())
+                names.add("Recall (percent)");
+            if (recallPerClassOption.isSet()) {
+                for (int i = 0; i < this.numClasses; i++) {
+                    names.add("Recall for class " + i + " (percent)");
+                }
+            }
+            this.measurementNames = names.toArray(new String[names.size()]);
+            this.measurementNamesKey = key;
+        }
+        return this.measurementNames;
+    }
+
+    /**
+     * Gets the values of the measurements, in the order of
+     * getPerformanceMeasurementNames, without creating any object when the
+     * given array is long enough.
+     *
+     * @param values the array to fill, or null
+     * @return the given array, or a new one if it was null or too short
+     */
+    public double[] getPerformanceMeasurementValues(double[] values) {
+        int numMeasurements = getPerformanceMeasurementNames().length;
+        if (values == null || values.length < numMeasurements) {
+            values = new double[numMeasurements];
+        }
+        int pos = 0;
+        values[pos++] = this.getTotalWeightObserved();
+        values[pos++] = this.getFractionCorrectlyClassified() * 100.0;
+        values[pos++] = this.getKappaStatistic() * 100.0;
+        values[pos++] = this.getKappaTemporalStatistic() * 100.0;
+        values[pos++] = this.getKappaMStatistic() * 100.0;
+        if (precisionRecallOutputOption.isSet())
+            values[pos++] = this.getF1Statistic() * 100.0;
         if (f1PerClassOption.isSet()) {
             for (int i = 0; i < this.numClasses; i++) {
-                measurements.add(new Measurement("F1 Score for class " + i + 
-                        " (percent)", 100.0 * this.getF1Statistic(i)));
+                values[pos++] = 100.0 * this.getF1Statistic(i);
             }
         }
         if (precisionRecallOutputOption.isSet())
-            measurements.add(new Measurement("Precision (percent)", 
-                this.getPrecisionStatistic() * 100.0));               
+            values[pos++] = this.getPrecisionStatistic() * 100.0;
         if (precisionPerClassOption.isSet()) {
             for (int i = 0; i < this.numClasses; i++) {
-                measurements.add(new Measurement("Precision for class " + i + 
-                        " (percent)", 100.0 * this.getPrecisionStatistic(i)));
+                values[pos++] = 100.0 * this.getPrecisionStatistic(i);
             }
         }
         if (precisionRecallOutputOption.isSet())
-            measurements.add(new Measurement("Recall (percent)", 
-                this.getRecallStatistic() * 100.0));
+            values[pos++] = this.getRecallStatistic() * 100.0;
         if (recallPerClassOption.isSet()) {
             for (int i = 0; i < this.numClasses; i++) {
-                measurements.add(new Measurement("Recall for class " + i + 
-                        " (percent)", 100.0 * this.getRecallStatistic(i)));
+                values[pos++] = 100.0 * this.getRecallStatistic(i);
             }
         }
-
-        Measurement[] result = new Measurement[measurements.size()];
-
-        return measurements.toArray(result);
-
+        return values;
     }
 
     public double getTotalWeightObserved() {
@@ -240,7 +307,7 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
         }
     }
 
-    private double getKappaMStatistic() {
+    public double getKappaMStatistic() {
         if (this.getTotalWeightObserved() > 0.0) {
             double p0 = getFractionCorrectlyClassified();
             double pc = this.weightMajorityClassifier.estimation();
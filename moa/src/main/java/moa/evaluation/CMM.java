@@ -103,6 +103,13 @@ public class CMM extends MeasureCollection{
      * when enabled errors that are caused by the underling cluster model will not be counted
      */
     public boolean enableModelError = true;
+
+    
+    /**
+     * enable/disable the kd-tree knn index of the ground truth analysis
+     * (same results, but avoids scanning all points of a cluster per query)
+     */
+    public boolean useIndex = false;
     
 
     @Override
@@ -126,7 +133,7 @@ public class CMM extends MeasureCollection{
         numPoints = points.size();
         numFClusters = clustering.size();
 
-        gtAnalysis = new CMM_GTAnalysis(trueClustering, points, enableClassMerge);
+        gtAnalysis = new CMM_GTAnalysis(trueClustering, points, enableClassMerge, useIndex);
 
         numGT0Classes = gtAnalysis.getNumberOfGT0Classes();
 
@@ -27,7 +27,6 @@
  * TODO:
  * - try to avoid calcualting the radius multiple times
  * - avoid the full distance map?
- * - knn functionality in clusters
  * - noise error
  */
 
@@ -37,9 +36,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import moa.cluster.Clustering;
-import moa.core.AutoExpandVector;
 import moa.gui.visualization.DataPoint;
-import com.yahoo.labs.samoa.instances.Instance;
 
 public class CMM_GTAnalysis{
 	
@@ -52,6 +49,17 @@ public class CMM_GTAnalysis{
      * list of given points within the horizon  
      */
     private ArrayList<CMMPoint> cmmpoints;
+
+    /**
+     * attribute values of the points, copied once so distances don't copy them
+     */
+    private double[][] coordinates;
+
+    /**
+     * answer the knn queries with a kd-tree per cluster instead of scanning
+     * all points of the cluster
+     */
+    private boolean useIndex;
     
     /**
      * the newly calculate ground truth clustering
@@ -255,6 +263,9 @@ public class CMM_GTAnalysis{
         
         /** connectivity of the cluster to all other clusters */
         private ArrayList<Double> connections = new ArrayList<Double>();
+
+        /** kd-tree over the points, built on the first knn query after a change */
+        private KnnIndex index = null;
         
 
         private GTCluster(int workclass, int label, int gtClusteringID) {
@@ -297,11 +308,11 @@ public class CMM_GTAnalysis{
             for (int p0 : points) {
                 CMMPoint cmdp = cmmpoints.get(p0);
                 if(!cmdp.isNoise()){
-                    AutoExpandVector<Double> knnDist = new AutoExpandVector<Double>();
-                    AutoExpandVector<Integer> knnPointIndex = new AutoExpandVector<Integer>();
+                    ArrayList<Double> knnDist = new ArrayList<Double>(knnNeighbourhood + 1);
+                    ArrayList<Integer> knnPointIndex = new ArrayList<Integer>(knnNeighbourhood + 1);
                     
                     //calculate nearest neighbours 
-                    getKnnInCluster(cmdp, knnNeighbourhood, points, knnDist,knnPointIndex);
+                    getKnnInCluster(cmdp, knnNeighbourhood, this, knnDist,knnPointIndex);
 
                     //TODO: What to do if we have less then k neighbours?
                     double avgKnn = 0;
@@ -340,8 +351,8 @@ public class CMM_GTAnalysis{
                 avgConnection = 1;
             }
             else{
-                AutoExpandVector<Double> kmax = new AutoExpandVector<Double>();
-                AutoExpandVector<Integer> kmaxIndexes = new AutoExpandVector<Integer>();
+                ArrayList<Double> kmax = new ArrayList<Double>();
+                ArrayList<Integer> kmaxIndexes = new ArrayList<Integer>();
 
                 for(int p : points){
                     CMMPoint cmdp = cmmpoints.get(p);
@@ -418,6 +429,7 @@ public class CMM_GTAnalysis{
 
                 //merge points from B into A
                 points.addAll(gtcMerge.points);
+                index = null;
                 clusterRepresentations.addAll(gtcMerge.clusterRepresentations);
                 if(mergedWorkLabels==null){
                     mergedWorkLabels = new ArrayList<Integer>();
@@ -457,6 +469,17 @@ public class CMM_GTAnalysis{
      * @param enableClassMerge allow class merging (should be set to true on default)
      */
     public CMM_GTAnalysis(Clustering trueClustering, ArrayList<DataPoint> points, boolean enableClassMerge){
+        this(trueClustering, points, enableClassMerge, false);
+    }
+
+    /**
+     * @param trueClustering the ground truth clustering
+     * @param points data points
+     * @param enableClassMerge allow class merging (should be set to true on default)
+     * @param useIndex answer the knn queries with a kd-tree per cluster, 
+     * which gives the same distances as scanning the clusters
+     */
+    public CMM_GTAnalysis(Clustering trueClustering, ArrayList<DataPoint> points, boolean enableClassMerge, boolean useIndex){
         if(debug)
             System.out.println("GT Analysis Debug Output");
 
@@ -469,6 +492,7 @@ public class CMM_GTAnalysis{
         lamdaConn = -Math.log(lambdaConnRefXValue)/Math.log(2)/lambdaConnX;
         
         this.gtClustering = trueClustering;
+        this.useIndex = useIndex;
 
         numPoints = points.size();
         numDims = points.get(0).numAttributes()-1;
@@ -501,9 +525,11 @@ public class CMM_GTAnalysis{
 
         //create cmd point wrapper instances
         cmmpoints = new ArrayList<CMMPoint>();
+        coordinates = new double[points.size()][];
         for (int p = 0; p < points.size(); p++) {
             CMMPoint cmdp = new CMMPoint(points.get(p), p);
             cmmpoints.add(cmdp);
+            coordinates[p] = cmdp.toDoubleArray();
         }
 
 
@@ -543,11 +569,11 @@ public class CMM_GTAnalysis{
      */
     //TODO: Cache the connection value for a point to the different clusters???
     protected double getConnectionValue(CMMPoint cmmp, int clusterID){
-        AutoExpandVector<Double> knnDist = new AutoExpandVector<Double>();
-        AutoExpandVector<Integer> knnPointIndex = new AutoExpandVector<Integer>();
+        ArrayList<Double> knnDist = new ArrayList<Double>(knnNeighbourhood + 1);
+        ArrayList<Integer> knnPointIndex = new ArrayList<Integer>(knnNeighbourhood + 1);
         
         //calculate the knn distance of the point to the cluster
-        getKnnInCluster(cmmp, knnNeighbourhood, gt0Clusters.get(clusterID).points, knnDist, knnPointIndex);
+        getKnnInCluster(cmmp, knnNeighbourhood, gt0Clusters.get(clusterID), knnDist, knnPointIndex);
 
         //TODO: What to do if we have less then k neighbors?
         double avgDist = 0;
@@ -588,33 +614,209 @@ public class CMM_GTAnalysis{
     /**
      * @param cmmp point to calculate knn distance for
      * @param k number of nearest neighbors to look for
-     * @param pointIDs list of point IDs to check
+     * @param cluster cluster whose points to check
      * @param knnDist sorted list of smallest knn distances (can already be filled to make updates possible)  
      * @param knnPointIndex list of corresponding knn indices
      */
     private void getKnnInCluster(CMMPoint cmmp, int k,
-                                 ArrayList<Integer> pointIDs,
-                                 AutoExpandVector<Double> knnDist,
-                                 AutoExpandVector<Integer> knnPointIndex) {
+                                 GTCluster cluster,
+                                 ArrayList<Double> knnDist,
+                                 ArrayList<Integer> knnPointIndex) {
+        if(useIndex){
+            if(cluster.index == null){
+                cluster.index = new KnnIndex(cluster.points);
+            }
+            cluster.index.knn(cmmp.pID, k, knnDist, knnPointIndex);
+            return;
+        }
 
         //iterate over every point in the choosen cluster, cal distance and insert into list
+        ArrayList<Integer> pointIDs = cluster.points;
         for (int p1 = 0; p1 < pointIDs.size(); p1++) {
             int pid = pointIDs.get(p1);
             if(cmmp.pID == pid) continue;
-            double dist = distance(cmmp,cmmpoints.get(pid));
-            if(knnDist.size() < k || dist < knnDist.get(knnDist.size()-1)){
-                int index = 0;
-                while(index < knnDist.size() && dist > knnDist.get(index)) {
-                    index++;
+            insertNeighbour(pid, distance(cmmp.pID, pid), k, knnDist, knnPointIndex);
+        }
+    }
+
+    /**
+     * Inserts a point into the sorted knn lists if it is among the k nearest so far
+     * @param pid ID of the point
+     * @param dist distance of the point
+     * @param k number of nearest neighbors to look for
+     * @param knnDist sorted list of smallest knn distances
+     * @param knnPointIndex list of corresponding knn indices
+     */
+    private void insertNeighbour(int pid, double dist, int k,
+                                 ArrayList<Double> knnDist,
+                                 ArrayList<Integer> knnPointIndex) {
+        if(knnDist.size() < k || dist < knnDist.get(knnDist.size()-1)){
+            int index = 0;
+            while(index < knnDist.size() && dist > knnDist.get(index)) {
+                index++;
+            }
+            knnDist.add(index, dist);
+            knnPointIndex.add(index,pid);
+            if(knnDist.size() > k){
+                knnDist.remove(knnDist.size()-1);
+                knnPointIndex.remove(knnPointIndex.size()-1);
+            }
+        }
+    }
+
+
+    /**
+     * Kd-tree over the points of a cluster for exact knn queries. The tree is 
+     * implicit: node n covers a range of ids, split at its middle on the widest 
+     * dimension of the range, with children 2n+1 and 2n+2 covering the halves.
+     * A node is only searched if its bounding box is closer than the k-th 
+     * nearest neighbour found so far.
+     */
+    private class KnnIndex{
+        /** maximum number of points in a leaf */
+        private static final int LEAF_SIZE = 8;
+
+        /** point IDs, ordered so that every node covers a range */
+        private final int[] ids;
+
+        /** lower corner of the bounding box per node, numDims values per node */
+        private final double[] lower;
+
+        /** upper corner of the bounding box per node, numDims values per node */
+        private final double[] upper;
+
+        /** slack on the pruning bound against rounding, so the search stays exact */
+        private final double boundSlack = 1 + 1e-9;
+
+        private KnnIndex(ArrayList<Integer> pointIDs){
+            ids = new int[pointIDs.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = pointIDs.get(i);
+            }
+            int numNodes = 4 * (ids.length / LEAF_SIZE + 1);
+            lower = new double[numNodes * numDims];
+            upper = new double[numNodes * numDims];
+            build(0, 0, ids.length);
+        }
+
+        private void build(int node, int from, int to){
+            int dim = 0;
+            double maxWidth = -1;
+            for (int d = 0; d < numDims; d++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = from; i < to; i++) {
+                    double v = coordinates[ids[i]][d];
+                    if(v < min) min = v;
+                    if(v > max) max = v;
+                }
+                lower[node * numDims + d] = min;
+                upper[node * numDims + d] = max;
+                if(max - min > maxWidth){
+                    maxWidth = max - min;
+                    dim = d;
                 }
-                knnDist.add(index, dist);
-                knnPointIndex.add(index,pid);
-                if(knnDist.size() > k){
-                    knnDist.remove(knnDist.size()-1);
-                    knnPointIndex.remove(knnPointIndex.size()-1);
+            }
+            if(to - from > LEAF_SIZE){
+                int mid = (from + to) >>> 1;
+                select(from, to - 1, mid, dim);
+                build(2 * node + 1, from, mid);
+                build(2 * node + 2, mid, to);
+            }
+        }
+
+        /** moves the point of rank k on dim to position k, smaller ones before it */
+        private void select(int left, int right, int k, int dim){
+            while(left < right){
+                double pivot = coordinates[ids[(left + right) >>> 1]][dim];
+                int i = left;
+                int j = right;
+                while(i <= j){
+                    while(coordinates[ids[i]][dim] < pivot) i++;
+                    while(coordinates[ids[j]][dim] > pivot) j--;
+                    if(i <= j){
+                        int tmp = ids[i];
+                        ids[i] = ids[j];
+                        ids[j] = tmp;
+                        i++;
+                        j--;
+                    }
                 }
+                if(k <= j)
+                    right = j;
+                else if(k >= i)
+                    left = i;
+                else
+                    return;
             }
         }
+
+        /**
+         * Adds the k nearest neighbours of a point to the sorted knn lists
+         * @param pID ID of the point
+         * @param k number of nearest neighbors to look for
+         * @param knnDist sorted list of smallest knn distances
+         * @param knnPointIndex list of corresponding knn indices
+         */
+        private void knn(int pID, int k,
+                         ArrayList<Double> knnDist,
+                         ArrayList<Integer> knnPointIndex){
+            if(ids.length > 0){
+                search(0, 0, ids.length, pID, k, knnDist, knnPointIndex);
+            }
+        }
+
+        private void search(int node, int from, int to, int pID, int k,
+                            ArrayList<Double> knnDist,
+                            ArrayList<Integer> knnPointIndex){
+            if(to - from <= LEAF_SIZE){
+                for (int i = from; i < to; i++) {
+                    int pid = ids[i];
+                    if(pid == pID) continue;
+                    insertNeighbour(pid, distance(pID, pid), k, knnDist, knnPointIndex);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            double leftBound = squaredBoxDistance(2 * node + 1, pID);
+            double rightBound = squaredBoxDistance(2 * node + 2, pID);
+            if(leftBound <= rightBound){
+                if(isCloser(leftBound, k, knnDist))
+                    search(2 * node + 1, from, mid, pID, k, knnDist, knnPointIndex);
+                if(isCloser(rightBound, k, knnDist))
+                    search(2 * node + 2, mid, to, pID, k, knnDist, knnPointIndex);
+            }
+            else{
+                if(isCloser(rightBound, k, knnDist))
+                    search(2 * node + 2, mid, to, pID, k, knnDist, knnPointIndex);
+                if(isCloser(leftBound, k, knnDist))
+                    search(2 * node + 1, from, mid, pID, k, knnDist, knnPointIndex);
+            }
+        }
+
+        /** whether a node at the given squared distance can hold a nearer neighbour */
+        private boolean isCloser(double squaredBound, int k, ArrayList<Double> knnDist){
+            if(knnDist.size() < k)
+                return true;
+            double kthDist = knnDist.get(knnDist.size()-1);
+            return squaredBound < boundSlack * kthDist * kthDist;
+        }
+
+        private double squaredBoxDistance(int node, int pID){
+            double[] point = coordinates[pID];
+            int offset = node * numDims;
+            double distance = 0.0;
+            for (int d = 0; d < numDims; d++) {
+                double v = point[d];
+                double diff = 0.0;
+                if(v < lower[offset + d])
+                    diff = lower[offset + d] - v;
+                else if(v > upper[offset + d])
+                    diff = v - upper[offset + d];
+                distance += diff * diff;
+            }
+            return distance;
+        }
     }
 
 
@@ -792,25 +994,16 @@ public class CMM_GTAnalysis{
     
     /**
      * Calculates Euclidian distance 
-     * @param inst1 point as double array
-     * @param inst2 point as double array
-     * @return euclidian distance
-     */
-    private double distance(Instance inst1, Instance inst2){
-          return distance(inst1, inst2.toDoubleArray());
-
-    }
-    
-    /**
-     * Calculates Euclidian distance 
-     * @param inst1 point as an instance
-     * @param inst2 point as double array
+     * @param pID1 ID of the first point
+     * @param pID2 ID of the second point
      * @return euclidian distance
      */
-    private double distance(Instance inst1, double[] inst2){
+    private double distance(int pID1, int pID2){
+        double[] inst1 = coordinates[pID1];
+        double[] inst2 = coordinates[pID2];
         double distance = 0.0;
         for (int i = 0; i < numDims; i++) {
-            double d = inst1.value(i) - inst2[i];
+            double d = inst1[i] - inst2[i];
             distance += d * d;
         }
         return Math.sqrt(distance);
@@ -0,0 +1,36 @@
+/*
+ *    IndexedCMM.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.evaluation;
+
+/**
+ * CMM whose ground truth analysis finds the k nearest neighbours of a point
+ * in a cluster with a kd-tree over the points of the cluster, built once per
+ * evaluation and shared by all queries on that cluster, instead of scanning
+ * the whole cluster per query. The measures are the ones of {@link CMM}.
+ *
+ * @version $Revision: 1 $
+ */
+public class IndexedCMM extends CMM {
+
+    private static final long serialVersionUID = 1L;
+
+    public IndexedCMM() {
+        super();
+        this.useIndex = true;
+    }
+}
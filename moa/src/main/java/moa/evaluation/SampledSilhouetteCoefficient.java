@@ -0,0 +1,195 @@
+/*
+ *    SampledSilhouetteCoefficient.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import moa.cluster.Cluster;
+import moa.cluster.Clustering;
+import moa.gui.visualization.DataPoint;
+
+/**
+ * Silhouette coefficient estimated on a reservoir sample of the points of
+ * each evaluation, which costs O(s^2) per evaluation for a sample of s points
+ * instead of the O(n^2) of {@link SilhouetteCoefficient}. The silhouette of
+ * every sampled point is computed against the other sampled points, and the
+ * second measure is the half width of the 95% confidence interval of their
+ * mean, on the same normalized scale. When an evaluation has no more points
+ * than the sample size, all of them are used and the coefficient is the one
+ * of SilhouetteCoefficient.
+ *
+ * @version $Revision: 1 $
+ */
+public class SampledSilhouetteCoefficient extends MeasureCollection{
+
+    private static final long serialVersionUID = 1L;
+
+    private double pointInclusionProbThreshold = 0.8;
+
+    /**
+     * maximum number of points the coefficient is computed on
+     */
+    private int sampleSize = 500;
+
+    /**
+     * quantile of the normal distribution for the 95% confidence interval
+     */
+    private double confidenceQuantile = 1.96;
+
+    private Random random = new Random(1);
+
+    public SampledSilhouetteCoefficient() {
+        super();
+    }
+
+    @Override
+    protected boolean[] getDefaultEnabled() {
+        boolean [] defaults = {false, false};
+        return defaults;
+    }
+
+    @Override
+    public String[] getNames() {
+        String[] names = {"SilhCoeff (sampled)", "SilhCoeff CI"};
+        return names;
+    }
+
+    public void evaluateClustering(Clustering clustering, Clustering trueClustering, ArrayList<DataPoint> points) {
+        int numPoints = points.size();
+        int numSamples = Math.min(sampleSize, numPoints);
+
+        //reservoir sample, kept in the order of the points
+        int[] sample = new int[numSamples];
+        for (int p = 0; p < numPoints; p++) {
+            if(p < numSamples){
+                sample[p] = p;
+            }
+            else{
+                int r = random.nextInt(p + 1);
+                if(r < numSamples)
+                    sample[r] = p;
+            }
+        }
+        Arrays.sort(sample);
+
+        int numFCluster = clustering.size();
+        double [][] pointInclusionProbFC = new double[numSamples][numFCluster];
+        for (int s = 0; s < numSamples; s++) {
+            DataPoint point = points.get(sample[s]);
+            for (int fc = 0; fc < numFCluster; fc++) {
+                Cluster cl = clustering.get(fc);
+                pointInclusionProbFC[s][fc] = cl.getInclusionProbability(point);
+            }
+        }
+
+        double silhCoeff = 0.0;
+        double silhCoeffSquares = 0.0;
+        int totalCount = 0;
+        double[] distanceByClusters = new double[numFCluster];
+        int[] countsByClusters = new int[numFCluster];
+        for (int s = 0; s < numSamples; s++) {
+            DataPoint point = points.get(sample[s]);
+            boolean inCluster = false;
+            for (int fc = 0; fc < numFCluster; fc++) {
+                if(pointInclusionProbFC[s][fc] > pointInclusionProbThreshold){
+                    inCluster = true;
+                    break;
+                }
+            }
+
+            if(inCluster){
+                Arrays.fill(distanceByClusters, 0.0);
+                Arrays.fill(countsByClusters, 0);
+                //calculate averageDistance of p to all cluster, on the sample
+                for (int s1 = 0; s1 < numSamples; s1++) {
+                    if(s1 != s){
+                        DataPoint point1 = points.get(sample[s1]);
+                        double distance = -1;
+                        for (int fc = 0; fc < numFCluster; fc++) {
+                            if(pointInclusionProbFC[s1][fc] > pointInclusionProbThreshold){
+                                if(distance < 0)
+                                    distance = distance(point, point1);
+                                distanceByClusters[fc]+=distance;
+                                countsByClusters[fc]++;
+                            }
+                        }
+                    }
+                }
+
+                //find closest OWN cluster as clusters might overlap
+                double minAvgDistanceOwn = Double.MAX_VALUE;
+                int minOwnIndex = -1;
+                for (int fc = 0; fc < numFCluster; fc++) {
+                    if(pointInclusionProbFC[s][fc] > pointInclusionProbThreshold){
+                        double normDist = distanceByClusters[fc]/(double)countsByClusters[fc];
+                        if(normDist < minAvgDistanceOwn){
+                            minAvgDistanceOwn = normDist;
+                            minOwnIndex = fc;
+                        }
+                    }
+                }
+
+                //find closest other (or other own) cluster
+                double minAvgDistanceOther = Double.MAX_VALUE;
+                for (int fc = 0; fc < numFCluster; fc++) {
+                    if(fc != minOwnIndex){
+                        double normDist = distanceByClusters[fc]/(double)countsByClusters[fc];
+                        if(normDist < minAvgDistanceOther){
+                            minAvgDistanceOther = normDist;
+                        }
+                    }
+                }
+
+                double silhP = (minAvgDistanceOther-minAvgDistanceOwn)/Math.max(minAvgDistanceOther, minAvgDistanceOwn);
+                point.setMeasureValue("SC - own", minAvgDistanceOwn);
+                point.setMeasureValue("SC - other", minAvgDistanceOther);
+                point.setMeasureValue("SC", silhP);
+
+                silhCoeff+=silhP;
+                silhCoeffSquares+=silhP*silhP;
+                totalCount++;
+            }
+        }
+
+        double halfWidth = 0.0;
+        if(totalCount > 1 && numPoints > 1){
+            double mean = silhCoeff/(double)totalCount;
+            double variance = (silhCoeffSquares - totalCount*mean*mean)/(double)(totalCount-1);
+            //finite population correction, no uncertainty if all points are sampled
+            double correction = (numPoints-numSamples)/(double)(numPoints-1);
+            halfWidth = confidenceQuantile*Math.sqrt(Math.max(variance, 0.0)/totalCount*correction);
+        }
+        if(totalCount>0)
+            silhCoeff/=(double)totalCount;
+        //normalize from -1, 1 to 0,1
+        silhCoeff = (silhCoeff+1)/2.0;
+        addValue(0,silhCoeff);
+        addValue(1,halfWidth/2.0);
+    }
+
+    private double distance(DataPoint inst1, DataPoint inst2){
+        double distance = 0.0;
+        int numDims = inst1.numAttributes();
+        for (int i = 0; i < numDims; i++) {
+            double d = inst1.value(i) - inst2.value(i);
+            distance += d * d;
+        }
+        return Math.sqrt(distance);
+    }
+}
@@ -39,10 +39,12 @@ import moa.clusterers.clustream.WithKmeans;
 import moa.evaluation.CMM;
 import moa.evaluation.EntropyCollection;
 import moa.evaluation.F1;
+import moa.evaluation.IndexedCMM;
 import moa.evaluation.General;
 import moa.evaluation.MeasureCollection;
 import moa.evaluation.SSQ;
 import moa.evaluation.Separation;
+import moa.evaluation.SampledSilhouetteCoefficient;
 import moa.evaluation.SilhouetteCoefficient;
 import moa.evaluation.StatisticalCollection;
 import moa.gui.visualization.DataPoint;
@@ -109,6 +111,11 @@ public class BatchCmd implements ClusterEventListener{
 			mclasses.add(SilhouetteCoefficient.class);
 		if(selection[7])
 			mclasses.add(StatisticalCollection.class);
+		// selections made before these measures were added are shorter
+		if(selection.length > 8 && selection[8])
+			mclasses.add(SampledSilhouetteCoefficient.class);
+		if(selection.length > 9 && selection[9])
+			mclasses.add(IndexedCMM.class);
 
 		return mclasses;
 	}
@@ -118,7 +125,7 @@ public class BatchCmd implements ClusterEventListener{
 	public static void main(String[] args){
 		RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
 		AbstractClusterer clusterer = new WithKmeans();
-		boolean[] measureCollection = {true,true,true,true,true,true,true,true};
+		boolean[] measureCollection = {true,true,true,true,true,true,true,true,true,true};
 		int amountInstances = 20000;
 		String testfile = "d:\\data\\test.csv";
 
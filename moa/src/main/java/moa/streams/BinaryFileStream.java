@@ -0,0 +1,284 @@
+/*
+ *    BinaryFileStream.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import com.github.javacliparser.FileOption;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import moa.core.InstanceExample;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+
+/**
+ * Stream reader of the binary files written by WriteStreamToBinaryFile.
+ *
+ * The file starts with a fixed preamble, followed by the rows and then by the
+ * ARFF header of the stream, written last so that it includes the nominal
+ * values added while the stream was written. A dense row is the weight and
+ * the values of all the attributes, a sparse row is the weight, the number of
+ * values, their indices and then their values. The rows are read from a
+ * memory mapping of the file, so an instance is created without parsing.
+ *
+ * @version $Revision: 1 $
+ */
+public class BinaryFileStream extends AbstractOptionHandler implements
+        InstanceStream, Closeable {
+
+    @Override
+    public String getPurposeString() {
+        return "A stream read from a binary file written by WriteStreamToBinaryFile.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The first four bytes of a file, "MOAB".
+     */
+    public static final int MAGIC = 0x4D4F4142;
+
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the preamble: magic, version, sparse flag, number of
+     * attributes, class index and position of the header.
+     */
+    public static final int DATA_OFFSET = 4 + 4 + 1 + 4 + 4 + 8;
+
+    /**
+     * The largest part of the file that is mapped at once.
+     */
+    protected static final long MAX_MAPPING_SIZE = 1L << 30;
+
+    public FileOption binaryFileOption = new FileOption("binaryFile", 'f',
+            "Binary file to load.", null, "bin", false);
+
+    protected InstancesHeader header;
+
+    protected transient FileChannel channel;
+
+    protected transient MappedByteBuffer buffer;
+
+    /**
+     * The position in the file of the start of the mapping.
+     */
+    protected long bufferStart;
+
+    /**
+     * The position in the file of the end of the rows.
+     */
+    protected long dataEnd;
+
+    protected boolean sparse;
+
+    protected int numAttributes;
+
+    protected int numInstancesRead;
+
+    public BinaryFileStream() {
+    }
+
+    public BinaryFileStream(String binaryFileName) {
+        this.binaryFileOption.setValue(binaryFileName);
+        restart();
+    }
+
+    @Override
+    public void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        restart();
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return this.header;
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        long remainingBytes = this.dataEnd - position();
+        if (!this.sparse) {
+            return remainingBytes / (8L * (this.numAttributes + 1));
+        }
+        if (this.numInstancesRead > 0) {
+            long bytesRead = position() - DATA_OFFSET;
+            return (long) (remainingBytes / ((double) bytesRead / this.numInstancesRead));
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        return this.channel != null && position() < this.dataEnd;
+    }
+
+    @Override
+    public InstanceExample nextInstance() {
+        try {
+            Instance inst;
+            if (this.sparse) {
+                ensureMapped(8 + 4);
+                double weight = this.buffer.getDouble();
+                int numValues = this.buffer.getInt();
+                ensureMapped(12L * numValues);
+                int[] indices = new int[numValues];
+                double[] values = new double[numValues];
+                for (int i = 0; i < numValues; i++) {
+                    indices[i] = this.buffer.getInt();
+                }
+                for (int i = 0; i < numValues; i++) {
+                    values[i] = this.buffer.getDouble();
+                }
+                inst = new SparseInstance(weight, values, indices, this.numAttributes);
+            } else {
+                ensureMapped(8L * (this.numAttributes + 1));
+                double weight = this.buffer.getDouble();
+                double[] values = new double[this.numAttributes];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = this.buffer.getDouble();
+                }
+                inst = new DenseInstance(weight, values);
+            }
+            inst.setDataset(this.header);
+            this.numInstancesRead++;
+            if (position() >= this.dataEnd) {
+                close();
+            }
+            return new InstanceExample(inst);
+        } catch (IOException ioe) {
+            throw new RuntimeException(
+                    "BinaryFileStream failed to read instance from stream.", ioe);
+        }
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return true;
+    }
+
+    @Override
+    public void restart() {
+        try {
+            close();
+            this.channel = FileChannel.open(this.binaryFileOption.getFile().toPath(),
+                    StandardOpenOption.READ);
+            ByteBuffer preamble = ByteBuffer.allocate(DATA_OFFSET);
+            readFully(preamble, 0);
+            if (preamble.getInt() != MAGIC) {
+                throw new IOException("Not a binary stream file: "
+                        + this.binaryFileOption.getFile());
+            }
+            int version = preamble.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary stream file version " + version);
+            }
+            this.sparse = preamble.get() != 0;
+            this.numAttributes = preamble.getInt();
+            int classIndex = preamble.getInt();
+            this.dataEnd = preamble.getLong();
+            ByteBuffer headerBytes = ByteBuffer.allocate((int) (this.channel.size() - this.dataEnd));
+            readFully(headerBytes, this.dataEnd);
+            Instances instances = new Instances(new StringReader(
+                    new String(headerBytes.array(), StandardCharsets.UTF_8)), 0, 0);
+            instances.setClassIndex(classIndex);
+            this.header = new InstancesHeader(instances);
+            this.numInstancesRead = 0;
+            map(DATA_OFFSET);
+            if (this.dataEnd == DATA_OFFSET) {
+                close();
+            }
+        } catch (IOException ioe) {
+            throw new RuntimeException("BinaryFileStream restart failed.", ioe);
+        }
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    /**
+     * Returns the position in the file of the next row.
+     *
+     * @return the position
+     */
+    protected long position() {
+        return this.buffer == null ? this.dataEnd : this.bufferStart + this.buffer.position();
+    }
+
+    /**
+     * Maps the next part of the file if fewer than the given number of bytes
+     * are left in the current mapping.
+     *
+     * @param numBytes the number of bytes about to be read
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    protected void ensureMapped(long numBytes) throws IOException {
+        if (this.buffer.remaining() < numBytes) {
+            long position = position();
+            if (position + numBytes > this.dataEnd) {
+                throw new IOException("Truncated row at position " + position);
+            }
+            map(position);
+            if (this.buffer.remaining() < numBytes) {
+                throw new IOException("Row larger than " + MAX_MAPPING_SIZE + " bytes at position " + position);
+            }
+        }
+    }
+
+    protected void map(long position) throws IOException {
+        long size = Math.min(MAX_MAPPING_SIZE, this.dataEnd - position);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        this.bufferStart = position;
+    }
+
+    /**
+     * Closes the file. The stream has no more instances until it is restarted.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.channel != null) {
+            this.buffer = null;
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+
+    private void readFully(ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            if (this.channel.read(dst, position + dst.position()) < 0) {
+                throw new IOException("Unexpected end of file: "
+                        + this.binaryFileOption.getFile());
+            }
+        }
+        dst.flip();
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ *    PrefetchingStream.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import moa.core.Example;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.options.ClassOption;
+import moa.tasks.TaskMonitor;
+
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Stream that reads another stream ahead on a background thread.
+ *
+ * A producer thread reads the instances of the wrapped stream in batches and
+ * hands them over through a bounded lock-free ring, so reading files or
+ * generating instances overlaps with the learner. The instances are returned
+ * in the order of the wrapped stream, which must return a new instance at
+ * each call of nextInstance. Restarting the stream stops the producer,
+ * restarts the wrapped stream and starts a new producer. Closing the stream
+ * stops the producer, which MainTask does when a task ends.
+ *
+ * @version $Revision: 1 $
+ */
+public class PrefetchingStream extends AbstractOptionHandler implements
+        InstanceStream, Closeable {
+
+    @Override
+    public String getPurposeString() {
+        return "Reads a stream ahead on a background thread.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * How long the producer or the reader sleeps while the ring is full or
+     * empty, in nanoseconds.
+     */
+    protected static final long WAIT_NANOS = 50000;
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to read ahead.", InstanceStream.class,
+            "generators.RandomTreeGenerator");
+
+    public IntOption batchSizeOption = new IntOption("batchSize", 'b',
+            "Number of instances handed over at once.", 256, 1,
+            Integer.MAX_VALUE);
+
+    public IntOption queueSizeOption = new IntOption("queueSize", 'q',
+            "Maximum number of batches read ahead.", 16, 1,
+            Integer.MAX_VALUE);
+
+    protected InstanceStream originalStream;
+
+    protected InstancesHeader header;
+
+    protected transient BatchRing queue;
+
+    protected transient Thread producer;
+
+    /**
+     * Set to stop the producer.
+     */
+    protected transient AtomicBoolean stopped;
+
+    /**
+     * The batch being returned, null before the first batch is taken.
+     */
+    protected transient Batch currentBatch;
+
+    /**
+     * The position of the next instance in the current batch.
+     */
+    protected int batchPosition;
+
+    /**
+     * A batch of consecutive instances of the wrapped stream.
+     */
+    protected static class Batch {
+
+        protected final Example<Instance>[] examples;
+
+        protected int size;
+
+        /**
+         * The estimate of the wrapped stream after the batch was read.
+         */
+        protected long remainingInstances;
+
+        /**
+         * Whether the wrapped stream has no more instances after this batch.
+         */
+        protected boolean last;
+
+        /**
+         * The failure of the wrapped stream after the instances of the batch.
+         */
+        protected RuntimeException error;
+
+        public Batch(int capacity) {
+            this.examples = newExamples(capacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Example<Instance>[] newExamples(int capacity) {
+            return (Example<Instance>[]) new Example<?>[capacity];
+        }
+    }
+
+    /**
+     * Bounded ring of batches for a single producer and a single reader. Each
+     * side only writes its own position, so no lock is needed: the volatile
+     * write of a position publishes the slot written before it.
+     */
+    protected static class BatchRing {
+
+        protected final Batch[] slots;
+
+        /**
+         * The number of batches taken, only written by the reader.
+         */
+        protected final AtomicLong head = new AtomicLong();
+
+        /**
+         * The number of batches added, only written by the producer.
+         */
+        protected final AtomicLong tail = new AtomicLong();
+
+        public BatchRing(int capacity) {
+            this.slots = new Batch[capacity];
+        }
+
+        /**
+         * Adds a batch, called by the producer.
+         *
+         * @param batch the batch
+         * @return false if the ring is full
+         */
+        public boolean offer(Batch batch) {
+            long t = this.tail.get();
+            if (t - this.head.get() == this.slots.length) {
+                return false;
+            }
+            this.slots[(int) (t % this.slots.length)] = batch;
+            this.tail.set(t + 1);
+            return true;
+        }
+
+        /**
+         * Takes the oldest batch, called by the reader.
+         *
+         * @return the batch, or null if the ring is empty
+         */
+        public Batch poll() {
+            long h = this.head.get();
+            if (h == this.tail.get()) {
+                return null;
+            }
+            int slot = (int) (h % this.slots.length);
+            Batch batch = this.slots[slot];
+            this.slots[slot] = null;
+            this.head.set(h + 1);
+            return batch;
+        }
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return this.header;
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        Batch batch = this.currentBatch;
+        if (batch == null || batch.remainingInstances < 0) {
+            return -1;
+        }
+        return batch.remainingInstances + batch.size - this.batchPosition;
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        return nextBatch() != null;
+    }
+
+    @Override
+    public Example<Instance> nextInstance() {
+        Batch batch = nextBatch();
+        if (batch == null) {
+            return null;
+        }
+        Example<Instance> example = batch.examples[this.batchPosition];
+        batch.examples[this.batchPosition] = null;
+        this.batchPosition++;
+        return example;
+    }
+
+    /**
+     * Returns the batch holding the next instance, waiting for the producer
+     * if the current batch has been returned.
+     *
+     * @return the batch, or null at the end of the stream
+     */
+    protected Batch nextBatch() {
+        while (this.currentBatch == null || this.batchPosition == this.currentBatch.size) {
+            if (this.currentBatch != null) {
+                if (this.currentBatch.error != null) {
+                    throw this.currentBatch.error;
+                }
+                if (this.currentBatch.last) {
+                    return null;
+                }
+            }
+            Batch batch;
+            while ((batch = this.queue.poll()) == null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RuntimeException("Interrupted while waiting for the stream.");
+                }
+                LockSupport.parkNanos(this, WAIT_NANOS);
+            }
+            this.currentBatch = batch;
+            this.batchPosition = 0;
+        }
+        return this.currentBatch;
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return this.originalStream.isRestartable();
+    }
+
+    @Override
+    public void restart() {
+        stopProducer();
+        this.originalStream.restart();
+        startProducer();
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        stopProducer();
+        this.originalStream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        startProducer();
+    }
+
+    protected void startProducer() {
+        this.header = this.originalStream.getHeader();
+        final InstanceStream stream = this.originalStream;
+        final BatchRing batches = new BatchRing(this.queueSizeOption.getValue());
+        final int batchSize = this.batchSizeOption.getValue();
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        this.queue = batches;
+        this.stopped = stop;
+        this.currentBatch = null;
+        this.batchPosition = 0;
+        this.producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                boolean last = false;
+                while (!last && !stop.get()) {
+                    Batch batch = new Batch(batchSize);
+                    try {
+                        while (batch.size < batchSize && !stop.get()
+                                && stream.hasMoreInstances()) {
+                            batch.examples[batch.size++] = stream.nextInstance();
+                        }
+                        last = !stream.hasMoreInstances();
+                        batch.remainingInstances = stream.estimatedRemainingInstances();
+                    } catch (RuntimeException ex) {
+                        batch.error = ex;
+                        last = true;
+                    }
+                    batch.last = last;
+                    while (!batches.offer(batch)) {
+                        if (stop.get()) {
+                            return;
+                        }
+                        LockSupport.parkNanos(this, WAIT_NANOS);
+                    }
+                }
+            }
+        }, "PrefetchingStream");
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    /**
+     * Stops the producer and interrupts it if it is waiting on the wrapped
+     * stream. The stream has no more instances until it is restarted or
+     * prepared again.
+     */
+    @Override
+    public void close() {
+        if (this.producer != null) {
+            this.producer.interrupt();
+        }
+        stopProducer();
+        Batch end = new Batch(0);
+        end.last = true;
+        this.currentBatch = end;
+        this.batchPosition = 0;
+    }
+
+    /**
+     * Stops the producer, without interrupting it as the wrapped stream is
+     * used again after a restart. A producer waiting on a full ring sees the
+     * stop flag when it wakes up.
+     */
+    protected void stopProducer() {
+        if (this.producer != null) {
+            this.stopped.set(true);
+            try {
+                this.producer.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            this.producer = null;
+        }
+    }
+}
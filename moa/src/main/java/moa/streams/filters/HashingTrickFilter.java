@@ -5,10 +5,10 @@ import com.github.javacliparser.IntOption;
 import com.google.common.hash.Hashing;
 import com.google.common.hash.HashFunction;
 import com.yahoo.labs.samoa.instances.Attribute;
-import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
 import moa.core.FastVector;
 import moa.core.InstanceExample;
 import moa.streams.InstanceStream;
@@ -69,17 +69,30 @@ public class HashingTrickFilter extends AbstractStreamFilter {
 
 
 
-    public DenseInstance transformedInstance(Instance sparseInst, double [] hashVal) {
+    public Instance transformedInstance(Instance sparseInst, double [] hashVal) {
 
         Instances header = this.streamHeader;
-        double[] attributeValues = new double[header.numAttributes()];
-
+        // store only the non-zero buckets, and the class
+        int numValues = 1;
+        for(int i = 0 ; i < header.numAttributes()-1 ; i++) {
+            if (hashVal[i] != 0d) {
+                numValues++;
+            }
+        }
+        double[] attributeValues = new double[numValues];
+        int[] indexValues = new int[numValues];
+        int numStored = 0;
         for(int i = 0 ; i < header.numAttributes()-1 ; i++) {
-            attributeValues[i] = hashVal[i];
+            if (hashVal[i] != 0d) {
+                attributeValues[numStored] = hashVal[i];
+                indexValues[numStored] = i;
+                numStored++;
+            }
         }
 
-        attributeValues[attributeValues.length-1] = sparseInst.classValue();
-        DenseInstance newInstance = new DenseInstance(1.0, attributeValues);
+        attributeValues[numStored] = sparseInst.classValue();
+        indexValues[numStored] = header.numAttributes()-1;
+        SparseInstance newInstance = new SparseInstance(1.0, attributeValues, indexValues, header.numAttributes());
         newInstance.setDataset(header);
         return newInstance;
     }
@@ -96,8 +109,13 @@ public class HashingTrickFilter extends AbstractStreamFilter {
         for (int i = 0 ; i < n ; i++) {
             denseValues[i] = 0d;
         }
-        for (int i = 0; i < instance.numAttributes()-1 ; i++){
-                double diff = Math.abs(instance.value(i));
+        // only the stored values can be non-zero
+        for (int p = 0; p < instance.numValues() ; p++){
+                int i = instance.index(p);
+                if (i >= instance.numAttributes()-1) {
+                    continue;
+                }
+                double diff = Math.abs(instance.valueSparse(p));
                 if( diff  > Double.MIN_NORMAL) {
                     int  hash = hashFunction.hashInt(i).asInt();
                     int bucket = Math.abs(hash) % n;
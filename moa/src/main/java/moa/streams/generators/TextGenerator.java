@@ -105,7 +105,24 @@ public class TextGenerator extends AbstractOptionHandler implements InstanceStre
             }
         } while (votes[1] == votes[2]);
 
-        Instance inst = new SparseInstance(1.0, attVals);
+        // store only the words of the tweet, and the class
+        int numValues = 1;
+        for (int i = 0; i < attVals.length - 1; i++) {
+            if (attVals[i] != 0) {
+                numValues++;
+            }
+        }
+        double[] values = new double[numValues];
+        int[] indices = new int[numValues];
+        int numStored = 0;
+        for (int i = 0; i < attVals.length; i++) {
+            if (attVals[i] != 0 || i == attVals.length - 1) {
+                values[numStored] = attVals[i];
+                indices[numStored] = i;
+                numStored++;
+            }
+        }
+        Instance inst = new SparseInstance(1.0, values, indices, attVals.length);
         inst.setDataset(getHeader());
         inst.setClassValue((votes[1] > votes[2]) ? 0 : 1);
         this.countTweets++;
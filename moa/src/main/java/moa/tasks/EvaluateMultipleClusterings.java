@@ -94,6 +94,12 @@ public class EvaluateMultipleClusterings extends AuxiliarMainTask {
     
     public FlagOption statisticalOption = new FlagOption("Statistical", 't', "van Dongen, Rand statistic.");
 
+    public FlagOption sampledSilhouetteOption = new FlagOption("SampledSilhouette", 'a',
+			"SilhCoeff (sampled), SilhCoeff CI, on a reservoir sample of the points.");
+
+    public FlagOption indexedCMMOption = new FlagOption("IndexedCMM", 'x',
+			"CMM measures, with the knn distances found through a kd-tree per cluster.");
+
 
 	protected EvaluateClustering task;
 	
@@ -142,7 +148,7 @@ public class EvaluateMultipleClusterings extends AuxiliarMainTask {
             
             // Measure Collection
             // Create an array to summarize the selected measures
-        	boolean[] measureCollection = new boolean[8];
+        	boolean[] measureCollection = new boolean[10];
         	measureCollection[0] = this.generalEvalOption.isSet();
         	measureCollection[1] = this.f1Option.isSet();
         	measureCollection[2] = this.entropyOption.isSet();
@@ -151,6 +157,8 @@ public class EvaluateMultipleClusterings extends AuxiliarMainTask {
         	measureCollection[5] = this.separationOption.isSet();
         	measureCollection[6] = this.silhouetteOption.isSet();
         	measureCollection[7] = this.statisticalOption.isSet();
+        	measureCollection[8] = this.sampledSilhouetteOption.isSet();
+        	measureCollection[9] = this.indexedCMMOption.isSet();
             
             this.task.setMeasures(measureCollection);
             
@@ -22,12 +22,15 @@ package moa.tasks;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
 
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
+import moa.classifiers.Classifier;
 import moa.classifiers.MultiClassClassifier;
+import moa.core.CheckpointWriter;
 import moa.core.Example;
 import moa.core.Measurement;
 import moa.core.ObjectRepository;
@@ -94,12 +97,24 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
             "How many instances between memory bound checks.", 100000, 0,
             Integer.MAX_VALUE);
 
+    public IntOption fullMeasureFrequencyOption = new IntOption(
+            "fullMeasureFrequency", 'm',
+            "How many samples between full measurements of the model size, the size is estimated in between (0 = always estimate).",
+            1, 0, Integer.MAX_VALUE);
+
     public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
             "File to append intermediate csv results to.", null, "csv", true);
 
     public FileOption outputPredictionFileOption = new FileOption("outputPredictionFile", 'o',
             "File to append output predictions to.", null, "pred", true);
 
+    public FileOption checkpointFileOption = new FileOption("checkpointFile", 'c',
+            "File to checkpoint the learner to, which can be loaded back with file:<name>.", null, "ckpt", true);
+
+    public IntOption checkpointIntervalOption = new IntOption("checkpointInterval", 'k',
+            "How many seconds between checkpoints of the learner.", 300, 1,
+            Integer.MAX_VALUE);
+
     //New for prequential method DEPRECATED
     public IntOption widthOption = new IntOption("width",
             'w', "Size of Window", 1000);
@@ -185,11 +200,20 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
                         "Unable to open prediction result file: " + outputPredictionFile, ex);
             }
         }
+        File checkpointFile = this.checkpointFileOption.getFile();
+        CheckpointWriter checkpointWriter = null;
+        long checkpointInterval = this.checkpointIntervalOption.getValue() * 1000000000L;
+        long nextCheckpointTime = System.nanoTime() + checkpointInterval;
+        if (checkpointFile != null) {
+            checkpointWriter = new CheckpointWriter(checkpointFile);
+        }
         boolean firstDump = true;
         boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
         long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         long lastEvaluateStartTime = evaluateStartTime;
         double RAMHours = 0.0;
+        long samplesTaken = 0;
+        int fullMeasureFrequency = this.fullMeasureFrequencyOption.getValue();
         while (stream.hasMoreInstances()
                 && ((maxInstances < 0) || (instancesProcessed < maxInstances))
                 && ((maxSeconds < 0) || (secondsElapsed < maxSeconds))) {
@@ -213,7 +237,17 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
                 long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
                 double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-                double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                boolean estimateByteSize = learner instanceof Classifier
+                        && (fullMeasureFrequency == 0 || samplesTaken % fullMeasureFrequency != 0);
+                samplesTaken++;
+                long modelByteSize;
+                if (estimateByteSize) {
+                    ((Classifier) learner).setByteSizeEstimation(true);
+                    modelByteSize = ((Classifier) learner).estimateByteSize();
+                } else {
+                    modelByteSize = learner.measureByteSize();
+                }
+                double RAMHoursIncrement = modelByteSize / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
@@ -232,6 +266,9 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
                             RAMHours)
                         },
                         evaluator, learner));
+                if (estimateByteSize) {
+                    ((Classifier) learner).setByteSizeEstimation(false);
+                }
 
                 if (immediateResultStream != null) {
                     if (firstDump) {
@@ -244,8 +281,15 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
             }
             if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
                 if (monitor.taskShouldAbort()) {
+                    if (checkpointWriter != null) {
+                        checkpointWriter.close();
+                    }
                     return null;
                 }
+                if (checkpointWriter != null && System.nanoTime() >= nextCheckpointTime
+                        && checkpointWriter.writeInBackground(learner, instancesProcessed)) {
+                    nextCheckpointTime = System.nanoTime() + checkpointInterval;
+                }
                 long estimatedRemainingInstances = stream.estimatedRemainingInstances();
                 if (maxInstances > 0) {
                     long maxRemaining = maxInstances - instancesProcessed;
@@ -270,6 +314,15 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
         if (outputPredictionResultStream != null) {
             outputPredictionResultStream.close();
         }
+        if (checkpointWriter != null) {
+            checkpointWriter.close();
+            try {
+                checkpointWriter.write(learner, instancesProcessed);
+            } catch (IOException ex) {
+                throw new RuntimeException(
+                        "Failed writing checkpoint " + checkpointFile, ex);
+            }
+        }
         return learningCurve;
     }
 
@@ -0,0 +1,510 @@
+/*
+ *    EvaluatePrequentialMultipleLearners.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.MultiClassClassifier;
+import moa.core.Example;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningEvaluation;
+import moa.evaluation.LearningPerformanceEvaluator;
+import moa.evaluation.preview.LearningCurve;
+import moa.learners.Learner;
+import moa.options.ClassOption;
+import moa.streams.ExampleStream;
+import com.yahoo.labs.samoa.instances.Instance;
+
+import com.github.javacliparser.FileOption;
+import com.github.javacliparser.IntOption;
+import com.github.javacliparser.ListOption;
+import com.github.javacliparser.Option;
+
+/**
+ * Task for evaluating several classifiers on a stream by testing then training
+ * with each example in sequence, reading the stream once. The examples are
+ * handed in batches to worker threads, each owning some of the learners and a
+ * bounded queue of batches, so that every learner gets the same learning curve
+ * as with EvaluatePrequential on the same stream, timed with the CPU time it
+ * used on its worker. The examples are shared by the learners, which must not
+ * modify them.
+ *
+ * @version $Revision: 1 $
+ */
+public class EvaluatePrequentialMultipleLearners extends ClassificationMainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Evaluates several classifiers on a stream read once by testing then training with each example in sequence.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ListOption learnersOption = new ListOption("learners", 'l',
+            "Learners to train.",
+            new ClassOption("learner", ' ', "", MultiClassClassifier.class,
+            "moa.classifiers.bayes.NaiveBayes"),
+            new Option[]{
+                new ClassOption("", ' ', "", MultiClassClassifier.class,
+                "moa.classifiers.bayes.NaiveBayes"),
+                new ClassOption("", ' ', "", MultiClassClassifier.class,
+                "moa.classifiers.trees.HoeffdingTree")},
+            ',');
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", ExampleStream.class,
+            "generators.RandomTreeGenerator");
+
+    public ClassOption evaluatorOption = new ClassOption("evaluator", 'e',
+            "Classification performance evaluation method, copied for each learner.",
+            LearningPerformanceEvaluator.class,
+            "WindowClassificationPerformanceEvaluator");
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Maximum number of instances to test/train on  (-1 = no limit).",
+            100000000, -1, Integer.MAX_VALUE);
+
+    public IntOption sampleFrequencyOption = new IntOption("sampleFrequency",
+            'f',
+            "How many instances between samples of the learning performance.",
+            100000, 1, Integer.MAX_VALUE);
+
+    public IntOption fullMeasureFrequencyOption = new IntOption(
+            "fullMeasureFrequency", 'm',
+            "How many samples between full measurements of the model size, the size is estimated in between (0 = always estimate).",
+            1, 0, Integer.MAX_VALUE);
+
+    public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
+            "File to append intermediate csv results to, with the index of the learner added to its name.",
+            null, "csv", true);
+
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of worker threads (-1 = as many as the number of processors).",
+            -1, -1, Integer.MAX_VALUE);
+
+    public IntOption batchSizeOption = new IntOption("batchSize", 'b',
+            "How many instances are handed to the workers at a time.",
+            100, 1, Integer.MAX_VALUE);
+
+    public IntOption bufferSizeOption = new IntOption("bufferSize", 'u',
+            "How many batches each worker can have waiting.",
+            16, 1, Integer.MAX_VALUE);
+
+    /**
+     * Batch telling the workers that there are no more instances, an empty
+     * batch that is never read from a stream.
+     */
+    protected static final Example<Instance>[] END_OF_STREAM = readBatch(null, 0);
+
+    /**
+     * Whether the stream had no more instances when the reading stopped.
+     */
+    protected boolean streamExhausted;
+
+    /**
+     * Whether the task was aborted, so that the workers skip their batches.
+     */
+    protected volatile boolean aborted;
+
+    protected boolean preciseCPUTiming;
+
+    /**
+     * Evaluation of one learner, only touched by the worker owning it, except
+     * for its learning curve.
+     */
+    protected class LearnerEvaluation {
+
+        protected final int index;
+
+        protected final Learner learner;
+
+        protected final LearningPerformanceEvaluator evaluator;
+
+        protected final LearningCurve learningCurve = new LearningCurve(
+                "learning evaluation instances");
+
+        protected final PrintStream immediateResultStream;
+
+        protected long instancesProcessed;
+
+        protected long samplesTaken;
+
+        protected long cpuTime;
+
+        protected long lastSampleCpuTime;
+
+        protected double RAMHours;
+
+        public LearnerEvaluation(int index, Learner learner,
+                LearningPerformanceEvaluator evaluator, PrintStream immediateResultStream) {
+            this.index = index;
+            this.learner = learner;
+            this.evaluator = evaluator;
+            this.immediateResultStream = immediateResultStream;
+        }
+
+        /**
+         * Tests then trains the learner on a batch of examples.
+         */
+        public void process(Example<Instance>[] batch) {
+            int sampleFrequency = sampleFrequencyOption.getValue();
+            long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            for (Example<Instance> example : batch) {
+                double[] prediction = this.learner.getVotesForInstance(example);
+                this.evaluator.addResult(example, prediction);
+                this.learner.trainOnInstance(example);
+                this.instancesProcessed++;
+                if (this.instancesProcessed % sampleFrequency == 0) {
+                    long time = TimingUtils.getNanoCPUTimeOfCurrentThread();
+                    this.cpuTime += time - startTime;
+                    startTime = time;
+                    sample();
+                }
+            }
+            this.cpuTime += TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime;
+        }
+
+        /**
+         * Samples the learning performance after the last instance, as
+         * EvaluatePrequential does when the stream ends between two samples.
+         */
+        public void finish() {
+            if (streamExhausted && this.instancesProcessed > 0
+                    && this.instancesProcessed % sampleFrequencyOption.getValue() != 0) {
+                sample();
+            }
+        }
+
+        protected void sample() {
+            double time = TimingUtils.nanoTimeToSeconds(this.cpuTime);
+            double timeIncrement = TimingUtils.nanoTimeToSeconds(this.cpuTime - this.lastSampleCpuTime);
+            int fullMeasureFrequency = fullMeasureFrequencyOption.getValue();
+            boolean estimateByteSize = this.learner instanceof Classifier
+                    && (fullMeasureFrequency == 0 || this.samplesTaken % fullMeasureFrequency != 0);
+            this.samplesTaken++;
+            long modelByteSize;
+            if (estimateByteSize) {
+                ((Classifier) this.learner).setByteSizeEstimation(true);
+                modelByteSize = ((Classifier) this.learner).estimateByteSize();
+            } else {
+                modelByteSize = this.learner.measureByteSize();
+            }
+            double RAMHoursIncrement = modelByteSize / (1024.0 * 1024.0 * 1024.0); //GBs
+            RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
+            this.RAMHours += RAMHoursIncrement;
+            this.lastSampleCpuTime = this.cpuTime;
+            LearningEvaluation learningEvaluation = new LearningEvaluation(
+                    new Measurement[]{
+                        new Measurement(
+                        "learning evaluation instances",
+                        this.instancesProcessed),
+                        new Measurement(
+                        "evaluation time ("
+                        + (preciseCPUTiming ? "cpu "
+                        : "") + "seconds)",
+                        time),
+                        new Measurement(
+                        "model cost (RAM-Hours)",
+                        this.RAMHours)
+                    },
+                    this.evaluator, this.learner);
+            if (estimateByteSize) {
+                ((Classifier) this.learner).setByteSizeEstimation(false);
+            }
+            synchronized (this.learningCurve) {
+                this.learningCurve.insertEntry(learningEvaluation);
+                if (this.immediateResultStream != null) {
+                    if (this.learningCurve.numEntries() == 1) {
+                        this.immediateResultStream.println(this.learningCurve.headerToString());
+                    }
+                    this.immediateResultStream.println(this.learningCurve.entryToString(
+                            this.learningCurve.numEntries() - 1));
+                    this.immediateResultStream.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Worker testing then training its learners on the batches of its queue,
+     * until the end of the stream.
+     */
+    protected class Worker implements Runnable {
+
+        protected final List<LearnerEvaluation> learnerEvaluations = new ArrayList<LearnerEvaluation>();
+
+        protected final BlockingQueue<Example<Instance>[]> queue;
+
+        /**
+         * The first failure of a learner, after which the batches are taken
+         * but skipped.
+         */
+        protected volatile Throwable exception;
+
+        public Worker(int bufferSize) {
+            this.queue = new ArrayBlockingQueue<Example<Instance>[]>(bufferSize);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (Example<Instance>[] batch = this.queue.take(); batch != END_OF_STREAM; batch = this.queue.take()) {
+                    // keeps taking the batches after a failure, so that the
+                    // reader does not wait for room in the queue
+                    if (this.exception == null && !aborted) {
+                        try {
+                            // the learners may change the instances they are
+                            // trained on, so all but the last one are given a
+                            // copy made before the batch is processed
+                            int last = this.learnerEvaluations.size() - 1;
+                            for (int i = 0; i <= last; i++) {
+                                this.learnerEvaluations.get(i).process(i < last ? copyBatch(batch) : batch);
+                            }
+                        } catch (Throwable ex) {
+                            this.exception = ex;
+                        }
+                    }
+                }
+                if (this.exception == null && !aborted) {
+                    try {
+                        for (LearnerEvaluation learnerEvaluation : this.learnerEvaluations) {
+                            learnerEvaluation.finish();
+                        }
+                    } catch (Throwable ex) {
+                        this.exception = ex;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reads the next batch of examples, shorter than the batch size at the
+     * end of the stream.
+     */
+    @SuppressWarnings("unchecked")
+    protected static Example<Instance>[] readBatch(ExampleStream<?> stream, int batchSize) {
+        Example<Instance>[] batch = (Example<Instance>[]) new Example<?>[batchSize];
+        int size = 0;
+        while (size < batchSize && stream.hasMoreInstances()) {
+            batch[size++] = (Example<Instance>) stream.nextInstance();
+        }
+        return size < batchSize ? Arrays.copyOf(batch, size) : batch;
+    }
+
+    /**
+     * Copies the examples of a batch, as a learner may change the instances
+     * it is trained on, e.g. their weight.
+     */
+    @SuppressWarnings("unchecked")
+    protected static Example<Instance>[] copyBatch(Example<Instance>[] batch) {
+        Example<Instance>[] copy = batch.clone();
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = (Example<Instance>) batch[i].copy();
+        }
+        return copy;
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    protected static PrintStream openDumpFile(File dumpFile) {
+        try {
+            return new PrintStream(new FileOutputStream(dumpFile, dumpFile.exists()), true);
+        } catch (Exception ex) {
+            throw new RuntimeException(
+                    "Unable to open immediate result file: " + dumpFile, ex);
+        }
+    }
+
+    /**
+     * Gets the dump file of a learner, adding its index before the extension
+     * of the dump file of the task.
+     */
+    protected static File learnerDumpFile(File dumpFile, int learnerIndex) {
+        String name = dumpFile.getName();
+        int extension = name.lastIndexOf('.');
+        if (extension < 0) {
+            extension = name.length();
+        }
+        return new File(dumpFile.getParentFile(), name.substring(0, extension)
+                + "-" + learnerIndex + name.substring(extension));
+    }
+
+    /**
+     * Merges the learning curves of the learners, with the index of the
+     * learner as second measurement.
+     */
+    protected static LearningCurve mergeLearningCurves(List<LearnerEvaluation> learnerEvaluations) {
+        LearningCurve learningCurve = new LearningCurve(
+                "learning evaluation instances");
+        // the entries are inserted before the entries with the same ordering
+        // value, so the learners are taken from the last
+        for (int i = learnerEvaluations.size() - 1; i >= 0; i--) {
+            LearningCurve learnerCurve = learnerEvaluations.get(i).learningCurve;
+            synchronized (learnerCurve) {
+                for (int entry = learnerCurve.numEntries() - 1; entry >= 0; entry--) {
+                    List<Measurement> measurements = new ArrayList<Measurement>();
+                    for (int j = 0; j < learnerCurve.getEntryMeasurementCount(entry); j++) {
+                        measurements.add(new Measurement(learnerCurve.getMeasurementName(j),
+                                learnerCurve.getMeasurement(entry, j)));
+                        if (j == 0) {
+                            measurements.add(new Measurement("learner", i));
+                        }
+                    }
+                    learningCurve.insertEntry(new LearningEvaluation(
+                            measurements.toArray(new Measurement[measurements.size()])));
+                }
+            }
+        }
+        return learningCurve;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        ExampleStream<?> stream = (ExampleStream<?>) getPreparedClassOption(this.streamOption);
+        LearningPerformanceEvaluator evaluator = (LearningPerformanceEvaluator) getPreparedClassOption(this.evaluatorOption);
+        Option[] learnerOptions = this.learnersOption.getList();
+        File dumpFile = this.dumpFileOption.getFile();
+        List<LearnerEvaluation> learnerEvaluations = new ArrayList<LearnerEvaluation>();
+        for (int i = 0; i < learnerOptions.length; i++) {
+            monitor.setCurrentActivity("Materializing learner " + (i + 1) + "...", -1.0);
+            Learner learner = (Learner) ((ClassOption) learnerOptions[i]).materializeObject(monitor, repository);
+            if (monitor.taskShouldAbort()) {
+                return null;
+            }
+            learner.prepareForUse(monitor, repository);
+            learner.setModelContext(stream.getHeader());
+            learnerEvaluations.add(new LearnerEvaluation(i, learner,
+                    (LearningPerformanceEvaluator) evaluator.copy(),
+                    dumpFile != null ? openDumpFile(learnerDumpFile(dumpFile, i)) : null));
+        }
+        int numberOfJobs = this.numberOfJobsOption.getValue() == -1
+                ? Runtime.getRuntime().availableProcessors()
+                : this.numberOfJobsOption.getValue();
+        Worker[] workers = new Worker[Math.max(1, Math.min(numberOfJobs, learnerEvaluations.size()))];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(this.bufferSizeOption.getValue());
+        }
+        for (LearnerEvaluation learnerEvaluation : learnerEvaluations) {
+            workers[learnerEvaluation.index % workers.length].learnerEvaluations.add(learnerEvaluation);
+        }
+        this.streamExhausted = false;
+        this.aborted = false;
+        this.preciseCPUTiming = TimingUtils.enablePreciseTiming();
+        ExecutorService executor = Executors.newFixedThreadPool(workers.length);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (Worker worker : workers) {
+            futures.add(executor.submit(worker));
+        }
+        int maxInstances = this.instanceLimitOption.getValue();
+        int batchSize = this.batchSizeOption.getValue();
+        long instancesRead = 0;
+        monitor.setCurrentActivity("Evaluating learners...", -1.0);
+        try {
+            while (stream.hasMoreInstances()
+                    && ((maxInstances < 0) || (instancesRead < maxInstances))) {
+                int size = batchSize;
+                if (maxInstances >= 0) {
+                    size = (int) Math.min(size, maxInstances - instancesRead);
+                }
+                Example<Instance>[] batch = readBatch(stream, size);
+                instancesRead += batch.length;
+                boolean failed = false;
+                // every worker is given its own copy of the batch, made before
+                // the first worker is given the batch read from the stream
+                for (int i = workers.length - 1; i >= 0; i--) {
+                    workers[i].queue.put(i > 0 ? copyBatch(batch) : batch);
+                    failed |= workers[i].exception != null;
+                }
+                if (failed) {
+                    break;
+                }
+                if (monitor.taskShouldAbort()) {
+                    this.aborted = true;
+                    break;
+                }
+                long estimatedRemainingInstances = stream.estimatedRemainingInstances();
+                if (maxInstances > 0) {
+                    long maxRemaining = maxInstances - instancesRead;
+                    if ((estimatedRemainingInstances < 0)
+                            || (maxRemaining < estimatedRemainingInstances)) {
+                        estimatedRemainingInstances = maxRemaining;
+                    }
+                }
+                monitor.setCurrentActivityFractionComplete(estimatedRemainingInstances < 0 ? -1.0
+                        : (double) instancesRead
+                        / (double) (instancesRead + estimatedRemainingInstances));
+                if (monitor.resultPreviewRequested()) {
+                    monitor.setLatestResultPreview(mergeLearningCurves(learnerEvaluations));
+                }
+            }
+            this.streamExhausted = !stream.hasMoreInstances();
+            for (Worker worker : workers) {
+                worker.queue.put(END_OF_STREAM);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            this.aborted = true;
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while evaluating learners", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Failed evaluating learners", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+            for (LearnerEvaluation learnerEvaluation : learnerEvaluations) {
+                if (learnerEvaluation.immediateResultStream != null) {
+                    learnerEvaluation.immediateResultStream.close();
+                }
+            }
+        }
+        for (Worker worker : workers) {
+            if (worker.exception instanceof RuntimeException) {
+                throw (RuntimeException) worker.exception;
+            } else if (worker.exception instanceof Error) {
+                throw (Error) worker.exception;
+            } else if (worker.exception != null) {
+                throw new RuntimeException("Failed evaluating learners", worker.exception);
+            }
+        }
+        if (this.aborted) {
+            return null;
+        }
+        return mergeLearningCurves(learnerEvaluations);
+    }
+}
@@ -19,14 +19,19 @@
  */
 package moa.tasks;
 
+import java.io.File;
+import java.io.IOException;
+
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.Classifier;
 import moa.classifiers.MultiClassClassifier;
+import moa.core.CheckpointWriter;
 import moa.core.ObjectRepository;
 import moa.learners.Learner;
 import moa.options.ClassOption;
+import com.github.javacliparser.FileOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.ExampleStream;
 import moa.streams.InstanceStream;
@@ -66,6 +71,13 @@ public class LearnModel extends ClassificationMainTask implements CapabilitiesHa
             "How many instances between memory bound checks.", 100000, 0,
             Integer.MAX_VALUE);
 
+    public FileOption checkpointFileOption = new FileOption("checkpointFile", 'c',
+            "File to checkpoint the learner to, which can be loaded back with file:<name>.", null, "ckpt", true);
+
+    public IntOption checkpointIntervalOption = new IntOption("checkpointInterval", 'k',
+            "How many seconds between checkpoints of the learner.", 300, 1,
+            Integer.MAX_VALUE);
+
     public LearnModel() {
     }
 
@@ -89,6 +101,14 @@ public class LearnModel extends ClassificationMainTask implements CapabilitiesHa
         learner.setModelContext(stream.getHeader());
         int numPasses = this.numPassesOption.getValue();
         int maxInstances = this.maxInstancesOption.getValue();
+        File checkpointFile = this.checkpointFileOption.getFile();
+        CheckpointWriter checkpointWriter = null;
+        long checkpointInterval = this.checkpointIntervalOption.getValue() * 1000000000L;
+        long nextCheckpointTime = System.nanoTime() + checkpointInterval;
+        long totalInstancesProcessed = 0;
+        if (checkpointFile != null) {
+            checkpointWriter = new CheckpointWriter(checkpointFile);
+        }
         for (int pass = 0; pass < numPasses; pass++) {
             long instancesProcessed = 0;
             monitor.setCurrentActivity("Training learner"
@@ -101,10 +121,18 @@ public class LearnModel extends ClassificationMainTask implements CapabilitiesHa
                     && ((maxInstances < 0) || (instancesProcessed < maxInstances))) {
                 learner.trainOnInstance(stream.nextInstance());
                 instancesProcessed++;
+                totalInstancesProcessed++;
                 if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
                     if (monitor.taskShouldAbort()) {
+                        if (checkpointWriter != null) {
+                            checkpointWriter.close();
+                        }
                         return null;
                     }
+                    if (checkpointWriter != null && System.nanoTime() >= nextCheckpointTime
+                            && checkpointWriter.writeInBackground(learner, totalInstancesProcessed)) {
+                        nextCheckpointTime = System.nanoTime() + checkpointInterval;
+                    }
                     long estimatedRemainingInstances = stream.estimatedRemainingInstances();
                     if (maxInstances > 0) {
                         long maxRemaining = maxInstances - instancesProcessed;
@@ -123,6 +151,15 @@ public class LearnModel extends ClassificationMainTask implements CapabilitiesHa
             }
         }
         learner.setModelContext(stream.getHeader());
+        if (checkpointWriter != null) {
+            checkpointWriter.close();
+            try {
+                checkpointWriter.write(learner, totalInstancesProcessed);
+            } catch (IOException ex) {
+                throw new RuntimeException(
+                        "Failed writing checkpoint " + checkpointFile, ex);
+            }
+        }
         return learner;
     }
 
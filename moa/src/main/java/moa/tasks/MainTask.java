@@ -19,12 +19,16 @@
  */
 package moa.tasks;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 import moa.core.ObjectRepository;
 import moa.core.SerializeUtils;
+import moa.options.ClassOption;
 import com.github.javacliparser.FileOption;
 
 /**
@@ -45,9 +49,18 @@ public abstract class MainTask extends AbstractTask {
     public FileOption outputFileOption = new FileOption("taskResultFile", 'O',
             "File to save the final result of the task to.", null, "moa", true);
 
+    /** The objects prepared from the options that are closed when the task ends, such as streams. */
+    protected transient List<Closeable> preparedResources;
+
     @Override
     protected Object doTaskImpl(TaskMonitor monitor, ObjectRepository repository) {
-        Object result = doMainTask(monitor, repository);
+        Object result;
+        this.preparedResources = new ArrayList<Closeable>();
+        try {
+            result = doMainTask(monitor, repository);
+        } finally {
+            closePreparedResources();
+        }
         if (monitor.taskShouldAbort()) {
             return null;
         }
@@ -73,6 +86,43 @@ public abstract class MainTask extends AbstractTask {
         return result;
     }
 
+    /**
+     * Prepares the object of a class option. Objects that hold resources, such
+     * as streams reading ahead on a thread, are closed when the task ends.
+     *
+     * @param opt the class option
+     * @return the prepared object
+     */
+    @Override
+    protected Object getPreparedClassOption(ClassOption opt) {
+        Object prepared = super.getPreparedClassOption(opt);
+        if (prepared instanceof Closeable && this.preparedResources != null) {
+            this.preparedResources.add((Closeable) prepared);
+        }
+        return prepared;
+    }
+
+    /**
+     * Closes the objects prepared from the options of this task.
+     */
+    protected void closePreparedResources() {
+        List<Closeable> resources = this.preparedResources;
+        this.preparedResources = null;
+        if (resources != null) {
+            IOException failure = null;
+            for (Closeable resource : resources) {
+                try {
+                    resource.close();
+                } catch (IOException ioe) {
+                    failure = ioe;
+                }
+            }
+            if (failure != null) {
+                throw new RuntimeException("Failed closing the objects of task " + getTaskName(), failure);
+            }
+        }
+    }
+
     /**
      * This method performs this task.
      * <code>AbstractTask</code> implements <code>doTask</code>,
@@ -0,0 +1,136 @@
+/*
+ *    WriteStreamToBinaryFile.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import moa.core.ObjectRepository;
+import moa.options.ClassOption;
+import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.streams.BinaryFileStream;
+import moa.streams.InstanceStream;
+
+/**
+ * Task to output a stream to a binary file, to be read by BinaryFileStream.
+ *
+ * @version $Revision: 1 $
+ */
+public class WriteStreamToBinaryFile extends AuxiliarMainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Outputs a stream to a binary file.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to write.", InstanceStream.class,
+            "generators.RandomTreeGenerator");
+
+    public FileOption binaryFileOption = new FileOption("binaryFile", 'f',
+            "Destination binary file.", null, "bin", true);
+
+    public IntOption maxInstancesOption = new IntOption("maxInstances", 'm',
+            "Maximum number of instances to write to file.", 10000000, 0,
+            Integer.MAX_VALUE);
+
+    public FlagOption sparseOption = new FlagOption("sparse",
+            'p', "Write only the non-zero values of each instance.");
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        File destFile = this.binaryFileOption.getFile();
+        if (destFile != null) {
+            boolean sparse = this.sparseOption.isSet();
+            int numAttributes = stream.getHeader().numAttributes();
+            long position = BinaryFileStream.DATA_OFFSET;
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(destFile), 1 << 16))) {
+                    monitor.setCurrentActivityDescription("Writing stream to binary file");
+                    out.writeInt(BinaryFileStream.MAGIC);
+                    out.writeInt(BinaryFileStream.VERSION);
+                    out.writeBoolean(sparse);
+                    out.writeInt(numAttributes);
+                    out.writeInt(stream.getHeader().classIndex());
+                    out.writeLong(0); // position of the header, written at the end
+                    int[] indices = new int[numAttributes];
+                    double[] values = new double[numAttributes];
+                    int numWritten = 0;
+                    while ((numWritten < this.maxInstancesOption.getValue())
+                            && stream.hasMoreInstances()) {
+                        Instance inst = stream.nextInstance().getData();
+                        out.writeDouble(inst.weight());
+                        if (sparse) {
+                            int numValues = 0;
+                            for (int i = 0; i < inst.numValues(); i++) {
+                                double value = inst.valueSparse(i);
+                                if (value != 0.0) {
+                                    indices[numValues] = inst.index(i);
+                                    values[numValues] = value;
+                                    numValues++;
+                                }
+                            }
+                            out.writeInt(numValues);
+                            for (int i = 0; i < numValues; i++) {
+                                out.writeInt(indices[i]);
+                            }
+                            for (int i = 0; i < numValues; i++) {
+                                out.writeDouble(values[i]);
+                            }
+                            position += 8 + 4 + 12L * numValues;
+                        } else {
+                            for (int i = 0; i < numAttributes; i++) {
+                                out.writeDouble(inst.value(i));
+                            }
+                            position += 8L * (numAttributes + 1);
+                        }
+                        numWritten++;
+                    }
+                    // The header is read again at the end, with the nominal values
+                    // that appeared in the stream
+                    out.write(stream.getHeader().toString().getBytes(StandardCharsets.UTF_8));
+                }
+                try (RandomAccessFile file = new RandomAccessFile(destFile, "rw")) {
+                    file.seek(BinaryFileStream.DATA_OFFSET - 8);
+                    file.writeLong(position);
+                }
+            } catch (Exception ex) {
+                throw new RuntimeException(
+                        "Failed writing to file " + destFile, ex);
+            }
+            return "Stream written to binary file " + destFile;
+        }
+        throw new IllegalArgumentException("No destination file to write to.");
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return String.class;
+    }
+}
@@ -0,0 +1,176 @@
+package com.yahoo.labs.samoa.instances;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StreamTokenizer;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test ArffDataReader against the StreamTokenizer used by ArffLoader.
+ */
+public class ArffDataReaderTest {
+
+	private static final String HEADER = "@relation test\n"
+			+ "@attribute num numeric\n"
+			+ "@attribute col {red,'dark blue',\"x,y\"}\n"
+			+ "@attribute class {a,b}\n"
+			+ "@data\n";
+
+	private static final String DATA = "1.5,red,a\n"
+			+ "% a comment\n"
+			+ "-2e3, 'dark blue' ,b % a trailing comment\n"
+			+ "?,\"x,y\",?\n"
+			+ "\n"
+			+ "0.1,green,a\n"
+			+ "{0 3.25,2 b}\n"
+			+ "{1 \"x,y\"}\n"
+			+ "  7 , ? , b";
+
+	private static String crlf(String text) {
+		return text.replace("\n", "\r\n");
+	}
+
+	private static List<String> tokenizerTokens(String text) throws IOException {
+		StreamTokenizer tokenizer = new StreamTokenizer(new StringReader(text));
+		tokenizer.resetSyntax();
+		tokenizer.whitespaceChars(0, ' ');
+		tokenizer.wordChars(' ' + 1, '\u00FF');
+		tokenizer.whitespaceChars(',', ',');
+		tokenizer.commentChar('%');
+		tokenizer.quoteChar('"');
+		tokenizer.quoteChar('\'');
+		tokenizer.ordinaryChar('{');
+		tokenizer.ordinaryChar('}');
+		tokenizer.eolIsSignificant(true);
+		List<String> tokens = new ArrayList<String>();
+		while (tokenizer.nextToken() != StreamTokenizer.TT_EOF) {
+			if (tokenizer.ttype == StreamTokenizer.TT_EOL) {
+				tokens.add("eol");
+			} else if (tokenizer.ttype == StreamTokenizer.TT_WORD) {
+				tokens.add("word " + tokenizer.sval);
+			} else if (tokenizer.ttype == '"' || tokenizer.ttype == '\'') {
+				tokens.add("quoted " + tokenizer.sval);
+			} else {
+				tokens.add("char " + (char) tokenizer.ttype);
+			}
+		}
+		return tokens;
+	}
+
+	private static List<String> readerTokens(String text) throws IOException {
+		ArffDataReader reader = new ArffDataReader(new StringReader(text));
+		List<String> tokens = new ArrayList<String>();
+		while (reader.nextToken() != ArffDataReader.TT_EOF) {
+			if (reader.ttype == ArffDataReader.TT_EOL) {
+				tokens.add("eol");
+			} else if (reader.ttype == ArffDataReader.TT_WORD) {
+				tokens.add("word " + reader.stringValue());
+			} else if (reader.ttype == ArffDataReader.TT_QUOTED) {
+				tokens.add("quoted " + reader.stringValue());
+			} else {
+				tokens.add("char " + (char) reader.ttype);
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * Returns a loader that reads the data section with its StreamTokenizer.
+	 */
+	private static ArffLoader tokenizerLoader(String arff) {
+		ArffLoader loader = new ArffLoader(new StringReader(arff), 0, -1);
+		loader.dataReader = null;
+		return loader;
+	}
+
+	private static void assertSameInstance(Instance expected, Instance actual) {
+		assertNotNull(actual);
+		assertEquals(expected.numValues(), actual.numValues());
+		for (int i = 0; i < expected.numValues(); i++) {
+			assertEquals(expected.index(i), actual.index(i));
+			assertEquals(expected.isMissingSparse(i), actual.isMissingSparse(i));
+		}
+		assertArrayEquals(expected.toDoubleArray(), actual.toDoubleArray(), 0);
+		assertEquals(expected.weight(), actual.weight(), 0);
+	}
+
+	private static void assertSameHeader(ArffLoader expected, ArffLoader actual) {
+		InstanceInformation expectedHeader = expected.getStructure();
+		InstanceInformation actualHeader = actual.getStructure();
+		assertEquals(expectedHeader.numAttributes(), actualHeader.numAttributes());
+		for (int i = 0; i < expectedHeader.numAttributes(); i++) {
+			Attribute attribute = expectedHeader.attribute(i);
+			assertEquals(attribute.numValues(), actualHeader.attribute(i).numValues());
+			for (int j = 0; j < attribute.numValues(); j++) {
+				assertEquals(attribute.value(j), actualHeader.attribute(i).value(j));
+			}
+		}
+	}
+
+	@Test
+	public void testTokens() throws IOException {
+		List<String> expected = tokenizerTokens(DATA);
+		assertEquals(expected, readerTokens(DATA));
+		assertEquals(tokenizerTokens(crlf(DATA)), readerTokens(crlf(DATA)));
+		assertEquals(expected, readerTokens(crlf(DATA)));
+		assertTrue(expected.contains("quoted x,y"));
+		assertTrue(expected.contains("quoted dark blue"));
+	}
+
+	@Test
+	public void testValues() throws IOException {
+		ArffDataReader reader = new ArffDataReader(new StringReader("-2e3 0.1 12 ? '?' 1e400"));
+		reader.nextToken();
+		assertEquals(-2e3, reader.doubleValue(), 0);
+		reader.nextToken();
+		assertEquals(Double.valueOf("0.1"), reader.doubleValue(), 0);
+		reader.nextToken();
+		assertEquals(12, reader.intValue());
+		reader.nextToken();
+		assertTrue(reader.isMissingValue());
+		reader.nextToken();
+		assertTrue(reader.isMissingValue());
+		reader.nextToken();
+		assertEquals(Double.POSITIVE_INFINITY, reader.doubleValue(), 0);
+	}
+
+	@Test
+	public void testInstances() {
+		for (String arff : new String[]{HEADER + DATA, crlf(HEADER + DATA)}) {
+			ArffLoader expected = tokenizerLoader(arff);
+			ArffLoader actual = new ArffLoader(new StringReader(arff), 0, -1);
+			assertNotNull(actual.dataReader);
+			int numInstances = 0;
+			Instance inst;
+			while ((inst = expected.readInstance()) != null) {
+				assertSameInstance(inst, actual.readInstance());
+				numInstances++;
+			}
+			assertNull(actual.readInstance());
+			assertEquals(7, numInstances);
+			// the unseen value green is added to the header by both
+			assertSameHeader(expected, actual);
+			assertEquals(4, actual.getStructure().attribute(1).numValues());
+		}
+	}
+
+	@Test
+	public void testReadInstanceDense() {
+		String dense = HEADER + "1.5,red,a\n% a comment\n\n?,'x,y',?\n-2e3,green,b";
+		ArffLoader expected = tokenizerLoader(dense);
+		ArffLoader actual = new ArffLoader(new StringReader(dense), 0, -1);
+		// the data reader is used whichever method reads the instance
+		assertSameInstance(expected.readInstance(), actual.readInstance());
+		for (int i = 0; i < 2; i++) {
+			assertSameInstance(expected.readInstanceDense(), actual.readInstanceDense());
+		}
+		assertNull(expected.readInstanceDense());
+		assertNull(actual.readInstanceDense());
+		assertSameHeader(expected, actual);
+	}
+}
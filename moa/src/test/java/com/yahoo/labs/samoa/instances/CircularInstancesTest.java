@@ -0,0 +1,122 @@
+package com.yahoo.labs.samoa.instances;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test CircularInstances against an ArrayList-backed Instances.
+ */
+public class CircularInstancesTest {
+
+	private static Instances header() {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("a"));
+		attributes.add(new Attribute("b"));
+		attributes.add(new Attribute("class"));
+		Instances header = new Instances("test", attributes, 0);
+		header.setClassIndex(2);
+		return header;
+	}
+
+	private static Instance instance(Instances header, double value) {
+		Instance inst = new DenseInstance(1.0, new double[]{value, -value, value % 3});
+		inst.setDataset(header);
+		return inst;
+	}
+
+	@Test
+	public void testAgainstInstances() {
+		Instances header = header();
+		Instances expected = new Instances(header, 0);
+		CircularInstances window = new CircularInstances(header, 4);
+		Random random = new Random(1);
+		for (int i = 0; i < 500; i++) {
+			Instance inst = instance(header, i);
+			expected.add(inst);
+			window.add(inst);
+			if (expected.numInstances() > 10) {
+				int index = (i % 3 == 0) ? random.nextInt(expected.numInstances()) : 0;
+				expected.delete(index);
+				window.delete(index);
+			}
+			assertEquals(expected.numInstances(), window.numInstances());
+			for (int j = 0; j < expected.numInstances(); j++) {
+				assertArrayEquals(expected.instance(j).toDoubleArray(), window.instance(j).toDoubleArray(), 0);
+				assertEquals(2, window.instance(j).classIndex());
+			}
+		}
+	}
+
+	@Test
+	public void testRowsAreStableAndCopiesDetached() {
+		Instances header = header();
+		CircularInstances window = new CircularInstances(header, 2);
+		window.add(instance(header, 1));
+		window.add(instance(header, 2));
+		Instance second = window.instance(1);
+		Instance copy = window.instance(0).copy();
+		window.delete(0);
+		window.add(instance(header, 3));
+		window.add(instance(header, 4));
+		assertSame(second, window.instance(0));
+		assertEquals(2.0, second.value(0), 0);
+		assertEquals(1.0, copy.value(0), 0);
+		assertEquals(3, window.numInstances());
+	}
+
+	@Test
+	public void testSparseRowsStaySparse() {
+		Instances header = header();
+		CircularInstances window = new CircularInstances(header, 2);
+		Instance sparse = new SparseInstance(1.0, new double[]{5.0}, new int[]{1}, 3);
+		sparse.setDataset(header);
+		window.add(sparse);
+		window.add(instance(header, 1));
+		assertEquals(1, window.instance(0).numValues());
+		assertEquals(1, window.instance(0).index(0));
+		assertArrayEquals(new double[]{0.0, 5.0, 0.0}, window.instance(0).toDoubleArray(), 0);
+		assertEquals(3, window.instance(1).numValues());
+		// a recycled sparse row holds dense values again
+		window.delete(0);
+		window.add(instance(header, 2));
+		assertEquals(3, window.instance(1).numValues());
+		assertArrayEquals(new double[]{2.0, -2.0, 2.0}, window.instance(1).toDoubleArray(), 0);
+	}
+
+	@Test
+	public void testStratifyAndAttributes() {
+		Instances header = header();
+		Instances expected = new Instances(header, 0);
+		CircularInstances window = new CircularInstances(header, 4);
+		for (int i = 0; i < 20; i++) {
+			Instance inst = instance(header, i);
+			expected.add(inst);
+			window.add(inst);
+			if (i % 4 == 0) {
+				expected.delete(0);
+				window.delete(0);
+			}
+		}
+		expected.stratify(3);
+		window.stratify(3);
+		assertEquals(expected.numInstances(), window.numInstances());
+		for (int j = 0; j < expected.numInstances(); j++) {
+			assertArrayEquals(expected.instance(j).toDoubleArray(), window.instance(j).toDoubleArray(), 0);
+		}
+		// the attribute "c" is inserted as missing before "b", then "a" is deleted
+		window.insertAttributeAt(new Attribute("c"), 1);
+		window.deleteAttributeAt(0);
+		assertEquals(3, window.numAttributes());
+		assertEquals("c", window.attribute(0).name());
+		for (int j = 0; j < expected.numInstances(); j++) {
+			double[] values = expected.instance(j).toDoubleArray();
+			assertArrayEquals(new double[]{Double.NaN, values[1], values[2]},
+					window.instance(j).toDoubleArray(), 0);
+		}
+	}
+}
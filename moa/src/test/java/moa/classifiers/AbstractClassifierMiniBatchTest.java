@@ -0,0 +1,120 @@
+/*
+ *    AbstractClassifierMiniBatchTest.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers;
+
+import static org.junit.Assert.*;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import java.util.ArrayList;
+import java.util.List;
+import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.meta.minibatch.OzaBagMB;
+import moa.core.Measurement;
+import moa.streams.generators.RandomRBFGenerator;
+import org.junit.Test;
+
+/**
+ * Tests that training mini-batch classifiers asynchronously gives the same
+ * predictions as training them synchronously.
+ */
+public class AbstractClassifierMiniBatchTest {
+
+	/**
+	 * A mini-batch classifier with a single member.
+	 */
+	private static class SingleMemberMB extends AbstractClassifierMiniBatch {
+
+		private static final long serialVersionUID = 1L;
+
+		private NaiveBayes member;
+
+		@Override
+		public void resetLearningImpl() {
+			this.member = new NaiveBayes();
+			this.member.prepareForUse();
+		}
+
+		@Override
+		public void trainOnInstances(ArrayList<Instance> instances) {
+			for (Instance inst : instances) {
+				this.member.trainOnInstance(inst);
+			}
+		}
+
+		@Override
+		public double[][] getVotesForInstances(List<Instance> insts) {
+			waitForTraining();
+			return this.member.getVotesForInstances(insts);
+		}
+
+		@Override
+		protected Measurement[] getModelMeasurementsImpl() {
+			return null;
+		}
+
+		@Override
+		public void getModelDescription(StringBuilder out, int indent) {
+		}
+
+		@Override
+		public boolean isRandomizable() {
+			return false;
+		}
+	}
+
+	private static List<double[]> votes(AbstractClassifierMiniBatch classifier, String options) {
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.prepareForUse();
+		classifier.getOptions().setViaCLIString(options);
+		classifier.prepareForUse();
+		classifier.setModelContext(stream.getHeader());
+		List<double[]> votes = new ArrayList<double[]>();
+		for (int i = 0; i < 1000; i++) {
+			Instance inst = stream.nextInstance().getData();
+			votes.add(classifier.getVotesForInstance(inst));
+			classifier.trainOnInstance(inst);
+		}
+		classifier.trainingHasEnded();
+		return votes;
+	}
+
+	private static void assertSameVotes(List<double[]> expected, List<double[]> votes) {
+		assertEquals(expected.size(), votes.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertArrayEquals(expected.get(i), votes.get(i), 0.0);
+		}
+	}
+
+	@Test
+	public void testAsynchronousTraining() {
+		assertSameVotes(votes(new SingleMemberMB(), "-b 100"),
+				votes(new SingleMemberMB(), "-b 100 -y"));
+	}
+
+	@Test
+	public void testSmallBatches() {
+		assertSameVotes(votes(new SingleMemberMB(), "-b 10"),
+				votes(new SingleMemberMB(), "-b 10 -y"));
+	}
+
+	@Test
+	public void testEnsemble() {
+		assertSameVotes(votes(new OzaBagMB(), "-s 3 -b 50"),
+				votes(new OzaBagMB(), "-s 3 -b 50 -y"));
+	}
+}
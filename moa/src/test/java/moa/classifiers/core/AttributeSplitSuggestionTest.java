@@ -0,0 +1,33 @@
+package moa.classifiers.core;
+
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test AttributeSplitSuggestion
+ */
+public class AttributeSplitSuggestionTest {
+
+	@Test
+	public void testMoveBestTwoToEnd() {
+		Random random = new Random(1);
+		for (int run = 0; run < 1000; run++) {
+			int n = 2 + random.nextInt(10);
+			AttributeSplitSuggestion[] suggestions = new AttributeSplitSuggestion[n];
+			for (int i = 0; i < n; i++) {
+				// few distinct merits, so that ties are frequent
+				suggestions[i] = new AttributeSplitSuggestion(null, new double[0][],
+						random.nextInt(4) / 4.0);
+			}
+			AttributeSplitSuggestion[] sorted = suggestions.clone();
+			Arrays.sort(sorted);
+			AttributeSplitSuggestion.moveBestTwoToEnd(suggestions);
+			assertSame(sorted[n - 1], suggestions[n - 1]);
+			assertSame(sorted[n - 2], suggestions[n - 2]);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ *    MemberVotesTest.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core;
+
+import static org.junit.Assert.*;
+
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+/**
+ * Tests the parallel computation of the votes of ensemble members.
+ */
+public class MemberVotesTest {
+
+	private static final MemberVotes.Voter VOTER = new MemberVotes.Voter() {
+		@Override
+		public double[] getVotes(int member, Instance inst) {
+			return new double[]{member, inst.value(0)};
+		}
+	};
+
+	private static List<Instance> instances(int n) {
+		List<Instance> instances = new ArrayList<Instance>();
+		for (int i = 0; i < n; i++) {
+			instances.add(new DenseInstance(1.0, new double[]{i, 0.0}));
+		}
+		return instances;
+	}
+
+	@Test
+	public void testSerial() {
+		double[][][] votes = MemberVotes.compute(null, 4, 3, instances(5), VOTER);
+		assertEquals(5, votes.length);
+		for (int i = 0; i < votes.length; i++) {
+			assertEquals(3, votes[i].length);
+			for (int member = 0; member < 3; member++) {
+				assertArrayEquals(new double[]{member, i}, votes[i][member], 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testParallelMatchesSerial() {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			List<Instance> instances = instances(7);
+			double[][][] serial = MemberVotes.compute(null, 1, 10, instances, VOTER);
+			for (int numTasks = 2; numTasks <= 12; numTasks++) {
+				double[][][] parallel = MemberVotes.compute(executor, numTasks, 10, instances, VOTER);
+				for (int i = 0; i < serial.length; i++) {
+					for (int member = 0; member < 10; member++) {
+						assertArrayEquals(serial[i][member], parallel[i][member], 0.0);
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailingMember() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			MemberVotes.compute(executor, 2, 4, instances(2), new MemberVotes.Voter() {
+				@Override
+				public double[] getVotes(int member, Instance inst) {
+					if (member == 3) {
+						throw new IllegalStateException("member 3");
+					}
+					return new double[0];
+				}
+			});
+			fail("The failure of a member was not reported");
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
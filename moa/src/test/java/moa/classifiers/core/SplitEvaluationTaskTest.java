@@ -0,0 +1,71 @@
+package moa.classifiers.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClassObserver;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.core.AutoExpandVector;
+
+import org.junit.Test;
+
+/**
+ * Test SplitEvaluationTask
+ */
+public class SplitEvaluationTaskTest {
+
+	@Test
+	public void testParallelSameAsSequential() {
+		Random random = new Random(1);
+		AutoExpandVector<AttributeClassObserver> observers = new AutoExpandVector<AttributeClassObserver>();
+		double[] preSplitDist = new double[3];
+		for (int i = 0; i < 100; i++) {
+			// some attributes have no observer
+			if (i % 7 != 3) {
+				observers.set(i, new GaussianNumericAttributeClassObserver());
+			}
+		}
+		for (int n = 0; n < 1000; n++) {
+			int classVal = random.nextInt(3);
+			preSplitDist[classVal]++;
+			for (int i = 0; i < observers.size(); i++) {
+				if (observers.get(i) != null) {
+					observers.get(i).observeAttributeClass(random.nextGaussian() + classVal * (i % 5), classVal, 1.0);
+				}
+			}
+		}
+		InfoGainSplitCriterion criterion = new InfoGainSplitCriterion();
+		AttributeSplitSuggestion[] expected = SplitEvaluationTask.evaluate(observers,
+				criterion, preSplitDist, false, null);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			AttributeSplitSuggestion[] actual = SplitEvaluationTask.evaluate(observers,
+					criterion, preSplitDist, false, pool);
+			assertEquals(expected.length, actual.length);
+			for (int i = 0; i < expected.length; i++) {
+				if (expected[i] == null) {
+					assertNull(actual[i]);
+				} else {
+					assertEquals(expected[i].merit, actual[i].merit, 0.0);
+					assertEquals(i, actual[i].splitTest.getAttsTestDependsOn()[0]);
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSharedPool() {
+		assertNull(SplitEvaluationTask.getPool(0));
+		assertNull(SplitEvaluationTask.getPool(1));
+		ForkJoinPool pool = SplitEvaluationTask.getPool(4);
+		assertEquals(4, pool.getParallelism());
+		assertSame(pool, SplitEvaluationTask.getPool(4));
+	}
+}
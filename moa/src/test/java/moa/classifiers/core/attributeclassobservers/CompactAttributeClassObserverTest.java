@@ -0,0 +1,123 @@
+package moa.classifiers.core.attributeclassobservers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.GiniSplitCriterion;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+
+import org.junit.Test;
+
+/**
+ * Test the compact attribute class observers against the observers they
+ * replace.
+ */
+public class CompactAttributeClassObserverTest {
+	private static final int NUM_CLASSES = 5;
+
+	private static final int NUM_VALUES = 6;
+
+	private static void observe(AttributeClassObserver observer,
+			AttributeClassObserver compactObserver, boolean nominal, long seed) {
+		Random random = new Random(seed);
+		for (int i = 0; i < 2000; i++) {
+			// some classes are rare and the last one is never observed
+			int classVal = random.nextInt(NUM_CLASSES - 1);
+			if (classVal == NUM_CLASSES - 2 && random.nextInt(20) != 0) {
+				classVal = 0;
+			}
+			double attVal;
+			if (random.nextInt(50) == 0) {
+				attVal = Double.NaN;
+			} else if (nominal) {
+				attVal = (classVal + random.nextInt(3)) % NUM_VALUES;
+			} else {
+				attVal = classVal + random.nextGaussian();
+			}
+			double weight = random.nextInt(4) == 0 ? 2.5 : 1.0;
+			observer.observeAttributeClass(attVal, classVal, weight);
+			compactObserver.observeAttributeClass(attVal, classVal, weight);
+		}
+	}
+
+	private static void assertSameSuggestion(AttributeSplitSuggestion expected,
+			AttributeSplitSuggestion actual) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertEquals(expected.merit, actual.merit, 0.0);
+		assertEquals(expected.splitTest.getClass(), actual.splitTest.getClass());
+		if (expected.splitTest instanceof NumericAttributeBinaryTest) {
+			assertEquals(((NumericAttributeBinaryTest) expected.splitTest).getSplitValue(),
+					((NumericAttributeBinaryTest) actual.splitTest).getSplitValue(), 0.0);
+		}
+		assertEquals(expected.numSplits(), actual.numSplits());
+		for (int i = 0; i < expected.numSplits(); i++) {
+			assertEquals(expected.splitTest.describeConditionForBranch(i, null),
+					actual.splitTest.describeConditionForBranch(i, null));
+			assertArrayEquals(expected.resultingClassDistributionFromSplit(i),
+					actual.resultingClassDistributionFromSplit(i), 0.0);
+		}
+	}
+
+	private static void assertSameObservers(AttributeClassObserver observer,
+			AttributeClassObserver compactObserver, double[] attVals) {
+		for (double attVal : attVals) {
+			for (int classVal = 0; classVal <= NUM_CLASSES; classVal++) {
+				assertEquals(observer.probabilityOfAttributeValueGivenClass(attVal, classVal),
+						compactObserver.probabilityOfAttributeValueGivenClass(attVal, classVal), 0.0);
+			}
+		}
+		double[] preSplitDist = new double[]{500.0, 400.0, 300.0, 20.0};
+		for (SplitCriterion criterion : new SplitCriterion[]{new InfoGainSplitCriterion(), new GiniSplitCriterion()}) {
+			for (boolean binaryOnly : new boolean[]{false, true}) {
+				assertSameSuggestion(
+						observer.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 3, binaryOnly),
+						compactObserver.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 3, binaryOnly));
+			}
+		}
+	}
+
+	@Test
+	public void testNominal() {
+		double[] attVals = new double[]{0, 1, 2, 3, 4, 5, 6, 10};
+		NominalAttributeClassObserver observer = new NominalAttributeClassObserver();
+		CompactNominalAttributeClassObserver compactObserver = new CompactNominalAttributeClassObserver();
+		assertSameObservers(observer, compactObserver, attVals);
+		observe(observer, compactObserver, true, 1);
+		assertSameObservers(observer, compactObserver, attVals);
+		assertEquals(observer.getMaxAttValsObserved(), compactObserver.getMaxAttValsObserved());
+		assertEquals(observer.totalWeightOfClassObservations(), compactObserver.totalWeightOfClassObservations(), 0.0);
+		assertEquals(observer.weightOfObservedMissingValues(), compactObserver.weightOfObservedMissingValues(), 0.0);
+
+		observer = new NominalAttributeClassObserver();
+		compactObserver = new CompactNominalAttributeClassObserver();
+		compactObserver.allocate(NUM_VALUES, NUM_CLASSES);
+		observe(observer, compactObserver, true, 2);
+		assertSameObservers(observer, compactObserver, attVals);
+	}
+
+	@Test
+	public void testGaussian() {
+		double[] attVals = new double[]{-3.0, 0.0, 0.5, 1.0, 2.25, 4.0, 10.0};
+		GaussianNumericAttributeClassObserver observer = new GaussianNumericAttributeClassObserver();
+		CompactGaussianNumericAttributeClassObserver compactObserver = new CompactGaussianNumericAttributeClassObserver();
+		assertSameObservers(observer, compactObserver, attVals);
+		observe(observer, compactObserver, false, 3);
+		assertSameObservers(observer, compactObserver, attVals);
+		assertArrayEquals(observer.getSplitPointSuggestions(), compactObserver.getSplitPointSuggestions(), 0.0);
+
+		observer = new GaussianNumericAttributeClassObserver();
+		compactObserver = new CompactGaussianNumericAttributeClassObserver();
+		compactObserver.allocate(0, NUM_CLASSES);
+		observe(observer, compactObserver, false, 4);
+		assertSameObservers(observer, compactObserver, attVals);
+	}
+}
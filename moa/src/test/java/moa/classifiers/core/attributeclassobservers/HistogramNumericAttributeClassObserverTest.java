@@ -0,0 +1,114 @@
+package moa.classifiers.core.attributeclassobservers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.classifiers.core.splitcriteria.VarianceReductionSplitCriterion;
+
+import org.junit.Test;
+
+/**
+ * Test the histogram numeric observers against the observers keeping every
+ * distinct value.
+ */
+public class HistogramNumericAttributeClassObserverTest {
+	private static final int NUM_CLASSES = 3;
+
+	private static void assertSameSplit(AttributeSplitSuggestion expected,
+			AttributeSplitSuggestion actual) {
+		assertNotNull(actual);
+		assertEquals(expected.merit, actual.merit, 1e-9);
+		assertEquals(((NumericAttributeBinaryTest) expected.splitTest).getSplitValue(),
+				((NumericAttributeBinaryTest) actual.splitTest).getSplitValue(), 0.0);
+		for (int i = 0; i < 2; i++) {
+			double[] expectedDist = expected.resultingClassDistributionFromSplit(i);
+			double[] actualDist = actual.resultingClassDistributionFromSplit(i);
+			for (int j = 0; j < Math.max(expectedDist.length, actualDist.length); j++) {
+				assertEquals(j < expectedDist.length ? expectedDist[j] : 0.0,
+						j < actualDist.length ? actualDist[j] : 0.0, 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testSameSplitsAsBinaryTree() {
+		Random random = new Random(1);
+		BinaryTreeNumericAttributeClassObserver observer = new BinaryTreeNumericAttributeClassObserver();
+		HistogramNumericAttributeClassObserver histogramObserver = new HistogramNumericAttributeClassObserver();
+		double[] preSplitDist = new double[NUM_CLASSES];
+		for (int i = 0; i < 3000; i++) {
+			int classVal = random.nextInt(NUM_CLASSES);
+			// fewer distinct values than bins
+			double attVal = random.nextInt(40) / 4.0 + classVal;
+			double weight = random.nextInt(4) == 0 ? 2.5 : 1.0;
+			observer.observeAttributeClass(attVal, classVal, weight);
+			histogramObserver.observeAttributeClass(attVal, classVal, weight);
+			preSplitDist[classVal] += weight;
+		}
+		SplitCriterion criterion = new InfoGainSplitCriterion();
+		assertSameSplit(observer.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true),
+				histogramObserver.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true));
+	}
+
+	@Test
+	public void testSameSplitsAsExtendedBinarySearchTree() {
+		Random random = new Random(2);
+		FIMTDDNumericAttributeClassObserver observer = new FIMTDDNumericAttributeClassObserver();
+		HistogramFIMTDDNumericAttributeClassObserver histogramObserver = new HistogramFIMTDDNumericAttributeClassObserver(64);
+		double[] preSplitDist = new double[3];
+		for (int i = 0; i < 3000; i++) {
+			double attVal = random.nextInt(50);
+			double target = (attVal < 20 ? 10.0 : 30.0) + random.nextInt(5);
+			observer.observeAttributeClass(attVal, target, 1.0);
+			histogramObserver.observeAttributeClass(attVal, target, 1.0);
+			preSplitDist[0] += 1;
+			preSplitDist[1] += target;
+			preSplitDist[2] += target * target;
+		}
+		SplitCriterion criterion = new VarianceReductionSplitCriterion();
+		assertSameSplit(observer.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true),
+				histogramObserver.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true));
+	}
+
+	@Test
+	public void testBoundedNumberOfBins() {
+		Random random = new Random(3);
+		HistogramNumericAttributeClassObserver observer = new HistogramNumericAttributeClassObserver();
+		observer.numBinsOption.setValue(8);
+		double[] preSplitDist = new double[NUM_CLASSES];
+		for (int i = 0; i < 5000; i++) {
+			int classVal = random.nextInt(NUM_CLASSES);
+			observer.observeAttributeClass(classVal + random.nextGaussian(), classVal, 1.0);
+			preSplitDist[classVal] += 1.0;
+		}
+		IntervalHistogram histogram = observer.histogram;
+		assertEquals(8, histogram.getNumBins());
+		double[] weights = new double[NUM_CLASSES];
+		for (int i = 0; i < histogram.getNumBins(); i++) {
+			assertTrue(histogram.getLowerBound(i) <= histogram.getUpperBound(i));
+			if (i > 0) {
+				assertTrue(histogram.getUpperBound(i - 1) < histogram.getLowerBound(i));
+			}
+			for (int j = 0; j < NUM_CLASSES; j++) {
+				weights[j] += histogram.getStats()[i * histogram.getStride() + j];
+			}
+		}
+		assertArrayEquals(preSplitDist, weights, 0.0);
+		AttributeSplitSuggestion suggestion = observer.getBestEvaluatedSplitSuggestion(
+				new InfoGainSplitCriterion(), preSplitDist, 0, true);
+		assertNotNull(suggestion);
+		double[] lhsDist = suggestion.resultingClassDistributionFromSplit(0);
+		double[] rhsDist = suggestion.resultingClassDistributionFromSplit(1);
+		for (int j = 0; j < NUM_CLASSES; j++) {
+			assertEquals(preSplitDist[j], lhsDist[j] + rhsDist[j], 0.0);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package moa.classifiers.core.attributeclassobservers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Random;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.trees.HoeffdingAdaptiveTree;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.core.AutoExpandVector;
+import moa.streams.generators.TextGenerator;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import org.junit.Test;
+
+/**
+ * Test that observers given only the stored values of sparse instances end
+ * up with the statistics of observers given every value.
+ */
+public class SparseAttributeObservationsTest {
+	private static final int NUM_ATTRIBUTES = 20;
+
+	private static final int NUM_CLASSES = 3;
+
+	private static AutoExpandVector<AttributeClassObserver> newObservers() {
+		AutoExpandVector<AttributeClassObserver> observers = new AutoExpandVector<AttributeClassObserver>();
+		for (int i = 0; i < NUM_ATTRIBUTES; i++) {
+			observers.set(i, i % 2 == 0 ? new NominalAttributeClassObserver()
+					: new GaussianNumericAttributeClassObserver());
+		}
+		return observers;
+	}
+
+	@Test
+	public void testImplicitZeros() {
+		Random random = new Random(1);
+		AutoExpandVector<AttributeClassObserver> denseObservers = newObservers();
+		AutoExpandVector<AttributeClassObserver> sparseObservers = newObservers();
+		SparseAttributeObservations sparseObservations = new SparseAttributeObservations();
+		double[] classDist = new double[NUM_CLASSES];
+		for (int n = 0; n < 1000; n++) {
+			int classVal = random.nextInt(NUM_CLASSES);
+			double weight = random.nextInt(4) == 0 ? 2.0 : 1.0;
+			classDist[classVal] += weight;
+			sparseObservations.observeClass(classVal, weight);
+			for (int i = 0; i < NUM_ATTRIBUTES; i++) {
+				// the last attributes are never stored
+				double attVal = 0.0;
+				if (i < NUM_ATTRIBUTES - 2 && random.nextInt(5) == 0) {
+					attVal = i % 2 == 0 ? 1 + random.nextInt(2) : classVal + random.nextGaussian();
+				}
+				denseObservers.get(i).observeAttributeClass(attVal, classVal, weight);
+				if (attVal != 0.0) {
+					sparseObservations.observeAttributeClass(sparseObservers.get(i), i,
+							attVal, classVal, weight);
+				}
+			}
+			if (n % 300 == 0) {
+				sparseObservations.addImplicitZeros(sparseObservers);
+			}
+		}
+		sparseObservations.addImplicitZeros(sparseObservers);
+		assertEquals(NUM_ATTRIBUTES - 2, sparseObservations.numAttributes());
+		for (int i = 0; i < NUM_ATTRIBUTES - 2; i++) {
+			assertEquals(i, sparseObservations.attIndex(i));
+			AttributeClassObserver denseObserver = denseObservers.get(i);
+			AttributeClassObserver sparseObserver = sparseObservers.get(i);
+			for (double attVal : new double[]{0.0, 1.0, 2.0, -0.5}) {
+				for (int classVal = 0; classVal < NUM_CLASSES; classVal++) {
+					assertEquals(denseObserver.probabilityOfAttributeValueGivenClass(attVal, classVal),
+							sparseObserver.probabilityOfAttributeValueGivenClass(attVal, classVal), 1e-9);
+				}
+			}
+			AttributeSplitSuggestion denseSuggestion = denseObserver.getBestEvaluatedSplitSuggestion(
+					new InfoGainSplitCriterion(), classDist, i, true);
+			AttributeSplitSuggestion sparseSuggestion = sparseObserver.getBestEvaluatedSplitSuggestion(
+					new InfoGainSplitCriterion(), classDist, i, true);
+			assertEquals(denseSuggestion.merit, sparseSuggestion.merit, 1e-9);
+			for (int j = 0; j < denseSuggestion.numSplits(); j++) {
+				assertArrayEquals(denseSuggestion.resultingClassDistributionFromSplit(j),
+						sparseSuggestion.resultingClassDistributionFromSplit(j), 1e-9);
+			}
+		}
+	}
+
+	private static byte[] serialize(Serializable obj) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(obj);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	@Test
+	public void testPredictionsLeaveObservers() throws IOException {
+		HoeffdingTree nbTree = new HoeffdingTree();
+		nbTree.leafpredictionOption.setChosenLabel("NB");
+		Classifier[] classifiers = {new NaiveBayes(), nbTree, new HoeffdingTree(),
+				new HoeffdingAdaptiveTree()};
+		for (Classifier classifier : classifiers) {
+			TextGenerator stream = new TextGenerator();
+			stream.numAttsOption.setValue(2000);
+			stream.prepareForUse();
+			classifier.prepareForUse();
+			classifier.setModelContext(stream.getHeader());
+			for (int n = 0; n < 500; n++) {
+				Instance inst = stream.nextInstance().getData();
+				assertTrue(SparseAttributeObservations.isSparse(inst));
+				if (n % 50 == 49) {
+					// the implicit zeros are added when training, not when predicting
+					byte[] model = serialize(classifier);
+					double[] votes = classifier.getVotesForInstance(inst);
+					assertArrayEquals(model, serialize(classifier));
+					assertArrayEquals(votes, classifier.getVotesForInstance(inst), 0.0);
+				}
+				classifier.trainOnInstance(inst);
+			}
+		}
+	}
+}
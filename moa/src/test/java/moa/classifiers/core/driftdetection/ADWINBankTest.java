@@ -0,0 +1,85 @@
+package moa.classifiers.core.driftdetection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test ADWINBank
+ */
+public class ADWINBankTest {
+	private static final int NUM_LANES = 20;
+
+	private static final int NUM_INPUTS = 50000;
+
+	@Test
+	public void testSameAsADWIN() {
+		double delta = 0.002;
+		Random random = new Random(1);
+		ADWINBank bank = new ADWINBank(NUM_LANES, delta);
+		ADWIN[] adwins = new ADWIN[NUM_LANES];
+		double[] errorRates = new double[NUM_LANES];
+		for (int lane = 0; lane < NUM_LANES; lane++) {
+			adwins[lane] = new ADWIN(delta);
+			errorRates[lane] = random.nextDouble();
+		}
+		double[] values = new double[NUM_LANES];
+		int numDrifts = 0;
+		for (int i = 0; i < NUM_INPUTS; i++) {
+			for (int lane = 0; lane < NUM_LANES; lane++) {
+				if (random.nextInt(5000) == 0) {
+					errorRates[lane] = random.nextDouble();
+				}
+				// Some lanes receive real values
+				values[lane] = lane % 4 == 0 ? errorRates[lane] + random.nextGaussian()
+						: random.nextDouble() < errorRates[lane] ? 1.0 : 0.0;
+			}
+			boolean anyChange = false;
+			boolean[] drifts = new boolean[NUM_LANES];
+			for (int lane = 0; lane < NUM_LANES; lane++) {
+				double estimation = adwins[lane].getEstimation();
+				if (adwins[lane].setInput(values[lane])) {
+					anyChange = true;
+					drifts[lane] = adwins[lane].getEstimation() > estimation;
+				}
+			}
+			assertEquals(anyChange, bank.setInputs(values));
+			for (int lane = 0; lane < NUM_LANES; lane++) {
+				assertEquals(adwins[lane].getChange(), bank.getChange(lane));
+				assertEquals(drifts[lane], bank.getDrift(lane));
+				assertEquals(adwins[lane].getWidth(), bank.getWidth(lane));
+				assertEquals(adwins[lane].getTotal(), bank.getTotal(lane), 0.0);
+				assertEquals(adwins[lane].getVariance(), bank.getVariance(lane), 0.0);
+				if (drifts[lane]) {
+					numDrifts++;
+					// Ensembles replace the window of a member that drifted
+					adwins[lane] = new ADWIN(delta);
+					bank.resetLane(lane);
+				}
+			}
+		}
+		assertTrue(numDrifts > 0);
+	}
+
+	@Test
+	public void testSingleLanes() {
+		Random random = new Random(2);
+		ADWINBank bank = new ADWINBank(3, ADWIN.DELTA);
+		ADWIN adwin = new ADWIN();
+		for (int i = 0; i < NUM_INPUTS; i++) {
+			// Only the middle lane grows, past the initial number of rows
+			double value = random.nextGaussian();
+			assertEquals(adwin.setInput(value), bank.setInput(1, value));
+			if (i % 1000 == 0) {
+				bank.setInput(0, 1.0);
+			}
+		}
+		assertEquals(adwin.getWidth(), bank.getWidth(1));
+		assertEquals(adwin.getEstimation(), bank.getEstimation(1), 0.0);
+		assertEquals(NUM_INPUTS / 1000, bank.getWidth(0));
+		assertEquals(0, bank.getWidth(2));
+	}
+}
@@ -0,0 +1,94 @@
+package moa.classifiers.core.driftdetection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test ADWIN
+ */
+public class ADWINTest {
+	private static final int NUM_INPUTS = 50000;
+
+	private static final int DRIFT_PERIOD = 10000;
+
+	/**
+	 * Returns bits whose mean changes from 0.2 to 0.6 and back every
+	 * DRIFT_PERIOD values.
+	 */
+	private static double[] createInputs(long seed) {
+		Random random = new Random(seed);
+		double[] inputs = new double[NUM_INPUTS];
+		double errorRate = 0.2;
+		for (int i = 0; i < NUM_INPUTS; i++) {
+			if (i > 0 && i % DRIFT_PERIOD == 0) {
+				errorRate = errorRate == 0.2 ? 0.6 : 0.2;
+			}
+			inputs[i] = random.nextDouble() < errorRate ? 1.0 : 0.0;
+		}
+		return inputs;
+	}
+
+	@Test
+	public void testDetectsChanges() {
+		double[] inputs = createInputs(1);
+		ADWIN adwin = new ADWIN();
+		int lastDetection = 0;
+		for (int i = 0; i < NUM_INPUTS; i++) {
+			if (adwin.setInput(inputs[i])) {
+				// Each change is detected shortly after it happens
+				assertTrue(i % DRIFT_PERIOD < 1000);
+				lastDetection = i;
+			}
+			if (i > DRIFT_PERIOD && i % DRIFT_PERIOD == 1000) {
+				assertTrue(i - lastDetection < 1000);
+			}
+		}
+		assertEquals(0.2, adwin.getEstimation(), 0.05);
+	}
+
+	@Test
+	public void testStationary() {
+		Random random = new Random(2);
+		ADWIN adwin = new ADWIN();
+		for (int i = 0; i < NUM_INPUTS; i++) {
+			assertFalse(adwin.setInput(random.nextGaussian()));
+		}
+		// The window keeps all the values, in many rows of buckets
+		assertEquals(NUM_INPUTS, adwin.getWidth());
+		assertEquals(0.0, adwin.getEstimation(), 0.05);
+		assertEquals(1.0, adwin.getVariance(), 0.05);
+	}
+
+	@Test
+	public void testSetInputs() {
+		double[] inputs = createInputs(3);
+		ADWIN single = new ADWIN();
+		int detections = 0;
+		for (int i = 0; i < NUM_INPUTS; i++) {
+			if (single.setInput(inputs[i])) {
+				detections++;
+			}
+		}
+		ADWIN bulk = new ADWIN();
+		Random random = new Random(4);
+		double[] block = new double[1000];
+		int position = 0;
+		while (position < NUM_INPUTS) {
+			int len = Math.min(1 + random.nextInt(block.length), NUM_INPUTS - position);
+			System.arraycopy(inputs, position, block, 0, len);
+			bulk.setInputs(block, len);
+			position += len;
+		}
+		assertTrue(detections > 0);
+		assertEquals(detections, bulk.getNumberDetections());
+		assertEquals(single.getWidth(), bulk.getWidth());
+		assertEquals(single.getTotal(), bulk.getTotal(), 0.0);
+		assertEquals(single.getVariance(), bulk.getVariance(), 0.0);
+		assertEquals(single.getBucketsUsed(), bulk.getBucketsUsed());
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    IncrementalKDTreeTest.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package moa.classifiers.lazy.neighboursearch;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+import moa.streams.generators.RandomRBFGenerator;
+
+/**
+ * Compares the incrementally maintained KDTree with a brute force search over
+ * a sliding window.
+ */
+public class IncrementalKDTreeTest {
+
+  /**
+   * Returns the class values of the neighbours, sorted.
+   */
+  protected double[] sortedClasses(Instances neighbours) {
+    double[] result = new double[neighbours.numInstances()];
+    for (int i = 0; i < result.length; i++)
+      result[i] = neighbours.instance(i).classValue();
+    java.util.Arrays.sort(result);
+    return result;
+  }
+
+  @Test
+  public void testSlidingWindow() throws Exception {
+    RandomRBFGenerator stream = new RandomRBFGenerator();
+    stream.numAttsOption.setValue(4);
+    stream.prepareForUse();
+
+    Instances window = new Instances(stream.getHeader(), 0);
+    IncrementalKDTree tree = new IncrementalKDTree();
+    tree.setMaxInstInLeaf(4);
+    tree.setInstances(window);
+
+    for (int i = 0; i < 2000; i++) {
+      Instance inst = stream.nextInstance().getData();
+      if (window.numInstances() >= 300) {
+        tree.remove(window.get(0));
+        window.delete(0);
+      }
+      window.add(inst);
+      tree.update(window.get(window.numInstances() - 1));
+      assertEquals(window.numInstances(), tree.numInstances());
+
+      if (i % 10 == 0) {
+        Instance query = stream.nextInstance().getData();
+        int k = Math.min(5, window.numInstances());
+        LinearNNSearch linear = new LinearNNSearch(window);
+        Instances expected = linear.kNearestNeighbours(query, k);
+        double[] expectedDistances = linear.getDistances().clone();
+        java.util.Arrays.sort(expectedDistances);
+        Instances actual = tree.kNearestNeighbours(query, k);
+        assertArrayEquals(expectedDistances, tree.getDistances(), 1e-12);
+        assertArrayEquals(sortedClasses(expected), sortedClasses(actual), 0);
+      }
+    }
+  }
+
+  @Test
+  public void testRemoveUnknownInstance() throws Exception {
+    RandomRBFGenerator stream = new RandomRBFGenerator();
+    stream.prepareForUse();
+    IncrementalKDTree tree = new IncrementalKDTree(new Instances(stream.getHeader(), 0));
+    tree.update(stream.nextInstance().getData());
+    try {
+      tree.remove(stream.nextInstance().getData());
+      fail("Removing an instance that was never added should fail");
+    } catch (Exception e) {
+      // expected
+    }
+    assertEquals(1, tree.numInstances());
+  }
+}
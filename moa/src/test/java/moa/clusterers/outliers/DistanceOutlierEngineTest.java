@@ -0,0 +1,250 @@
+/*
+ *    DistanceOutlierEngineTest.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.clusterers.outliers;
+
+import static moa.clusterers.outliers.OutlierTestUtils.assertSameOutliers;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import moa.clusterers.outliers.AbstractC.AbstractC;
+import moa.clusterers.outliers.Angiulli.ExactSTORM;
+import moa.clusterers.outliers.DistanceOutlierEngine.Neighbor;
+import moa.clusterers.outliers.MCOD.MCOD;
+import moa.clusterers.outliers.SimpleCOD.SimpleCOD;
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions;
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
+
+import org.junit.Test;
+
+/**
+ * Tests the range queries of the distance-based outlier engine against a
+ * scan of the window, and that the detectors find the outliers of the M-tree
+ * index when they use the engine.
+ */
+public class DistanceOutlierEngineTest {
+
+	private static class Point implements EuclideanCoordinate {
+		private final long id;
+
+		private final double[] values;
+
+		private Point(long id, double[] values) {
+			this.id = id;
+			this.values = values;
+		}
+
+		@Override
+		public int dimensions() {
+			return values.length;
+		}
+
+		@Override
+		public double get(int index) {
+			return values[index];
+		}
+	}
+
+	private static List<Point> points(Random random, long firstId, int n) {
+		List<Point> points = new ArrayList<Point>();
+		for (int i = 0; i < n; i++) {
+			points.add(new Point(firstId + i, new double[]{random.nextDouble(), random.nextDouble(),
+					random.nextDouble()}));
+		}
+		return points;
+	}
+
+	private static void assertSameResults(DistanceOutlierEngine<Point> engine, List<Point> window,
+			List<Point> queries, double radius) {
+		List<List<Neighbor<Point>>> results = engine.rangeSearch(queries, radius);
+		int[] counts = engine.rangeCount(queries, radius);
+		assertEquals(queries.size(), results.size());
+		for (int q = 0; q < queries.size(); q++) {
+			List<Point> expected = new ArrayList<Point>();
+			for (Point point : window) {
+				if (DistanceFunctions.euclidean(point, queries.get(q)) <= radius) {
+					expected.add(point);
+				}
+			}
+			List<Neighbor<Point>> result = results.get(q);
+			assertEquals(expected.size(), result.size());
+			assertEquals(expected.size(), counts[q]);
+			for (int i = 0; i < result.size(); i++) {
+				Neighbor<Point> neighbor = result.get(i);
+				assertTrue(expected.contains(neighbor.node));
+				assertEquals(DistanceFunctions.euclidean(neighbor.node, queries.get(q)), neighbor.distance, 0.0);
+				if (i > 0) {
+					assertTrue(result.get(i - 1).distance <= neighbor.distance);
+				}
+			}
+		}
+	}
+
+	private static void assertSameResults(int numThreads) {
+		Random random = new Random(numThreads);
+		DistanceOutlierEngine<Point> engine = new DistanceOutlierEngine<Point>(numThreads);
+		List<Point> window = new ArrayList<Point>();
+		long nextId = 0;
+		// slides the window over several buffer lengths, so that the buffer is compacted and grown
+		for (int slide = 0; slide < 10; slide++) {
+			for (Point point : points(random, nextId, 700)) {
+				engine.insert(point, point.id, point);
+				window.add(point);
+			}
+			nextId += 700;
+			while (window.size() > 2000) {
+				Point point = window.remove(random.nextInt(window.size() / 4));
+				assertTrue(engine.remove(point.id));
+				assertFalse(engine.contains(point.id));
+			}
+			assertEquals(window.size(), engine.size());
+			assertSameResults(engine, window, window.subList(0, 100), 0.1);
+			assertSameResults(engine, window, points(random, -1, 50), 0.2);
+		}
+		List<Point> nodes = engine.getNodes();
+		assertEquals(window.size(), nodes.size());
+		for (int i = 0; i < nodes.size(); i++) {
+			assertTrue(nodes.get(i).id > (i == 0 ? -1 : nodes.get(i - 1).id));
+			assertTrue(engine.contains(nodes.get(i).id));
+		}
+	}
+
+	@Test
+	public void testRangeQueries() {
+		assertSameResults(1);
+	}
+
+	@Test
+	public void testParallelRangeQueries() {
+		assertSameResults(3);
+	}
+
+	@Test
+	public void testSingleQuery() {
+		DistanceOutlierEngine<Point> engine = new DistanceOutlierEngine<Point>(2);
+		assertEquals(0, engine.rangeSearch(new Point(0, new double[]{0.0, 0.0}), 1.0).size());
+		Point point = new Point(0, new double[]{0.0, 0.0});
+		engine.insert(point, point.id, point);
+		engine.insert(new Point(1, new double[]{3.0, 4.0}), 1, new Point(1, new double[]{3.0, 4.0}));
+		List<Neighbor<Point>> result = engine.rangeSearch(new Point(-1, new double[]{0.0, 0.0}), 5.0);
+		assertEquals(2, result.size());
+		assertSame(point, result.get(0).node);
+		assertEquals(5.0, result.get(1).distance, 0.0);
+	}
+
+	@Test
+	public void testDuplicateIds() {
+		DistanceOutlierEngine<Point> engine = new DistanceOutlierEngine<Point>(1);
+		Point point = new Point(1, new double[]{0.0});
+		engine.insert(point, 1, point);
+		try {
+			engine.insert(point, 1, point);
+			fail("inserted an id twice");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(1, engine.size());
+	}
+
+	@Test
+	public void testOutOfOrderIds() {
+		Random random = new Random(7);
+		DistanceOutlierEngine<Point> engine = new DistanceOutlierEngine<Point>(2);
+		List<Point> window = new ArrayList<Point>();
+		List<Point> removed = new ArrayList<Point>();
+		long nextId = 0;
+		for (int slide = 0; slide < 10; slide++) {
+			for (Point point : points(random, nextId, 700)) {
+				engine.insert(point, point.id, point);
+				window.add(point);
+			}
+			nextId += 700;
+			// removes the oldest points and some others, and inserts back
+			// some of them, before and within the window
+			while (window.size() > 1500) {
+				Point point = window.remove(random.nextInt(2) == 0 ? 0 : random.nextInt(window.size()));
+				assertTrue(engine.remove(point.id));
+				removed.add(point);
+			}
+			for (int i = 0; i < 200 && !removed.isEmpty(); i++) {
+				Point point = removed.remove(random.nextInt(removed.size()));
+				engine.insert(point, point.id, point);
+				assertTrue(engine.contains(point.id));
+				window.add(point);
+			}
+			assertEquals(window.size(), engine.size());
+			assertSameResults(engine, window, window.subList(0, 100), 0.1);
+		}
+		List<Point> nodes = engine.getNodes();
+		assertEquals(window.size(), nodes.size());
+		for (int i = 1; i < nodes.size(); i++) {
+			assertTrue(nodes.get(i).id > nodes.get(i - 1).id);
+		}
+	}
+
+	@Test
+	public void testShutdown() {
+		DistanceOutlierEngine<Point> engine = new DistanceOutlierEngine<Point>(2);
+		List<Point> window = points(new Random(3), 0, 3000);
+		for (Point point : window) {
+			engine.insert(point, point.id, point);
+		}
+		assertSameResults(engine, window, window.subList(0, 10), 0.1);
+		ForkJoinPool pool = engine.pool;
+		assertNotNull(pool);
+		engine.shutdown();
+		assertTrue(pool.isShutdown());
+		// a later query runs on a new pool
+		assertSameResults(engine, window, window.subList(0, 10), 0.1);
+		engine.shutdown();
+	}
+
+	private static void assertSameOutliersWithEngine(MyBaseOutlierDetector withMTree,
+			MyBaseOutlierDetector withEngine, int slideSize) {
+		withEngine.getOptions().setViaCLIString("-j 2 -s " + slideSize);
+		assertSameOutliers(withMTree, withEngine);
+	}
+
+	@Test
+	public void testSimpleCOD() {
+		assertSameOutliersWithEngine(new SimpleCOD(), new SimpleCOD(), 1);
+	}
+
+	@Test
+	public void testExactSTORM() {
+		assertSameOutliersWithEngine(new ExactSTORM(), new ExactSTORM(), 50);
+	}
+
+	@Test
+	public void testAbstractC() {
+		assertSameOutliersWithEngine(new AbstractC(), new AbstractC(), 50);
+	}
+
+	@Test
+	public void testMCOD() {
+		assertSameOutliersWithEngine(new MCOD(), new MCOD(), 1);
+	}
+}
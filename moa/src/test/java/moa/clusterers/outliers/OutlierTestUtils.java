@@ -0,0 +1,97 @@
+/*
+ *    OutlierTestUtils.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.clusterers.outliers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import moa.clusterers.outliers.MyBaseOutlierDetector.Outlier;
+import moa.streams.clustering.RandomRBFGeneratorEvents;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Compares the outliers found by two outlier detectors on the same stream.
+ */
+public class OutlierTestUtils {
+
+	/**
+	 * Number of objects given to the detectors, not a multiple of the slide
+	 * sizes tested, so that the last slide is incomplete.
+	 */
+	public static final int NUM_INSTANCES = 1520;
+
+	public static List<Long> outlierIds(MyBaseOutlierDetector detector) {
+		List<Long> ids = new ArrayList<Long>();
+		for (Outlier outlier : detector.getOutliersResult()) {
+			ids.add(outlier.id);
+		}
+		return ids;
+	}
+
+	/**
+	 * Prepares detectors with a window of 500 objects for the stream the
+	 * outliers are compared on. The other options of the detectors are set
+	 * by the caller.
+	 *
+	 * @param detectors the detectors
+	 * @return the stream
+	 */
+	public static RandomRBFGeneratorEvents prepareDetectors(MyBaseOutlierDetector... detectors) {
+		RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
+		stream.prepareForUse();
+		for (MyBaseOutlierDetector detector : detectors) {
+			detector.windowSizeOption.setValue(500);
+			detector.setModelContext(stream.getHeader());
+			detector.prepareForUse();
+		}
+		return stream;
+	}
+
+	/**
+	 * Asserts that two detectors find the same outliers, after each slide of
+	 * the second detector and after the last object.
+	 *
+	 * @param expected the detector finding the expected outliers
+	 * @param actual the detector tested
+	 */
+	public static void assertSameOutliers(MyBaseOutlierDetector expected,
+			MyBaseOutlierDetector actual) {
+		RandomRBFGeneratorEvents stream = prepareDetectors(expected, actual);
+		int slideSize = actual.slideSizeOption.getValue();
+		int numOutliers = 0;
+		for (int i = 0; i < NUM_INSTANCES; i++) {
+			Instance instance = stream.nextInstance().getData();
+			expected.trainOnInstance(instance);
+			actual.trainOnInstance(instance);
+			if ((i + 1) % slideSize == 0) {
+				List<Long> expectedIds = outlierIds(expected);
+				assertEquals(expectedIds, outlierIds(actual));
+				numOutliers += expectedIds.size();
+			}
+		}
+		// the objects of the incomplete last slide are processed when the
+		// outliers are read
+		assertEquals(outlierIds(expected), outlierIds(actual));
+		// the detectors were compared on some outliers
+		assertTrue(numOutliers > 0);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ *    SlideProcessingTest.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.clusterers.outliers;
+
+import static moa.clusterers.outliers.OutlierTestUtils.assertSameOutliers;
+import static moa.clusterers.outliers.OutlierTestUtils.outlierIds;
+import static moa.clusterers.outliers.OutlierTestUtils.prepareDetectors;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+
+import moa.clusterers.outliers.AbstractC.AbstractC;
+import moa.clusterers.outliers.Angiulli.ApproxSTORM;
+import moa.clusterers.outliers.Angiulli.ExactSTORM;
+import moa.clusterers.outliers.MCOD.MCOD;
+import moa.clusterers.outliers.SimpleCOD.SimpleCOD;
+import moa.streams.clustering.RandomRBFGeneratorEvents;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Tests that the outlier detectors find the same outliers when the window
+ * slides by several objects at once as when it slides by one object.
+ */
+public class SlideProcessingTest {
+
+	private static void assertSameOutliersBySlides(MyBaseOutlierDetector oneByOne,
+			MyBaseOutlierDetector bySlides, int slideSize) {
+		bySlides.slideSizeOption.setValue(slideSize);
+		assertSameOutliers(oneByOne, bySlides);
+	}
+
+	@Test
+	public void testSimpleCOD() {
+		assertSameOutliersBySlides(new SimpleCOD(), new SimpleCOD(), 50);
+	}
+
+	@Test
+	public void testExactSTORM() {
+		assertSameOutliersBySlides(new ExactSTORM(), new ExactSTORM(), 50);
+	}
+
+	@Test
+	public void testApproxSTORM() {
+		// with p = 1 the safe inliers are never sampled, so the detectors are
+		// deterministic
+		ApproxSTORM oneByOne = new ApproxSTORM();
+		oneByOne.pOption.setValue(1.0);
+		ApproxSTORM bySlides = new ApproxSTORM();
+		bySlides.pOption.setValue(1.0);
+		assertSameOutliersBySlides(oneByOne, bySlides, 50);
+	}
+
+	@Test
+	public void testAbstractC() {
+		assertSameOutliersBySlides(new AbstractC(), new AbstractC(), 50);
+	}
+
+	@Test
+	public void testMCOD() {
+		assertSameOutliersBySlides(new MCOD(), new MCOD(), 50);
+	}
+
+	@Test
+	public void testSlideLargerThanWindow() {
+		assertSameOutliersBySlides(new SimpleCOD(), new SimpleCOD(), 750);
+	}
+
+	@Test
+	public void testIncompleteSlide() {
+		SimpleCOD oneByOne = new SimpleCOD();
+		SimpleCOD bySlides = new SimpleCOD();
+		bySlides.slideSizeOption.setValue(50);
+		RandomRBFGeneratorEvents stream = prepareDetectors(oneByOne, bySlides);
+		for (int i = 0; i < 30; i++) {
+			Instance instance = stream.nextInstance().getData();
+			oneByOne.trainOnInstance(instance);
+			bySlides.trainOnInstance(instance);
+		}
+		// the objects have fewer neighbors than needed in a window of 30
+		// objects, so they are all outliers
+		List<Long> expected = outlierIds(oneByOne);
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, outlierIds(bySlides));
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ *    MTreeTest.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.clusterers.outliers.utils.mtree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
+
+import org.junit.Test;
+
+/**
+ * Tests that the batched range queries of the M-Tree give the results of
+ * one range query per object.
+ */
+public class MTreeTest {
+
+	private static class Point implements EuclideanCoordinate {
+		private final double[] values;
+
+		private Point(double[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public int dimensions() {
+			return values.length;
+		}
+
+		@Override
+		public double get(int index) {
+			return values[index];
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(values);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Point && Arrays.equals(values, ((Point) obj).values);
+		}
+	}
+
+	private static List<Point> points(Random random, int n) {
+		List<Point> points = new ArrayList<Point>();
+		for (int i = 0; i < n; i++) {
+			points.add(new Point(new double[]{random.nextDouble(), random.nextDouble(),
+					random.nextDouble()}));
+		}
+		return points;
+	}
+
+	private static void assertSameResults(MTree<Point> mtree, List<Point> queries, double range) {
+		List<List<MTree<Point>.ResultItem>> results = mtree.getNearestByRange(queries, range);
+		assertEquals(queries.size(), results.size());
+		for (int i = 0; i < queries.size(); i++) {
+			List<MTree<Point>.ResultItem> result = results.get(i);
+			int j = 0;
+			for (MTree<Point>.ResultItem expected : mtree.getNearestByRange(queries.get(i), range)) {
+				assertSame(expected.data, result.get(j).data);
+				assertEquals(expected.distance, result.get(j).distance, 0.0);
+				j++;
+			}
+			assertEquals(j, result.size());
+		}
+	}
+
+	@Test
+	public void testBatchRangeQueries() {
+		Random random = new Random(1);
+		List<Point> points = points(random, 2000);
+		MTree<Point> mtree = new MTree<Point>(2, DistanceFunctions.EUCLIDEAN, null);
+		mtree.addAll(points);
+		assertSameResults(mtree, points.subList(0, 200), 0.1);
+		assertSameResults(mtree, points(random, 200), 0.2);
+		for (Point point : points.subList(0, 1000)) {
+			mtree.remove(point);
+		}
+		assertSameResults(mtree, points.subList(500, 1500), 0.1);
+	}
+
+	@Test
+	public void testBatchRangeQueriesWithoutCoordinates() {
+		Random random = new Random(2);
+		List<List<Double>> points = new ArrayList<List<Double>>();
+		for (int i = 0; i < 500; i++) {
+			points.add(Arrays.asList(random.nextDouble(), random.nextDouble()));
+		}
+		MTree<List<Double>> mtree = new MTree<List<Double>>(DistanceFunctions.EUCLIDEAN_DOUBLE_LIST, null);
+		mtree.addAll(points);
+		List<List<MTree<List<Double>>.ResultItem>> results = mtree.getNearestByRange(points, 0.1);
+		for (int i = 0; i < points.size(); i++) {
+			int j = 0;
+			for (MTree<List<Double>>.ResultItem expected : mtree.getNearestByRange(points.get(i), 0.1)) {
+				assertSame(expected.data, results.get(i).get(j).data);
+				j++;
+			}
+			assertEquals(j, results.get(i).size());
+		}
+	}
+
+	@Test
+	public void testEmptyTree() {
+		MTree<Point> mtree = new MTree<Point>(DistanceFunctions.EUCLIDEAN, null);
+		List<List<MTree<Point>.ResultItem>> results = mtree.getNearestByRange(points(new Random(3), 5), 1.0);
+		assertEquals(5, results.size());
+		for (List<MTree<Point>.ResultItem> result : results) {
+			assertEquals(0, result.size());
+		}
+	}
+}
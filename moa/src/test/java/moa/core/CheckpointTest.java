@@ -0,0 +1,175 @@
+package moa.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Serializable;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.meta.AdaptiveRandomForest;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.streams.generators.RandomTreeGenerator;
+import moa.tasks.LearnModel;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Test CheckpointWriter and CheckpointReader
+ */
+public class CheckpointTest {
+	private static final int NUM_INSTANCES = 5000;
+
+	/**
+	 * A pair of objects, written in a chunk of its own.
+	 */
+	private static class Pair implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		final Object first;
+
+		final Object second;
+
+		Pair(Object first, Object second) {
+			this.first = first;
+			this.second = second;
+		}
+	}
+
+	private static class PairWriter extends CheckpointWriter {
+		PairWriter(File file) {
+			super(file);
+		}
+
+		@Override
+		protected boolean isChunk(Object obj) {
+			return super.isChunk(obj) || obj instanceof Pair;
+		}
+	}
+
+	private static File createFile() throws Exception {
+		File file = File.createTempFile("checkpoint", ".ckpt");
+		file.deleteOnExit();
+		return file;
+	}
+
+	private static Classifier train(Classifier learner, RandomTreeGenerator stream) {
+		learner.prepareForUse();
+		learner.setModelContext(stream.getHeader());
+		learner.resetLearning();
+		for (int i = 0; i < NUM_INSTANCES; i++) {
+			learner.trainOnInstance(stream.nextInstance().getData());
+		}
+		return learner;
+	}
+
+	private static void assertSameVotes(Classifier expected, Classifier actual, RandomTreeGenerator stream) {
+		for (int i = 0; i < 1000; i++) {
+			Instance inst = stream.nextInstance().getData();
+			assertArrayEquals(expected.getVotesForInstance(inst), actual.getVotesForInstance(inst), 0.0);
+		}
+	}
+
+	private static RandomTreeGenerator createStream() {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.prepareForUse();
+		return stream;
+	}
+
+	@Test
+	public void testHoeffdingTree() throws Exception {
+		RandomTreeGenerator stream = createStream();
+		Classifier learner = train(new HoeffdingTree(), stream);
+		File file = createFile();
+		new CheckpointWriter(file).write(learner, NUM_INSTANCES);
+		CheckpointReader reader = new CheckpointReader(file);
+		assertEquals(NUM_INSTANCES, reader.getInstancesSeen());
+		assertSameVotes(learner, (Classifier) reader.readObject(), stream);
+	}
+
+	@Test
+	public void testAdaptiveRandomForest() throws Exception {
+		RandomTreeGenerator stream = createStream();
+		AdaptiveRandomForest forest = new AdaptiveRandomForest();
+		forest.ensembleSizeOption.setValue(3);
+		Classifier learner = train(forest, stream);
+		File file = createFile();
+		new CheckpointWriter(file).write(learner, NUM_INSTANCES);
+		CheckpointReader reader = new CheckpointReader(file);
+		// the members and the nodes of their trees are chunks
+		assertTrue(reader.chunks.size() > 3);
+		assertSameVotes(learner, (Classifier) reader.readObject(), stream);
+	}
+
+	@Test
+	public void testSharedObject() throws Exception {
+		RandomTreeGenerator stream = createStream();
+		Classifier learner = train(new HoeffdingTree(), stream);
+		double[] shared = new double[]{1.0, 2.0};
+		Pair model = new Pair(new Pair(new Pair(shared, null), new Pair(shared, null)), learner);
+		File file = createFile();
+		new PairWriter(file).write(model, NUM_INSTANCES);
+		CheckpointReader reader = new CheckpointReader(file);
+		// the pair holding the shared array is written whole, the tree is split
+		assertTrue(reader.chunks.size() > 3);
+		Pair read = (Pair) reader.readObject();
+		Pair left = (Pair) read.first;
+		assertSame(((Pair) left.first).first, ((Pair) left.second).first);
+		assertNotSame(shared, ((Pair) left.first).first);
+		assertSameVotes(learner, (Classifier) read.second, stream);
+	}
+
+	@Test
+	public void testIncremental() throws Exception {
+		RandomTreeGenerator stream = createStream();
+		Classifier learner = train(new HoeffdingTree(), stream);
+		File file = createFile();
+		CheckpointWriter writer = new CheckpointWriter(file);
+		writer.write(learner, NUM_INSTANCES);
+		long length = file.length();
+		// Nothing changed, only the root is referenced again
+		writer.write(learner, NUM_INSTANCES);
+		assertTrue(file.length() - length < 100);
+		for (int i = 0; i < 10; i++) {
+			learner.trainOnInstance(stream.nextInstance().getData());
+		}
+		writer.write(learner, NUM_INSTANCES + 10);
+		assertTrue(file.length() - length < length);
+		CheckpointReader reader = new CheckpointReader(file);
+		assertEquals(NUM_INSTANCES + 10, reader.getInstancesSeen());
+		assertSameVotes(learner, (Classifier) reader.readObject(), stream);
+	}
+
+	@Test
+	public void testTruncated() throws Exception {
+		RandomTreeGenerator stream = createStream();
+		Classifier learner = train(new HoeffdingTree(), stream);
+		File file = createFile();
+		new CheckpointWriter(file).write(learner, NUM_INSTANCES);
+		FileOutputStream out = new FileOutputStream(file, true);
+		out.write(new byte[]{0, 0, 1, 0, 1, 2, 3});
+		out.close();
+		CheckpointReader reader = new CheckpointReader(file);
+		assertEquals(NUM_INSTANCES, reader.getInstancesSeen());
+		assertSameVotes(learner, (Classifier) reader.readObject(), stream);
+	}
+
+	@Test
+	public void testLearnModel() throws Exception {
+		File file = createFile();
+		LearnModel task = new LearnModel();
+		task.getOptions().setViaCLIString("-l trees.HoeffdingTree -s generators.RandomTreeGenerator -m "
+				+ NUM_INSTANCES + " -c " + file.getPath() + " -k 1");
+		task.prepareForUse();
+		Classifier learner = (Classifier) task.doTask();
+		CheckpointReader reader = new CheckpointReader(file);
+		assertEquals(NUM_INSTANCES, reader.getInstancesSeen());
+		assertSameVotes(learner, (Classifier) reader.readObject(), createStream());
+	}
+}
@@ -0,0 +1,160 @@
+package moa.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.core.driftdetection.ADWINChangeDetector;
+import moa.classifiers.trees.ARFHoeffdingTree;
+import moa.classifiers.trees.FIMTDD;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.streams.generators.HyperplaneGeneratorForRegression;
+import moa.streams.generators.RandomTreeGenerator;
+import moa.streams.InstanceStream;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Test ObjectCopier
+ */
+public class ObjectCopierTest {
+	private static final int NUM_INSTANCES = 5000;
+
+	private static class Node implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final String name;
+		private Node next;
+		private double[] values = new double[]{1, 2};
+		private transient List<Node> cache = new ArrayList<Node>();
+		private AutoExpandVector<Node> children = new AutoExpandVector<Node>();
+		private Map<String, Node> byName = new HashMap<String, Node>();
+
+		Node(String name) {
+			this.name = name;
+		}
+	}
+
+	private static class Dated implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private Date date = new Date(1);
+	}
+
+	@Test
+	public void testGraph() throws Exception {
+		Node a = new Node("a");
+		Node b = new Node("b");
+		a.next = b;
+		b.next = a;
+		a.children.set(2, b);
+		a.byName.put("b", b);
+		Node copy = (Node) ObjectCopier.copyStructurally(a);
+		assertNotSame(a, copy);
+		assertEquals("a", copy.name);
+		assertSame(copy, copy.next.next);
+		assertSame(copy.next, copy.children.get(2));
+		assertSame(copy.next, copy.byName.get("b"));
+		assertEquals(3, copy.children.size());
+		assertNotSame(a.values, copy.values);
+		assertArrayEquals(a.values, copy.values, 0.0);
+		assertNull(copy.cache);
+	}
+
+	@Test
+	public void testFallback() throws Exception {
+		Dated dated = new Dated();
+		try {
+			ObjectCopier.copyStructurally(dated);
+			fail("Date should not be copied structurally");
+		} catch (ObjectCopier.UnsupportedClassException e) {
+		}
+		Dated copy = (Dated) ObjectCopier.copy(dated);
+		assertNotSame(dated.date, copy.date);
+		assertEquals(dated.date, copy.date);
+	}
+
+	private static void assertIndependentCopy(Classifier learner, InstanceStream stream) throws Exception {
+		learner.prepareForUse();
+		learner.setModelContext(stream.getHeader());
+		learner.resetLearning();
+		for (int i = 0; i < NUM_INSTANCES; i++) {
+			learner.trainOnInstance(stream.nextInstance().getData());
+		}
+		Classifier copy = (Classifier) ObjectCopier.copyStructurally(learner);
+		Classifier serialized = (Classifier) SerializeUtils.copyObject(learner);
+		List<Instance> holdout = new ArrayList<Instance>();
+		List<double[]> holdoutVotes = new ArrayList<double[]>();
+		for (int i = 0; i < 100; i++) {
+			holdout.add(stream.nextInstance().getData());
+			holdoutVotes.add(learner.getVotesForInstance(holdout.get(i)));
+		}
+		for (int i = 0; i < NUM_INSTANCES; i++) {
+			Instance inst = stream.nextInstance().getData();
+			assertArrayEquals(serialized.getVotesForInstance(inst), copy.getVotesForInstance(inst), 0.0);
+			copy.trainOnInstance(inst);
+			serialized.trainOnInstance(inst);
+		}
+		for (int i = 0; i < holdout.size(); i++) {
+			assertArrayEquals(holdoutVotes.get(i), learner.getVotesForInstance(holdout.get(i)), 0.0);
+			assertArrayEquals(serialized.getVotesForInstance(holdout.get(i)), copy.getVotesForInstance(holdout.get(i)), 0.0);
+		}
+	}
+
+	private static InstanceStream classificationStream() {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.prepareForUse();
+		return stream;
+	}
+
+	@Test
+	public void testHoeffdingTree() throws Exception {
+		assertIndependentCopy(new HoeffdingTree(), classificationStream());
+	}
+
+	@Test
+	public void testARFHoeffdingTree() throws Exception {
+		assertIndependentCopy(new ARFHoeffdingTree(), classificationStream());
+	}
+
+	@Test
+	public void testNaiveBayes() throws Exception {
+		assertIndependentCopy(new NaiveBayes(), classificationStream());
+	}
+
+	@Test
+	public void testFIMTDD() throws Exception {
+		HyperplaneGeneratorForRegression stream = new HyperplaneGeneratorForRegression();
+		stream.prepareForUse();
+		assertIndependentCopy(new FIMTDD(), stream);
+	}
+
+	@Test
+	public void testADWIN() throws Exception {
+		ADWINChangeDetector detector = new ADWINChangeDetector();
+		detector.prepareForUse();
+		for (int i = 0; i < 1000; i++) {
+			detector.input(i % 3 == 0 ? 1 : 0);
+		}
+		ADWINChangeDetector copy = (ADWINChangeDetector) ObjectCopier.copyStructurally(detector);
+		for (int i = 0; i < 1000; i++) {
+			double input = i < 500 ? (i % 3 == 0 ? 1 : 0) : 1;
+			detector.input(input);
+			copy.input(input);
+			assertEquals(detector.getChange(), copy.getChange());
+			assertEquals(detector.getEstimation(), copy.getEstimation(), 0.0);
+		}
+	}
+}
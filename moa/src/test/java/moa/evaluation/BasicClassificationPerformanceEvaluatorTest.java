@@ -0,0 +1,127 @@
+/*
+ *    BasicClassificationPerformanceEvaluatorTest.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.evaluation;
+
+import static org.junit.Assert.*;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import moa.core.Example;
+import moa.core.Measurement;
+import moa.streams.generators.RandomRBFGenerator;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Tests the primitive accessors of the classification evaluators and that
+ * adding a result does not allocate once the evaluators are reset.
+ */
+public class BasicClassificationPerformanceEvaluatorTest {
+
+	private static final int NUM_CLASSES = 4;
+
+	private static BasicClassificationPerformanceEvaluator[] evaluators() {
+		BasicClassificationPerformanceEvaluator basic = new BasicClassificationPerformanceEvaluator();
+		basic.precisionRecallOutputOption.set();
+		basic.f1PerClassOption.set();
+		basic.precisionPerClassOption.set();
+		basic.recallPerClassOption.set();
+		return new BasicClassificationPerformanceEvaluator[]{
+				basic,
+				new WindowClassificationPerformanceEvaluator(),
+				new FadingFactorClassificationPerformanceEvaluator(),
+				new EWMAClassificationPerformanceEvaluator(),
+				new ALWindowClassificationPerformanceEvaluator()};
+	}
+
+	private static Example<Instance>[] examples(int n) {
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.numClassesOption.setValue(NUM_CLASSES);
+		stream.prepareForUse();
+		@SuppressWarnings("unchecked")
+		Example<Instance>[] examples = new Example[n];
+		for (int i = 0; i < n; i++) {
+			examples[i] = stream.nextInstance();
+		}
+		return examples;
+	}
+
+	private static double[][] votes(int n) {
+		Random random = new Random(1);
+		double[][] votes = new double[n][NUM_CLASSES];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < NUM_CLASSES; j++) {
+				votes[i][j] = random.nextDouble();
+			}
+		}
+		return votes;
+	}
+
+	@Test
+	public void testMeasurementNamesAndValues() {
+		Example<Instance>[] examples = examples(1000);
+		double[][] votes = votes(examples.length);
+		for (BasicClassificationPerformanceEvaluator evaluator : evaluators()) {
+			evaluator.prepareForUse();
+			for (int i = 0; i < examples.length; i++) {
+				evaluator.addResult(examples[i], votes[i]);
+			}
+			Measurement[] measurements = evaluator.getPerformanceMeasurements();
+			String[] names = evaluator.getPerformanceMeasurementNames();
+			double[] values = evaluator.getPerformanceMeasurementValues(new double[measurements.length]);
+			assertEquals(measurements.length, names.length);
+			for (int i = 0; i < measurements.length; i++) {
+				assertEquals(measurements[i].getName(), names[i]);
+				assertEquals(measurements[i].getValue(), values[i], 0.0);
+			}
+			assertEquals(evaluator.getFractionCorrectlyClassified() * 100.0, values[1], 0.0);
+			assertEquals(evaluator.getKappaMStatistic() * 100.0, values[4], 0.0);
+			assertSame(names, evaluator.getPerformanceMeasurementNames());
+			assertSame(values, evaluator.getPerformanceMeasurementValues(values));
+		}
+	}
+
+	@Test
+	public void testAddResultDoesNotAllocate() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+		long threadId = Thread.currentThread().getId();
+		Example<Instance>[] examples = examples(1000);
+		double[][] votes = votes(examples.length);
+		for (BasicClassificationPerformanceEvaluator evaluator : evaluators()) {
+			evaluator.prepareForUse();
+			// the estimators are created on the first result
+			for (int i = 0; i < examples.length; i++) {
+				evaluator.addResult(examples[i], votes[i]);
+			}
+			long allocatedBytes = threadBean.getThreadAllocatedBytes(threadId);
+			for (int n = 0; n < 100; n++) {
+				for (int i = 0; i < examples.length; i++) {
+					evaluator.addResult(examples[i], votes[i]);
+				}
+			}
+			allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - allocatedBytes;
+			// leaves room for the allocations of the measuring itself
+			assertTrue(evaluator.getClass().getSimpleName() + " allocated " + allocatedBytes + " bytes",
+					allocatedBytes < 1024);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ *    SampledClusteringMeasuresTest.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.evaluation;
+
+import static org.junit.Assert.*;
+
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import java.util.ArrayList;
+import moa.cluster.Clustering;
+import moa.clusterers.clustream.WithKmeans;
+import moa.gui.visualization.DataPoint;
+import moa.streams.clustering.RandomRBFGeneratorEvents;
+import org.junit.Test;
+
+/**
+ * Tests that the indexed CMM gives the measures of CMM and that the sampled
+ * silhouette coefficient estimates the exact one.
+ */
+public class SampledClusteringMeasuresTest {
+
+	/**
+	 * Evaluates the measures on consecutive windows of a stream, the way
+	 * EvaluateClustering does.
+	 */
+	private static void evaluate(int numAtts, int window, int numWindows,
+			MeasureCollection... measures) throws Exception {
+		RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
+		stream.numAttsOption.setValue(numAtts);
+		stream.prepareForUse();
+		WithKmeans clusterer = new WithKmeans();
+		clusterer.prepareForUse();
+		ArrayList<DataPoint> points = new ArrayList<DataPoint>();
+		int timestamp = 0;
+		for (int w = 0; w < numWindows; w++) {
+			points.clear();
+			for (int i = 0; i < window; i++) {
+				timestamp++;
+				DataPoint point = new DataPoint(stream.nextInstance().getData(), timestamp);
+				points.add(point);
+				Instance trainInst = new DenseInstance(point);
+				trainInst.deleteAttributeAt(point.classIndex());
+				clusterer.trainOnInstanceImpl(trainInst);
+			}
+			Clustering trueClustering = new Clustering(points);
+			Clustering clustering = clusterer.getClusteringResult();
+			for (MeasureCollection measure : measures) {
+				measure.evaluateClusteringPerformance(clustering, trueClustering, points);
+			}
+		}
+	}
+
+	@Test
+	public void testIndexedCMMGivesCMM() throws Exception {
+		for (int numAtts : new int[]{2, 5}) {
+			CMM cmm = new CMM();
+			IndexedCMM indexedCMM = new IndexedCMM();
+			evaluate(numAtts, 1500, 3, cmm, indexedCMM);
+			assertEquals(cmm.getNumMeasures(), indexedCMM.getNumMeasures());
+			for (int i = 0; i < cmm.getNumMeasures(); i++) {
+				assertEquals(cmm.getName(i), indexedCMM.getName(i));
+				assertEquals(3, indexedCMM.getNumberOfValues(i));
+				for (int j = 0; j < cmm.getNumberOfValues(i); j++) {
+					assertEquals(cmm.getName(i), cmm.getValue(i, j), indexedCMM.getValue(i, j), 0.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSampledSilhouetteOnSmallWindows() throws Exception {
+		SilhouetteCoefficient silhouette = new SilhouetteCoefficient();
+		SampledSilhouetteCoefficient sampledSilhouette = new SampledSilhouetteCoefficient();
+		evaluate(2, 400, 3, silhouette, sampledSilhouette);
+		// all points fit in the sample
+		for (int j = 0; j < 3; j++) {
+			assertEquals(silhouette.getValue(0, j), sampledSilhouette.getValue(0, j), 0.0);
+			assertEquals(0.0, sampledSilhouette.getValue(1, j), 0.0);
+		}
+	}
+
+	@Test
+	public void testSampledSilhouetteEstimate() throws Exception {
+		SilhouetteCoefficient silhouette = new SilhouetteCoefficient();
+		SampledSilhouetteCoefficient sampledSilhouette = new SampledSilhouetteCoefficient();
+		evaluate(2, 3000, 3, silhouette, sampledSilhouette);
+		for (int j = 0; j < 3; j++) {
+			double halfWidth = sampledSilhouette.getValue(1, j);
+			assertTrue(halfWidth > 0.0);
+			// the sample also perturbs the silhouettes of the sampled points
+			assertEquals(silhouette.getValue(0, j), sampledSilhouette.getValue(0, j), 3 * halfWidth);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package moa.streams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+
+import moa.streams.generators.RandomTreeGenerator;
+import moa.tasks.WriteStreamToBinaryFile;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Test BinaryFileStream and WriteStreamToBinaryFile
+ */
+public class BinaryFileStreamTest {
+	private static int NUM_INSTANCES = 1000;
+
+	private static File write(boolean sparse) throws Exception {
+		File file = File.createTempFile("binaryfilestream", ".bin");
+		file.deleteOnExit();
+		WriteStreamToBinaryFile task = new WriteStreamToBinaryFile();
+		task.getOptions().setViaCLIString("-s generators.RandomTreeGenerator -m "
+				+ NUM_INSTANCES + " -f " + file.getPath() + (sparse ? " -p" : ""));
+		task.prepareForUse();
+		task.doTask();
+		return file;
+	}
+
+	private static void assertSameStream(File file) {
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		BinaryFileStream stream = new BinaryFileStream(file.getPath());
+		assertEquals(generator.getHeader().toString(), stream.getHeader().toString());
+		assertEquals(generator.getHeader().classIndex(), stream.getHeader().classIndex());
+		for (int n = 0; n < NUM_INSTANCES; n++) {
+			Instance expected = generator.nextInstance().getData();
+			Instance inst = stream.nextInstance().getData();
+			assertEquals(expected.weight(), inst.weight(), 0.0);
+			for (int i = 0; i < expected.numAttributes(); i++) {
+				assertEquals(expected.value(i), inst.value(i), 0.0);
+			}
+			assertEquals(expected.classValue(), inst.classValue(), 0.0);
+		}
+		assertFalse(stream.hasMoreInstances());
+		assertEquals(0, stream.estimatedRemainingInstances());
+	}
+
+	@Test
+	public void testDense() throws Exception {
+		assertSameStream(write(false));
+	}
+
+	@Test
+	public void testSparse() throws Exception {
+		assertSameStream(write(true));
+	}
+
+	@Test
+	public void testRestart() throws Exception {
+		File file = write(false);
+		BinaryFileStream stream = new BinaryFileStream(file.getPath());
+		assertEquals(NUM_INSTANCES, stream.estimatedRemainingInstances());
+		double first = stream.nextInstance().getData().value(0);
+		while (stream.hasMoreInstances()) {
+			stream.nextInstance();
+		}
+		stream.restart();
+		assertEquals(first, stream.nextInstance().getData().value(0), 0.0);
+	}
+}
@@ -0,0 +1,108 @@
+package moa.streams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import moa.streams.generators.RandomRBFGenerator;
+import moa.tasks.LearnModel;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ * Test PrefetchingStream
+ */
+public class PrefetchingStreamTest {
+	private static int NUM_INSTANCES = 2000;
+
+	private static PrefetchingStream prefetch(String stream) {
+		PrefetchingStream prefetching = new PrefetchingStream();
+		prefetching.getOptions().setViaCLIString("-s (" + stream + ") -b 64 -q 2");
+		prefetching.prepareForUse();
+		return prefetching;
+	}
+
+	private static void assertSameInstances(InstanceStream expected, InstanceStream stream, int numInstances) {
+		for (int n = 0; n < numInstances; n++) {
+			assertTrue(stream.hasMoreInstances());
+			Instance expectedInst = expected.nextInstance().getData();
+			Instance inst = stream.nextInstance().getData();
+			for (int i = 0; i < expectedInst.numAttributes(); i++) {
+				assertEquals(expectedInst.value(i), inst.value(i), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testOrder() {
+		RandomRBFGenerator expected = new RandomRBFGenerator();
+		expected.prepareForUse();
+		PrefetchingStream stream = prefetch("generators.RandomRBFGenerator");
+		assertEquals(expected.getHeader().toString(), stream.getHeader().toString());
+		assertSameInstances(expected, stream, NUM_INSTANCES);
+	}
+
+	@Test
+	public void testRestart() {
+		RandomRBFGenerator expected = new RandomRBFGenerator();
+		expected.prepareForUse();
+		PrefetchingStream stream = prefetch("generators.RandomRBFGenerator");
+		assertSameInstances(expected, stream, 100);
+		stream.restart();
+		expected.restart();
+		assertSameInstances(expected, stream, NUM_INSTANCES);
+	}
+
+	@Test
+	public void testEndOfStream() {
+		RandomRBFGenerator generator = new RandomRBFGenerator();
+		generator.prepareForUse();
+		Instances instances = new Instances(generator.getHeader(), 100);
+		for (int n = 0; n < 100; n++) {
+			instances.add(generator.nextInstance().getData());
+		}
+		PrefetchingStream stream = new PrefetchingStream();
+		stream.streamOption.setCurrentObject(new CachedInstancesStream(instances));
+		stream.batchSizeOption.setValue(64);
+		stream.prepareForUse();
+		int numRead = 0;
+		while (stream.hasMoreInstances()) {
+			assertEquals(instances.instance(numRead).value(0), stream.nextInstance().getData().value(0), 0.0);
+			numRead++;
+		}
+		assertEquals(100, numRead);
+		assertFalse(stream.hasMoreInstances());
+		assertEquals(0, stream.estimatedRemainingInstances());
+	}
+
+	@Test
+	public void testClose() {
+		RandomRBFGenerator expected = new RandomRBFGenerator();
+		expected.prepareForUse();
+		PrefetchingStream stream = prefetch("generators.RandomRBFGenerator");
+		assertSameInstances(expected, stream, 100);
+		Thread producer = stream.producer;
+		stream.close();
+		assertFalse(producer.isAlive());
+		assertFalse(stream.hasMoreInstances());
+		stream.restart();
+		expected.restart();
+		assertSameInstances(expected, stream, 100);
+		stream.close();
+	}
+
+	@Test
+	public void testClosedByTask() {
+		LearnModel task = new LearnModel();
+		task.getOptions().setViaCLIString("-l bayes.NaiveBayes -m 1000"
+				+ " -s (PrefetchingStream -s generators.RandomRBFGenerator -b 64 -q 2)");
+		task.doTask();
+		PrefetchingStream stream = (PrefetchingStream) task.streamOption.getPreMaterializedObject();
+		assertNull(stream.producer);
+		assertFalse(stream.hasMoreInstances());
+	}
+}
@@ -0,0 +1,145 @@
+package moa.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import moa.classifiers.bayes.NaiveBayes;
+import moa.evaluation.preview.LearningCurve;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import org.junit.Test;
+
+/**
+ * Test that EvaluatePrequentialMultipleLearners gives every learner the
+ * learning curve of EvaluatePrequential.
+ */
+public class EvaluatePrequentialMultipleLearnersTest {
+    private static final String[] LEARNERS = {"bayes.NaiveBayes", "trees.HoeffdingTree",
+        "trees.HoeffdingTree -l MC"};
+
+    private static final String STREAM = "(generators.RandomTreeGenerator -r 3)";
+
+    /**
+     * Error thrown by FailingLearner.
+     */
+    public static class LearnerError extends Error {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Learner changing the weight of the instances it is trained on, as
+     * WeightedkNN does.
+     */
+    public static class WeightingLearner extends NaiveBayes {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void trainOnInstanceImpl(Instance inst) {
+            inst.setWeight(2);
+            super.trainOnInstanceImpl(inst);
+        }
+    }
+
+    /**
+     * Learner throwing an error after 500 instances.
+     */
+    public static class FailingLearner extends NaiveBayes {
+        private static final long serialVersionUID = 1L;
+
+        private int instancesSeen;
+
+        @Override
+        public void trainOnInstanceImpl(Instance inst) {
+            if (++this.instancesSeen == 500) {
+                throw new LearnerError();
+            }
+            super.trainOnInstanceImpl(inst);
+        }
+    }
+
+    private static int indexOf(LearningCurve curve, String name) {
+        for (int i = 0; i < curve.getMeasurementNameCount(); i++) {
+            if (curve.getMeasurementName(i).equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static LearningCurve evaluatePrequential(String learner, int instanceLimit) {
+        EvaluatePrequential task = new EvaluatePrequential();
+        task.getOptions().setViaCLIString("-l (" + learner + ") -s " + STREAM + " -i "
+                + instanceLimit + " -f 1000");
+        task.prepareForUse();
+        return (LearningCurve) task.doTask();
+    }
+
+    private static void assertSameCurves(String[] learnerNames, int instanceLimit, int numberOfJobs) {
+        EvaluatePrequentialMultipleLearners task = new EvaluatePrequentialMultipleLearners();
+        StringBuilder learners = new StringBuilder();
+        for (String learner : learnerNames) {
+            learners.append(learners.length() > 0 ? "," : "").append(learner);
+        }
+        task.getOptions().setViaCLIString("-l (" + learners + ") -s " + STREAM + " -i "
+                + instanceLimit + " -f 1000 -j " + numberOfJobs + " -b 64 -u 2");
+        task.prepareForUse();
+        LearningCurve curve = (LearningCurve) task.doTask();
+        assertNotNull(curve);
+        int learnerIndex = indexOf(curve, "learner");
+        assertEquals(1, learnerIndex);
+        int entry = 0;
+        for (int i = 0; i < learnerNames.length; i++) {
+            LearningCurve expected = evaluatePrequential(learnerNames[i], instanceLimit);
+            for (int expectedEntry = 0; expectedEntry < expected.numEntries(); expectedEntry++) {
+                // the entries of the learners alternate
+                entry = expectedEntry * learnerNames.length + i;
+                assertEquals(i, curve.getMeasurement(entry, learnerIndex), 0.0);
+                for (int j = 0; j < expected.getEntryMeasurementCount(expectedEntry); j++) {
+                    String name = expected.getMeasurementName(j);
+                    if (name.startsWith("evaluation time") || name.startsWith("model cost")) {
+                        continue;
+                    }
+                    assertEquals(name, expected.getMeasurement(expectedEntry, j),
+                            curve.getMeasurement(entry, indexOf(curve, name)), 0.0);
+                }
+            }
+        }
+        assertEquals(curve.numEntries() - 1, entry);
+    }
+
+    @Test
+    public void testSameCurvesAsEvaluatePrequential() {
+        assertSameCurves(LEARNERS, 5000, 2);
+    }
+
+    @Test
+    public void testSameCurvesWithLastSampleBetweenBatches() {
+        assertSameCurves(LEARNERS, 4321, 1);
+    }
+
+    @Test
+    public void testLearnerChangingInstances() {
+        String weighting = WeightingLearner.class.getName();
+        String[] learners = {weighting, "bayes.NaiveBayes", weighting, "bayes.NaiveBayes"};
+        // the learners on the same worker
+        assertSameCurves(learners, 3000, 1);
+        // the learners on different workers
+        assertSameCurves(learners, 3000, 4);
+    }
+
+    @Test
+    public void testLearnerError() {
+        EvaluatePrequentialMultipleLearners task = new EvaluatePrequentialMultipleLearners();
+        task.getOptions().setViaCLIString("-l (bayes.NaiveBayes," + FailingLearner.class.getName()
+                + ") -s " + STREAM + " -i 100000 -j 1 -b 10 -u 1");
+        task.prepareForUse();
+        try {
+            task.doTask();
+            fail("the error of the learner was not thrown");
+        } catch (LearnerError e) {
+            // expected
+        }
+    }
+}